@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.spanner;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.teleport.spanner.ImportTransform.ReadExportManifestFile;
+import com.google.cloud.teleport.spanner.ImportTransform.ReadTableManifestFile;
+import com.google.cloud.teleport.spanner.ImportTransform.ValidateInputFiles;
+import com.google.cloud.teleport.spanner.ddl.Ddl;
+import com.google.cloud.teleport.spanner.ddl.IndexColumn;
+import com.google.cloud.teleport.spanner.ddl.Table;
+import com.google.cloud.teleport.spanner.proto.ExportProtos.Export;
+import com.google.cloud.teleport.spanner.proto.ExportProtos.TableManifest;
+import com.google.cloud.teleport.spanner.spannerio.SpannerConfig;
+import com.google.cloud.teleport.spanner.spannerio.SpannerIO;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.extensions.avro.io.AvroSource;
+import org.apache.beam.sdk.io.BoundedSource;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.options.ValueProvider;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Reshuffle;
+import org.apache.beam.sdk.transforms.Wait;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies a chain of incremental exports on top of an imported export.
+ *
+ * <p>The incremental exports are given oldest first. The first one must contain the changes since
+ * the read timestamp of the imported export, and each following one the changes since the read
+ * timestamp of the previous one. The changed rows and the deleted keys of all the incremental
+ * exports are merged, and only the latest change of each row is written.
+ *
+ * <p>The changes are written in stages following the depths of the {@link TableImportSchedule}: the
+ * rows of a table are written after the rows of its parent, and the deleted keys of a table are
+ * deleted before the deleted keys of its parent.
+ *
+ * <p>The input is the DDL of the database, once the imported export is written. The output is empty
+ * and is ready once all the changes are written.
+ */
+class ApplyDeltaExports extends PTransform<PCollection<Ddl>, PCollection<Void>> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ApplyDeltaExports.class);
+
+  private final SpannerConfig spannerConfig;
+  private final ValueProvider<String> deltaDirectories;
+  private final PCollectionView<Export> manifestView;
+  private final PCollectionView<Ddl> ddlView;
+  private final PCollectionView<TableImportSchedule> scheduleView;
+  private final PCollectionView<Dialect> dialectView;
+  private final int maxDepth;
+
+  ApplyDeltaExports(
+      SpannerConfig spannerConfig,
+      ValueProvider<String> deltaDirectories,
+      PCollectionView<Export> manifestView,
+      PCollectionView<Ddl> ddlView,
+      PCollectionView<TableImportSchedule> scheduleView,
+      PCollectionView<Dialect> dialectView,
+      int maxDepth) {
+    this.spannerConfig = spannerConfig;
+    this.deltaDirectories = deltaDirectories;
+    this.manifestView = manifestView;
+    this.ddlView = ddlView;
+    this.scheduleView = scheduleView;
+    this.dialectView = dialectView;
+    this.maxDepth = maxDepth;
+  }
+
+  @Override
+  public PCollection<Void> expand(PCollection<Ddl> ddl) {
+    PCollection<Mutation> changes =
+        ddl.apply(
+                "List delta files",
+                ParDo.of(new ListDeltaFilesFn(deltaDirectories, manifestView))
+                    .withSideInputs(manifestView))
+            .apply("Reshuffle delta files", Reshuffle.viaRandomKey())
+            .apply(
+                "Read delta files", ParDo.of(new ReadDeltaFileFn(ddlView)).withSideInputs(ddlView))
+            .apply("Group changes by key", GroupByKey.create())
+            .apply("Keep latest changes", ParDo.of(new KeepLatestChangeFn()));
+
+    PCollection<Void> previousComputation = null;
+    for (int i = 0; i < maxDepth; i++) {
+      final int stage = i;
+      PCollection<Mutation> stageChanges =
+          changes.apply(
+              "Get delta changes stage " + stage,
+              ParDo.of(
+                      new DoFn<Mutation, Mutation>() {
+
+                        @ProcessElement
+                        public void processElement(ProcessContext c) {
+                          Mutation mutation = c.element();
+                          int depth = c.sideInput(scheduleView).getDepth(mutation.getTable());
+                          // Deletes run in the reverse order, children before parents.
+                          int mutationStage =
+                              mutation.getOperation() == Mutation.Op.DELETE
+                                  ? maxDepth - 1 - depth
+                                  : depth;
+                          if (mutationStage == stage) {
+                            c.output(mutation);
+                          }
+                        }
+                      })
+                  .withSideInputs(scheduleView));
+      if (previousComputation != null) {
+        stageChanges =
+            stageChanges.apply(
+                "Wait for previous delta stage " + stage, Wait.on(previousComputation));
+      }
+      previousComputation =
+          stageChanges
+              .apply(
+                  "Write delta changes stage " + stage,
+                  SpannerIO.write()
+                      .withSchemaReadySignal(ddl)
+                      .withSpannerConfig(spannerConfig)
+                      .withCommitDeadline(Duration.standardMinutes(1))
+                      .withMaxCumulativeBackoff(Duration.standardHours(2))
+                      .withMaxNumMutations(10000)
+                      .withGroupingFactor(100)
+                      .withDialectView(dialectView))
+              .getOutput();
+    }
+    return previousComputation;
+  }
+
+  /**
+   * Reads the manifests of the incremental exports, checks that they form a chain starting at the
+   * imported export, and outputs the (file, (name, index)) pairs of their data files. The name is
+   * either a table name, or the deleted keys name of a table.
+   */
+  @VisibleForTesting
+  static class ListDeltaFilesFn extends DoFn<Ddl, KV<String, KV<String, Integer>>> {
+
+    private final ValueProvider<String> deltaDirectories;
+    private final PCollectionView<Export> manifestView;
+
+    ListDeltaFilesFn(ValueProvider<String> deltaDirectories, PCollectionView<Export> manifestView) {
+      this.deltaDirectories = deltaDirectories;
+      this.manifestView = manifestView;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) throws IOException {
+      if (Strings.isNullOrEmpty(deltaDirectories.get())
+          || deltaDirectories.get().trim().isEmpty()) {
+        return;
+      }
+      Ddl ddl = c.element();
+      List<String> directories = Arrays.asList(deltaDirectories.get().trim().split("\\s*,\\s*"));
+      String previousReadTimestamp = c.sideInput(manifestView).getReadTimestamp();
+      for (int index = 0; index < directories.size(); index++) {
+        String directory = directories.get(index);
+        Export manifest =
+            ReadExportManifestFile.readManifest(
+                FileSystems.matchNewResource(
+                    GcsUtil.joinPath(directory, "spanner-export.json"), false));
+        if (previousReadTimestamp.isEmpty()
+            || !previousReadTimestamp.equals(manifest.getChangedSinceTimestamp())) {
+          throw new IllegalArgumentException(
+              String.format(
+                  "The export in %s contains the changes since '%s', but the previous export was"
+                      + " read at '%s'",
+                  directory, manifest.getChangedSinceTimestamp(), previousReadTimestamp));
+        }
+        LOG.info(
+            "Applying the changes from {} to {} in {}",
+            manifest.getChangedSinceTimestamp(),
+            manifest.getReadTimestamp(),
+            directory);
+        previousReadTimestamp = manifest.getReadTimestamp();
+
+        for (Export.Table table : manifest.getTablesList()) {
+          if (ddl.table(table.getName()) == null) {
+            // Views, models and property graphs do not have any data.
+            if (ddl.view(table.getName()) == null
+                && ddl.model(table.getName()) == null
+                && ddl.propertyGraph(table.getName()) == null
+                && ddl.schema(table.getName()) == null) {
+              throw new IllegalArgumentException(
+                  String.format(
+                      "Table %s of the export in %s does not exist in the database",
+                      table.getName(), directory));
+            }
+            continue;
+          }
+          outputFiles(c, directory, table, table.getName(), index);
+        }
+        for (Export.Table deletedKeys : manifest.getDeletedKeysList()) {
+          if (ddl.table(deletedKeys.getName()) == null) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "Table %s of the export in %s does not exist in the database",
+                    deletedKeys.getName(), directory));
+          }
+          outputFiles(
+              c,
+              directory,
+              deletedKeys,
+              ReadDeletedKeys.deletedKeysName(deletedKeys.getName()),
+              index);
+        }
+      }
+    }
+
+    private static void outputFiles(
+        ProcessContext c, String directory, Export.Table table, String name, int index)
+        throws IOException {
+      for (String file : table.getDataFilesList()) {
+        c.output(KV.of(GcsUtil.joinPath(directory, file), KV.of(name, index)));
+      }
+      if (!Strings.isNullOrEmpty(table.getManifestFile())) {
+        TableManifest tableManifest =
+            ReadTableManifestFile.readTableManifest(
+                GcsUtil.joinPath(directory, table.getManifestFile()));
+        for (String file :
+            ValidateInputFiles.validate(c.getPipelineOptions(), directory, tableManifest)) {
+          c.output(KV.of(file, KV.of(name, index)));
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads a data file of an incremental export, and outputs its changes keyed by the table and
+   * primary key of the row they apply to, with the index of the export.
+   */
+  @VisibleForTesting
+  static class ReadDeltaFileFn
+      extends DoFn<KV<String, KV<String, Integer>>, KV<String, KV<Integer, Mutation>>> {
+
+    private final PCollectionView<Ddl> ddlView;
+
+    ReadDeltaFileFn(PCollectionView<Ddl> ddlView) {
+      this.ddlView = ddlView;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) throws IOException {
+      String file = c.element().getKey();
+      String name = c.element().getValue().getKey();
+      int index = c.element().getValue().getValue();
+
+      String deletedKeysTable = ReadDeletedKeys.deletedKeysTable(name);
+      Table table = c.sideInput(ddlView).table(deletedKeysTable != null ? deletedKeysTable : name);
+      // The deleted keys files only contain the primary key columns.
+      Table fileTable = deletedKeysTable != null ? table.primaryKeyTable() : table;
+      AvroSource<Mutation> source =
+          AvroSource.from(file)
+              .withParseFn(
+                  new AvroRecordConverter(fileTable), SerializableCoder.of(Mutation.class));
+      try (BoundedSource.BoundedReader<Mutation> reader =
+          source.createReader(c.getPipelineOptions())) {
+        for (boolean more = reader.start(); more; more = reader.advance()) {
+          Mutation mutation = reader.getCurrent();
+          Mutation change = deletedKeysTable != null ? toDelete(table, mutation) : mutation;
+          c.output(KV.of(rowKey(table, mutation), KV.of(index, change)));
+        }
+      }
+    }
+  }
+
+  /** Outputs the change of the latest incremental export of each row. */
+  static class KeepLatestChangeFn
+      extends DoFn<KV<String, Iterable<KV<Integer, Mutation>>>, Mutation> {
+
+    private final Counter rowsUpserted =
+        Metrics.counter(ApplyDeltaExports.class, "Delta rows upserted");
+    private final Counter rowsDeleted =
+        Metrics.counter(ApplyDeltaExports.class, "Delta rows deleted");
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      KV<Integer, Mutation> latest = null;
+      for (KV<Integer, Mutation> change : c.element().getValue()) {
+        if (latest == null || change.getKey() > latest.getKey()) {
+          latest = change;
+        }
+      }
+      if (latest.getValue().getOperation() == Mutation.Op.DELETE) {
+        rowsDeleted.inc();
+      } else {
+        rowsUpserted.inc();
+      }
+      c.output(latest.getValue());
+    }
+  }
+
+  /** Returns a key identifying the row of a table which a mutation writes. */
+  @VisibleForTesting
+  static String rowKey(Table table, Mutation mutation) {
+    StringBuilder key = new StringBuilder(table.name().toLowerCase());
+    for (IndexColumn pk : table.primaryKeys()) {
+      Value value = mutation.asMap().get(pk.name());
+      String part = value == null || value.isNull() ? "" : value.toString();
+      // Prefix each value with its length, so that the concatenation is unambiguous.
+      key.append('/')
+          .append(value == null || value.isNull() ? -1 : part.length())
+          .append(':')
+          .append(part);
+    }
+    return key.toString();
+  }
+
+  /** Converts a mutation writing the primary key of a row to the deletion of the row. */
+  @VisibleForTesting
+  static Mutation toDelete(Table table, Mutation mutation) {
+    Key.Builder key = Key.newBuilder();
+    for (IndexColumn pk : table.primaryKeys()) {
+      Value value = mutation.asMap().get(pk.name());
+      if (value == null || value.isNull()) {
+        key.appendObject(null);
+        continue;
+      }
+      switch (value.getType().getCode()) {
+        case BOOL:
+          key.append(value.getBool());
+          break;
+        case INT64:
+          key.append(value.getInt64());
+          break;
+        case FLOAT64:
+          key.append(value.getFloat64());
+          break;
+        case FLOAT32:
+          key.append((double) value.getFloat32());
+          break;
+        case STRING:
+        case PG_NUMERIC:
+          key.append(value.getString());
+          break;
+        case BYTES:
+          key.append(value.getBytes());
+          break;
+        case TIMESTAMP:
+          key.append(value.getTimestamp());
+          break;
+        case DATE:
+          key.append(value.getDate());
+          break;
+        case NUMERIC:
+          key.append(value.getNumeric());
+          break;
+        default:
+          throw new IllegalArgumentException(
+              String.format(
+                  "Unsupported primary key type %s of column %s of table %s",
+                  value.getType(), pk.name(), table.name()));
+      }
+    }
+    return Mutation.delete(table.name(), key.build());
+  }
+}
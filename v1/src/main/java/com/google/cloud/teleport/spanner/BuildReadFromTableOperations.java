@@ -20,11 +20,13 @@ import static com.google.cloud.teleport.spanner.common.NameUtils.quoteIdentifier
 
 import com.google.cloud.spanner.Dialect;
 import com.google.cloud.spanner.PartitionOptions;
+import com.google.cloud.teleport.spanner.common.Type;
 import com.google.cloud.teleport.spanner.ddl.Column;
 import com.google.cloud.teleport.spanner.ddl.Ddl;
 import com.google.cloud.teleport.spanner.ddl.Table;
 import com.google.cloud.teleport.spanner.spannerio.ReadOperation;
 import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -34,6 +36,7 @@ import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,20 +56,30 @@ class BuildReadFromTableOperations
   // then ReadOperations will be made for every table in the database.
   private final ValueProvider<String> tables;
 
+  // For an incremental export, the timestamp after which the rows of the tables with a commit
+  // timestamp column have to be changed to be exported. Empty for a full export.
+  private final PCollectionView<String> changedSinceView;
+
   public BuildReadFromTableOperations(ValueProvider<String> tables) {
+    this(tables, null);
+  }
+
+  public BuildReadFromTableOperations(
+      ValueProvider<String> tables, PCollectionView<String> changedSinceView) {
     this.tables = tables;
+    this.changedSinceView = changedSinceView;
   }
 
   @Override
   public PCollection<ReadOperation> expand(PCollection<Ddl> ddl) {
-    return ddl.apply(
-        "Read from table operations",
+    ParDo.SingleOutput<Ddl, ReadOperation> readOperations =
         ParDo.of(
             new DoFn<Ddl, ReadOperation>() {
 
               @ProcessElement
               public void processElement(ProcessContext c) {
                 Ddl ddl = c.element();
+                String changedSince = changedSinceView == null ? "" : c.sideInput(changedSinceView);
 
                 List<String> tablesList = Collections.emptyList();
 
@@ -85,6 +98,12 @@ class BuildReadFromTableOperations
                   PartitionOptions partitionOptions =
                       PartitionOptions.newBuilder().setMaxPartitions(MAX_PARTITIONS).build();
 
+                  String filter = changedRowsFilter(table, changedSince);
+                  if (!filter.isEmpty()) {
+                    LOG.info(
+                        "Exporting the rows of {} changed since {}.", table.name(), changedSince);
+                  }
+
                   // Also have to export table name to be able to identify which row belongs to
                   // which table.
                   ReadOperation read;
@@ -94,10 +113,11 @@ class BuildReadFromTableOperations
                           ReadOperation.create()
                               .withQuery(
                                   String.format(
-                                      "SELECT \"%s\" AS _spanner_table, %s FROM %s AS t",
+                                      "SELECT \"%s\" AS _spanner_table, %s FROM %s AS t%s",
                                       table.name(),
                                       columnsListAsString,
-                                      quoteIdentifier(table.name(), Dialect.GOOGLE_STANDARD_SQL)))
+                                      quoteIdentifier(table.name(), Dialect.GOOGLE_STANDARD_SQL),
+                                      filter))
                               .withPartitionOptions(partitionOptions);
                       break;
                     case POSTGRESQL:
@@ -105,10 +125,11 @@ class BuildReadFromTableOperations
                           ReadOperation.create()
                               .withQuery(
                                   String.format(
-                                      "SELECT '%s' AS _spanner_table, %s FROM %s AS t",
+                                      "SELECT '%s' AS _spanner_table, %s FROM %s AS t%s",
                                       table.name(),
                                       columnsListAsString,
-                                      quoteIdentifier(table.name(), Dialect.POSTGRESQL)))
+                                      quoteIdentifier(table.name(), Dialect.POSTGRESQL),
+                                      filter))
                               .withPartitionOptions(partitionOptions);
                       break;
                     default:
@@ -118,11 +139,66 @@ class BuildReadFromTableOperations
                   c.output(read);
                 }
               }
-            }));
+            });
+    if (changedSinceView != null) {
+      readOperations = readOperations.withSideInputs(changedSinceView);
+    }
+    return ddl.apply("Read from table operations", readOperations);
+  }
+
+  /**
+   * Returns the WHERE clause selecting the rows of a table changed after a timestamp, or an empty
+   * string when all the rows have to be read. A row is changed if any of the commit timestamp
+   * columns of the table is after the timestamp.
+   */
+  @VisibleForTesting
+  static String changedRowsFilter(Table table, String changedSince) {
+    if (changedSince.isEmpty()) {
+      return "";
+    }
+    List<String> conditions = new ArrayList<>();
+    for (Column column : commitTimestampColumns(table)) {
+      switch (table.dialect()) {
+        case GOOGLE_STANDARD_SQL:
+          conditions.add(String.format("t.`%s` > TIMESTAMP '%s'", column.name(), changedSince));
+          break;
+        case POSTGRESQL:
+          conditions.add(
+              String.format("t.\"%s\" > '%s'::timestamptz", column.name(), changedSince));
+          break;
+        default:
+          throw new IllegalArgumentException(
+              String.format("Unrecognized dialect: %s", table.dialect()));
+      }
+    }
+    return conditions.isEmpty() ? "" : " WHERE " + String.join(" OR ", conditions);
+  }
+
+  /** Returns the columns of a table which store the commit timestamp of their row. */
+  static List<Column> commitTimestampColumns(Table table) {
+    List<Column> result = new ArrayList<>();
+    for (Column column : table.columns()) {
+      if (column.isGenerated()) {
+        continue;
+      }
+      if (column.type().getCode() == Type.Code.PG_SPANNER_COMMIT_TIMESTAMP) {
+        result.add(column);
+        continue;
+      }
+      if (column.columnOptions() != null) {
+        for (String option : column.columnOptions()) {
+          if (option.replace(" ", "").equalsIgnoreCase("allow_commit_timestamp=true")) {
+            result.add(column);
+            break;
+          }
+        }
+      }
+    }
+    return result;
   }
 
   @VisibleForTesting
-  String createColumnExpression(Column col) {
+  static String createColumnExpression(Column col) {
     switch (col.dialect()) {
       case GOOGLE_STANDARD_SQL:
         if (col.typeString().equals("JSON")) {
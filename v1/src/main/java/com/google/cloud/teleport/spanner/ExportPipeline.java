@@ -231,6 +231,18 @@ public class ExportPipeline {
     ValueProvider<Boolean> getDataBoostEnabled();
 
     void setDataBoostEnabled(ValueProvider<Boolean> value);
+
+    @TemplateParameter.GcsReadFolder(
+        order = 14,
+        optional = true,
+        description = "Cloud Storage directory of the previous export",
+        helpText =
+            "The Cloud Storage directory of a previous export of the same database, that contains its `spanner-export.json` file. When set, the export is incremental: the tables with a commit timestamp column only contain the rows whose commit timestamp is after the read timestamp of the previous export, which are all the rows changed since only if every write to the table sets the commit timestamp column. Tables without such a column, and tables created since the previous export, are exported in full. The primary keys of the rows deleted since are exported to `<table>-deleted-keys` files. The version retention period of the database must cover the time since the previous export. Defaults to a full export.",
+        example = "gs://your-bucket/your-path/your-instance-your-database-your-job-id")
+    @Default.String("")
+    ValueProvider<String> getPreviousExportDirectory();
+
+    void setPreviousExportDirectory(ValueProvider<String> value);
   }
 
   /**
@@ -274,7 +286,8 @@ public class ExportPipeline {
                 options.getTableNames(),
                 options.getShouldExportRelatedTables(),
                 options.getShouldExportTimestampAsLogicalType(),
-                options.getAvroTempDirectory()));
+                options.getAvroTempDirectory(),
+                options.getPreviousExportDirectory()));
     PipelineResult result = p.run();
     if (options.getWaitUntilFinish()
         &&
@@ -18,6 +18,7 @@ package com.google.cloud.teleport.spanner;
 import static com.google.cloud.teleport.spanner.SpannerTableFilter.getFilteredTables;
 import static com.google.cloud.teleport.util.ValueProviderUtils.eitherOrValueProvider;
 
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
 import com.google.cloud.spanner.Dialect;
 import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.TimestampBound;
@@ -34,6 +35,7 @@ import com.google.cloud.teleport.spanner.proto.ExportProtos.Export;
 import com.google.cloud.teleport.spanner.proto.ExportProtos.ProtoDialect;
 import com.google.cloud.teleport.spanner.proto.ExportProtos.TableManifest;
 import com.google.cloud.teleport.spanner.spannerio.ReadOperation;
+import com.google.cloud.teleport.spanner.spannerio.SpannerAccessor;
 import com.google.cloud.teleport.spanner.spannerio.SpannerConfig;
 import com.google.cloud.teleport.spanner.spannerio.SpannerIO;
 import com.google.cloud.teleport.spanner.spannerio.Transaction;
@@ -45,10 +47,13 @@ import com.google.common.collect.Iterables;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.util.JsonFormat;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -92,6 +97,7 @@ import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.Flatten;
 import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.MapElements;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.Requirements;
@@ -107,6 +113,7 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TypeDescriptors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -140,6 +147,7 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
   private final ValueProvider<Boolean> exportRelatedTables;
   private final ValueProvider<Boolean> shouldExportTimestampAsLogicalType;
   private final ValueProvider<String> avroTempDirectory;
+  private final ValueProvider<String> previousExportDirectory;
 
   public ExportTransform(
       SpannerConfig spannerConfig,
@@ -165,6 +173,35 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
       ValueProvider<Boolean> exportRelatedTables,
       ValueProvider<Boolean> shouldExportTimestampAsLogicalType,
       ValueProvider<String> avroTempDirectory) {
+    this(
+        spannerConfig,
+        outputDir,
+        testJobId,
+        snapshotTime,
+        tableNames,
+        exportRelatedTables,
+        shouldExportTimestampAsLogicalType,
+        avroTempDirectory,
+        /* previousExportDirectory= */ ValueProvider.StaticValueProvider.of(""));
+  }
+
+  /**
+   * Creates an export. If {@code previousExportDirectory} is set, the export is incremental: the
+   * tables with a commit timestamp column only contain the rows whose commit timestamp is after the
+   * read timestamp of the previous export, and the primary keys of the rows deleted since are
+   * exported as well. The changed rows are only all exported if every write to such a table sets
+   * its commit timestamp column.
+   */
+  public ExportTransform(
+      SpannerConfig spannerConfig,
+      ValueProvider<String> outputDir,
+      ValueProvider<String> testJobId,
+      ValueProvider<String> snapshotTime,
+      ValueProvider<String> tableNames,
+      ValueProvider<Boolean> exportRelatedTables,
+      ValueProvider<Boolean> shouldExportTimestampAsLogicalType,
+      ValueProvider<String> avroTempDirectory,
+      ValueProvider<String> previousExportDirectory) {
     this.spannerConfig = spannerConfig;
     this.outputDir = outputDir;
     this.testJobId = testJobId;
@@ -173,6 +210,7 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
     this.exportRelatedTables = exportRelatedTables;
     this.shouldExportTimestampAsLogicalType = shouldExportTimestampAsLogicalType;
     this.avroTempDirectory = avroTempDirectory;
+    this.previousExportDirectory = previousExportDirectory;
   }
 
   /**
@@ -282,8 +320,52 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
                     c.output(ddl);
                   }
                 }));
+    // The manifest of the previous export, or an empty manifest for a full export.
+    PCollection<Export> previousManifest =
+        p.apply("Create previous export", Create.of(1))
+            .apply(
+                "Read previous export",
+                ParDo.of(
+                    new DoFn<Integer, Export>() {
+
+                      @ProcessElement
+                      public void processElement(ProcessContext c) throws IOException {
+                        String directory = previousExportDirectory.get();
+                        if (Strings.isNullOrEmpty(directory)) {
+                          c.output(Export.getDefaultInstance());
+                          return;
+                        }
+                        Export manifest =
+                            readPreviousManifest(
+                                GcsUtil.joinPath(directory, "spanner-export.json"));
+                        if (manifest.getReadTimestamp().isEmpty()) {
+                          throw new IllegalArgumentException(
+                              "The export in "
+                                  + directory
+                                  + " has no read timestamp, and can not be the base of an"
+                                  + " incremental export");
+                        }
+                        LOG.info(
+                            "Exporting the changes since the export in {} at {}",
+                            directory,
+                            manifest.getReadTimestamp());
+                        c.output(manifest);
+                      }
+                    }));
+    PCollectionView<Export> previousManifestView =
+        previousManifest.apply("Previous export as view", View.asSingleton());
+    // The read timestamp of the previous export, or empty for a full export.
+    PCollectionView<String> changedSinceView =
+        previousManifest
+            .apply(
+                "Previous export read timestamp",
+                MapElements.into(TypeDescriptors.strings()).via(Export::getReadTimestamp))
+            .apply("Previous export read timestamp as view", View.asSingleton());
+
     PCollection<ReadOperation> tableReadOperations =
-        ddl.apply("Build table read operations", new BuildReadFromTableOperations(tableNames));
+        ddl.apply(
+            "Build table read operations",
+            new BuildReadFromTableOperations(tableNames, changedSinceView));
 
     PCollection<KV<String, Void>> allTableAndViewNames =
         ddl.apply(
@@ -450,15 +532,43 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
                                   AvroUtil.getSpannerObjectName(schema),
                                   new SerializableSchemaSupplier(schema)));
                         }
+                        // The deleted keys of a table only contain its primary key columns.
+                        Ddl.Builder primaryKeys = Ddl.builder(c.element().dialect());
+                        for (Table table : c.element().allTables()) {
+                          primaryKeys.addTable(table.primaryKeyTable());
+                        }
+                        Collection<Schema> primaryKeySchemas =
+                            new DdlToAvroSchemaConverter(
+                                    "spannerexport",
+                                    "1.0.0",
+                                    shouldExportTimestampAsLogicalType.get())
+                                .convert(primaryKeys.build());
+                        for (Schema schema : primaryKeySchemas) {
+                          c.output(
+                              KV.of(
+                                  ReadDeletedKeys.deletedKeysName(
+                                      AvroUtil.getSpannerObjectName(schema)),
+                                  new SerializableSchemaSupplier(schema)));
+                        }
                       }
                     }))
             .apply("As view", View.asMap());
 
-    PCollection<Struct> rows =
+    PCollection<Struct> tableRows =
         tableReadOperations.apply(
             "Read all rows from Spanner",
             SpannerIO.readAll().withTransaction(tx).withSpannerConfig(spannerConfig));
 
+    PCollection<Struct> deletedKeys =
+        ddl.apply(
+            "Read deleted keys",
+            new ReadDeletedKeys(spannerConfig, tx, previousManifestView, tableNames));
+
+    PCollection<Struct> rows =
+        PCollectionList.of(tableRows)
+            .and(deletedKeys)
+            .apply("Combine rows and deleted keys", Flatten.pCollections());
+
     ValueProvider<ResourceId> resource =
         ValueProvider.NestedValueProvider.of(
             outputDir,
@@ -747,11 +857,20 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
 
     PCollectionView<Ddl> ddlView = ddl.apply("Cloud Spanner DDL as view", View.asSingleton());
 
+    PCollectionView<String> readTimestampView =
+        p.apply("Create read timestamp", Create.of(1))
+            .apply(
+                "Get read timestamp",
+                ParDo.of(new GetReadTimestampFn(spannerConfig, tx)).withSideInputs(tx))
+            .apply("Read timestamp as view", View.asSingleton());
+
     PCollection<String> metadataContent =
         metadataTables.apply(
             "Create database manifest",
-            ParDo.of(new CreateDatabaseManifest(ddlView, dialectView))
-                .withSideInputs(ddlView, dialectView));
+            ParDo.of(
+                    new CreateDatabaseManifest(
+                        ddlView, dialectView, readTimestampView, changedSinceView))
+                .withSideInputs(ddlView, dialectView, readTimestampView, changedSinceView));
 
     Contextful.Fn<String, FileIO.Write.FileNaming> manifestNaming =
         (element, c) ->
@@ -954,11 +1073,23 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
 
     private final PCollectionView<Ddl> ddlView;
     private final PCollectionView<Dialect> dialectView;
+    private final PCollectionView<String> readTimestampView;
+    private final PCollectionView<String> changedSinceView;
 
     public CreateDatabaseManifest(
         PCollectionView<Ddl> ddlView, PCollectionView<Dialect> dialectView) {
+      this(ddlView, dialectView, null, null);
+    }
+
+    public CreateDatabaseManifest(
+        PCollectionView<Ddl> ddlView,
+        PCollectionView<Dialect> dialectView,
+        PCollectionView<String> readTimestampView,
+        PCollectionView<String> changedSinceView) {
       this.ddlView = ddlView;
       this.dialectView = dialectView;
+      this.readTimestampView = readTimestampView;
+      this.changedSinceView = changedSinceView;
     }
 
     @ProcessElement
@@ -968,7 +1099,10 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
       Dialect dialect = c.sideInput(dialectView);
       ExportProtos.Export.Builder exportManifest = ExportProtos.Export.newBuilder();
       for (Export.Table obj : exportMetadata) {
-        if (ddl.changeStream(obj.getName()) != null) {
+        String deletedKeysTable = ReadDeletedKeys.deletedKeysTable(obj.getName());
+        if (deletedKeysTable != null) {
+          exportManifest.addDeletedKeys(obj.toBuilder().setName(deletedKeysTable));
+        } else if (ddl.changeStream(obj.getName()) != null) {
           exportManifest.addChangeStreams(obj);
         } else if (ddl.sequence(obj.getName()) != null) {
           exportManifest.addSequences(obj);
@@ -984,6 +1118,12 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
         exportManifest.setProtoDescriptors(ddl.protoDescriptors().toByteString());
       }
       exportManifest.addAllProtoBundle(ddl.protoBundle());
+      if (readTimestampView != null) {
+        exportManifest.setReadTimestamp(c.sideInput(readTimestampView));
+      }
+      if (changedSinceView != null) {
+        exportManifest.setChangedSinceTimestamp(c.sideInput(changedSinceView));
+      }
       try {
         out.output(JsonFormat.printer().print(exportManifest.build()));
       } catch (InvalidProtocolBufferException e) {
@@ -992,6 +1132,51 @@ public class ExportTransform extends PTransform<PBegin, WriteFilesResult<String>
     }
   }
 
+  /** Outputs the read timestamp of the export transaction. */
+  static class GetReadTimestampFn extends DoFn<Integer, String> {
+
+    private final SpannerConfig spannerConfig;
+    private final PCollectionView<Transaction> tx;
+
+    private transient SpannerAccessor spannerAccessor;
+
+    GetReadTimestampFn(SpannerConfig spannerConfig, PCollectionView<Transaction> tx) {
+      this.spannerConfig = spannerConfig;
+      this.tx = tx;
+    }
+
+    @Setup
+    public void setup() {
+      spannerAccessor = SpannerAccessor.getOrCreate(spannerConfig);
+    }
+
+    @Teardown
+    public void teardown() {
+      spannerAccessor.close();
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      BatchReadOnlyTransaction transaction =
+          spannerAccessor
+              .getBatchClient()
+              .batchReadOnlyTransaction(c.sideInput(tx).transactionId());
+      c.output(transaction.getReadTimestamp().toString());
+    }
+  }
+
+  private static Export readPreviousManifest(String manifestFile) throws IOException {
+    try (InputStream stream =
+        Channels.newInputStream(
+            FileSystems.open(FileSystems.matchNewResource(manifestFile, false)))) {
+      Export.Builder builder = Export.newBuilder();
+      JsonFormat.parser()
+          .ignoringUnknownFields()
+          .merge(new InputStreamReader(stream, StandardCharsets.UTF_8), builder);
+      return builder.build();
+    }
+  }
+
   private static String tableManifestFileName(String tableName) {
     return tableName + "-manifest.json";
   }
@@ -204,6 +204,19 @@ public class ImportPipeline {
     ValueProvider<RpcPriority> getSpannerPriority();
 
     void setSpannerPriority(ValueProvider<RpcPriority> value);
+
+    @TemplateParameter.Text(
+        order = 12,
+        groupName = "Source",
+        optional = true,
+        description = "Cloud Storage directories of incremental exports",
+        helpText =
+            "A comma-separated list of the Cloud Storage directories of incremental exports to apply after importing `inputDir`, oldest first. The first incremental export must contain the changes since the export in `inputDir`, and each following one the changes since the previous one. The latest change of each row is applied, after the data of `inputDir` is imported and before the foreign keys are created.",
+        example = "gs://your-bucket/your-path/delta-1,gs://your-bucket/your-path/delta-2")
+    @Default.String("")
+    ValueProvider<String> getDeltaInputDirs();
+
+    void setDeltaInputDirs(ValueProvider<String> value);
   }
 
   public static void main(String[] args) {
@@ -239,7 +252,8 @@ public class ImportPipeline {
             options.getWaitForChangeStreams(),
             options.getWaitForSequences(),
             options.getEarlyIndexCreateFlag(),
-            options.getDdlCreationTimeoutInMinutes()));
+            options.getDdlCreationTimeoutInMinutes(),
+            options.getDeltaInputDirs()));
 
     PipelineResult result = p.run();
 
@@ -53,10 +53,11 @@ import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -71,6 +72,9 @@ import org.apache.beam.sdk.io.FileSystems;
 import org.apache.beam.sdk.io.fs.EmptyMatchTreatment;
 import org.apache.beam.sdk.io.fs.MatchResult;
 import org.apache.beam.sdk.io.fs.ResourceId;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.options.ValueProvider.NestedValueProvider;
 import org.apache.beam.sdk.transforms.Combine;
@@ -101,6 +105,10 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
 
   private static final Logger LOG = LoggerFactory.getLogger(ImportTransform.class);
   private static final int MAX_DEPTH = 8;
+  // Number of independent chains of write stages, see TableImportSchedule.
+  private static final int NUM_LANES = 2;
+  private static final Counter IGNORED_FOREIGN_KEYS =
+      Metrics.counter(ImportTransform.class, "Foreign keys ignored by the import schedule");
 
   private final SpannerConfig spannerConfig;
   private final ValueProvider<String> importDirectory;
@@ -115,6 +123,7 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
   private final ValueProvider<Boolean> waitForSequences;
   private final ValueProvider<Boolean> earlyIndexCreateFlag;
   private final ValueProvider<Integer> ddlCreationTimeoutInMinutes;
+  private final ValueProvider<String> deltaDirectories;
 
   public ImportTransform(
       SpannerConfig spannerConfig,
@@ -125,6 +134,32 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
       ValueProvider<Boolean> waitForSequences,
       ValueProvider<Boolean> earlyIndexCreateFlag,
       ValueProvider<Integer> ddlCreationTimeoutInMinutes) {
+    this(
+        spannerConfig,
+        importDirectory,
+        waitForIndexes,
+        waitForForeignKeys,
+        waitForChangeStreams,
+        waitForSequences,
+        earlyIndexCreateFlag,
+        ddlCreationTimeoutInMinutes,
+        /* deltaDirectories= */ ValueProvider.StaticValueProvider.of(""));
+  }
+
+  /**
+   * Creates an import. The comma-separated {@code deltaDirectories} are incremental exports, oldest
+   * first, which are applied on top of the export in {@code importDirectory}.
+   */
+  public ImportTransform(
+      SpannerConfig spannerConfig,
+      ValueProvider<String> importDirectory,
+      ValueProvider<Boolean> waitForIndexes,
+      ValueProvider<Boolean> waitForForeignKeys,
+      ValueProvider<Boolean> waitForChangeStreams,
+      ValueProvider<Boolean> waitForSequences,
+      ValueProvider<Boolean> earlyIndexCreateFlag,
+      ValueProvider<Integer> ddlCreationTimeoutInMinutes,
+      ValueProvider<String> deltaDirectories) {
     this.spannerConfig = spannerConfig;
     this.importDirectory = importDirectory;
     this.waitForIndexes = waitForIndexes;
@@ -133,6 +168,7 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
     this.waitForSequences = waitForSequences;
     this.earlyIndexCreateFlag = earlyIndexCreateFlag;
     this.ddlCreationTimeoutInMinutes = ddlCreationTimeoutInMinutes;
+    this.deltaDirectories = deltaDirectories;
   }
 
   @Override
@@ -210,19 +246,38 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
 
     PCollectionView<Ddl> ddlView = ddl.apply("Cloud Spanner DDL as view", View.asSingleton());
 
-    PCollectionView<HashMultimap<Integer, String>> levelsView =
+    PCollectionView<Map<String, Long>> tableSizesView =
+        tableFiles
+            .apply("Get table sizes", ParDo.of(new GetTableSizes()))
+            .apply("Table sizes as view", View.asMap());
+
+    // The schedule is only computed when the pipeline runs, so the write graph is sized by the
+    // number of exported tables when the import directory is already known: a lane holds at least
+    // one table, and a depth needs a table at every shallower depth. Foreign keys through tables
+    // missing from the export may then exceed the depth, and are ignored by the schedule.
+    int numTables = countExportedTables();
+    final int numLanes = numTables < 0 ? NUM_LANES : Math.max(1, Math.min(NUM_LANES, numTables));
+    final int maxDepth = numTables < 0 ? MAX_DEPTH : Math.max(1, Math.min(MAX_DEPTH, numTables));
+    LOG.info("Building the import with {} lanes of {} depths", numLanes, maxDepth);
+
+    PCollectionView<TableImportSchedule> scheduleView =
         ddl.apply(
-                "Group tables by depth",
+                "Schedule tables",
                 ParDo.of(
-                    new DoFn<Ddl, HashMultimap<Integer, String>>() {
-
-                      @ProcessElement
-                      public void processElement(ProcessContext c) {
-                        Ddl ddl = c.element();
-                        c.output(ddl.perLevelView());
-                      }
-                    }))
-            .apply(View.asSingleton());
+                        new DoFn<Ddl, TableImportSchedule>() {
+
+                          @ProcessElement
+                          public void processElement(ProcessContext c) {
+                            TableImportSchedule schedule =
+                                TableImportSchedule.create(
+                                    c.element(), c.sideInput(tableSizesView), numLanes, maxDepth);
+                            LOG.info("Table import schedule:\n{}", schedule);
+                            IGNORED_FOREIGN_KEYS.inc(schedule.getIgnoredForeignKeys().size());
+                            c.output(schedule);
+                          }
+                        })
+                    .withSideInputs(tableSizesView))
+            .apply("Table schedule as view", View.asSingleton());
 
     PCollection<HashMultimap<String, String>> acc =
         tableFiles
@@ -242,48 +297,93 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
                       }
                     }));
 
-    PCollection<?> previousComputation = ddl;
-    for (int i = 0; i < MAX_DEPTH; i++) {
-      final int depth = i;
-      PCollection<KV<String, String>> levelFiles =
-          acc.apply(
-                  "Get Avro filenames depth " + depth,
-                  ParDo.of(
-                          new DoFn<HashMultimap<String, String>, KV<String, String>>() {
-
-                            @ProcessElement
-                            public void processElement(ProcessContext c) {
-                              HashMultimap<String, String> allFiles = c.element();
-                              HashMultimap<Integer, String> levels = c.sideInput(levelsView);
-
-                              Set<String> tables = levels.get(depth);
-                              for (String table : tables) {
-                                for (String file : allFiles.get(table)) {
-                                  c.output(KV.of(file, table));
+    // Each lane is a chain of depths, where a depth waits for the previous depth of its lane only.
+    List<PCollection<?>> laneComputations = new ArrayList<>();
+    for (int i = 0; i < numLanes; i++) {
+      final int lane = i;
+      PCollection<?> previousComputation = ddl;
+      for (int j = 0; j < maxDepth; j++) {
+        final int depth = j;
+        final String stage = "lane " + lane + " depth " + depth;
+        PCollection<KV<String, String>> stageFiles =
+            acc.apply(
+                    "Get Avro filenames " + stage,
+                    ParDo.of(
+                            new DoFn<HashMultimap<String, String>, KV<String, String>>() {
+
+                              @ProcessElement
+                              public void processElement(ProcessContext c) {
+                                HashMultimap<String, String> allFiles = c.element();
+                                TableImportSchedule schedule = c.sideInput(scheduleView);
+
+                                for (String table : schedule.getTables(lane, depth)) {
+                                  for (String file : allFiles.get(table)) {
+                                    c.output(KV.of(file, table));
+                                  }
                                 }
                               }
-                            }
-                          })
-                      .withSideInputs(levelsView))
-              .apply("Wait for previous depth " + depth, Wait.on(previousComputation));
-      PCollection<Mutation> mutations =
-          levelFiles.apply(
-              "Avro files as mutations " + depth, new AvroTableFileAsMutations(ddlView));
-
-      SpannerWriteResult result =
-          mutations.apply(
-              "Write mutations " + depth,
-              SpannerIO.write()
-                  .withSchemaReadySignal(ddl)
-                  .withSpannerConfig(spannerConfig)
-                  .withCommitDeadline(Duration.standardMinutes(1))
-                  .withMaxCumulativeBackoff(Duration.standardHours(2))
-                  .withMaxNumMutations(10000)
-                  .withGroupingFactor(100)
-                  .withDialectView(dialectView));
-      previousComputation = result.getOutput();
+                            })
+                        .withSideInputs(scheduleView))
+                .apply("Wait for previous " + stage, Wait.on(previousComputation));
+        PCollection<KV<String, Long>> tableStarts =
+            ddl.apply(
+                    "Get tables " + stage,
+                    ParDo.of(
+                            new DoFn<Ddl, String>() {
+
+                              @ProcessElement
+                              public void processElement(ProcessContext c) {
+                                for (String table :
+                                    c.sideInput(scheduleView).getTables(lane, depth)) {
+                                  c.output(table);
+                                }
+                              }
+                            })
+                        .withSideInputs(scheduleView))
+                .apply("Wait for tables " + stage, Wait.on(previousComputation))
+                .apply("Log table start " + stage, ParDo.of(new LogTableStart()));
+        PCollection<Mutation> mutations =
+            stageFiles.apply(
+                "Avro files as mutations " + stage, new AvroTableFileAsMutations(ddlView));
+
+        SpannerWriteResult result =
+            mutations.apply(
+                "Write mutations " + stage,
+                SpannerIO.write()
+                    .withSchemaReadySignal(ddl)
+                    .withSpannerConfig(spannerConfig)
+                    .withCommitDeadline(Duration.standardMinutes(1))
+                    .withMaxCumulativeBackoff(Duration.standardHours(2))
+                    .withMaxNumMutations(10000)
+                    .withGroupingFactor(100)
+                    .withDialectView(dialectView));
+        previousComputation = result.getOutput();
+        tableStarts
+            .apply("Wait for write " + stage, Wait.on(previousComputation))
+            .apply("Log table finish " + stage, ParDo.of(new LogTableFinish()));
+      }
+      laneComputations.add(previousComputation);
+    }
+    PCollection<Ddl> dataWritten = ddl.apply(Wait.on(laneComputations));
+    // The delta directories of a template are only known when it runs, so the delta stages are
+    // always built for templates, and apply no changes when there are no delta exports.
+    if (!deltaDirectories.isAccessible()
+        || (!Strings.isNullOrEmpty(deltaDirectories.get())
+            && !deltaDirectories.get().trim().isEmpty())) {
+      PCollection<Void> deltasApplied =
+          dataWritten.apply(
+              "Apply delta exports",
+              new ApplyDeltaExports(
+                  spannerConfig,
+                  deltaDirectories,
+                  manifestView,
+                  ddlView,
+                  scheduleView,
+                  dialectView,
+                  maxDepth));
+      dataWritten = ddl.apply("Wait for delta exports", Wait.on(deltasApplied));
     }
-    ddl.apply(Wait.on(previousComputation))
+    dataWritten
         .apply(
             "Create Indexes", new ApplyDDLTransform(spannerConfig, pendingIndexes, waitForIndexes))
         .apply(
@@ -295,6 +395,73 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
     return PDone.in(begin.getPipeline());
   }
 
+  /**
+   * Returns the number of tables in the manifest of the import directory, or -1 if it is only
+   * known when the pipeline runs or can't be read. The pipeline reads the manifest again and
+   * reports any error.
+   */
+  private int countExportedTables() {
+    if (!importDirectory.isAccessible()) {
+      return -1;
+    }
+    try {
+      ResourceId manifestFile =
+          FileSystems.matchSingleFileSpec(
+                  GcsUtil.joinPath(importDirectory.get(), "spanner-export.json"))
+              .resourceId();
+      return ReadExportManifestFile.readManifest(manifestFile).getTablesCount();
+    } catch (IOException | RuntimeException e) {
+      LOG.info("Could not read the export manifest to size the import: {}", e.getMessage());
+      return -1;
+    }
+  }
+
+  /** Computes the total size in bytes of the data files of each table. */
+  static class GetTableSizes extends DoFn<KV<String, List<String>>, KV<String, Long>> {
+
+    @ProcessElement
+    public void processElement(ProcessContext c) throws IOException {
+      KV<String, List<String>> kv = c.element();
+      long size = 0;
+      if (!kv.getValue().isEmpty()) {
+        for (MatchResult match : FileSystems.match(kv.getValue())) {
+          if (match.status() == MatchResult.Status.OK) {
+            for (MatchResult.Metadata metadata : match.metadata()) {
+              size += metadata.sizeBytes();
+            }
+          }
+        }
+      }
+      c.output(KV.of(kv.getKey(), size));
+    }
+  }
+
+  /** Logs the start of the import of each table, and outputs its start time. */
+  static class LogTableStart extends DoFn<String, KV<String, Long>> {
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      LOG.info("Started importing table {}", c.element());
+      c.output(KV.of(c.element(), System.currentTimeMillis()));
+    }
+  }
+
+  /** Logs the end of the import of each table with its duration. */
+  static class LogTableFinish extends DoFn<KV<String, Long>, Void> {
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      long start = c.element().getValue();
+      long finish = System.currentTimeMillis();
+      LOG.info(
+          "Finished importing table {}: started at {}, finished at {}, took {} ms",
+          c.element().getKey(),
+          Instant.ofEpochMilli(start),
+          Instant.ofEpochMilli(finish),
+          finish - start);
+    }
+  }
+
   /** Read contents of the top-level manifest file. */
   @VisibleForTesting
   static class ReadExportManifestFile extends PTransform<PBegin, PCollection<Export>> {
@@ -322,7 +489,7 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
               .apply(
                   "Read manifest json",
                   MapElements.into(TypeDescriptor.of(Export.class))
-                      .via(ReadExportManifestFile::readManifest));
+                      .via(ReadExportManifestFile::readBaseManifest));
       manifest.apply(
           "Check dialect",
           ParDo.of(
@@ -347,7 +514,31 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
       return manifest;
     }
 
-    private static Export readManifest(ResourceId fileResource) {
+    /**
+     * Reads the manifest of the export to import, failing the read itself if it is not a base
+     * export so that nothing is imported from it.
+     */
+    static Export readBaseManifest(ResourceId fileResource) {
+      Export manifest = readManifest(fileResource);
+      checkBaseExport(manifest);
+      return manifest;
+    }
+
+    /**
+     * Checks that an export can be imported on its own. An incremental export only contains the
+     * changes since a previous export, so it can only be applied as a delta export.
+     */
+    static void checkBaseExport(Export proto) {
+      if (!proto.getChangedSinceTimestamp().isEmpty()) {
+        throw new IllegalArgumentException(
+            String.format(
+                "The export is incremental, with the changes since %s. Import the full export it is"
+                    + " based on, and pass this export in --deltaInputDirs.",
+                proto.getChangedSinceTimestamp()));
+      }
+    }
+
+    static Export readManifest(ResourceId fileResource) {
       Export.Builder result = Export.newBuilder();
       try (InputStream stream = Channels.newInputStream(FileSystems.open(fileResource))) {
         Reader reader = new InputStreamReader(stream);
@@ -381,21 +572,24 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
                   try {
                     KV<String, String> kv = c.element();
                     String filePath = GcsUtil.joinPath(importDirectory.get(), kv.getValue());
-                    MatchResult match = FileSystems.match(filePath, EmptyMatchTreatment.DISALLOW);
-                    ResourceId resourceId = match.metadata().get(0).resourceId();
-                    TableManifest.Builder builder = TableManifest.newBuilder();
-                    try (InputStream stream =
-                        Channels.newInputStream(FileSystems.open(resourceId))) {
-                      Reader reader = new InputStreamReader(stream);
-                      JsonFormat.parser().merge(reader, builder);
-                    }
-                    c.output(KV.of(kv.getKey(), builder.build()));
+                    c.output(KV.of(kv.getKey(), readTableManifest(filePath)));
                   } catch (IOException e) {
                     throw new RuntimeException(e);
                   }
                 }
               }));
     }
+
+    static TableManifest readTableManifest(String filePath) throws IOException {
+      MatchResult match = FileSystems.match(filePath, EmptyMatchTreatment.DISALLOW);
+      ResourceId resourceId = match.metadata().get(0).resourceId();
+      TableManifest.Builder builder = TableManifest.newBuilder();
+      try (InputStream stream = Channels.newInputStream(FileSystems.open(resourceId))) {
+        Reader reader = new InputStreamReader(stream);
+        JsonFormat.parser().merge(reader, builder);
+      }
+      return builder.build();
+    }
   }
 
   private static class CreateTables extends PTransform<PBegin, PCollectionTuple> {
@@ -867,25 +1061,32 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
     @ProcessElement
     public void processElement(ProcessContext c) {
       KV<String, TableManifest> kv = c.element();
-      String table = kv.getKey();
-      TableManifest manifest = kv.getValue();
-      boolean gcs = GcsPath.GCS_URI.matcher(importDirectory.get()).matches();
+      for (String file : validate(c.getPipelineOptions(), importDirectory.get(), kv.getValue())) {
+        c.output(KV.of(kv.getKey(), file));
+      }
+    }
+
+    /** Validates the files of a table manifest in a directory, and returns their full paths. */
+    static List<String> validate(
+        PipelineOptions options, String directory, TableManifest manifest) {
+      boolean gcs = GcsPath.GCS_URI.matcher(directory).matches();
       if (gcs) {
-        validateGcsFiles(c, table, manifest);
+        return validateGcsFiles(options, directory, manifest);
       } else {
-        validateLocalFiles(c, table, manifest);
+        return validateLocalFiles(directory, manifest);
       }
     }
 
-    private void validateGcsFiles(ProcessContext c, String table, TableManifest manifest) {
+    private static List<String> validateGcsFiles(
+        PipelineOptions options, String directory, TableManifest manifest) {
       org.apache.beam.sdk.extensions.gcp.util.GcsUtil gcsUtil =
-          c.getPipelineOptions().as(GcsOptions.class).getGcsUtil();
+          options.as(GcsOptions.class).getGcsUtil();
       // Convert file names to GcsPaths.
       List<GcsPath> gcsPaths =
           Lists.transform(
-              manifest.getFilesList(),
-              f -> GcsPath.fromUri(importDirectory.get()).resolve(f.getName()));
+              manifest.getFilesList(), f -> GcsPath.fromUri(directory).resolve(f.getName()));
       List<String> checksums = FileChecksum.getGcsFileChecksums(gcsUtil, gcsPaths);
+      List<String> files = new ArrayList<>();
       for (int i = 0; i < gcsPaths.size(); i++) {
         GcsPath path = gcsPaths.get(i);
         String fileName = gcsPaths.get(i).getFileName().getObject();
@@ -897,13 +1098,15 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
             fileName,
             expectedHash,
             actualHash);
-        c.output(KV.of(table, path.toString()));
+        files.add(path.toString());
       }
+      return files;
     }
 
-    private void validateLocalFiles(ProcessContext c, String table, TableManifest manifest) {
+    private static List<String> validateLocalFiles(String directory, TableManifest manifest) {
+      List<String> files = new ArrayList<>();
       for (TableManifest.File file : manifest.getFilesList()) {
-        Path filePath = Paths.get(importDirectory.get(), file.getName());
+        Path filePath = Paths.get(directory, file.getName());
         String actualHash = FileChecksum.getLocalFileChecksum(filePath);
         String expectedHash = file.getMd5();
         Verify.verify(
@@ -912,8 +1115,9 @@ public class ImportTransform extends PTransform<PBegin, PDone> {
             filePath,
             expectedHash,
             actualHash);
-        c.output(KV.of(table, filePath.toString()));
+        files.add(filePath.toString());
       }
+      return files;
     }
   }
 }
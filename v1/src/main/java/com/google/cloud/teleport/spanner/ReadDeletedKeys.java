@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.spanner;
+
+import static com.google.cloud.teleport.spanner.SpannerTableFilter.getFilteredTables;
+import static com.google.cloud.teleport.spanner.common.NameUtils.quoteIdentifier;
+
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
+import com.google.cloud.spanner.PartitionOptions;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.teleport.spanner.ddl.Ddl;
+import com.google.cloud.teleport.spanner.ddl.IndexColumn;
+import com.google.cloud.teleport.spanner.ddl.Table;
+import com.google.cloud.teleport.spanner.proto.ExportProtos.Export;
+import com.google.cloud.teleport.spanner.spannerio.ReadOperation;
+import com.google.cloud.teleport.spanner.spannerio.SpannerAccessor;
+import com.google.cloud.teleport.spanner.spannerio.SpannerConfig;
+import com.google.cloud.teleport.spanner.spannerio.SpannerIO;
+import com.google.cloud.teleport.spanner.spannerio.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.options.ValueProvider;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.transforms.join.CoGbkResult;
+import org.apache.beam.sdk.transforms.join.CoGroupByKey;
+import org.apache.beam.sdk.transforms.join.KeyedPCollectionTuple;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+
+/**
+ * Reads the primary keys of the rows deleted since a previous export, for an incremental export.
+ *
+ * <p>The primary keys of each table are read at the read timestamp of the previous export and at
+ * the read timestamp of the current export. The keys which only exist at the previous timestamp are
+ * output as rows of the deleted keys of the table, named by {@link #deletedKeysName(String)}. The
+ * version retention period of the database must cover the time since the previous export.
+ *
+ * <p>Only the tables of the previous export are read. A table created since the previous export did
+ * not exist at its read timestamp, so all of its rows are exported and it has no deleted keys.
+ *
+ * <p>Nothing is read for a full export, that is when the previous export has no read timestamp.
+ */
+class ReadDeletedKeys extends PTransform<PCollection<Ddl>, PCollection<Struct>> {
+
+  // Table names can not contain a dash, so the deleted keys names do not conflict with them.
+  private static final String DELETED_KEYS_SUFFIX = "-deleted-keys";
+
+  private final SpannerConfig spannerConfig;
+  private final PCollectionView<Transaction> tx;
+  private final PCollectionView<Export> previousManifestView;
+  private final ValueProvider<String> tableNames;
+
+  /**
+   * Creates the transform.
+   *
+   * @param spannerConfig the database to read
+   * @param tx the transaction of the current export
+   * @param previousManifestView the manifest of the previous export, empty for a full export
+   * @param tableNames the comma-separated tables to export, all tables if empty
+   */
+  ReadDeletedKeys(
+      SpannerConfig spannerConfig,
+      PCollectionView<Transaction> tx,
+      PCollectionView<Export> previousManifestView,
+      ValueProvider<String> tableNames) {
+    this.spannerConfig = spannerConfig;
+    this.tx = tx;
+    this.previousManifestView = previousManifestView;
+    this.tableNames = tableNames;
+  }
+
+  /** Returns the name under which the deleted keys of a table are exported. */
+  static String deletedKeysName(String tableName) {
+    return tableName + DELETED_KEYS_SUFFIX;
+  }
+
+  /** Returns the table of a deleted keys name, or null if it is not a deleted keys name. */
+  static String deletedKeysTable(String name) {
+    return name.endsWith(DELETED_KEYS_SUFFIX)
+        ? name.substring(0, name.length() - DELETED_KEYS_SUFFIX.length())
+        : null;
+  }
+
+  @Override
+  public PCollection<Struct> expand(PCollection<Ddl> ddl) {
+    PCollectionView<Transaction> previousTx =
+        ddl.apply(
+                "Create previous export transaction",
+                ParDo.of(new CreateTransactionAtTimestampFn(spannerConfig, previousManifestView))
+                    .withSideInputs(previousManifestView))
+            .apply("Previous export transaction as view", View.asSingleton());
+
+    PCollection<ReadOperation> keyReads =
+        ddl.apply(
+            "Build key read operations",
+            ParDo.of(
+                    new DoFn<Ddl, ReadOperation>() {
+
+                      @ProcessElement
+                      public void processElement(ProcessContext c) {
+                        List<String> tablesList = Collections.emptyList();
+                        if (!tableNames.get().trim().isEmpty()) {
+                          tablesList = Arrays.asList(tableNames.get().split(",\\s*"));
+                        }
+                        for (Table table :
+                            keyReadTables(
+                                c.element(), tablesList, c.sideInput(previousManifestView))) {
+                          c.output(buildKeyReadOperation(table));
+                        }
+                      }
+                    })
+                .withSideInputs(previousManifestView));
+
+    PCollection<KV<String, Struct>> previousKeys =
+        keyReads
+            .apply(
+                "Read previous keys",
+                SpannerIO.readAll().withTransaction(previousTx).withSpannerConfig(spannerConfig))
+            .apply("Key previous keys", ParDo.of(new KeyByValuesFn()));
+    PCollection<KV<String, Struct>> currentKeys =
+        keyReads
+            .apply(
+                "Read current keys",
+                SpannerIO.readAll().withTransaction(tx).withSpannerConfig(spannerConfig))
+            .apply("Key current keys", ParDo.of(new KeyByValuesFn()));
+
+    final TupleTag<Struct> previousTag = new TupleTag<>();
+    final TupleTag<Struct> currentTag = new TupleTag<>();
+    return KeyedPCollectionTuple.of(previousTag, previousKeys)
+        .and(currentTag, currentKeys)
+        .apply("Group keys", CoGroupByKey.create())
+        .apply(
+            "Find deleted keys",
+            ParDo.of(
+                new DoFn<KV<String, CoGbkResult>, Struct>() {
+
+                  private final Counter deletedKeys =
+                      Metrics.counter(ReadDeletedKeys.class, "Deleted keys");
+
+                  @ProcessElement
+                  public void processElement(ProcessContext c) {
+                    CoGbkResult result = c.element().getValue();
+                    Iterator<Struct> previous = result.getAll(previousTag).iterator();
+                    if (previous.hasNext() && !result.getAll(currentTag).iterator().hasNext()) {
+                      deletedKeys.inc();
+                      c.output(previous.next());
+                    }
+                  }
+                }));
+  }
+
+  /**
+   * Returns the exported tables whose keys are read, that is the ones which are also in the
+   * previous export. Returns no tables for a full export.
+   */
+  static List<Table> keyReadTables(Ddl ddl, List<String> tablesList, Export previousManifest) {
+    if (previousManifest.getReadTimestamp().isEmpty()) {
+      return Collections.emptyList();
+    }
+    Set<String> previousTables = new HashSet<>();
+    for (Export.Table table : previousManifest.getTablesList()) {
+      previousTables.add(table.getName());
+    }
+    List<Table> tables = new ArrayList<>();
+    for (Table table : getFilteredTables(ddl, tablesList)) {
+      if (previousTables.contains(table.name())) {
+        tables.add(table);
+      }
+    }
+    return tables;
+  }
+
+  /**
+   * Builds the query reading the primary key of every row of a table. The first column is the
+   * deleted keys name of the table, like the table name in the rows of a table export.
+   */
+  static ReadOperation buildKeyReadOperation(Table table) {
+    List<String> columns = new ArrayList<>();
+    for (IndexColumn pk : table.primaryKeyTable().primaryKeys()) {
+      columns.add(
+          BuildReadFromTableOperations.createColumnExpression(
+              table.primaryKeyTable().column(pk.name())));
+    }
+    String nameLiteral;
+    switch (table.dialect()) {
+      case GOOGLE_STANDARD_SQL:
+        nameLiteral = "\"" + deletedKeysName(table.name()) + "\"";
+        break;
+      case POSTGRESQL:
+        nameLiteral = "'" + deletedKeysName(table.name()) + "'";
+        break;
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unrecognized dialect: %s", table.dialect()));
+    }
+    return ReadOperation.create()
+        .withQuery(
+            String.format(
+                "SELECT %s AS _spanner_table, %s FROM %s AS t",
+                nameLiteral,
+                String.join(",", columns),
+                quoteIdentifier(table.name(), table.dialect())))
+        .withPartitionOptions(PartitionOptions.newBuilder().setMaxPartitions(1000).build());
+  }
+
+  /** Keys a row by the string values of all of its columns, including the table name. */
+  static class KeyByValuesFn extends DoFn<Struct, KV<String, Struct>> {
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      Struct row = c.element();
+      StringBuilder key = new StringBuilder();
+      for (int i = 0; i < row.getColumnCount(); i++) {
+        String value = row.isNull(i) ? "" : row.getValue(i).toString();
+        // Prefix each value with its length, so that the concatenation is unambiguous.
+        key.append(row.isNull(i) ? -1 : value.length()).append(':').append(value);
+      }
+      c.output(KV.of(key.toString(), row));
+    }
+  }
+
+  /**
+   * Creates a batch transaction reading at the read timestamp of the previous export, or at the
+   * current time for a full export.
+   */
+  static class CreateTransactionAtTimestampFn extends DoFn<Ddl, Transaction> {
+
+    private final SpannerConfig config;
+    private final PCollectionView<Export> previousManifestView;
+
+    private transient SpannerAccessor spannerAccessor;
+
+    CreateTransactionAtTimestampFn(
+        SpannerConfig config, PCollectionView<Export> previousManifestView) {
+      this.config = config;
+      this.previousManifestView = previousManifestView;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+      spannerAccessor = SpannerAccessor.getOrCreate(config);
+    }
+
+    @Teardown
+    public void teardown() throws Exception {
+      spannerAccessor.close();
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      String timestamp = c.sideInput(previousManifestView).getReadTimestamp();
+      TimestampBound bound =
+          timestamp.isEmpty()
+              ? TimestampBound.strong()
+              : TimestampBound.ofReadTimestamp(
+                  com.google.cloud.Timestamp.parseTimestamp(timestamp));
+      BatchReadOnlyTransaction tx =
+          spannerAccessor.getBatchClient().batchReadOnlyTransaction(bound);
+      c.output(Transaction.create(tx.getBatchTransactionId()));
+    }
+  }
+}
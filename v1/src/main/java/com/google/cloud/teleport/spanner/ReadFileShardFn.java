@@ -21,11 +21,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
-import java.util.List;
 import org.apache.beam.sdk.io.BoundedSource;
 import org.apache.beam.sdk.io.FileSystems;
 import org.apache.beam.sdk.io.fs.ResourceId;
@@ -98,15 +96,16 @@ class ReadFileShardFn extends DoFn<FileShard, KV<String, CSVRecord>> {
                     shard.getRange().getFrom(),
                     shard.getRange().getTo())
                 .createReader(c.getPipelineOptions());
-        for (boolean more = reader.start(); more; more = reader.advance()) {
-          Reader in = new StringReader(reader.getCurrent());
-          CSVParser parser = new CSVParser(in, csvFormat);
-          List<CSVRecord> list = parser.getRecords();
-          if (!list.isEmpty()) {
-            if (list.size() > 1) {
+        // A single parser reads the records of all the lines of the shard. Each line holds exactly
+        // one record in this mode, so a record spanning more than one line has an unterminated
+        // quote.
+        try (CSVParser parser = new CSVParser(new LinesReader(reader), csvFormat)) {
+          long lineNumber = parser.getCurrentLineNumber();
+          for (CSVRecord record : parser) {
+            if (parser.getCurrentLineNumber() - lineNumber > 1) {
               throw new RuntimeException("Unable to parse this row: " + c.element());
             }
-            CSVRecord record = list.get(0);
+            lineNumber = parser.getCurrentLineNumber();
             c.output(KV.of(shard.getTableName(), record));
           }
         }
@@ -148,4 +147,51 @@ class ReadFileShardFn extends DoFn<FileShard, KV<String, CSVRecord>> {
       }
     }
   }
+
+  /**
+   * A {@link Reader} over the non-empty lines returned by a {@link BoundedSource.BoundedReader},
+   * each followed by a line feed.
+   */
+  private static class LinesReader extends Reader {
+    private final BoundedSource.BoundedReader<String> lines;
+    private boolean started = false;
+    private boolean finished = false;
+    private String line = "";
+    private int position = 0;
+
+    LinesReader(BoundedSource.BoundedReader<String> lines) {
+      this.lines = lines;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      // The current line is followed by a line feed at position line.length().
+      while (position > line.length() || line.isEmpty()) {
+        if (finished || !(started ? lines.advance() : lines.start())) {
+          finished = true;
+          return -1;
+        }
+        started = true;
+        line = lines.getCurrent();
+        position = 0;
+      }
+      int count = Math.min(length, line.length() - position);
+      line.getChars(position, position + count, buffer, offset);
+      position += count;
+      if (count < length && position == line.length()) {
+        buffer[offset + count] = '\n';
+        position++;
+        count++;
+      }
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      lines.close();
+    }
+  }
 }
@@ -16,20 +16,28 @@
 package com.google.cloud.teleport.spanner;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.beam.sdk.io.FileIO.ReadableFile;
 import org.apache.beam.sdk.io.FileSystems;
 import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
+import org.apache.beam.sdk.io.fs.ResourceId;
 import org.apache.beam.sdk.io.range.OffsetRange;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollectionView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +52,8 @@ import org.slf4j.LoggerFactory;
 @VisibleForTesting
 class SplitIntoRangesFn extends DoFn<ReadableFile, FileShard> {
   static final long DEFAULT_BUNDLE_SIZE = 64 * 1024 * 1024L;
+  // Maximum number of threads scanning a file for record boundaries.
+  private static final int MAX_SCAN_THREADS = 16;
   private static final Logger LOG = LoggerFactory.getLogger(SplitIntoRangesFn.class);
 
   final PCollectionView<Map<String, String>> filenamesToTableNamesMapView;
@@ -109,160 +119,275 @@ class SplitIntoRangesFn extends DoFn<ReadableFile, FileShard> {
       }
       return;
     }
+    char escape = (escapeChar == null || escapeChar.get() == null) ? ((char) 0) : escapeChar.get();
+    RecordScanner scanner = new RecordScanner(quoteChar.get(), columnDelimiter.get(), escape);
+    long size = metadata.sizeBytes();
+    int numChunks = (int) Math.max(1, (size + desiredBundleSize - 1) / desiredBundleSize);
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(numChunks, MAX_SCAN_THREADS));
     try {
-      ReadableByteChannel channel = FileSystems.open(metadata.resourceId());
-      InputStream stream = Channels.newInputStream(channel);
-      Reader reader = new InputStreamReader(stream);
-      char escape =
-          (escapeChar == null || escapeChar.get() == null) ? ((char) 0) : escapeChar.get();
+      for (KV<OffsetRange, Long> shard :
+          scanner.split(metadata.resourceId(), size, desiredBundleSize, executor)) {
+        // Add the shard to output collection only if it is non-empty.
+        if (shard.getValue() > 0) {
+          c.output(FileShard.create(tableName, c.element(), shard.getKey(), shard.getValue()));
+        }
+      }
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new RuntimeException("Unable to readFile: " + metadata.resourceId().toString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while splitting: " + metadata.resourceId(), e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Finds CSV record ends in a file, with the same rules as the CSV parser for quoted values.
+   *
+   * <p>The scan is a state machine over the bytes of the file. The quote, delimiter, escape and
+   * newline characters are all ASCII, so they can't be part of a multi-byte UTF-8 character and the
+   * bytes can be scanned without decoding.
+   *
+   * <p>The file is split into chunks of the bundle size which are scanned in parallel. The parser
+   * state at the start of a chunk is not known until the previous chunks are scanned, so each chunk
+   * is scanned from every parser state at once, recording for each of them the state reached at
+   * the end of the chunk, the first record end and the number of record ends. Chaining the end
+   * states from the start of the file then gives the exact state at the start of every chunk, and
+   * so the first record end after it, without scanning any byte twice.
+   */
+  static class RecordScanner {
+    static final long AMBIGUOUS = -1L;
+
+    // Parser states.
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int UNQUOTED_ESCAPED = 2;
+    private static final int QUOTED = 3;
+    private static final int QUOTED_PENDING_QUOTE = 4;
+    private static final int QUOTED_PENDING_ESCAPE = 5;
+    private static final int AFTER_QUOTE = 6;
+    private static final int NUM_STATES = 7;
+    // Returned by next() along with FIELD_START when the byte ends a record.
+    private static final int RECORD_END = 1 << 8;
+    private static final int ERROR = 1 << 9;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final char quote;
+    private final char delimiter;
+    private final char escape;
+    // The result of next() for each state and byte, indexed by state * 256 + byte.
+    private final int[] transitions = new int[NUM_STATES * 256];
+
+    RecordScanner(char quote, char delimiter, char escape) {
+      this.quote = quote;
+      this.delimiter = delimiter;
+      this.escape = escape;
+      for (int state = 0; state < NUM_STATES; state++) {
+        for (int b = 0; b < 256; b++) {
+          transitions[state * 256 + b] = next(state, (char) b);
+        }
+      }
+    }
 
-      int data = 0, prevData = 0;
-      // We need to store the record count to know when to stop reading the shard as the CSVParser
-      // library does not provide a way to use the end of shard position(in bytes) directly.
-      long bytesRead = 0, prevMarker = 0, maxShardSize = desiredBundleSize, recordCount = 0;
-      boolean quoted = false;
-      while (data != -1) {
-        data = reader.read();
-        bytesRead++;
-        // This always reads the first char of the column, which can either be the start of the row
-        // or the character after the delimiter.
-        // If the first char is a quote, we assume the whole value is going to be quoted to keep
-        // the behaviour consistent with the CSV parser.
-        quoted = ((char) data == quoteChar.get());
-        if (!quoted) {
-          // If unquoted, we need to reach the next unescaped delimiter or unescaped newline while
-          // skipping all characters. Any quotes found will be treated as part of the data.
-          prevData = data;
-          if ((char) data == columnDelimiter.get()) {
-            // The first character of the column was a delimiter.
-            continue;
+    /** Returns the state after the byte, with the RECORD_END or ERROR flags. */
+    int next(int state, char b) {
+      switch (state) {
+        case FIELD_START:
+          // If the first char is a quote, we assume the whole value is going to be quoted to keep
+          // the behaviour consistent with the CSV parser.
+          if (b == quote) {
+            return QUOTED;
           }
-          if ((char) data == '\n') {
-            // The first character of the column was a newline.
-            recordCount++;
-            if (bytesRead > maxShardSize) {
-              c.output(
-                  FileShard.create(
-                      tableName,
-                      c.element(),
-                      new OffsetRange(prevMarker, prevMarker + bytesRead),
-                      recordCount));
-              prevMarker += bytesRead;
-              bytesRead = 0;
-              recordCount = 0;
-            }
-            continue;
+          if (b == delimiter) {
+            return FIELD_START;
           }
-          while (data != -1) {
-            data = reader.read();
-            bytesRead++;
-            // If prev char is escaped, do nothing.
-            if ((char) prevData == escape) {
-              prevData = data;
-              continue;
-            }
-            prevData = data;
-            // We reached end of the column, we go back to the outer loop and move to the next
-            // column.
-            if ((char) data == columnDelimiter.get()) {
-              break;
-            }
-            // We reached an unescaped EOL, hence the record ends here.
-            if ((char) data == '\n') {
-              recordCount++;
-              if (bytesRead > maxShardSize) {
-                c.output(
-                    FileShard.create(
-                        tableName,
-                        c.element(),
-                        new OffsetRange(prevMarker, prevMarker + bytesRead),
-                        recordCount));
-                prevMarker += bytesRead;
-                bytesRead = 0;
-                recordCount = 0;
-              }
-              break;
-            }
+          if (b == '\n') {
+            return FIELD_START | RECORD_END;
           }
-          // This means we reached a column delimiter, newline or end of file, go back to outer
-          // loop.
-          continue;
-        } else {
-          // If the first column character is a quote, we assume the whole data value is quoted. If
-          // the quote is followed by another quote, the value is still assumed to be quoted
-          // (""abc" is quoted "abc, ""abc would throw an error as it would treat it as character
-          // after a closed quote).
-          // In the quoted case, we know our value ends when we reach an unescaped quote,
-          // after which only whitespaces are allowed.  We throw an error if we find any character
-          // other  than a whitespace. We ignore any newlines or delimiters inside quotes.
-          while (data != -1) {
-            prevData = data;
-            data = reader.read();
-            bytesRead++;
-            // CSV quotes can be escaped via the escape character or the quote itself.
-            if ((char) data == escape || (char) data == quoteChar.get()) {
-              prevData = data;
-              data = reader.read();
-              bytesRead++;
-              if ((char) data == quoteChar.get()) {
-                // Character is quote hence ignore since prev was an escape.
+          return b == escape ? UNQUOTED_ESCAPED : UNQUOTED;
+        case UNQUOTED:
+          // Any quotes found will be treated as part of the data.
+          if (b == escape) {
+            return UNQUOTED_ESCAPED;
+          }
+          if (b == delimiter) {
+            return FIELD_START;
+          }
+          return b == '\n' ? FIELD_START | RECORD_END : UNQUOTED;
+        case UNQUOTED_ESCAPED:
+          return UNQUOTED;
+        case QUOTED:
+          // CSV quotes can be escaped via the escape character or the quote itself. Newlines and
+          // delimiters inside quotes are ignored.
+          if (b == escape) {
+            return QUOTED_PENDING_ESCAPE;
+          }
+          return b == quote ? QUOTED_PENDING_QUOTE : QUOTED;
+        case QUOTED_PENDING_ESCAPE:
+          return QUOTED;
+        case QUOTED_PENDING_QUOTE:
+          // A quote not followed by another quote ends the value.
+          return b == quote ? QUOTED : next(AFTER_QUOTE, b);
+        case AFTER_QUOTE:
+          // Only whitespaces are allowed after the closing quote.
+          if (b == delimiter) {
+            return FIELD_START;
+          }
+          if (b == '\n') {
+            return FIELD_START | RECORD_END;
+          }
+          return b == ' ' ? AFTER_QUOTE : ERROR;
+        default:
+          throw new IllegalStateException("Unknown state " + state);
+      }
+    }
+
+    /**
+     * Splits the file into shards ending at the first record end at or after each multiple of the
+     * chunk size, and returns each shard with its number of records.
+     */
+    List<KV<OffsetRange, Long>> split(
+        ResourceId file, long size, long chunkSize, ExecutorService executor)
+        throws ExecutionException, InterruptedException {
+      List<Future<ChunkSummary>> futures = new ArrayList<>();
+      for (long from = 0; from < size; from += chunkSize) {
+        long chunkFrom = from;
+        long chunkTo = Math.min(from + chunkSize, size);
+        futures.add(executor.submit(() -> scanChunk(file, chunkFrom, chunkTo)));
+      }
+      List<ChunkSummary> chunks = new ArrayList<>();
+      for (Future<ChunkSummary> future : futures) {
+        chunks.add(future.get());
+      }
+      return toShards(chunks, size);
+    }
+
+    /** Scans the bytes of a chunk once, from every possible parser state at its start. */
+    ChunkSummary scanChunk(ResourceId file, long from, long to) throws IOException {
+      ChunkSummary chunk = new ChunkSummary();
+      int[] states = chunk.endStates;
+      try (InputStream in = open(file, from)) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long offset = from;
+        int n;
+        while (offset < to && (n = in.read(buffer)) != -1) {
+          for (int i = 0; i < n && offset < to; i++, offset++) {
+            int b = buffer[i] & 0xff;
+            for (int start = 0; start < NUM_STATES; start++) {
+              if (states[start] == ERROR) {
                 continue;
               }
-              // Next character is not a quote. If prev char was a quote, that denotes the value
-              // ended.
-              if ((char) prevData == quoteChar.get()) {
-                // We now skip to the next delimiter or EOL allowing only
-                // whitespaces as valid chars from here.
-                while (data != -1) {
-                  if ((char) data == columnDelimiter.get()) {
-                    prevData = data;
-                    break;
-                  }
-                  if ((char) data == '\n') {
-                    recordCount++;
-                    if (bytesRead > maxShardSize) {
-                      c.output(
-                          FileShard.create(
-                              tableName,
-                              c.element(),
-                              new OffsetRange(prevMarker, prevMarker + bytesRead),
-                              recordCount));
-                      prevMarker += bytesRead;
-                      bytesRead = 0;
-                      recordCount = 0;
-                    }
-                    break;
-                  }
-                  if ((char) data != ' ') {
-                    throw new RuntimeException("Found char '" + (char) data + "' outside quote");
-                  }
-                  prevData = data;
-                  data = reader.read();
-                  bytesRead++;
+              int next = transitions[states[start] * 256 + b];
+              if (next == ERROR) {
+                chunk.errorChars[start] = (char) b;
+              } else if ((next & RECORD_END) != 0) {
+                if (chunk.firstRecordEnds[start] == AMBIGUOUS) {
+                  chunk.firstRecordEnds[start] = offset + 1;
                 }
-                break;
+                chunk.lastRecordEnds[start] = offset + 1;
+                chunk.recordEnds[start]++;
+                next &= ~RECORD_END;
               }
+              states[start] = next;
             }
           }
         }
       }
+      return chunk;
+    }
+
+    /**
+     * Chains the chunk summaries from the start of the file, and returns the shards ending at the
+     * first record end at or after the start of each chunk, with their number of records.
+     */
+    static List<KV<OffsetRange, Long>> toShards(List<ChunkSummary> chunks, long size) {
+      int numChunks = chunks.size();
+      // The exact parser state at the start of each chunk, and the number of records before it.
+      int[] startStates = new int[numChunks + 1];
+      long[] recordsBefore = new long[numChunks + 1];
+      startStates[0] = FIELD_START;
+      for (int i = 0; i < numChunks; i++) {
+        ChunkSummary chunk = chunks.get(i);
+        int state = startStates[i];
+        if (chunk.endStates[state] == ERROR) {
+          throw new RuntimeException("Found char '" + chunk.errorChars[state] + "' outside quote");
+        }
+        startStates[i + 1] = chunk.endStates[state];
+        recordsBefore[i + 1] = recordsBefore[i] + chunk.recordEnds[state];
+      }
+
+      // The shard ends, with the number of records up to each of them.
+      List<Long> ends = new ArrayList<>();
+      List<Long> records = new ArrayList<>();
+      ends.add(0L);
+      records.add(0L);
+      long nextEnd = AMBIGUOUS;
+      long recordsToNextEnd = 0;
+      List<Long> chunkEnds = new ArrayList<>();
+      List<Long> chunkRecords = new ArrayList<>();
+      // Walk the chunks backwards to find the first record end at or after the start of each.
+      for (int i = numChunks - 1; i >= 1; i--) {
+        ChunkSummary chunk = chunks.get(i);
+        long firstRecordEnd = chunk.firstRecordEnds[startStates[i]];
+        if (firstRecordEnd != AMBIGUOUS) {
+          nextEnd = firstRecordEnd;
+          recordsToNextEnd = recordsBefore[i] + 1;
+        }
+        chunkEnds.add(0, nextEnd);
+        chunkRecords.add(0, recordsToNextEnd);
+      }
+      for (int i = 0; i < chunkEnds.size(); i++) {
+        long end = chunkEnds.get(i);
+        if (end != AMBIGUOUS && end > ends.get(ends.size() - 1) && end < size) {
+          ends.add(end);
+          records.add(chunkRecords.get(i));
+        }
+      }
       // If the last record does not have a newline at the end, we need to account for that record
       // as well.
-      if ((char) prevData != '\n') {
-        recordCount++;
+      long totalRecords = recordsBefore[numChunks];
+      if (numChunks > 0
+          && chunks.get(numChunks - 1).lastRecordEnds[startStates[numChunks - 1]] != size) {
+        totalRecords++;
       }
-      // Add last shard to output collection only if it is non-empty.
-      if (recordCount > 0) {
-        // We subtract one in the final offset to account for EOF read where data becomes -1.
-        c.output(
-            FileShard.create(
-                tableName,
-                c.element(),
-                new OffsetRange(prevMarker, prevMarker + bytesRead - 1),
-                recordCount));
+      ends.add(size);
+      records.add(totalRecords);
+
+      List<KV<OffsetRange, Long>> shards = new ArrayList<>();
+      for (int i = 0; i + 1 < ends.size(); i++) {
+        shards.add(
+            KV.of(
+                new OffsetRange(ends.get(i), ends.get(i + 1)),
+                records.get(i + 1) - records.get(i)));
+      }
+      return shards;
+    }
+
+    private static InputStream open(ResourceId file, long position) throws IOException {
+      SeekableByteChannel channel = (SeekableByteChannel) FileSystems.open(file);
+      channel.position(position);
+      return new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+    }
+
+    /** The outcome of scanning a chunk, for each parser state at its start. */
+    static class ChunkSummary {
+      // The state at the end of the chunk, or ERROR if the chunk is invalid from the start state.
+      final int[] endStates = new int[NUM_STATES];
+      final char[] errorChars = new char[NUM_STATES];
+      final long[] firstRecordEnds = new long[NUM_STATES];
+      final long[] lastRecordEnds = new long[NUM_STATES];
+      final long[] recordEnds = new long[NUM_STATES];
+
+      ChunkSummary() {
+        for (int state = 0; state < NUM_STATES; state++) {
+          endStates[state] = state;
+          firstRecordEnds[state] = AMBIGUOUS;
+          lastRecordEnds[state] = AMBIGUOUS;
+        }
       }
-    } catch (IOException e) {
-      throw new RuntimeException("Unable to readFile: " + metadata.resourceId().toString());
     }
   }
 }
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.spanner;
+
+import com.google.cloud.teleport.spanner.ddl.Ddl;
+import com.google.cloud.teleport.spanner.ddl.Table;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Assigns the tables of an import to the lanes and depths of the write graph.
+ *
+ * <p>A table can only be written once the tables it depends on are written. These are the parent of
+ * a table interleaved {@code IN PARENT}, and the tables referenced by the foreign keys of a table
+ * which already exists in the database. The foreign keys of the imported tables are created after
+ * the data load, so they do not constrain the order. A foreign key which would introduce a cycle,
+ * or a chain of dependencies deeper than the write graph, is ignored, logged and reported by {@link
+ * #getIgnoredForeignKeys()}.
+ *
+ * <p>The import writes the tables in a fixed number of independent lanes, each of which is a chain
+ * of depths waiting on each other. The tables connected by dependencies share a lane, and each
+ * table is written at the first depth after all of its dependencies. The groups of connected tables
+ * are assigned to lanes largest first, to the lane with the fewest bytes, so that a large table
+ * only delays the tables which depend on it and the tables sharing its lane.
+ */
+class TableImportSchedule implements Serializable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TableImportSchedule.class);
+
+  private final int numLanes;
+  private final int maxDepth;
+  // Lower case table name to its lane, depth and size in bytes.
+  private final Map<String, Integer> lanes;
+  private final Map<String, Integer> depths;
+  private final Map<String, Long> sizes;
+  // The foreign keys not used to order the tables, as "table -> referenced table".
+  private final List<String> ignoredForeignKeys;
+
+  private TableImportSchedule(
+      int numLanes,
+      int maxDepth,
+      Map<String, Integer> lanes,
+      Map<String, Integer> depths,
+      Map<String, Long> sizes,
+      List<String> ignoredForeignKeys) {
+    this.numLanes = numLanes;
+    this.maxDepth = maxDepth;
+    this.lanes = lanes;
+    this.depths = depths;
+    this.sizes = sizes;
+    this.ignoredForeignKeys = ignoredForeignKeys;
+  }
+
+  /**
+   * Creates the schedule of the tables of a database.
+   *
+   * @param ddl the database schema
+   * @param tableSizes the size in bytes of the data files of each table
+   * @param numLanes the number of lanes of the write graph
+   * @param maxDepth the number of depths of each lane
+   */
+  static TableImportSchedule create(
+      Ddl ddl, Map<String, Long> tableSizes, int numLanes, int maxDepth) {
+    Map<String, Long> sizes = new HashMap<>();
+    for (Map.Entry<String, Long> entry : tableSizes.entrySet()) {
+      sizes.merge(entry.getKey().toLowerCase(), entry.getValue(), Long::sum);
+    }
+
+    // Lower case table name to the tables it depends on.
+    Map<String, Set<String>> dependencies = new TreeMap<>();
+    for (Table table : ddl.allTables()) {
+      dependencies.put(table.name().toLowerCase(), new TreeSet<>());
+    }
+    for (Table table : ddl.allTables()) {
+      String parent = table.interleaveInParent();
+      if (parent != null
+          && table.interleaveType() != Table.InterleaveType.IN
+          && dependencies.containsKey(parent.toLowerCase())) {
+        dependencies.get(table.name().toLowerCase()).add(parent.toLowerCase());
+      }
+    }
+    Map<String, Integer> depths = computeDepths(dependencies);
+    if (depths == null || maxDepth(depths) >= maxDepth) {
+      throw new IllegalArgumentException(
+          "Tables are interleaved deeper than " + maxDepth + " levels");
+    }
+
+    List<String> ignoredForeignKeys = new ArrayList<>();
+    for (Table table : ddl.allTables()) {
+      String name = table.name().toLowerCase();
+      for (Table referenced : ddl.allReferencedTables(name)) {
+        if (referenced == null) {
+          continue;
+        }
+        String referencedName = referenced.name().toLowerCase();
+        if (referencedName.equals(name) || !dependencies.get(name).add(referencedName)) {
+          continue;
+        }
+        Map<String, Integer> newDepths = computeDepths(dependencies);
+        if (newDepths == null || maxDepth(newDepths) >= maxDepth) {
+          LOG.warn(
+              "Ignoring the foreign key from {} to {} when scheduling the import, as it {}",
+              name,
+              referencedName,
+              newDepths == null ? "closes a cycle" : "is deeper than " + maxDepth + " levels");
+          dependencies.get(name).remove(referencedName);
+          ignoredForeignKeys.add(name + " -> " + referencedName);
+        } else {
+          depths = newDepths;
+        }
+      }
+    }
+
+    // Group the connected tables, and assign the groups to the least loaded lane, largest first.
+    Map<String, String> groupOf = new HashMap<>();
+    for (String table : dependencies.keySet()) {
+      groupOf.put(table, table);
+    }
+    for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+      for (String dependency : entry.getValue()) {
+        groupOf.put(findGroup(groupOf, entry.getKey()), findGroup(groupOf, dependency));
+      }
+    }
+    Map<String, List<String>> groups = new TreeMap<>();
+    Map<String, Long> groupSizes = new HashMap<>();
+    for (String table : dependencies.keySet()) {
+      String group = findGroup(groupOf, table);
+      groups.computeIfAbsent(group, g -> new ArrayList<>()).add(table);
+      groupSizes.merge(group, sizes.getOrDefault(table, 0L), Long::sum);
+    }
+    List<String> sortedGroups = new ArrayList<>(groups.keySet());
+    sortedGroups.sort(
+        Comparator.comparing((String group) -> groupSizes.get(group))
+            .reversed()
+            .thenComparing(Comparator.naturalOrder()));
+
+    long[] laneSizes = new long[numLanes];
+    Map<String, Integer> lanes = new HashMap<>();
+    for (String group : sortedGroups) {
+      int lane = 0;
+      for (int i = 1; i < numLanes; i++) {
+        if (laneSizes[i] < laneSizes[lane]) {
+          lane = i;
+        }
+      }
+      laneSizes[lane] += groupSizes.get(group);
+      for (String table : groups.get(group)) {
+        lanes.put(table, lane);
+      }
+    }
+    return new TableImportSchedule(numLanes, maxDepth, lanes, depths, sizes, ignoredForeignKeys);
+  }
+
+  /** Returns the tables written at a depth of a lane, largest first. */
+  List<String> getTables(int lane, int depth) {
+    List<String> result = new ArrayList<>();
+    for (Map.Entry<String, Integer> entry : lanes.entrySet()) {
+      if (entry.getValue() == lane && depths.get(entry.getKey()) == depth) {
+        result.add(entry.getKey());
+      }
+    }
+    result.sort(
+        Comparator.comparing(this::getSize).reversed().thenComparing(Comparator.naturalOrder()));
+    return result;
+  }
+
+  int getLane(String table) {
+    return lanes.get(table.toLowerCase());
+  }
+
+  int getDepth(String table) {
+    return depths.get(table.toLowerCase());
+  }
+
+  long getSize(String table) {
+    return sizes.getOrDefault(table.toLowerCase(), 0L);
+  }
+
+  /**
+   * Returns the foreign keys which do not order the tables, as "table -> referenced table" in
+   * lower case. The referencing table may be written before the table it references.
+   */
+  List<String> getIgnoredForeignKeys() {
+    return ignoredForeignKeys;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int lane = 0; lane < numLanes; lane++) {
+      for (int depth = 0; depth < maxDepth; depth++) {
+        List<String> tables = getTables(lane, depth);
+        if (!tables.isEmpty()) {
+          sb.append("lane ")
+              .append(lane)
+              .append(" depth ")
+              .append(depth)
+              .append(": ")
+              .append(String.join(", ", tables))
+              .append("\n");
+        }
+      }
+    }
+    if (!ignoredForeignKeys.isEmpty()) {
+      sb.append("ignored foreign keys: ")
+          .append(String.join(", ", ignoredForeignKeys))
+          .append("\n");
+    }
+    return sb.toString();
+  }
+
+  /** Returns the length of the longest chain of dependencies of each table, or null on a cycle. */
+  private static Map<String, Integer> computeDepths(Map<String, Set<String>> dependencies) {
+    Map<String, Integer> depths = new HashMap<>();
+    for (String table : dependencies.keySet()) {
+      if (computeDepth(table, dependencies, depths, new TreeSet<>()) < 0) {
+        return null;
+      }
+    }
+    return depths;
+  }
+
+  private static int computeDepth(
+      String table,
+      Map<String, Set<String>> dependencies,
+      Map<String, Integer> depths,
+      Set<String> visiting) {
+    Integer known = depths.get(table);
+    if (known != null) {
+      return known;
+    }
+    if (!visiting.add(table)) {
+      return -1;
+    }
+    int depth = 0;
+    for (String dependency : dependencies.get(table)) {
+      int dependencyDepth = computeDepth(dependency, dependencies, depths, visiting);
+      if (dependencyDepth < 0) {
+        return -1;
+      }
+      depth = Math.max(depth, dependencyDepth + 1);
+    }
+    visiting.remove(table);
+    depths.put(table, depth);
+    return depth;
+  }
+
+  private static int maxDepth(Map<String, Integer> depths) {
+    int result = 0;
+    for (int depth : depths.values()) {
+      result = Math.max(result, depth);
+    }
+    return result;
+  }
+
+  private static String findGroup(Map<String, String> groupOf, String table) {
+    String group = groupOf.get(table);
+    while (!group.equals(groupOf.get(group))) {
+      group = groupOf.get(group);
+    }
+    groupOf.put(table, group);
+    return group;
+  }
+}
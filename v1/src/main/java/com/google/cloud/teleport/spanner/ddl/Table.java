@@ -287,4 +287,23 @@ public abstract class Table implements Serializable {
     }
     return null;
   }
+
+  /**
+   * Returns a table with the name and the primary key of this table, and no other columns. Its key
+   * columns are not generated, so that they are read and written like the other columns.
+   */
+  public Table primaryKeyTable() {
+    Builder builder = Table.builder(dialect()).name(name());
+    for (IndexColumn pk : primaryKeys()) {
+      builder.addColumn(
+          column(pk.name()).toBuilder()
+              .isGenerated(false)
+              .generationExpression("")
+              .isStored(false)
+              .defaultExpression(null)
+              .autoBuild());
+      builder.primaryKeyBuilder().set(pk);
+    }
+    return builder.build();
+  }
 }
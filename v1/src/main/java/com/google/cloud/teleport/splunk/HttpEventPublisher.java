@@ -16,6 +16,7 @@
 package com.google.cloud.teleport.splunk;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.GZipEncoding;
@@ -36,20 +37,36 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.Socket;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpTimeoutException;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 import javax.annotation.Nullable;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Joiner;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
 import org.apache.http.client.config.CookieSpecs;
@@ -57,16 +74,18 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.ssl.SSLContextBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * {@link HttpEventPublisher} is a utility class that helps write {@link SplunkEvent}s to a Splunk
  * Event Collector (HEC) endpoint.
+ *
+ * <p>Events can either be published synchronously with {@link #execute(List)}, or asynchronously
+ * with {@link #executeAsync(List)} which uses a non-blocking {@link HttpClient} and allows any
+ * number of requests to be in flight at the same time.
  */
 @AutoValue
 public abstract class HttpEventPublisher {
@@ -77,6 +96,11 @@ public abstract class HttpEventPublisher {
 
   private static final boolean DEFAULT_DISABLE_CERTIFICATE_VALIDATION = false;
 
+  // Same as the default connect and read timeouts of the synchronous transport's requests.
+  private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 20_000;
+
+  private static final int DEFAULT_REQUEST_TIMEOUT_MILLIS = 20_000;
+
   private static final Gson GSON =
       new GsonBuilder().setFieldNamingStrategy(f -> f.getName().toLowerCase()).create();
 
@@ -114,6 +138,13 @@ public abstract class HttpEventPublisher {
 
   abstract Boolean enableGzipHttpCompression();
 
+  @Nullable
+  abstract SSLContext sslContext();
+
+  abstract Integer requestTimeoutMillis();
+
+  private volatile HttpClient asyncHttpClient;
+
   /**
    * Executes a POST for the list of {@link SplunkEvent} objects into Splunk's Http Event Collector
    * endpoint.
@@ -153,6 +184,101 @@ public abstract class HttpEventPublisher {
     return this.execute(ImmutableList.of(event));
   }
 
+  /**
+   * Asynchronously executes a POST for the list of {@link SplunkEvent} objects into Splunk's Http
+   * Event Collector endpoint. Like {@link #execute(List)}, requests failing with a server error or
+   * an {@link IOException}, including an {@link HttpTimeoutException} when the endpoint does not
+   * respond in time, are retried with an {@link ExponentialBackOff}.
+   *
+   * <p>The events are serialized straight into the (optionally gzip compressed) request body.
+   *
+   * @param events List of {@link SplunkEvent}s
+   * @return a future completing with the final response for the POST, or exceptionally with the
+   *     last {@link IOException} once retries are exhausted.
+   */
+  public CompletableFuture<java.net.http.HttpResponse<String>> executeAsync(
+      List<SplunkEvent> events) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    if (enableGzipHttpCompression()) {
+      try (GZIPOutputStream gzip = new GZIPOutputStream(body)) {
+        writePayload(events, gzip);
+      }
+    } else {
+      writePayload(events, body);
+    }
+
+    java.net.http.HttpRequest.Builder request =
+        java.net.http.HttpRequest.newBuilder(genericUrl().toURI())
+            .header("Authorization", String.format(AUTHORIZATION_SCHEME, token()))
+            .header("Content-Type", CONTENT_TYPE)
+            .timeout(Duration.ofMillis(requestTimeoutMillis()))
+            .POST(BodyPublishers.ofByteArray(body.toByteArray()));
+    if (enableGzipHttpCompression()) {
+      request.header("Content-Encoding", "gzip");
+    }
+    return sendAsync(request.build(), getConfiguredBackOff());
+  }
+
+  private CompletableFuture<java.net.http.HttpResponse<String>> sendAsync(
+      java.net.http.HttpRequest request, ExponentialBackOff backOff) {
+    return getAsyncHttpClient()
+        .sendAsync(request, BodyHandlers.ofString())
+        .handle(
+            (response, error) -> {
+              Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+              // Timeouts are IOExceptions too, so an endpoint that stops responding is retried
+              // until the back off gives up instead of holding the request forever.
+              boolean retry =
+                  cause != null
+                      ? cause instanceof IOException
+                      : isServerError(response.statusCode());
+              long backOffMillis = retry ? nextBackOffMillis(backOff) : ExponentialBackOff.STOP;
+              if (backOffMillis != ExponentialBackOff.STOP) {
+                return CompletableFuture.runAsync(
+                        () -> {},
+                        CompletableFuture.delayedExecutor(backOffMillis, TimeUnit.MILLISECONDS))
+                    .thenCompose(v -> sendAsync(request, backOff));
+              } else if (cause != null) {
+                return CompletableFuture.<java.net.http.HttpResponse<String>>failedFuture(cause);
+              }
+              return CompletableFuture.completedFuture(response);
+            })
+        .thenCompose(future -> future);
+  }
+
+  private static boolean isServerError(int statusCode) {
+    return statusCode >= 500 && statusCode < 600;
+  }
+
+  private static long nextBackOffMillis(ExponentialBackOff backOff) {
+    try {
+      return backOff.nextBackOffMillis();
+    } catch (IOException e) {
+      return ExponentialBackOff.STOP;
+    }
+  }
+
+  private HttpClient getAsyncHttpClient() {
+    HttpClient client = asyncHttpClient;
+    if (client == null) {
+      synchronized (this) {
+        client = asyncHttpClient;
+        if (client == null) {
+          HttpClient.Builder builder =
+              HttpClient.newBuilder()
+                  .version(HttpClient.Version.HTTP_1_1)
+                  .connectTimeout(Duration.ofMillis(DEFAULT_CONNECT_TIMEOUT_MILLIS));
+          if (sslContext() != null) {
+            builder.sslContext(sslContext());
+          }
+          client = builder.build();
+          asyncHttpClient = client;
+        }
+      }
+    }
+    return client;
+  }
+
   /**
    * Return an {@link ExponentialBackOff} with the right settings.
    *
@@ -169,6 +295,7 @@ public abstract class HttpEventPublisher {
       LOG.info("Closing publisher transport.");
       transport().shutdown();
     }
+    asyncHttpClient = null;
   }
 
   /**
@@ -194,10 +321,21 @@ public abstract class HttpEventPublisher {
    * @return {@link HttpContent} that can be used to create an {@link HttpRequest}.
    */
   @VisibleForTesting
-  protected HttpContent getContent(List<SplunkEvent> events) {
-    String payload = getStringPayload(events);
-    LOG.debug("Payload content: {}", payload);
-    return ByteArrayContent.fromString(CONTENT_TYPE, payload);
+  protected HttpContent getContent(List<SplunkEvent> events) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    writePayload(events, payload);
+    LOG.debug("Payload size: {} bytes", payload.size());
+    return new ByteArrayContent(CONTENT_TYPE, payload.toByteArray());
+  }
+
+  /** Utility method to serialize a list of {@link SplunkEvent}s into an {@link OutputStream}. */
+  @VisibleForTesting
+  void writePayload(List<SplunkEvent> events, OutputStream outputStream) throws IOException {
+    Writer writer = new OutputStreamWriter(outputStream, UTF_8);
+    for (SplunkEvent event : events) {
+      GSON.toJson(event, writer);
+    }
+    writer.flush();
   }
 
   /** Utility method to get payload string from a list of {@link SplunkEvent}s. */
@@ -237,8 +375,16 @@ public abstract class HttpEventPublisher {
 
     abstract Builder setMaxElapsedMillis(Integer maxElapsedMillis);
 
+    abstract Builder setSslContext(SSLContext sslContext);
+
+    abstract SSLContext sslContext();
+
     abstract Integer maxElapsedMillis();
 
+    abstract Builder setRequestTimeoutMillis(Integer requestTimeoutMillis);
+
+    abstract Integer requestTimeoutMillis();
+
     abstract HttpEventPublisher autoBuild();
 
     /**
@@ -314,6 +460,21 @@ public abstract class HttpEventPublisher {
       return setMaxElapsedMillis(maxElapsedMillis);
     }
 
+    /**
+     * Method to set the time to wait for a response to an asynchronous request before retrying it.
+     * Otherwise uses the default read timeout of the synchronous requests.
+     *
+     * @param requestTimeoutMillis request timeout in milliseconds.
+     * @return {@link Builder}
+     */
+    @VisibleForTesting
+    Builder withRequestTimeoutMillis(Integer requestTimeoutMillis) {
+      checkNotNull(
+          requestTimeoutMillis,
+          "withRequestTimeoutMillis(requestTimeoutMillis) called with null input.");
+      return setRequestTimeoutMillis(requestTimeoutMillis);
+    }
+
     /**
      * Validates and builds a {@link HttpEventPublisher} object.
      *
@@ -341,9 +502,16 @@ public abstract class HttpEventPublisher {
         setMaxElapsedMillis(ExponentialBackOff.DEFAULT_MAX_ELAPSED_TIME_MILLIS);
       }
 
+      if (requestTimeoutMillis() == null) {
+        setRequestTimeoutMillis(DEFAULT_REQUEST_TIMEOUT_MILLIS);
+      }
+
+      if (genericUrl().getScheme().equalsIgnoreCase(HTTPS_PROTOCOL_PREFIX)) {
+        setSslContext(getSslContext(disableCertificateValidation(), rootCaCertificate()));
+      }
+
       CloseableHttpClient httpClient =
-          getHttpClient(
-              DEFAULT_MAX_CONNECTIONS, disableCertificateValidation(), rootCaCertificate());
+          getHttpClient(DEFAULT_MAX_CONNECTIONS, disableCertificateValidation(), sslContext());
 
       setTransport(new ApacheHttpTransport(httpClient));
       setRequestFactory(transport().createRequestFactory());
@@ -364,46 +532,55 @@ public abstract class HttpEventPublisher {
     }
 
     /**
-     * Utility method to create a {@link CloseableHttpClient} to make http POSTs against Splunk's
-     * HEC.
+     * Utility method to create the {@link SSLContext} used to connect to Splunk's HEC.
      *
-     * @param maxConnections max number of parallel connections.
      * @param disableCertificateValidation should disable certificate validation.
+     * @param rootCaCertificate optional self-signed root CA certificate to trust.
      */
-    private CloseableHttpClient getHttpClient(
-        int maxConnections, boolean disableCertificateValidation, byte[] rootCaCertificate)
+    private SSLContext getSslContext(boolean disableCertificateValidation, byte[] rootCaCertificate)
         throws NoSuchAlgorithmException,
             KeyStoreException,
             KeyManagementException,
             CertificateException,
             IOException {
+      LOG.info("SSL connection requested");
+
+      SSLContext sslContext = SSLContext.getInstance("TLS");
+      if (disableCertificateValidation) {
+        LOG.info("Certificate validation is disabled");
+        sslContext.init(null, new TrustManager[] {new TrustAllX509TrustManager()}, null);
+      } else if (rootCaCertificate != null) {
+        LOG.info("Self-Signed Certificate provided");
+        InputStream inStream = new ByteArrayInputStream(rootCaCertificate);
+        CertificateFactory cf = CertificateFactory.getInstance("X.509");
+        X509Certificate cert = (X509Certificate) cf.generateCertificate(inStream);
+        CustomX509TrustManager customTrustManager = new CustomX509TrustManager(cert);
+        sslContext.init(null, new TrustManager[] {customTrustManager}, null);
+      } else {
+        sslContext.init(null, null, null);
+      }
+      return sslContext;
+    }
 
-      HttpClientBuilder builder = ApacheHttpTransport.newDefaultHttpClientBuilder();
+    /**
+     * Utility method to create a {@link CloseableHttpClient} to make http POSTs against Splunk's
+     * HEC.
+     *
+     * @param maxConnections max number of parallel connections.
+     * @param disableCertificateValidation should disable certificate validation.
+     * @param sslContext the {@link SSLContext} to use for https connections.
+     */
+    private CloseableHttpClient getHttpClient(
+        int maxConnections, boolean disableCertificateValidation, SSLContext sslContext) {
 
-      if (genericUrl().getScheme().equalsIgnoreCase(HTTPS_PROTOCOL_PREFIX)) {
-        LOG.info("SSL connection requested");
+      HttpClientBuilder builder = ApacheHttpTransport.newDefaultHttpClientBuilder();
 
+      if (sslContext != null) {
         HostnameVerifier hostnameVerifier =
             disableCertificateValidation
                 ? NoopHostnameVerifier.INSTANCE
                 : new DefaultHostnameVerifier();
 
-        SSLContext sslContext = SSLContextBuilder.create().build();
-        if (disableCertificateValidation) {
-          LOG.info("Certificate validation is disabled");
-          sslContext =
-              SSLContextBuilder.create()
-                  .loadTrustMaterial((TrustStrategy) (chain, authType) -> true)
-                  .build();
-        } else if (rootCaCertificate != null) {
-          LOG.info("Self-Signed Certificate provided");
-          InputStream inStream = new ByteArrayInputStream(rootCaCertificate);
-          CertificateFactory cf = CertificateFactory.getInstance("X.509");
-          X509Certificate cert = (X509Certificate) cf.generateCertificate(inStream);
-          CustomX509TrustManager customTrustManager = new CustomX509TrustManager(cert);
-          sslContext.init(null, new TrustManager[] {customTrustManager}, null);
-        }
-
         SSLConnectionSocketFactory connectionSocketFactory =
             new SSLConnectionSocketFactory(sslContext, hostnameVerifier);
         builder.setSSLSocketFactory(connectionSocketFactory);
@@ -416,4 +593,35 @@ public abstract class HttpEventPublisher {
       return builder.build();
     }
   }
+
+  /**
+   * A {@link X509ExtendedTrustManager} trusting every certificate and host, used when certificate
+   * validation is disabled. Extending {@link X509ExtendedTrustManager} also prevents the JDK from
+   * verifying the hostname on connections made by the asynchronous {@link HttpClient}.
+   */
+  private static class TrustAllX509TrustManager extends X509ExtendedTrustManager {
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {}
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {}
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {}
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {}
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+      return new X509Certificate[0];
+    }
+  }
 }
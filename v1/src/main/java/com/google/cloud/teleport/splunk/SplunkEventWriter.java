@@ -34,7 +34,14 @@ import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
@@ -53,11 +60,21 @@ import org.apache.beam.sdk.state.ValueState;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.values.KV;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
 import org.joda.time.Duration;
+import org.joda.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** A {@link DoFn} to write {@link SplunkEvent}s to Splunk's HEC endpoint. */
+/**
+ * A {@link DoFn} to write {@link SplunkEvent}s to Splunk's HEC endpoint.
+ *
+ * <p>By default each batch is published synchronously. If more than one in-flight batch is allowed
+ * via {@link Builder#withMaxInFlightBatches(ValueProvider)}, batches are published asynchronously
+ * and up to that many batches per worker wait for a response at the same time. Responses of
+ * asynchronous batches are collected by the end of the bundle, where failed events are output as
+ * {@link SplunkWriteError}s.
+ */
 @AutoValue
 public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, SplunkWriteError> {
 
@@ -67,6 +84,7 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
   private static final Boolean DEFAULT_ENABLE_GZIP_HTTP_COMPRESSION = true;
   private static final Logger LOG = LoggerFactory.getLogger(SplunkEventWriter.class);
   private static final long DEFAULT_FLUSH_DELAY = 2;
+  private static final Integer DEFAULT_MAX_IN_FLIGHT_BATCHES = 1;
   private static final Counter INPUT_COUNTER =
       Metrics.counter(SplunkEventWriter.class, "inbound-events");
   private static final Counter SUCCESS_WRITES =
@@ -90,6 +108,10 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
   private static final String TIME_ID_NAME = "expiry";
   private static final Pattern URL_PATTERN = Pattern.compile("^http(s?)://([^:]+)(:[0-9]+)?$");
 
+  /** Permits for asynchronous batches in flight, shared by all writers of a HEC url on a worker. */
+  private static final ConcurrentHashMap<String, Semaphore> IN_FLIGHT_BATCHES =
+      new ConcurrentHashMap<>();
+
   @VisibleForTesting
   protected static final String INVALID_URL_FORMAT_MESSAGE =
       "Invalid url format. Url format should match PROTOCOL://HOST[:PORT], where PORT is optional. "
@@ -108,7 +130,10 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
   private Boolean disableValidation;
   private Boolean enableBatchLogs;
   private Boolean enableGzipHttpCompression;
+  private Integer maxInFlightBatches;
   private HttpEventPublisher publisher;
+  private Semaphore inFlightBatches;
+  private transient List<PendingBatch> pendingBatches;
 
   private static final Gson GSON =
       new GsonBuilder().setFieldNamingStrategy(f -> f.getName().toLowerCase()).create();
@@ -138,6 +163,9 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
   @Nullable
   abstract ValueProvider<Integer> inputBatchCount();
 
+  @Nullable
+  abstract ValueProvider<Integer> inputMaxInFlightBatches();
+
   @Setup
   public void setup() {
 
@@ -177,6 +205,23 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
       LOG.info("Enable gzip http compression set to: {}", enableGzipHttpCompression);
     }
 
+    if (maxInFlightBatches == null) {
+
+      if (inputMaxInFlightBatches() != null) {
+        maxInFlightBatches = inputMaxInFlightBatches().get();
+      }
+
+      maxInFlightBatches =
+          MoreObjects.firstNonNull(maxInFlightBatches, DEFAULT_MAX_IN_FLIGHT_BATCHES);
+      LOG.info("Max in-flight batches set to: {}", maxInFlightBatches);
+    }
+
+    if (isAsync()) {
+      inFlightBatches =
+          IN_FLIGHT_BATCHES.computeIfAbsent(url().get(), u -> new Semaphore(maxInFlightBatches));
+      pendingBatches = new ArrayList<>();
+    }
+
     // Either user supplied or default disableValidation.
     if (disableValidation == null) {
 
@@ -217,6 +262,7 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
   @ProcessElement
   public void processElement(
       @Element KV<Integer, SplunkEvent> input,
+      @Timestamp Instant timestamp,
       OutputReceiver<SplunkWriteError> receiver,
       BoundedWindow window,
       @StateId(BUFFER_STATE_NAME) BagState<SplunkEvent> bufferState,
@@ -236,13 +282,19 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
       if (enableBatchLogs) {
         LOG.info("Flushing batch of {} events", count);
       }
-      flush(receiver, bufferState, countState);
+      if (isAsync()) {
+        flushAsync(timestamp, window, bufferState, countState);
+      } else {
+        flush(receiver, bufferState, countState);
+      }
     }
   }
 
   @OnTimer(TIME_ID_NAME)
   public void onExpiry(
       OutputReceiver<SplunkWriteError> receiver,
+      @Timestamp Instant timestamp,
+      BoundedWindow window,
       @StateId(BUFFER_STATE_NAME) BagState<SplunkEvent> bufferState,
       @StateId(COUNT_STATE_NAME) ValueState<Long> countState)
       throws IOException {
@@ -251,8 +303,62 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
       if (enableBatchLogs) {
         LOG.info("Flushing window with {} events", countState.read());
       }
-      flush(receiver, bufferState, countState);
+      if (isAsync()) {
+        flushAsync(timestamp, window, bufferState, countState);
+      } else {
+        flush(receiver, bufferState, countState);
+      }
+    }
+  }
+
+  /**
+   * Waits for the responses of all asynchronous batches published in this bundle, and outputs the
+   * events of failed batches as {@link SplunkWriteError}s.
+   */
+  @FinishBundle
+  public void finishBundle(FinishBundleContext context) throws InterruptedException {
+    if (pendingBatches == null || pendingBatches.isEmpty()) {
+      return;
+    }
+    for (PendingBatch batch : pendingBatches) {
+      BatchResult result;
+      try {
+        result = batch.result.get();
+      } catch (ExecutionException e) {
+        // Callbacks never complete exceptionally, but guard against it anyway.
+        result = BatchResult.failure(null, e.getCause().toString(), null, 0);
+      }
+      long count = batch.events.size();
+      if (result.success) {
+        SUCCESSFUL_WRITE_LATENCY_MS.update(result.latencyMillis);
+        SUCCESS_WRITES.inc(count);
+        VALID_REQUESTS.inc();
+        SUCCESSFUL_WRITE_BATCH_SIZE.update(count);
+        if (enableBatchLogs) {
+          LOG.info("Successfully wrote {} events", count);
+        }
+        continue;
+      }
+
+      UNSUCCESSFUL_WRITE_LATENCY_MS.update(result.latencyMillis);
+      FAILED_WRITES.inc(count);
+      if (result.statusCode == null || (result.statusCode >= 400 && result.statusCode < 500)) {
+        INVALID_REQUESTS.inc();
+      } else if (result.statusCode >= 500 && result.statusCode < 600) {
+        SERVER_ERROR_REQUESTS.inc();
+      }
+      logWriteFailures(
+          count,
+          MoreObjects.firstNonNull(result.statusCode, 0),
+          result.content,
+          result.statusMessage);
+      flushWriteFailures(
+          batch.events,
+          result.statusMessage,
+          result.statusCode,
+          error -> context.output(error, batch.timestamp, batch.window));
     }
+    pendingBatches.clear();
   }
 
   @Teardown
@@ -298,12 +404,12 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
           }
 
           logWriteFailures(
-              countState,
+              countState.read(),
               response.getStatusCode(),
               response.parseAsString(),
               response.getStatusMessage());
           flushWriteFailures(
-              events, response.getStatusMessage(), response.getStatusCode(), receiver);
+              events, response.getStatusMessage(), response.getStatusCode(), receiver::output);
 
         } else {
           SUCCESSFUL_WRITE_LATENCY_MS.update(nanosToMillis(System.nanoTime() - startTime));
@@ -326,16 +432,17 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
           SERVER_ERROR_REQUESTS.inc();
         }
 
-        logWriteFailures(countState, e.getStatusCode(), e.getContent(), e.getStatusMessage());
-        flushWriteFailures(events, e.getStatusMessage(), e.getStatusCode(), receiver);
+        logWriteFailures(
+            countState.read(), e.getStatusCode(), e.getContent(), e.getStatusMessage());
+        flushWriteFailures(events, e.getStatusMessage(), e.getStatusCode(), receiver::output);
 
       } catch (IOException ioe) {
         UNSUCCESSFUL_WRITE_LATENCY_MS.update(nanosToMillis(System.nanoTime() - startTime));
         FAILED_WRITES.inc(countState.read());
         INVALID_REQUESTS.inc();
 
-        logWriteFailures(countState, 0, ioe.toString(), null);
-        flushWriteFailures(events, ioe.toString(), null, receiver);
+        logWriteFailures(countState.read(), 0, ioe.toString(), null);
+        flushWriteFailures(events, ioe.toString(), null, receiver::output);
 
       } finally {
         // States are cleared regardless of write success or failure since we
@@ -363,14 +470,75 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
     }
   }
 
+  /**
+   * Utility method to publish a batch of events asynchronously via {@link HttpEventPublisher}.
+   * Blocks while the maximum number of batches is already in flight on this worker. The response is
+   * turned into a {@link BatchResult} by a completion callback, and handled in {@link
+   * #finishBundle(FinishBundleContext)}.
+   */
+  private void flushAsync(
+      Instant timestamp,
+      BoundedWindow window,
+      @StateId(BUFFER_STATE_NAME) BagState<SplunkEvent> bufferState,
+      @StateId(COUNT_STATE_NAME) ValueState<Long> countState)
+      throws IOException {
+
+    if (bufferState.isEmpty().read()) {
+      return;
+    }
+    List<SplunkEvent> events = Lists.newArrayList(bufferState.read());
+    // States are cleared right away since failed events are written to an output PCollection
+    // once the response is received.
+    bufferState.clear();
+    countState.clear();
+
+    try {
+      inFlightBatches.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting to publish events", e);
+    }
+
+    long startTime = System.nanoTime();
+    CompletableFuture<BatchResult> result;
+    try {
+      result =
+          publisher
+              .executeAsync(events)
+              .handle(
+                  (response, error) -> {
+                    inFlightBatches.release();
+                    long latencyMillis = nanosToMillis(System.nanoTime() - startTime);
+                    if (error != null) {
+                      return BatchResult.failure(null, error.toString(), null, latencyMillis);
+                    } else if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                      return BatchResult.failure(
+                          response.statusCode(),
+                          EnglishReasonPhraseCatalog.INSTANCE.getReason(
+                              response.statusCode(), Locale.ENGLISH),
+                          response.body(),
+                          latencyMillis);
+                    }
+                    return BatchResult.success(latencyMillis);
+                  });
+    } catch (IOException | RuntimeException e) {
+      inFlightBatches.release();
+      result =
+          CompletableFuture.completedFuture(
+              BatchResult.failure(
+                  null, e.toString(), null, nanosToMillis(System.nanoTime() - startTime)));
+    }
+    pendingBatches.add(new PendingBatch(events, result, timestamp, window));
+  }
+
+  private boolean isAsync() {
+    return maxInFlightBatches > 1;
+  }
+
   /** Utility method to log write failures. */
-  private void logWriteFailures(
-      @StateId(COUNT_STATE_NAME) ValueState<Long> countState,
-      int statusCode,
-      String content,
-      String statusMessage) {
+  private void logWriteFailures(long count, int statusCode, String content, String statusMessage) {
     if (enableBatchLogs) {
-      LOG.error("Failed to write {} events", countState.read());
+      LOG.error("Failed to write {} events", count);
     }
     LOG.error(
         "Error writing to Splunk. StatusCode: {}, content: {}, StatusMessage: {}",
@@ -391,7 +559,7 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
       List<SplunkEvent> events,
       String statusMessage,
       Integer statusCode,
-      OutputReceiver<SplunkWriteError> receiver) {
+      Consumer<SplunkWriteError> receiver) {
 
     checkNotNull(events, "SplunkEvents cannot be null.");
 
@@ -409,7 +577,7 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
       String payload = GSON.toJson(event);
       SplunkWriteError error = builder.withPayload(payload).build();
 
-      receiver.output(error);
+      receiver.accept(error);
     }
   }
 
@@ -438,6 +606,59 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
     return Math.round(((double) ns) / 1e6);
   }
 
+  /** A batch of events published asynchronously, along with where to output its failures. */
+  private static class PendingBatch {
+    private final List<SplunkEvent> events;
+    private final CompletableFuture<BatchResult> result;
+    private final Instant timestamp;
+    private final BoundedWindow window;
+
+    private PendingBatch(
+        List<SplunkEvent> events,
+        CompletableFuture<BatchResult> result,
+        Instant timestamp,
+        BoundedWindow window) {
+      this.events = events;
+      this.result = result;
+      this.timestamp = timestamp;
+      this.window = window;
+    }
+  }
+
+  /** The outcome of publishing a batch asynchronously. */
+  private static class BatchResult {
+    private final boolean success;
+    @Nullable private final Integer statusCode;
+    @Nullable private final String statusMessage;
+    @Nullable private final String content;
+    private final long latencyMillis;
+
+    private BatchResult(
+        boolean success,
+        @Nullable Integer statusCode,
+        @Nullable String statusMessage,
+        @Nullable String content,
+        long latencyMillis) {
+      this.success = success;
+      this.statusCode = statusCode;
+      this.statusMessage = statusMessage;
+      this.content = content;
+      this.latencyMillis = latencyMillis;
+    }
+
+    private static BatchResult success(long latencyMillis) {
+      return new BatchResult(true, null, null, null, latencyMillis);
+    }
+
+    private static BatchResult failure(
+        @Nullable Integer statusCode,
+        @Nullable String statusMessage,
+        @Nullable String content,
+        long latencyMillis) {
+      return new BatchResult(false, statusCode, statusMessage, content, latencyMillis);
+    }
+  }
+
   @AutoValue.Builder
   abstract static class Builder {
 
@@ -460,6 +681,8 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
 
     abstract Builder setInputBatchCount(ValueProvider<Integer> inputBatchCount);
 
+    abstract Builder setInputMaxInFlightBatches(ValueProvider<Integer> inputMaxInFlightBatches);
+
     abstract SplunkEventWriter autoBuild();
 
     /**
@@ -520,6 +743,17 @@ public abstract class SplunkEventWriter extends DoFn<KV<Integer, SplunkEvent>, S
       return setInputBatchCount(inputBatchCount);
     }
 
+    /**
+     * Method to set the maximum number of batches in flight per worker. Values greater than 1
+     * enable asynchronous publishing.
+     *
+     * @param maxInFlightBatches for publishing batches asynchronously.
+     * @return {@link Builder}
+     */
+    public Builder withMaxInFlightBatches(ValueProvider<Integer> maxInFlightBatches) {
+      return setInputMaxInFlightBatches(maxInFlightBatches);
+    }
+
     /**
      * Method to disable certificate validation.
      *
@@ -81,6 +81,9 @@ public class SplunkIO {
     @Nullable
     abstract ValueProvider<Boolean> enableGzipHttpCompression();
 
+    @Nullable
+    abstract ValueProvider<Integer> maxInFlightBatches();
+
     @Override
     public PCollection<SplunkWriteError> expand(PCollection<SplunkEvent> input) {
 
@@ -93,7 +96,8 @@ public class SplunkIO {
               .withToken((token()))
               .withRootCaCertificatePath(rootCaCertificatePath())
               .withEnableBatchLogs(enableBatchLogs())
-              .withEnableGzipHttpCompression(enableGzipHttpCompression());
+              .withEnableGzipHttpCompression(enableGzipHttpCompression())
+              .withMaxInFlightBatches(maxInFlightBatches());
 
       SplunkEventWriter writer = builder.build();
       LOG.info("SplunkEventWriter configured");
@@ -131,6 +135,8 @@ public class SplunkIO {
       abstract Builder setEnableGzipHttpCompression(
           ValueProvider<Boolean> enableGzipHttpCompression);
 
+      abstract Builder setMaxInFlightBatches(ValueProvider<Integer> maxInFlightBatches);
+
       abstract Write autoBuild();
 
       /**
@@ -323,6 +329,28 @@ public class SplunkIO {
             ValueProvider.StaticValueProvider.of(enableGzipHttpCompression));
       }
 
+      /**
+       * Method to set the maximum number of batches in flight per worker. Values greater than 1
+       * publish batches asynchronously.
+       *
+       * @param maxInFlightBatches for publishing batches asynchronously.
+       * @return {@link Builder}
+       */
+      public Builder withMaxInFlightBatches(ValueProvider<Integer> maxInFlightBatches) {
+        return setMaxInFlightBatches(maxInFlightBatches);
+      }
+
+      /**
+       * Same as {@link Builder#withMaxInFlightBatches(ValueProvider)} but without a {@link
+       * ValueProvider}.
+       *
+       * @param maxInFlightBatches for publishing batches asynchronously.
+       * @return {@link Builder}
+       */
+      public Builder withMaxInFlightBatches(Integer maxInFlightBatches) {
+        return setMaxInFlightBatches(ValueProvider.StaticValueProvider.of(maxInFlightBatches));
+      }
+
       public Write build() {
         checkNotNull(url(), "HEC url is required.");
         checkNotNull(token(), "Authorization token is required.");
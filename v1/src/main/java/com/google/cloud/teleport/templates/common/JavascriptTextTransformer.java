@@ -35,7 +35,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.script.Invocable;
@@ -48,6 +51,7 @@ import org.apache.beam.sdk.io.fs.MatchResult;
 import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
 import org.apache.beam.sdk.io.fs.MatchResult.Status;
 import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.PipelineOptions;
@@ -133,12 +137,25 @@ public abstract class JavascriptTextTransformer {
     @Nullable
     public abstract Integer reloadIntervalMinutes();
 
-    private static LoadingCache<JavascriptRuntime, Invocable> cache =
+    private static final Distribution JAVASCRIPT_RELOAD_LATENCY_MS =
+        Metrics.distribution(JavascriptTextTransformer.class, "javascript_reload_latency_ms");
+
+    private static final Distribution JAVASCRIPT_ENGINE_CREATION_LATENCY_MS =
+        Metrics.distribution(
+            JavascriptTextTransformer.class, "javascript_engine_creation_latency_ms");
+
+    private static final Distribution JAVASCRIPT_ENGINE_POOL_WAIT_MS =
+        Metrics.distribution(JavascriptTextTransformer.class, "javascript_engine_pool_wait_ms");
+
+    /** Maximum number of engines per pool, so that every core can run the UDF at the same time. */
+    private static final int MAX_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private static LoadingCache<JavascriptRuntime, InvocablePool> cache =
         Caffeine.newBuilder()
             .expireAfter(
-                new Expiry<JavascriptRuntime, Invocable>() {
+                new Expiry<JavascriptRuntime, InvocablePool>() {
                   public long expireAfterCreate(
-                      JavascriptRuntime runtime, Invocable invocable, long currentTime) {
+                      JavascriptRuntime runtime, InvocablePool pool, long currentTime) {
                     // Do not expire if reload is disabled
                     if (runtime.reloadIntervalMinutes() == null
                         || runtime.reloadIntervalMinutes() <= 0) {
@@ -149,7 +166,7 @@ public abstract class JavascriptTextTransformer {
 
                   public long expireAfterUpdate(
                       JavascriptRuntime runtime,
-                      Invocable invocable,
+                      InvocablePool pool,
                       long currentTime,
                       long currentDuration) {
                     return currentDuration;
@@ -157,13 +174,13 @@ public abstract class JavascriptTextTransformer {
 
                   public long expireAfterRead(
                       JavascriptRuntime runtime,
-                      Invocable invocable,
+                      InvocablePool pool,
                       long currentTime,
                       long currentDuration) {
                     return currentDuration;
                   }
                 })
-            .build(runtime -> buildInvocable(runtime));
+            .build(runtime -> buildInvocablePool(runtime));
 
     /** Builder for {@link JavascriptTextTransformer}. */
     @AutoValue.Builder
@@ -187,18 +204,20 @@ public abstract class JavascriptTextTransformer {
     }
 
     /**
-     * Gets a cached Javascript Invocable, if fileSystemPath() not set, returns null.
+     * Gets a cached Javascript Invocable, if fileSystemPath() not set, returns null. The Invocable
+     * is dedicated to callers of this method and is not used by {@link #invoke(String)}, but
+     * callers using it directly must not call it concurrently.
      *
      * @return a Javascript Invocable or null
      */
     @Nullable
-    public Invocable getInvocable() {
+    public Invocable getInvocable() throws ScriptException {
 
       // return null if no UDF path specified.
       if (Strings.isNullOrEmpty(fileSystemPath())) {
         return null;
       }
-      return cache.get(this);
+      return cache.get(this).dedicated();
     }
 
     public static Invocable buildInvocable(JavascriptRuntime runtime)
@@ -208,6 +227,16 @@ public abstract class JavascriptTextTransformer {
       return newInvocable(scripts);
     }
 
+    private static InvocablePool buildInvocablePool(JavascriptRuntime runtime)
+        throws IOException, ScriptException {
+      long startTime = System.currentTimeMillis();
+      // List of all scripts read from the filesystem
+      Collection<String> scripts = getScripts(runtime.fileSystemPath());
+      InvocablePool pool = new InvocablePool(scripts, MAX_POOL_SIZE);
+      JAVASCRIPT_RELOAD_LATENCY_MS.update(System.currentTimeMillis() - startTime);
+      return pool;
+    }
+
     /**
      * Factory method for making a new Invocable.
      *
@@ -215,10 +244,12 @@ public abstract class JavascriptTextTransformer {
      */
     @Nullable
     private static Invocable newInvocable(Collection<String> scripts) throws ScriptException {
+      long startTime = System.currentTimeMillis();
       ScriptEngine engine = getJavaScriptEngine();
       for (String script : scripts) {
         engine.eval(script);
       }
+      JAVASCRIPT_ENGINE_CREATION_LATENCY_MS.update(System.currentTimeMillis() - startTime);
       return (Invocable) engine;
     }
 
@@ -253,14 +284,17 @@ public abstract class JavascriptTextTransformer {
      */
     @Nullable
     public String invoke(String data) throws ScriptException, IOException, NoSuchMethodException {
-      Invocable invocable = getInvocable();
-      if (invocable == null) {
+      if (Strings.isNullOrEmpty(fileSystemPath())) {
         throw new RuntimeException("No UDF was loaded");
       }
 
+      InvocablePool pool = cache.get(this);
+      Invocable invocable = pool.borrow();
       Object result;
-      synchronized (invocable) {
+      try {
         result = invocable.invokeFunction(functionName(), data);
+      } finally {
+        pool.release(invocable);
       }
       if (result == null || ScriptObjectMirror.isUndefined(result)) {
         return null;
@@ -300,6 +334,67 @@ public abstract class JavascriptTextTransformer {
               })
           .collect(Collectors.toList());
     }
+
+    /**
+     * A bounded pool of {@link Invocable}s, each evaluated from the same scripts in its own engine,
+     * so that threads on a worker run the UDF concurrently instead of queueing behind one engine.
+     * Engines are created on demand up to {@code maxSize}, after which borrowers wait for one to be
+     * released.
+     */
+    private static class InvocablePool {
+      private final Collection<String> scripts;
+      private final int maxSize;
+      private final BlockingQueue<Invocable> idle;
+      private final AtomicInteger size = new AtomicInteger();
+      // The engine returned by getInvocable(), created on first use and never borrowed.
+      private Invocable dedicated;
+
+      private InvocablePool(Collection<String> scripts, int maxSize) throws ScriptException {
+        this.scripts = scripts;
+        this.maxSize = maxSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+        // Evaluate the scripts once eagerly so that broken scripts fail when loading the pool.
+        idle.add(newInvocable(scripts));
+        size.incrementAndGet();
+      }
+
+      private synchronized Invocable dedicated() throws ScriptException {
+        if (dedicated == null) {
+          dedicated = newInvocable(scripts);
+        }
+        return dedicated;
+      }
+
+      private Invocable borrow() throws ScriptException {
+        Invocable invocable = idle.poll();
+        if (invocable != null) {
+          return invocable;
+        }
+        for (int current = size.get(); current < maxSize; current = size.get()) {
+          if (size.compareAndSet(current, current + 1)) {
+            try {
+              return newInvocable(scripts);
+            } catch (ScriptException | RuntimeException e) {
+              size.decrementAndGet();
+              throw e;
+            }
+          }
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+          invocable = idle.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Interrupted while waiting for a JavaScript engine", e);
+        }
+        JAVASCRIPT_ENGINE_POOL_WAIT_MS.update(System.currentTimeMillis() - startTime);
+        return invocable;
+      }
+
+      private void release(Invocable invocable) {
+        idle.offer(invocable);
+      }
+    }
   }
 
   /** Transforms Text Strings via a Javascript UDF. */
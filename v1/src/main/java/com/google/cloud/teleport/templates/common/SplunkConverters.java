@@ -225,6 +225,17 @@ public class SplunkConverters {
     ValueProvider<Boolean> getEnableGzipHttpCompression();
 
     void setEnableGzipHttpCompression(ValueProvider<Boolean> enableGzipHttpCompression);
+
+    @TemplateParameter.Integer(
+        order = 13,
+        optional = true,
+        description = "Maximum number of batches in flight per worker.",
+        helpText =
+            "The maximum number of batches each worker can have waiting for a response from Splunk"
+                + " HEC. Values greater than 1 publish batches asynchronously. Default: `1`.")
+    ValueProvider<Integer> getMaxInFlightBatches();
+
+    void setMaxInFlightBatches(ValueProvider<Integer> maxInFlightBatches);
   }
 
   private static class FailsafeStringToSplunkEvent
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.spanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.teleport.spanner.ApplyDeltaExports.KeepLatestChangeFn;
+import com.google.cloud.teleport.spanner.ApplyDeltaExports.ListDeltaFilesFn;
+import com.google.cloud.teleport.spanner.ddl.Ddl;
+import com.google.cloud.teleport.spanner.ddl.Table;
+import com.google.cloud.teleport.spanner.proto.ExportProtos.Export;
+import com.google.protobuf.util.JsonFormat;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.apache.beam.sdk.Pipeline.PipelineExecutionException;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.options.ValueProvider.StaticValueProvider;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for ApplyDeltaExports class. */
+public class ApplyDeltaExportsTest {
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+  @Rule public transient TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void listDeltaFiles() throws Exception {
+    File delta1 =
+        writeManifest(
+            "delta1",
+            Export.newBuilder()
+                .setChangedSinceTimestamp("2025-01-01T00:00:00Z")
+                .setReadTimestamp("2025-01-02T00:00:00Z")
+                .addTables(Export.Table.newBuilder().setName("Users").addDataFiles("Users.avro"))
+                .addTables(Export.Table.newBuilder().setName("UsersView"))
+                .addDeletedKeys(
+                    Export.Table.newBuilder()
+                        .setName("Users")
+                        .addDataFiles("Users-deleted-keys.avro"))
+                .build());
+    File delta2 =
+        writeManifest(
+            "delta2",
+            Export.newBuilder()
+                .setChangedSinceTimestamp("2025-01-02T00:00:00Z")
+                .setReadTimestamp("2025-01-03T00:00:00Z")
+                .addTables(Export.Table.newBuilder().setName("Users").addDataFiles("Users.avro"))
+                .build());
+
+    PCollection<KV<String, KV<String, Integer>>> files =
+        listDeltaFiles(
+            "2025-01-01T00:00:00Z", delta1.getAbsolutePath() + ", " + delta2.getAbsolutePath());
+
+    PAssert.that(files)
+        .containsInAnyOrder(
+            KV.of(GcsUtil.joinPath(delta1.getAbsolutePath(), "Users.avro"), KV.of("Users", 0)),
+            KV.of(
+                GcsUtil.joinPath(delta1.getAbsolutePath(), "Users-deleted-keys.avro"),
+                KV.of("Users-deleted-keys", 0)),
+            KV.of(GcsUtil.joinPath(delta2.getAbsolutePath(), "Users.avro"), KV.of("Users", 1)));
+    pipeline.run();
+  }
+
+  @Test(expected = PipelineExecutionException.class)
+  public void listDeltaFilesOutOfOrder() throws Exception {
+    File delta1 =
+        writeManifest(
+            "delta1",
+            Export.newBuilder()
+                .setChangedSinceTimestamp("2025-01-01T00:00:00Z")
+                .setReadTimestamp("2025-01-02T00:00:00Z")
+                .build());
+    File delta2 =
+        writeManifest(
+            "delta2",
+            Export.newBuilder()
+                .setChangedSinceTimestamp("2025-01-02T00:00:00Z")
+                .setReadTimestamp("2025-01-03T00:00:00Z")
+                .build());
+
+    listDeltaFiles(
+        "2025-01-01T00:00:00Z", delta2.getAbsolutePath() + "," + delta1.getAbsolutePath());
+    pipeline.run();
+  }
+
+  @Test
+  public void keepLatestChange() {
+    Table table = usersDdl().table("Users");
+    Mutation upsert =
+        Mutation.newInsertOrUpdateBuilder("Users").set("id").to(1L).set("name").to("name").build();
+    Mutation delete =
+        ApplyDeltaExports.toDelete(
+            table, Mutation.newInsertOrUpdateBuilder("Users").set("id").to(1L).build());
+    assertEquals(Mutation.delete("Users", Key.of(1L)), delete);
+    assertEquals(
+        ApplyDeltaExports.rowKey(table, upsert),
+        ApplyDeltaExports.rowKey(
+            table, Mutation.newInsertOrUpdateBuilder("Users").set("id").to(1L).build()));
+    assertNotEquals(
+        ApplyDeltaExports.rowKey(table, upsert),
+        ApplyDeltaExports.rowKey(
+            table, Mutation.newInsertOrUpdateBuilder("Users").set("id").to(11L).build()));
+
+    PCollection<Mutation> latest =
+        pipeline
+            .apply(
+                Create.of(
+                        KV.<String, Iterable<KV<Integer, Mutation>>>of(
+                            "users/1", Arrays.asList(KV.of(1, delete), KV.of(0, upsert))),
+                        KV.<String, Iterable<KV<Integer, Mutation>>>of(
+                            "users/2", Arrays.asList(KV.of(0, delete), KV.of(1, upsert))))
+                    .withCoder(
+                        KvCoder.of(
+                            StringUtf8Coder.of(),
+                            IterableCoder.of(
+                                KvCoder.of(
+                                    VarIntCoder.of(), SerializableCoder.of(Mutation.class))))))
+            .apply(ParDo.of(new KeepLatestChangeFn()));
+
+    PAssert.that(latest).containsInAnyOrder(delete, upsert);
+    pipeline.run();
+  }
+
+  private PCollection<KV<String, KV<String, Integer>>> listDeltaFiles(
+      String baseReadTimestamp, String deltaDirectories) {
+    PCollectionView<Export> manifestView =
+        pipeline
+            .apply(
+                "Create manifest",
+                Create.of(Export.newBuilder().setReadTimestamp(baseReadTimestamp).build()))
+            .apply(View.asSingleton());
+    return pipeline
+        .apply("Create DDL", Create.of(usersDdl()))
+        .apply(
+            ParDo.of(new ListDeltaFilesFn(StaticValueProvider.of(deltaDirectories), manifestView))
+                .withSideInputs(manifestView));
+  }
+
+  private File writeManifest(String name, Export manifest) throws Exception {
+    File directory = tmpFolder.newFolder(name);
+    Files.write(
+        new File(directory, "spanner-export.json").toPath(),
+        JsonFormat.printer().print(manifest).getBytes(StandardCharsets.UTF_8));
+    return directory;
+  }
+
+  private static Ddl usersDdl() {
+    return Ddl.builder()
+        .createTable("Users")
+        .column("id")
+        .int64()
+        .endColumn()
+        .column("name")
+        .string()
+        .max()
+        .endColumn()
+        .primaryKey()
+        .asc("id")
+        .end()
+        .endTable()
+        .createView("UsersView")
+        .query("SELECT id FROM Users")
+        .endView()
+        .build();
+  }
+}
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import com.google.cloud.spanner.Dialect;
 import com.google.cloud.teleport.spanner.common.Type;
 import com.google.cloud.teleport.spanner.ddl.Ddl;
+import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 
 /** Tests for BuildReadFromTableOperations class. */
@@ -191,4 +192,73 @@ public class BuildReadFromTableOperationsTest {
         "CASE WHEN t.\"colName\" IS NULL THEN NULL ELSE ARRAY(SELECT e::text FROM UNNEST(t.\"colName\") AS e) END AS \"colName\"",
         buildReadFromTableOperations.createColumnExpression(ddl.table("table").column("colName")));
   }
+
+  @Test
+  public void testChangedRowsFilter() {
+    Ddl ddl =
+        Ddl.builder(Dialect.GOOGLE_STANDARD_SQL)
+            .createTable("table")
+            .column("id")
+            .int64()
+            .endColumn()
+            .column("updated")
+            .timestamp()
+            .columnOptions(ImmutableList.of("allow_commit_timestamp=TRUE"))
+            .endColumn()
+            .column("created")
+            .timestamp()
+            .endColumn()
+            .primaryKey()
+            .asc("id")
+            .end()
+            .endTable()
+            .build();
+    assertEquals(
+        " WHERE t.`updated` > TIMESTAMP '2025-01-01T00:00:00Z'",
+        BuildReadFromTableOperations.changedRowsFilter(ddl.table("table"), "2025-01-01T00:00:00Z"));
+    assertEquals("", BuildReadFromTableOperations.changedRowsFilter(ddl.table("table"), ""));
+  }
+
+  @Test
+  public void testChangedRowsFilterPg() {
+    Ddl ddl =
+        Ddl.builder(Dialect.POSTGRESQL)
+            .createTable("table")
+            .column("id")
+            .pgInt8()
+            .endColumn()
+            .column("updated")
+            .pgSpannerCommitTimestamp()
+            .endColumn()
+            .column("deleted")
+            .pgSpannerCommitTimestamp()
+            .endColumn()
+            .primaryKey()
+            .asc("id")
+            .end()
+            .endTable()
+            .build();
+    assertEquals(
+        " WHERE t.\"updated\" > '2025-01-01T00:00:00Z'::timestamptz"
+            + " OR t.\"deleted\" > '2025-01-01T00:00:00Z'::timestamptz",
+        BuildReadFromTableOperations.changedRowsFilter(ddl.table("table"), "2025-01-01T00:00:00Z"));
+  }
+
+  @Test
+  public void testChangedRowsFilterWithoutCommitTimestamp() {
+    Ddl ddl =
+        Ddl.builder(Dialect.GOOGLE_STANDARD_SQL)
+            .createTable("table")
+            .column("id")
+            .int64()
+            .endColumn()
+            .primaryKey()
+            .asc("id")
+            .end()
+            .endTable()
+            .build();
+    assertEquals(
+        "",
+        BuildReadFromTableOperations.changedRowsFilter(ddl.table("table"), "2025-01-01T00:00:00Z"));
+  }
 }
@@ -259,6 +259,67 @@ public class ExportTransformTest {
     pipeline.run();
   }
 
+  @Test
+  public void buildIncrementalDatabaseManifestFile() {
+    PCollection<List<Export.Table>> metadataTables =
+        pipeline
+            .apply(
+                "Initialize table manifests",
+                Create.of(
+                    ImmutableMap.of(
+                        "table1", "table1 manifest",
+                        "table1-deleted-keys", "table1-deleted-keys manifest")))
+            .apply("Combine table manifests", Combine.globally(new CombineTableMetadata()));
+
+    Ddl ddl = Ddl.builder().build();
+    PCollectionView<Ddl> ddlView =
+        pipeline.apply("Create DDL", Create.of(ddl)).apply("DDL view", View.asSingleton());
+    PCollectionView<Dialect> dialectView =
+        pipeline
+            .apply("Create dialect", Create.of(Dialect.GOOGLE_STANDARD_SQL))
+            .apply("Dialect view", View.asSingleton());
+    PCollectionView<String> readTimestampView =
+        pipeline
+            .apply("Create read timestamp", Create.of("2025-01-02T00:00:00Z"))
+            .apply("Read timestamp view", View.asSingleton());
+    PCollectionView<String> changedSinceView =
+        pipeline
+            .apply("Create changed since", Create.of("2025-01-01T00:00:00Z"))
+            .apply("Changed since view", View.asSingleton());
+    PCollection<String> databaseManifest =
+        metadataTables.apply(
+            "Create database manifest",
+            ParDo.of(
+                    new CreateDatabaseManifest(
+                        ddlView, dialectView, readTimestampView, changedSinceView))
+                .withSideInputs(ddlView, dialectView, readTimestampView, changedSinceView));
+
+    PAssert.thatSingleton(databaseManifest)
+        .satisfies(
+            (SerializableFunction<String, Void>)
+                input -> {
+                  Builder builder = Export.newBuilder();
+                  try {
+                    JsonFormat.parser().merge(input, builder);
+                  } catch (InvalidProtocolBufferException e) {
+                    throw new RuntimeException(e);
+                  }
+                  Export manifestProto = builder.build();
+                  assertThat(manifestProto.getReadTimestamp(), is("2025-01-02T00:00:00Z"));
+                  assertThat(manifestProto.getChangedSinceTimestamp(), is("2025-01-01T00:00:00Z"));
+                  assertThat(manifestProto.getTablesCount(), is(1));
+                  assertThat(manifestProto.getTables(0).getName(), is("table1"));
+                  assertThat(manifestProto.getDeletedKeysCount(), is(1));
+                  assertThat(manifestProto.getDeletedKeys(0).getName(), is("table1"));
+                  assertThat(
+                      manifestProto.getDeletedKeys(0).getManifestFile(),
+                      is("table1-deleted-keys-manifest.json"));
+                  return null;
+                });
+
+    pipeline.run();
+  }
+
   @Test
   public void createTimestampBound_noTimestamp() {
     assertEquals(TimestampBound.strong(), ExportTransform.createTimestampBound(""));
@@ -166,6 +166,37 @@ public class ImportTransformTest {
     pipeline.run();
   }
 
+  @Test(expected = PipelineExecutionException.class)
+  public void testReadIncrementalExportManifestFile() throws Exception {
+    Path path = tmpFolder.newFile("spanner-export.json").toPath();
+
+    String testManifest =
+        "{\n"
+            + "  \"tables\": [\n"
+            + "    {\n"
+            + "       \"name\": \"Person\",\n"
+            + "       \"manifestFile\": \"Person-manifest.json\""
+            + "    }\n"
+            + "  ],\n"
+            + "  \"readTimestamp\": \"2025-01-02T00:00:00Z\",\n"
+            + "  \"changedSinceTimestamp\": \"2025-01-01T00:00:00Z\"\n"
+            + "}";
+
+    Files.write(path, testManifest.getBytes());
+
+    PCollectionView<Dialect> dialectView =
+        pipeline
+            .apply("Dialect", Create.of(Dialect.GOOGLE_STANDARD_SQL))
+            .apply("Dialect As PCollectionView", View.asSingleton());
+    pipeline.apply(
+        "Read manifest",
+        new ReadExportManifestFile(
+            ValueProvider.StaticValueProvider.of(tmpFolder.getRoot().getAbsolutePath()),
+            dialectView));
+    pipeline.run();
+    // Pipeline should fail, as an incremental export can not be the base of an import.
+  }
+
   @Test
   public void testReadTableManifestFile() throws Exception {
     Path path = tmpFolder.newFile("Person-manifest.json").toPath();
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.spanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.teleport.spanner.ddl.Ddl;
+import com.google.cloud.teleport.spanner.ddl.Table;
+import com.google.cloud.teleport.spanner.proto.ExportProtos.Export;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+/** Tests for ReadDeletedKeys class. */
+public class ReadDeletedKeysTest {
+
+  @Test
+  public void deletedKeysName() {
+    assertEquals("Users-deleted-keys", ReadDeletedKeys.deletedKeysName("Users"));
+    assertEquals("Users", ReadDeletedKeys.deletedKeysTable("Users-deleted-keys"));
+    assertNull(ReadDeletedKeys.deletedKeysTable("Users"));
+  }
+
+  @Test
+  public void keyReadTables() {
+    Ddl ddl =
+        Ddl.builder()
+            .createTable("Users")
+            .column("id")
+            .int64()
+            .endColumn()
+            .primaryKey()
+            .asc("id")
+            .end()
+            .endTable()
+            .createTable("Orders")
+            .column("id")
+            .int64()
+            .endColumn()
+            .primaryKey()
+            .asc("id")
+            .end()
+            .endTable()
+            .build();
+    Export previous =
+        Export.newBuilder()
+            .setReadTimestamp("2025-01-01T00:00:00Z")
+            .addTables(Export.Table.newBuilder().setName("Users"))
+            .build();
+
+    // Orders was created since the previous export, so it has no deleted keys.
+    List<String> tables =
+        ReadDeletedKeys.keyReadTables(ddl, Collections.emptyList(), previous).stream()
+            .map(Table::name)
+            .collect(Collectors.toList());
+    assertEquals(Collections.singletonList("Users"), tables);
+    assertTrue(
+        ReadDeletedKeys.keyReadTables(ddl, Collections.emptyList(), Export.getDefaultInstance())
+            .isEmpty());
+  }
+
+  @Test
+  public void keyReadOperation() {
+    Ddl ddl =
+        Ddl.builder(Dialect.GOOGLE_STANDARD_SQL)
+            .createTable("Users")
+            .column("id")
+            .int64()
+            .endColumn()
+            .column("amount")
+            .numeric()
+            .endColumn()
+            .column("name")
+            .string()
+            .max()
+            .endColumn()
+            .primaryKey()
+            .asc("id")
+            .asc("amount")
+            .end()
+            .endTable()
+            .build();
+    assertEquals(
+        "SELECT \"Users-deleted-keys\" AS _spanner_table, t.`id`,t.`amount` FROM `Users` AS t",
+        ReadDeletedKeys.buildKeyReadOperation(ddl.table("Users")).getQuery().getSql());
+  }
+
+  @Test
+  public void keyReadOperationPg() {
+    Ddl ddl =
+        Ddl.builder(Dialect.POSTGRESQL)
+            .createTable("Users")
+            .column("id")
+            .pgInt8()
+            .endColumn()
+            .column("name")
+            .pgVarchar()
+            .max()
+            .endColumn()
+            .primaryKey()
+            .asc("id")
+            .end()
+            .endTable()
+            .build();
+    assertEquals(
+        "SELECT 'Users-deleted-keys' AS _spanner_table, t.\"id\" FROM \"Users\" AS t",
+        ReadDeletedKeys.buildKeyReadOperation(ddl.table("Users")).getQuery().getSql());
+  }
+}
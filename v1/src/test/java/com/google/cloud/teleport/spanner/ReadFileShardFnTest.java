@@ -15,6 +15,9 @@
  */
 package com.google.cloud.teleport.spanner;
 
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Serializable;
@@ -25,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import org.apache.beam.sdk.Pipeline.PipelineExecutionException;
 import org.apache.beam.sdk.io.FileIO;
 import org.apache.beam.sdk.io.fs.EmptyMatchTreatment;
 import org.apache.beam.sdk.io.range.OffsetRange;
@@ -354,6 +358,112 @@ public final class ReadFileShardFnTest implements Serializable {
     pipeline.run();
   }
 
+  @Test
+  public void readShardWithoutHandlingNewLines() throws Exception {
+    Path inputFile = Files.createTempFile(testTableName, ".csv");
+
+    Charset charset = Charset.forName("UTF-8");
+    try (BufferedWriter writer = Files.newBufferedWriter(inputFile, charset)) {
+      String data = "1,abc,def\n2,\"a,bc\",def\n\n3,abc,\"de\"\"f\"\r\n4,abc,def";
+      writer.write(data, 0, data.length());
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    PCollection<FileShard> fileShard =
+        pipeline
+            .apply("Create file name collection", Create.of(inputFile.toString()))
+            .apply(FileIO.matchAll().withEmptyMatchTreatment(EmptyMatchTreatment.DISALLOW))
+            // PCollection<Match.Metadata>
+            .apply(FileIO.readMatches())
+            // PCollection<FileIO.ReadableFile>
+            .apply(
+                "Create file shard collection",
+                ParDo.of(
+                    new DoFn<FileIO.ReadableFile, FileShard>() {
+
+                      @ProcessElement
+                      public void processElement(ProcessContext c) {
+                        c.output(
+                            FileShard.create(
+                                testTableName, c.element(), new OffsetRange(5L, 41L), 3L));
+                      }
+                    }))
+            .setCoder(FileShard.Coder.of());
+
+    PCollection<KV<String, CSVRecord>> records =
+        fileShard.apply(
+            ParDo.of(
+                new ReadFileShardFn(
+                    columnDelimiter,
+                    fieldQualifier,
+                    trailingDelimiter,
+                    escapeChar,
+                    nullString,
+                    StaticValueProvider.of(false))));
+    PCollection<KV<String, String>> csvValues =
+        records.apply(
+            "get values",
+            ParDo.of(
+                new DoFn<KV<String, CSVRecord>, KV<String, String>>() {
+
+                  @ProcessElement
+                  public void processElement(ProcessContext c) {
+                    c.output(
+                        KV.of(c.element().getKey(), csvRecordToValues(c.element().getValue())));
+                  }
+                }));
+
+    PAssert.that(csvValues)
+        .containsInAnyOrder(
+            KV.of(testTableName, "2,a,bc,def"),
+            KV.of(testTableName, "3,abc,de\"f"),
+            KV.of(testTableName, "4,abc,def"));
+
+    pipeline.run();
+  }
+
+  @Test
+  public void readShardWithoutHandlingNewLinesRejectsUnterminatedQuote() throws Exception {
+    Path inputFile = Files.createTempFile(testTableName, ".csv");
+
+    Charset charset = Charset.forName("UTF-8");
+    try (BufferedWriter writer = Files.newBufferedWriter(inputFile, charset)) {
+      String data = "1,\"abc,def\n2,abc\",def\n";
+      writer.write(data, 0, data.length());
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    pipeline
+        .apply("Create file name collection", Create.of(inputFile.toString()))
+        .apply(FileIO.matchAll().withEmptyMatchTreatment(EmptyMatchTreatment.DISALLOW))
+        .apply(FileIO.readMatches())
+        .apply(
+            "Create file shard collection",
+            ParDo.of(
+                new DoFn<FileIO.ReadableFile, FileShard>() {
+
+                  @ProcessElement
+                  public void processElement(ProcessContext c) {
+                    c.output(
+                        FileShard.create(testTableName, c.element(), new OffsetRange(0L, 24L), 2L));
+                  }
+                }))
+        .setCoder(FileShard.Coder.of())
+        .apply(
+            ParDo.of(
+                new ReadFileShardFn(
+                    columnDelimiter,
+                    fieldQualifier,
+                    trailingDelimiter,
+                    escapeChar,
+                    nullString,
+                    StaticValueProvider.of(false))));
+
+    PipelineExecutionException exception =
+        assertThrows(PipelineExecutionException.class, () -> pipeline.run());
+    assertThat(exception).hasMessageThat().contains("Unable to parse this row");
+  }
+
   public String csvRecordToValues(CSVRecord csvRecord) {
     List<String> vals = new ArrayList<String>();
     for (int i = 0; i < csvRecord.size(); i++) {
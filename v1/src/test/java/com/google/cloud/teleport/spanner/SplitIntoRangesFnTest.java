@@ -15,16 +15,26 @@
  */
 package com.google.cloud.teleport.spanner;
 
+import static com.google.common.truth.Truth.assertThat;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.beam.sdk.Pipeline.PipelineExecutionException;
 import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.io.FileSystems;
 import org.apache.beam.sdk.io.fs.EmptyMatchTreatment;
+import org.apache.beam.sdk.io.fs.ResourceId;
 import org.apache.beam.sdk.io.range.OffsetRange;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.options.ValueProvider.StaticValueProvider;
@@ -639,6 +649,206 @@ public final class SplitIntoRangesFnTest implements Serializable {
     pipeline.run();
   }
 
+  @Test
+  public void quotedNewlinesAcrossManySplits() throws Exception {
+    Path inputFile = Files.createTempFile(testTableName, ".csv");
+
+    // Records whose quoted values hold newlines, delimiters and escaped quotes, so that most split
+    // candidates fall inside a quoted value.
+    StringBuilder data = new StringBuilder();
+    List<Long> recordEnds = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      data.append(i).append(",\"line\nwith \\\" and \"\", ").append(i % 7).append("\n,\"\n");
+      recordEnds.add((long) data.length());
+    }
+    Charset charset = Charset.forName("UTF-8");
+    try (BufferedWriter writer = Files.newBufferedWriter(inputFile, charset)) {
+      writer.write(data.toString(), 0, data.length());
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    long size = data.length();
+    PCollectionView<Map<String, String>> filesToTablesMapView =
+        pipeline
+            .apply("filesToTablesMapView", Create.of(KV.of(inputFile.toString(), testTableName)))
+            .apply(View.asMap());
+
+    PCollection<FileShard> fileShards =
+        pipeline
+            .apply("Create file name collection", Create.of(inputFile.toString()))
+            .apply(FileIO.matchAll().withEmptyMatchTreatment(EmptyMatchTreatment.DISALLOW))
+            // PCollection<Match.Metadata>
+            .apply(FileIO.readMatches())
+            // PCollection<FileIO.ReadableFile>
+            .apply(
+                "Split into ranges",
+                ParDo.of(
+                        new SplitIntoRangesFn(
+                            97L,
+                            filesToTablesMapView,
+                            fieldQualifier,
+                            columnDelimiter,
+                            escapeChar,
+                            handleNewLine))
+                    .withSideInputs(filesToTablesMapView))
+            .setCoder(FileShard.Coder.of());
+
+    PAssert.that(fileShards)
+        .satisfies(
+            shards -> {
+              long totalRecords = 0;
+              long totalBytes = 0;
+              for (FileShard shard : shards) {
+                OffsetRange range = shard.getRange();
+                if (range.getTo() != size && !recordEnds.contains(range.getTo())) {
+                  throw new AssertionError("Shard does not end at a record end: " + range);
+                }
+                if (shard.getRecordCount()
+                    != recordEnds.stream()
+                        .filter(end -> end > range.getFrom() && end <= range.getTo())
+                        .count()) {
+                  throw new AssertionError("Unexpected record count for shard: " + range);
+                }
+                totalRecords += shard.getRecordCount();
+                totalBytes += range.getTo() - range.getFrom();
+              }
+              if (totalRecords != 200 || totalBytes != size) {
+                throw new AssertionError(
+                    "Shards hold " + totalRecords + " records and " + totalBytes + " bytes");
+              }
+              return null;
+            });
+
+    pipeline.run();
+  }
+
+  @Test
+  public void quoteFreeAcrossManySplits() throws Exception {
+    Path inputFile = Files.createTempFile(testTableName, ".csv");
+
+    // Records without quotes, so that the bytes at every split candidate could as well be inside a
+    // quoted value, and the parser state there is only known from the start of the file.
+    StringBuilder data = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      data.append(String.format("%02d,abc,def\n", i));
+    }
+    Charset charset = Charset.forName("UTF-8");
+    try (BufferedWriter writer = Files.newBufferedWriter(inputFile, charset)) {
+      writer.write(data.toString(), 0, data.length());
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
+    PCollectionView<Map<String, String>> filesToTablesMapView =
+        pipeline
+            .apply("filesToTablesMapView", Create.of(KV.of(inputFile.toString(), testTableName)))
+            .apply(View.asMap());
+
+    PCollection<FileShard> fileShards =
+        pipeline
+            .apply("Create file name collection", Create.of(inputFile.toString()))
+            .apply(FileIO.matchAll().withEmptyMatchTreatment(EmptyMatchTreatment.DISALLOW))
+            // PCollection<Match.Metadata>
+            .apply(FileIO.readMatches())
+            // PCollection<FileIO.ReadableFile>
+            .apply(
+                "Split into ranges",
+                ParDo.of(
+                        new SplitIntoRangesFn(
+                            50L,
+                            filesToTablesMapView,
+                            fieldQualifier,
+                            columnDelimiter,
+                            escapeChar,
+                            handleNewLine))
+                    .withSideInputs(filesToTablesMapView))
+            .setCoder(FileShard.Coder.of());
+    PCollection<OffsetRange> offsetRanges =
+        fileShards.apply(
+            "Get offset ranges",
+            ParDo.of(
+                new DoFn<FileShard, OffsetRange>() {
+
+                  @ProcessElement
+                  public void processElement(ProcessContext c) {
+                    c.output(c.element().getRange());
+                  }
+                }));
+
+    PCollection<Long> recordCounts =
+        fileShards.apply(
+            "Get record counts",
+            ParDo.of(
+                new DoFn<FileShard, Long>() {
+
+                  @ProcessElement
+                  public void processElement(ProcessContext c) {
+                    c.output(c.element().getRecordCount());
+                  }
+                }));
+
+    // Each shard ends at the first record end at or after a multiple of the bundle size.
+    PAssert.that(offsetRanges)
+        .containsInAnyOrder(
+            new OffsetRange(0L, 55L),
+            new OffsetRange(55L, 110L),
+            new OffsetRange(110L, 154L),
+            new OffsetRange(154L, 209L),
+            new OffsetRange(209L, 220L));
+    PAssert.that(recordCounts).containsInAnyOrder(5L, 5L, 4L, 5L, 1L);
+
+    pipeline.run();
+  }
+
+  @Test
+  public void quoteFreeChunksAreScannedOnce() throws Exception {
+    Path inputFile = Files.createTempFile(testTableName, ".csv");
+    StringBuilder data = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      data.append(String.format("%02d,abc,def\n", i));
+    }
+    Files.write(inputFile, data.toString().getBytes(StandardCharsets.UTF_8));
+    List<OffsetRange> scannedChunks = Collections.synchronizedList(new ArrayList<>());
+    SplitIntoRangesFn.RecordScanner scanner =
+        new SplitIntoRangesFn.RecordScanner('"', ',', '\\') {
+          @Override
+          ChunkSummary scanChunk(ResourceId file, long from, long to) throws IOException {
+            scannedChunks.add(new OffsetRange(from, to));
+            return super.scanChunk(file, from, to);
+          }
+        };
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<KV<OffsetRange, Long>> shards;
+    try {
+      shards =
+          scanner.split(
+              FileSystems.matchNewResource(inputFile.toString(), false),
+              data.length(),
+              50L,
+              executor);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Every byte is scanned once, in a chunk, and no scan runs from an earlier record end.
+    assertThat(scannedChunks)
+        .containsExactly(
+            new OffsetRange(0L, 50L),
+            new OffsetRange(50L, 100L),
+            new OffsetRange(100L, 150L),
+            new OffsetRange(150L, 200L),
+            new OffsetRange(200L, 220L));
+    assertThat(shards)
+        .containsExactly(
+            KV.of(new OffsetRange(0L, 55L), 5L),
+            KV.of(new OffsetRange(55L, 110L), 5L),
+            KV.of(new OffsetRange(110L, 154L), 4L),
+            KV.of(new OffsetRange(154L, 209L), 5L),
+            KV.of(new OffsetRange(209L, 220L), 1L))
+        .inOrder();
+  }
+
   @Test
   public void legacyBasicSplitTest() throws Exception {
     Path inputFile = Files.createTempFile(testTableName, ".csv");
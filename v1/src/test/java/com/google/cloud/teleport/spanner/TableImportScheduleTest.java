@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.spanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.google.cloud.teleport.spanner.ddl.Ddl;
+import com.google.cloud.teleport.spanner.ddl.Table.InterleaveType;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+/** Tests for TableImportSchedule class. */
+public class TableImportScheduleTest {
+
+  @Test
+  public void largeTableOnlyDelaysItsDependents() {
+    Ddl.Builder builder = Ddl.builder();
+    addTable(builder, "Big", null, null);
+    addTable(builder, "BigChild", "Big", InterleaveType.IN_PARENT);
+    addTable(builder, "Small", null, null);
+    addTable(builder, "SmallChild", "Small", InterleaveType.IN_PARENT);
+    addTable(builder, "SmallGrandChild", "SmallChild", InterleaveType.IN_PARENT);
+    addTable(builder, "Other", null, null);
+    Ddl ddl = builder.build();
+
+    TableImportSchedule schedule =
+        TableImportSchedule.create(
+            ddl, ImmutableMap.of("Big", 1000L, "BigChild", 10L, "Small", 20L, "Other", 5L), 2, 8);
+
+    assertEquals(0, schedule.getDepth("big"));
+    assertEquals(1, schedule.getDepth("BigChild"));
+    assertEquals(0, schedule.getDepth("Small"));
+    assertEquals(1, schedule.getDepth("SmallChild"));
+    assertEquals(2, schedule.getDepth("SmallGrandChild"));
+    assertEquals(0, schedule.getDepth("Other"));
+
+    assertEquals(schedule.getLane("Big"), schedule.getLane("BigChild"));
+    assertEquals(schedule.getLane("Small"), schedule.getLane("SmallGrandChild"));
+    assertNotEquals(schedule.getLane("Big"), schedule.getLane("Small"));
+    assertEquals(schedule.getLane("Small"), schedule.getLane("Other"));
+    assertEquals(Arrays.asList("small", "other"), schedule.getTables(schedule.getLane("Small"), 0));
+    assertEquals(1010L, schedule.getSize("Big") + schedule.getSize("bigchild"));
+  }
+
+  @Test
+  public void interleaveInDoesNotOrderTables() {
+    Ddl.Builder builder = Ddl.builder();
+    addTable(builder, "Parent", null, null);
+    addTable(builder, "Child", "Parent", InterleaveType.IN);
+    Ddl ddl = builder.build();
+
+    TableImportSchedule schedule =
+        TableImportSchedule.create(ddl, ImmutableMap.of("Parent", 10L, "Child", 10L), 2, 8);
+
+    assertEquals(0, schedule.getDepth("Child"));
+    assertNotEquals(schedule.getLane("Parent"), schedule.getLane("Child"));
+  }
+
+  @Test
+  public void foreignKeysOfExistingTablesOrderTables() {
+    Ddl.Builder builder = Ddl.builder();
+    addTable(builder, "Users", null, null);
+    addTable(builder, "Orders", null, null);
+    addTable(builder, "Items", "Orders", InterleaveType.IN_PARENT);
+    builder.addReferencedTable("Orders", "Users");
+    // A cycle, which is ignored.
+    builder.addReferencedTable("Users", "Items");
+    Ddl ddl = builder.build();
+
+    TableImportSchedule schedule = TableImportSchedule.create(ddl, Collections.emptyMap(), 4, 8);
+
+    assertEquals(0, schedule.getDepth("Users"));
+    assertEquals(1, schedule.getDepth("Orders"));
+    assertEquals(2, schedule.getDepth("Items"));
+    assertEquals(schedule.getLane("Users"), schedule.getLane("Items"));
+    assertEquals(Arrays.asList("users -> items"), schedule.getIgnoredForeignKeys());
+  }
+
+  @Test
+  public void foreignKeysDeeperThanTheGraphAreIgnored() {
+    Ddl.Builder builder = Ddl.builder();
+    addTable(builder, "T0", null, null);
+    addTable(builder, "T1", null, null);
+    addTable(builder, "T2", null, null);
+    builder.addReferencedTable("T1", "T0");
+    builder.addReferencedTable("T2", "T1");
+    Ddl ddl = builder.build();
+
+    TableImportSchedule schedule = TableImportSchedule.create(ddl, Collections.emptyMap(), 1, 2);
+
+    assertEquals(0, schedule.getDepth("T0"));
+    assertEquals(1, schedule.getDepth("T1"));
+    assertEquals(0, schedule.getDepth("T2"));
+    assertEquals(Arrays.asList("t2 -> t1"), schedule.getIgnoredForeignKeys());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void tooDeepInterleaving() {
+    Ddl.Builder builder = Ddl.builder();
+    addTable(builder, "T0", null, null);
+    addTable(builder, "T1", "T0", InterleaveType.IN_PARENT);
+    addTable(builder, "T2", "T1", InterleaveType.IN_PARENT);
+
+    TableImportSchedule.create(builder.build(), Collections.emptyMap(), 1, 2);
+  }
+
+  private static void addTable(
+      Ddl.Builder builder, String name, String parent, InterleaveType interleaveType) {
+    builder
+        .createTable(name)
+        .column("id")
+        .int64()
+        .endColumn()
+        .primaryKey()
+        .asc("id")
+        .end()
+        .interleaveInParent(parent)
+        .interleaveType(interleaveType)
+        .endTable();
+  }
+}
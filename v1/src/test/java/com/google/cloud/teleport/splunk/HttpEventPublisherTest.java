@@ -16,8 +16,10 @@
 package com.google.cloud.teleport.splunk;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
 
 import com.google.api.client.http.GenericUrl;
@@ -33,12 +35,18 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLHandshakeException;
 import org.junit.Before;
 import org.junit.Test;
@@ -276,6 +284,72 @@ public class HttpEventPublisherTest {
     publisher.execute(SPLUNK_EVENTS);
   }
 
+  /** Tests that events are published asynchronously with a gzip compressed body. */
+  @Test
+  public void executeAsyncTest() throws Exception {
+    mockServerListening(200);
+    HttpEventPublisher publisher =
+        HttpEventPublisher.newBuilder()
+            .withUrl("http://localhost:" + String.valueOf(mockServer.getPort()))
+            .withToken("test-token")
+            .withDisableCertificateValidation(false)
+            .withEnableGzipHttpCompression(true)
+            .build();
+
+    java.net.http.HttpResponse<String> response = publisher.executeAsync(SPLUNK_EVENTS).get();
+
+    assertThat(response.statusCode(), is(equalTo(200)));
+    mockServer.verify(
+        HttpRequest.request(EXPECTED_PATH)
+            .withHeader("Content-Encoding", "gzip")
+            .withHeader("Authorization", "Splunk test-token"),
+        VerificationTimes.once());
+  }
+
+  /** Tests that an asynchronous request to an endpoint which never responds times out. */
+  @Test
+  public void executeAsyncTimeoutTest() throws Exception {
+    List<Socket> connections = Collections.synchronizedList(new ArrayList<>());
+    try (ServerSocket unresponsiveServer = new ServerSocket(0)) {
+      Thread acceptor =
+          new Thread(
+              () -> {
+                try {
+                  while (true) {
+                    // Accept the connection but never read the request nor respond.
+                    connections.add(unresponsiveServer.accept());
+                  }
+                } catch (IOException e) {
+                  // The server socket was closed.
+                }
+              });
+      acceptor.setDaemon(true);
+      acceptor.start();
+      HttpEventPublisher publisher =
+          HttpEventPublisher.newBuilder()
+              .withUrl("http://localhost:" + unresponsiveServer.getLocalPort())
+              .withToken("test-token")
+              .withDisableCertificateValidation(false)
+              .withEnableGzipHttpCompression(false)
+              .withMaxElapsedMillis(2000)
+              .withRequestTimeoutMillis(200)
+              .build();
+
+      ExecutionException e =
+          assertThrows(
+              ExecutionException.class,
+              () -> publisher.executeAsync(SPLUNK_EVENTS).get(30, TimeUnit.SECONDS));
+
+      assertThat(e.getCause(), instanceOf(HttpTimeoutException.class));
+      // The timed out request was retried.
+      assertThat(connections.size() > 1, is(true));
+    } finally {
+      for (Socket connection : connections) {
+        connection.close();
+      }
+    }
+  }
+
   private byte[] readFile(String path) throws FileNotFoundException, IOException {
     BufferedReader br = new BufferedReader(new FileReader(Resources.getResource(path).getFile()));
     StringBuilder sb = new StringBuilder();
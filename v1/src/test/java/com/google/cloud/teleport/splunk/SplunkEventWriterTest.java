@@ -337,6 +337,127 @@ public class SplunkEventWriterTest {
     mockServer.verify(HttpRequest.request(EXPECTED_PATH), VerificationTimes.once());
   }
 
+  /** Test successful POST requests for multi batch with asynchronous publishing. */
+  @Test
+  @Category(NeedsRunner.class)
+  public void successfulSplunkWriteAsyncMultiBatchTest() {
+
+    // Create server expectation for success.
+    mockServerListening(200);
+
+    int testPort = mockServer.getPort();
+
+    List<KV<Integer, SplunkEvent>> testEvents =
+        ImmutableList.of(
+            KV.of(
+                123,
+                SplunkEvent.newBuilder()
+                    .withEvent("test-event-1")
+                    .withHost("test-host-1")
+                    .withIndex("test-index-1")
+                    .withSource("test-source-1")
+                    .withSourceType("test-source-type-1")
+                    .withTime(12345L)
+                    .build()),
+            KV.of(
+                123,
+                SplunkEvent.newBuilder()
+                    .withEvent("test-event-2")
+                    .withHost("test-host-2")
+                    .withIndex("test-index-2")
+                    .withSource("test-source-2")
+                    .withSourceType("test-source-type-2")
+                    .withTime(12345L)
+                    .build()));
+
+    PCollection<SplunkWriteError> actual =
+        pipeline
+            .apply(
+                "Create Input data",
+                Create.of(testEvents)
+                    .withCoder(KvCoder.of(BigEndianIntegerCoder.of(), SplunkEventCoder.of())))
+            .apply(
+                "SplunkEventWriter",
+                ParDo.of(
+                    SplunkEventWriter.newBuilder()
+                        .withUrl(Joiner.on(':').join("http://localhost", testPort))
+                        .withInputBatchCount(
+                            StaticValueProvider.of(
+                                testEvents.size())) // all requests in a single batch.
+                        .withToken("test-token")
+                        .withMaxInFlightBatches(StaticValueProvider.of(4))
+                        .build()))
+            .setCoder(SplunkWriteErrorCoder.of());
+
+    // All successful responses.
+    PAssert.that(actual).empty();
+
+    pipeline.run();
+
+    // Server received exactly one POST request.
+    mockServer.verify(HttpRequest.request(EXPECTED_PATH), VerificationTimes.once());
+  }
+
+  /** Test failed POST request with asynchronous publishing. */
+  @Test
+  @Category(NeedsRunner.class)
+  public void failedSplunkWriteAsyncBatchTest() {
+
+    // Create server expectation for FAILURE.
+    mockServerListening(404);
+
+    int testPort = mockServer.getPort();
+
+    List<KV<Integer, SplunkEvent>> testEvents =
+        ImmutableList.of(
+            KV.of(
+                123,
+                SplunkEvent.newBuilder()
+                    .withEvent("test-event-1")
+                    .withHost("test-host-1")
+                    .withIndex("test-index-1")
+                    .withSource("test-source-1")
+                    .withSourceType("test-source-type-1")
+                    .withTime(12345L)
+                    .build()));
+
+    PCollection<SplunkWriteError> actual =
+        pipeline
+            .apply(
+                "Create Input data",
+                Create.of(testEvents)
+                    .withCoder(KvCoder.of(BigEndianIntegerCoder.of(), SplunkEventCoder.of())))
+            .apply(
+                "SplunkEventWriter",
+                ParDo.of(
+                    SplunkEventWriter.newBuilder()
+                        .withUrl(Joiner.on(':').join("http://localhost", testPort))
+                        .withInputBatchCount(
+                            StaticValueProvider.of(
+                                testEvents.size())) // all requests in a single batch.
+                        .withToken("test-token")
+                        .withMaxInFlightBatches(StaticValueProvider.of(4))
+                        .build()))
+            .setCoder(SplunkWriteErrorCoder.of());
+
+    // Expect a single 404 Not found SplunkWriteError
+    PAssert.that(actual)
+        .containsInAnyOrder(
+            SplunkWriteError.newBuilder()
+                .withStatusCode(404)
+                .withStatusMessage("Not Found")
+                .withPayload(
+                    "{\"time\":12345,\"host\":\"test-host-1\","
+                        + "\"source\":\"test-source-1\",\"sourcetype\":\"test-source-type-1\","
+                        + "\"index\":\"test-index-1\",\"event\":\"test-event-1\"}")
+                .build());
+
+    pipeline.run();
+
+    // Server received exactly one POST request.
+    mockServer.verify(HttpRequest.request(EXPECTED_PATH), VerificationTimes.once());
+  }
+
   private void mockServerListening(int statusCode) {
     mockServer
         .when(HttpRequest.request(EXPECTED_PATH))
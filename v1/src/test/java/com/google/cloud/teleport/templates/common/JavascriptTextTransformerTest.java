@@ -23,6 +23,7 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
 import com.google.cloud.teleport.coders.FailsafeElementCoder;
@@ -33,10 +34,15 @@ import com.google.cloud.teleport.values.FailsafeElement;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.script.Invocable;
 import org.apache.beam.sdk.coders.CoderRegistry;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.io.gcp.pubsub.PubsubMessage;
@@ -129,6 +135,43 @@ public class JavascriptTextTransformerTest {
     assertEquals("{\"answerToLife\":42,\"someProp\":\"someValue\"}", data);
   }
 
+  /**
+   * Test {@link JavascriptRuntime#invoke(String)} returns transformed data when called from many
+   * threads at once, each borrowing its own engine from the pool, while the engine returned by
+   * {@link JavascriptRuntime#getInvocable} is in use.
+   */
+  @Test
+  public void testInvokeConcurrently() throws Exception {
+    JavascriptRuntime javascriptRuntime =
+        JavascriptRuntime.newBuilder()
+            .setFileSystemPath(TRANSFORM_FILE_PATH)
+            .setFunctionName("transform")
+            .setReloadIntervalMinutes(0)
+            .build();
+    Invocable invocable = javascriptRuntime.getInvocable();
+    assertSame(invocable, javascriptRuntime.getInvocable());
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        String input = String.format("{\"answerToLife\":%d}", i);
+        results.add(executor.submit(() -> javascriptRuntime.invoke(input)));
+      }
+      for (int i = 0; i < 200; i++) {
+        assertEquals(
+            String.format("{\"answerToLife\":%d,\"someProp\":\"someValue\"}", -i),
+            invocable.invokeFunction("transform", String.format("{\"answerToLife\":%d}", -i)));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals(
+            String.format("{\"answerToLife\":%d,\"someProp\":\"someValue\"}", i),
+            results.get(i).get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Test {@link JavascriptRuntime#invoke(String)} returns transformed data when an ES6 javascript
    * transform function is given.
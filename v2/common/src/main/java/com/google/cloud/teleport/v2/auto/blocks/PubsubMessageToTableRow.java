@@ -94,6 +94,7 @@ public class PubsubMessageToTableRow implements TemplateTransform<TransformOptio
                 FailsafeJavascriptUdf.<PubsubMessage>newBuilder()
                     .setFileSystemPath(options.getJavascriptTextTransformGcsPath())
                     .setFunctionName(options.getJavascriptTextTransformFunctionName())
+                    .setBatchSize(options.getJavascriptTextTransformBatchSize())
                     .setSuccessTag(UDF_OUT)
                     .setFailureTag(UDF_DEADLETTER_OUT)
                     .build());
@@ -39,6 +39,7 @@ import org.slf4j.LoggerFactory;
  */
 public class DeadLetterQueueManager implements Serializable {
   private static final Logger LOG = LoggerFactory.getLogger(DeadLetterQueueManager.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
   private static final String DATETIME_FILEPATH_SUFFIX = "YYYY/MM/dd/HH/mm/";
   private final String retryDlqDirectory;
   private final String severeDlqDirectory;
@@ -128,8 +129,7 @@ public class DeadLetterQueueManager implements Serializable {
                       /* Remove error from metadata and populate error field
                        * in failsafe element.
                        */
-                      ObjectMapper mapper = new ObjectMapper();
-                      JsonNode jsonDLQElement = mapper.readTree(input);
+                      JsonNode jsonDLQElement = MAPPER.readTree(input);
                       int retryCount = jsonDLQElement.get("_metadata_retry_count").asInt();
                       if (retryCount <= maxRetries) {
                         output.get(RETRYABLE_ERRORS).output(element);
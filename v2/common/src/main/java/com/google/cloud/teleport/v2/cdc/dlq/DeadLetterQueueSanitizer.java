@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 public class DeadLetterQueueSanitizer<InputT, OutputT> extends SimpleFunction<InputT, OutputT> {
 
   private static final Logger LOG = LoggerFactory.getLogger(DeadLetterQueueSanitizer.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
 
   // public DeadLetterQueueSanitizer() {}
 
@@ -60,16 +61,15 @@ public class DeadLetterQueueSanitizer<InputT, OutputT> extends SimpleFunction<In
 
   // NOTE: Only override formatMessage if required or you desire a non-String output
   public OutputT formatMessage(String rawJson, String errorMessageJson) {
-    ObjectMapper mapper = new ObjectMapper();
-    ObjectNode resultNode = mapper.createObjectNode();
+    ObjectNode resultNode = MAPPER.createObjectNode();
     try {
-      JsonNode node = mapper.readTree(rawJson);
+      JsonNode node = MAPPER.readTree(rawJson);
       resultNode.put("message", node);
     } catch (IOException e) {
       resultNode.put("message", rawJson);
     }
     try {
-      JsonNode node = mapper.readTree(errorMessageJson);
+      JsonNode node = MAPPER.readTree(errorMessageJson);
       resultNode.put("error_message", node);
     } catch (IOException e) {
       resultNode.put("error_message", errorMessageJson);
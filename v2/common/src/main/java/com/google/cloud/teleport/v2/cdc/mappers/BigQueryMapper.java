@@ -28,19 +28,25 @@ import com.google.cloud.bigquery.TableId;
 import com.google.cloud.teleport.v2.transforms.BigQueryConverters;
 import com.google.cloud.teleport.v2.utils.BigQueryTableCache;
 import com.google.cloud.teleport.v2.utils.GCSUtils;
+import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
-import org.apache.beam.sdk.transforms.SimpleFunction;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.values.PCollection;
+import org.joda.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -194,27 +200,199 @@ public class BigQueryMapper<InputT, OutputT>
 
   @Override
   public PCollection<OutputT> expand(PCollection<InputT> tableKVPCollection) {
-    return tableKVPCollection.apply(
-        "TableRowExtractDestination",
-        MapElements.via(
-            new SimpleFunction<InputT, OutputT>() {
-              @Override
-              public OutputT apply(InputT input) {
-                /*
-                    We run validation against every event to ensure all columns
-                    exist in source.
-                    If a column is in the event and not in BigQuery,
-                    the column is added to the table before the event can continue.
-                */
-                setUp();
-                TableId tableId = getTableId(input);
-                TableRow row = getTableRow(input);
-                int retries = getMapperRetries();
-
-                applyMapperToTableRow(tableId, row, retries);
-                return getOutputObject(input);
-              }
-            }));
+    return tableKVPCollection.apply("TableRowExtractDestination", ParDo.of(new MapToTableFn()));
+  }
+
+  /**
+   * Validates every event to ensure all of its columns exist in BigQuery before the event can
+   * continue.
+   *
+   * <p>The column names of an event which were already found in the table are remembered per table
+   * in a {@link RowShapeMemo}, so that events with the same columns skip the comparison against the
+   * table schema. The table itself is still looked up for every event, so that a dropped table is
+   * created again. Events with columns missing from the table are held until the missing columns of
+   * each table are added with a single table update, either at the end of the bundle or once {@code
+   * MAX_PENDING_EVENTS} events are held.
+   */
+  private class MapToTableFn extends DoFn<InputT, OutputT> {
+
+    private static final int MAX_PENDING_EVENTS = 1000;
+
+    private transient RowShapeMemo rowShapeMemo;
+    private transient Map<TableId, Map<String, Field>> pendingFields;
+    private transient List<PendingEvent<InputT>> pendingEvents;
+    private transient int eventsSinceUpdate;
+
+    private final Counter knownRowShapes =
+        Metrics.counter(BigQueryMapper.class, "Rows with known columns");
+    private final Counter tableUpdates =
+        Metrics.counter(BigQueryMapper.class, "BigQuery table schema updates");
+
+    @Setup
+    public void setup() {
+      rowShapeMemo = new RowShapeMemo();
+    }
+
+    @StartBundle
+    public void startBundle() {
+      pendingFields = new HashMap<>();
+      pendingEvents = new ArrayList<>();
+      eventsSinceUpdate = 0;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element InputT input,
+        @Timestamp Instant timestamp,
+        BoundedWindow window,
+        OutputReceiver<OutputT> out) {
+      setUp();
+      TableId tableId = getTableId(input);
+      TableRow row = getTableRow(input);
+      Table table = getOrCreateTableWithRetries(tableId, getMapperRetries());
+      if (rowShapeMemo.contains(tableId, table, row.keySet())) {
+        knownRowShapes.inc();
+        out.output(getOutputObject(input));
+        return;
+      }
+
+      List<Field> newFields = getNewFieldsWithRetries(tableId, table, row, getMapperRetries());
+      if (newFields.isEmpty()) {
+        rowShapeMemo.add(tableId, table, row.keySet());
+        out.output(getOutputObject(input));
+        return;
+      }
+
+      Map<String, Field> tableFields = pendingFields.computeIfAbsent(tableId, t -> new HashMap<>());
+      for (Field field : newFields) {
+        tableFields.putIfAbsent(field.getName(), field);
+      }
+      pendingEvents.add(new PendingEvent<>(input, tableId, timestamp, window));
+      if (++eventsSinceUpdate >= MAX_PENDING_EVENTS) {
+        // Apply the updates early so that the following events of large bundles are not held.
+        updatePendingTables();
+        outputPendingEvents(timestamp, window, out);
+      }
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext context) {
+      updatePendingTables();
+      for (PendingEvent<InputT> event : pendingEvents) {
+        rememberRowShape(event);
+        context.output(getOutputObject(event.input), event.timestamp, event.window);
+      }
+      pendingFields = null;
+      pendingEvents = null;
+    }
+
+    private void updatePendingTables() {
+      for (Map.Entry<TableId, Map<String, Field>> table : pendingFields.entrySet()) {
+        updateTableWithRetries(table.getKey(), table.getValue().values(), getMapperRetries());
+        tableUpdates.inc();
+      }
+      pendingFields.clear();
+      eventsSinceUpdate = 0;
+    }
+
+    /**
+     * Outputs the held events of the current window, whose columns were just added. An element can
+     * only be output to its own window and not before its own timestamp, so events of other windows
+     * stay held until the end of the bundle and events are output at the later of their own and the
+     * current timestamp.
+     */
+    private void outputPendingEvents(
+        Instant timestamp, BoundedWindow window, OutputReceiver<OutputT> out) {
+      List<PendingEvent<InputT>> otherWindows = new ArrayList<>();
+      for (PendingEvent<InputT> event : pendingEvents) {
+        if (!event.window.equals(window)) {
+          otherWindows.add(event);
+          continue;
+        }
+        rememberRowShape(event);
+        out.outputWithTimestamp(
+            getOutputObject(event.input),
+            event.timestamp.isAfter(timestamp) ? event.timestamp : timestamp);
+      }
+      pendingEvents = otherWindows;
+    }
+
+    private void rememberRowShape(PendingEvent<InputT> event) {
+      rowShapeMemo.add(
+          event.tableId, tableCache.get(event.tableId), getTableRow(event.input).keySet());
+    }
+  }
+
+  /** An event held until the columns it requires are added to its table. */
+  private static class PendingEvent<InputT> {
+    private final InputT input;
+    private final TableId tableId;
+    private final Instant timestamp;
+    private final BoundedWindow window;
+
+    PendingEvent(InputT input, TableId tableId, Instant timestamp, BoundedWindow window) {
+      this.input = input;
+      this.tableId = tableId;
+      this.timestamp = timestamp;
+      this.window = window;
+    }
+  }
+
+  /**
+   * The column name sets already found in each BigQuery table. Column name sets are looked up by an
+   * order independent fingerprint of the names, and compared with the stored set on a match.
+   *
+   * <p>Column name sets are remembered against the {@link Table} they were checked with. The table
+   * cache loads a new {@link Table} whenever it refreshes or updates a table, which forgets the
+   * column name sets of that table, so that a table dropped and created again is checked again.
+   */
+  static class RowShapeMemo {
+
+    // Bounds the memory used for tables receiving events with many different column name sets.
+    static final int MAX_SHAPES_PER_TABLE = 1000;
+
+    private final Map<TableId, TableShapes> shapesByTable = new HashMap<>();
+
+    boolean contains(TableId tableId, Table table, Set<String> keys) {
+      TableShapes tableShapes = shapesByTable.get(tableId);
+      if (tableShapes == null || tableShapes.table != table) {
+        return false;
+      }
+      Set<String> shape = tableShapes.shapes.get(fingerprint(keys));
+      return shape != null && shape.size() == keys.size() && shape.containsAll(keys);
+    }
+
+    void add(TableId tableId, Table table, Set<String> keys) {
+      TableShapes tableShapes = shapesByTable.get(tableId);
+      if (tableShapes == null
+          || tableShapes.table != table
+          || tableShapes.shapes.size() >= MAX_SHAPES_PER_TABLE) {
+        tableShapes = new TableShapes(table);
+        shapesByTable.put(tableId, tableShapes);
+      }
+      tableShapes.shapes.put(fingerprint(keys), new HashSet<>(keys));
+    }
+
+    static long fingerprint(Set<String> keys) {
+      long sum = 0;
+      long mixed = 0;
+      for (String key : keys) {
+        long hash = key.hashCode();
+        sum += hash;
+        mixed += (hash * 0x9E3779B97F4A7C15L) ^ (hash >>> 7);
+      }
+      return (sum * 31 + mixed) * 31 + keys.size();
+    }
+
+    /** The column name sets found in one version of a table. */
+    private static class TableShapes {
+      private final Table table;
+      private final Map<Long, Set<String>> shapes = new HashMap<>();
+
+      TableShapes(Table table) {
+        this.table = table;
+      }
+    }
   }
 
   /**
@@ -251,55 +429,94 @@ public class BigQueryMapper<InputT, OutputT>
   }
 
   /**
-   * Extracts and applies new column information to BigQuery by comparing the TableRow against the
-   * BigQuery Table. Retries the supplied number of times before failing.
+   * Returns the BigQuery Table, creating it if required. Retries the supplied number of times
+   * before failing.
    *
    * @param tableId a TableId referencing the BigQuery table to be loaded to.
-   * @param row a TableRow with the raw data to be loaded into BigQuery.
    * @param retries Number of remaining retries before error is raised.
    */
-  private void applyMapperToTableRow(TableId tableId, TableRow row, int retries) {
+  private Table getOrCreateTableWithRetries(TableId tableId, int retries) {
     try {
-      updateTableIfRequired(tableId, row);
+      return this.tableCache.getOrCreateBigQueryTable(tableId, this.dayPartitioning);
     } catch (Exception e) {
-      if (retries > 0) {
-        try {
-          int sleepSecs = (getMapperRetries() - retries + 1) * 5;
-          LOG.info(
-              "Mapper Retry {} Remaining: {}: {}",
-              String.valueOf(retries),
-              tableId.toString(),
-              e.toString());
-          Thread.sleep(sleepSecs);
-          applyMapperToTableRow(tableId, row, retries - 1);
-        } catch (InterruptedException i) {
-          LOG.info("Mapper Retries Interrupted: {}: {}", tableId.toString(), e.toString());
-          throw e;
-        }
-      } else {
-        LOG.info("Mapper Retries Exceeded: {}: {}", tableId.toString(), e.toString());
-        throw e;
-      }
+      sleepBeforeRetry(tableId, retries, e);
+      return getOrCreateTableWithRetries(tableId, retries - 1);
     }
   }
 
   /**
-   * Extracts and applies new column information to BigQuery by comparing the TableRow against the
-   * BigQuery Table.
+   * Returns the columns of the TableRow which are missing from the BigQuery Table. Retries the
+   * supplied number of times before failing.
    *
    * @param tableId a TableId referencing the BigQuery table to be loaded to.
+   * @param table the BigQuery table to be loaded to.
    * @param row a TableRow with the raw data to be loaded into BigQuery.
+   * @param retries Number of remaining retries before error is raised.
+   */
+  private List<Field> getNewFieldsWithRetries(
+      TableId tableId, Table table, TableRow row, int retries) {
+    try {
+      return getNewFields(tableId, table, row);
+    } catch (Exception e) {
+      sleepBeforeRetry(tableId, retries, e);
+      return getNewFieldsWithRetries(tableId, table, row, retries - 1);
+    }
+  }
+
+  /**
+   * Adds the supplied columns to the BigQuery Table. Retries the supplied number of times before
+   * failing.
+   *
+   * @param tableId a TableId referencing the BigQuery table to be loaded to.
+   * @param fields the columns to add, skipping those already in the table.
+   * @param retries Number of remaining retries before error is raised.
    */
-  private void updateTableIfRequired(TableId tableId, TableRow row) {
-    Table table = this.tableCache.getOrCreateBigQueryTable(tableId, this.dayPartitioning);
+  private void updateTableWithRetries(TableId tableId, Collection<Field> fields, int retries) {
+    try {
+      updateBigQueryTable(tableId, fields);
+    } catch (Exception e) {
+      sleepBeforeRetry(tableId, retries, e);
+      updateTableWithRetries(tableId, fields, retries - 1);
+    }
+  }
 
-    Map<String, StandardSQLTypeName> inputSchema = new HashMap<String, StandardSQLTypeName>();
-    List<Field> newFieldList = getNewTableFields(row, table, inputSchema, this.ignoreFields);
+  private void sleepBeforeRetry(TableId tableId, int retries, Exception e) {
+    if (retries <= 0) {
+      LOG.info("Mapper Retries Exceeded: {}: {}", tableId.toString(), e.toString());
+      Throwables.throwIfUnchecked(e);
+      throw new RuntimeException(e);
+    }
+    try {
+      int sleepSecs = (getMapperRetries() - retries + 1) * 5;
+      LOG.info(
+          "Mapper Retry {} Remaining: {}: {}",
+          String.valueOf(retries),
+          tableId.toString(),
+          e.toString());
+      Thread.sleep(sleepSecs);
+    } catch (InterruptedException i) {
+      LOG.info("Mapper Retries Interrupted: {}: {}", tableId.toString(), e.toString());
+      Throwables.throwIfUnchecked(e);
+      throw new RuntimeException(e);
+    }
+  }
 
-    if (newFieldList.size() > 0) {
-      LOG.info("Updating Table: {}", tableId.toString());
-      updateBigQueryTable(tableId, row, this.ignoreFields);
+  /**
+   * Extracts new column information by comparing the TableRow against the BigQuery Table. The
+   * column types are only resolved through the input schema when new columns are found.
+   *
+   * @param tableId a TableId referencing the BigQuery table to be loaded to.
+   * @param table the BigQuery table to be loaded to.
+   * @param row a TableRow with the raw data to be loaded into BigQuery.
+   */
+  private List<Field> getNewFields(TableId tableId, Table table, TableRow row) {
+    List<Field> newFieldList =
+        getNewTableFields(
+            row, table, new HashMap<String, StandardSQLTypeName>(), this.ignoreFields);
+    if (newFieldList.isEmpty()) {
+      return newFieldList;
     }
+    return getNewTableFields(row, table, getObjectSchema(tableId, row), this.ignoreFields);
   }
 
   private static TableId getTableLock(TableId tableId) {
@@ -319,26 +536,28 @@ public class BigQueryMapper<InputT, OutputT>
     }
   }
 
-  /* Update BigQuery Table Object Supplied */
-  private void updateBigQueryTable(TableId tableId, TableRow row, Set<String> ignoreFields) {
+  /* Add the supplied fields which are not yet in the BigQuery Table */
+  private void updateBigQueryTable(TableId tableId, Collection<Field> fields) {
     TableId tableLock = getTableLock(tableId);
     synchronized (tableLock) {
       Table table = this.tableCache.get(tableId);
-      Map<String, StandardSQLTypeName> inputSchema = getObjectSchema(tableId, row);
+      FieldList tableFields = table.getDefinition().getSchema().getFields();
 
-      List<Field> newFieldList = getNewTableFields(row, table, inputSchema, ignoreFields);
+      List<Field> newFieldList = new ArrayList<Field>();
+      for (Field field : fields) {
+        try {
+          tableFields.get(field.getName());
+        } catch (IllegalArgumentException e) {
+          newFieldList.add(field);
+        }
+      }
       if (newFieldList.size() > 0) {
         // Add all current columns to the list
-        List<Field> fieldList = new ArrayList<Field>();
-        for (Field field : table.getDefinition().getSchema().getFields()) {
-          fieldList.add(field);
-        }
+        List<Field> fieldList = new ArrayList<Field>(tableFields);
 
         // Add all new columns to the list
         LOG.info("Mapping New Columns for: {} -> {}", tableId.toString(), newFieldList.toString());
-        for (Field field : newFieldList) {
-          fieldList.add(field);
-        }
+        fieldList.addAll(newFieldList);
 
         Schema newSchema = Schema.of(fieldList);
         Table updatedTable =
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.coders;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.coders.BigEndianLongCoder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.extensions.avro.coders.AvroCoder;
+
+/**
+ * A {@link CustomCoder} for {@link GenericRecord} that identifies the schema of each record by its
+ * 64-bit Avro fingerprint instead of its full JSON representation.
+ *
+ * <p>Schemas handed to the coder at construction time are serialized with the coder itself, so
+ * every worker knows them and records are encoded as a fingerprint followed by the Avro binary
+ * payload. Records with any other schema are rejected when encoded rather than carrying their
+ * schema inline; use {@link GenericRecordCoder} when the schemas are only known at runtime.
+ *
+ * <p>The fingerprint is the CRC-64-AVRO of the full schema JSON (see {@link
+ * SchemaNormalization#fingerprint64(byte[])}), so schemas differing only in logical types, defaults
+ * or other attributes are never confused with each other.
+ */
+public class FingerprintGenericRecordCoder extends CustomCoder<GenericRecord> {
+
+  private static final long MAX_CACHE_SIZE = 1000;
+
+  /**
+   * Identity-keyed lookup from {@link Schema} instances to their fingerprint, so that encoding does
+   * not serialize and hash the schema for every record.
+   */
+  private static final Cache<Schema, Long> FINGERPRINTS =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_CACHE_SIZE).build();
+
+  private final List<String> knownSchemas;
+  private transient volatile Map<Long, SchemaEntry> knownEntries;
+
+  private FingerprintGenericRecordCoder(List<String> knownSchemas) {
+    this.knownSchemas = knownSchemas;
+  }
+
+  /**
+   * Constructs a new {@link FingerprintGenericRecordCoder} which encodes records using one of the
+   * {@code knownSchemas}.
+   */
+  public static FingerprintGenericRecordCoder of(Schema... knownSchemas) {
+    return of(Arrays.asList(knownSchemas));
+  }
+
+  /**
+   * Constructs a new {@link FingerprintGenericRecordCoder} which encodes records using one of the
+   * {@code knownSchemas}.
+   */
+  public static FingerprintGenericRecordCoder of(Collection<Schema> knownSchemas) {
+    ImmutableList.Builder<String> schemas = ImmutableList.builder();
+    for (Schema schema : knownSchemas) {
+      schemas.add(schema.toString());
+    }
+    return new FingerprintGenericRecordCoder(schemas.build());
+  }
+
+  @Override
+  public void encode(GenericRecord value, OutputStream outStream) throws IOException {
+    long fingerprint = fingerprint(value.getSchema());
+    SchemaEntry entry = getKnownEntries().get(fingerprint);
+    if (entry == null) {
+      throw new CoderException(
+          String.format(
+              "Schema %s with fingerprint %d is not known to this coder",
+              value.getSchema().getFullName(), fingerprint));
+    }
+    BigEndianLongCoder.of().encode(fingerprint, outStream);
+    entry.coder.encode(value, outStream);
+  }
+
+  @Override
+  public GenericRecord decode(InputStream inStream) throws IOException {
+    long fingerprint = BigEndianLongCoder.of().decode(inStream);
+    SchemaEntry entry = getKnownEntries().get(fingerprint);
+    if (entry == null) {
+      throw new CoderException(
+          String.format("Schema with fingerprint %d is not known to this coder", fingerprint));
+    }
+    return entry.coder.decode(inStream);
+  }
+
+  /**
+   * The fingerprint is a function of the schema, so the encoding is deterministic exactly when the
+   * Avro binary encoding of every known schema is. That is not the case for schemas containing
+   * maps, whose entries are written in iteration order.
+   */
+  @Override
+  public void verifyDeterministic() throws NonDeterministicException {
+    List<String> reasons = new ArrayList<>();
+    for (SchemaEntry entry : getKnownEntries().values()) {
+      collectNonDeterministicFields(
+          entry.schema, entry.schema.getFullName(), new HashSet<>(), reasons);
+    }
+    if (!reasons.isEmpty()) {
+      throw new NonDeterministicException(this, reasons);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return knownSchemas.equals(((FingerprintGenericRecordCoder) o).knownSchemas);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(knownSchemas);
+  }
+
+  /** Returns the 64-bit fingerprint used by this coder to identify {@code schema}. */
+  public static long fingerprint(Schema schema) {
+    try {
+      return FINGERPRINTS.get(
+          schema, () -> SchemaNormalization.fingerprint64(schema.toString().getBytes(UTF_8)));
+    } catch (ExecutionException e) {
+      throw new AssertionError("impossible; loader can't throw.");
+    }
+  }
+
+  private Map<Long, SchemaEntry> getKnownEntries() {
+    Map<Long, SchemaEntry> entries = knownEntries;
+    if (entries == null) {
+      Map<Long, SchemaEntry> builder = new HashMap<>();
+      for (String schemaString : knownSchemas) {
+        long fingerprint = SchemaNormalization.fingerprint64(schemaString.getBytes(UTF_8));
+        builder.put(fingerprint, new SchemaEntry(new Schema.Parser().parse(schemaString)));
+      }
+      entries = ImmutableMap.copyOf(builder);
+      knownEntries = entries;
+    }
+    return entries;
+  }
+
+  /**
+   * Adds a reason to {@code reasons} for every map reachable from {@code schema}. Named schemas are
+   * only visited once, so recursive records terminate.
+   */
+  private static void collectNonDeterministicFields(
+      Schema schema, String context, Set<String> visited, List<String> reasons) {
+    switch (schema.getType()) {
+      case MAP:
+        reasons.add(
+            String.format(
+                "%s is a map, whose Avro encoding depends on the iteration order of its entries",
+                context));
+        break;
+      case ARRAY:
+        collectNonDeterministicFields(schema.getElementType(), context + "[]", visited, reasons);
+        break;
+      case UNION:
+        for (Schema branch : schema.getTypes()) {
+          collectNonDeterministicFields(branch, context, visited, reasons);
+        }
+        break;
+      case RECORD:
+        if (visited.add(schema.getFullName())) {
+          for (Schema.Field field : schema.getFields()) {
+            collectNonDeterministicFields(
+                field.schema(), context + "." + field.name(), visited, reasons);
+          }
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /** A known schema together with the {@link AvroCoder} for it. */
+  private static class SchemaEntry {
+    private final Schema schema;
+    private final AvroCoder<GenericRecord> coder;
+
+    private SchemaEntry(Schema schema) {
+      this.schema = schema;
+      this.coder = AvroCoder.of(schema);
+    }
+  }
+}
@@ -31,7 +31,8 @@ import org.apache.beam.sdk.extensions.avro.coders.AvroCoder;
  * An {@link AtomicCoder} for {@link GenericRecord}.
  *
  * <p>This coder is used when the schema of the incoming {@link GenericRecord} can only be known at
- * runtime.
+ * runtime. Every record carries its full schema; prefer {@link FingerprintGenericRecordCoder} when
+ * the schemas are known when the pipeline is constructed.
  */
 public class GenericRecordCoder extends AtomicCoder<GenericRecord> {
   private static final Integer MAX_CACHE_SIZE = 1000;
@@ -51,7 +52,7 @@ public class GenericRecordCoder extends AtomicCoder<GenericRecord> {
   public void encode(GenericRecord value, OutputStream outStream) throws IOException {
     String schemaString = value.getSchema().toString();
     StringUtf8Coder.of().encode(schemaString, outStream);
-    AvroCoder<GenericRecord> coder = getAvroCoder(value.getSchema().toString());
+    AvroCoder<GenericRecord> coder = getAvroCoder(schemaString);
     coder.encode(value, outStream);
   }
 
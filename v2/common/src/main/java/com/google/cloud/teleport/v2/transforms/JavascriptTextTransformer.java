@@ -32,8 +32,16 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.script.Invocable;
@@ -53,6 +61,7 @@ import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.TupleTag;
@@ -116,6 +125,21 @@ public abstract class JavascriptTextTransformer {
 
     void setJavascriptTextTransformReloadIntervalMinutes(
         Integer javascriptTextTransformReloadIntervalMinutes);
+
+    @TemplateParameter.Integer(
+        order = 5,
+        optional = true,
+        description = "JavaScript UDF batch size",
+        helpText =
+            "The number of elements to pass to the JavaScript user-defined function (UDF) in a "
+                + "single call. If the value is greater than 1, the UDF receives an array of "
+                + "elements and must return an array of the same length, in which each entry is "
+                + "the output for the element at that position, `null` to drop it, or an `Error` "
+                + "to fail it. The default value is `1`, which calls the UDF once per element.")
+    @Default.Integer(1)
+    Integer getJavascriptTextTransformBatchSize();
+
+    void setJavascriptTextTransformBatchSize(Integer javascriptTextTransformBatchSize);
   }
 
   /**
@@ -141,12 +165,41 @@ public abstract class JavascriptTextTransformer {
     private static final Distribution JAVASCRIPT_RELOAD_LATENCY_MS =
         Metrics.distribution(JavascriptTextTransformer.class, "javascript_reload_latency_ms");
 
-    private static LoadingCache<JavascriptRuntime, Invocable> cache =
+    private static final Distribution JAVASCRIPT_ENGINE_CREATION_LATENCY_MS =
+        Metrics.distribution(
+            JavascriptTextTransformer.class, "javascript_engine_creation_latency_ms");
+
+    private static final Distribution JAVASCRIPT_ENGINE_POOL_WAIT_MS =
+        Metrics.distribution(JavascriptTextTransformer.class, "javascript_engine_pool_wait_ms");
+
+    /** Maximum number of engines per pool, so that every core can run the UDF at the same time. */
+    private static final int MAX_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Evaluated in every engine that runs a batch UDF, converts between Java and JavaScript arrays
+     * around the UDF so that it receives and returns plain JavaScript arrays. Errors returned by
+     * the UDF are converted to a {@code String[]} of their message and stack. The script is an
+     * anonymous function expression, so it does not add any name to the scope of the UDF.
+     */
+    private static final String BATCH_ADAPTER_SCRIPT =
+        "(function (udf, batch) {\n"
+            + "  var results = udf(Java.from(batch));\n"
+            + "  if (!Array.isArray(results)) {\n"
+            + "    return null;\n"
+            + "  }\n"
+            + "  return Java.to(results.map(function (result) {\n"
+            + "    return result instanceof Error\n"
+            + "        ? Java.to([String(result.message), String(result.stack)], 'java.lang.String[]')\n"
+            + "        : result;\n"
+            + "  }), 'java.lang.Object[]');\n"
+            + "})\n";
+
+    private static LoadingCache<JavascriptRuntime, InvocablePool> cache =
         Caffeine.newBuilder()
             .expireAfter(
-                new Expiry<JavascriptRuntime, Invocable>() {
+                new Expiry<JavascriptRuntime, InvocablePool>() {
                   public long expireAfterCreate(
-                      JavascriptRuntime runtime, Invocable invocable, long currentTime) {
+                      JavascriptRuntime runtime, InvocablePool pool, long currentTime) {
                     // Do not expire if reload is disabled
                     if (runtime.reloadIntervalMinutes() == null
                         || runtime.reloadIntervalMinutes() <= 0) {
@@ -157,7 +210,7 @@ public abstract class JavascriptTextTransformer {
 
                   public long expireAfterUpdate(
                       JavascriptRuntime runtime,
-                      Invocable invocable,
+                      InvocablePool pool,
                       long currentTime,
                       long currentDuration) {
                     return currentDuration;
@@ -165,13 +218,13 @@ public abstract class JavascriptTextTransformer {
 
                   public long expireAfterRead(
                       JavascriptRuntime runtime,
-                      Invocable invocable,
+                      InvocablePool pool,
                       long currentTime,
                       long currentDuration) {
                     return currentDuration;
                   }
                 })
-            .build(runtime -> buildInvocable(runtime));
+            .build(runtime -> buildInvocablePool(runtime));
 
     private Instant lastRefreshCheck = Instant.now();
 
@@ -197,7 +250,9 @@ public abstract class JavascriptTextTransformer {
     }
 
     /**
-     * Gets a cached Javascript Invocable, if fileSystemPath() not set, returns null.
+     * Gets a cached Javascript Invocable, if fileSystemPath() not set, returns null. The Invocable
+     * is dedicated to callers of this method and is not used by {@link #invoke(String)}, but
+     * callers using it directly must not call it concurrently.
      *
      * @return a Javascript Invocable or null
      */
@@ -209,7 +264,7 @@ public abstract class JavascriptTextTransformer {
         return null;
       }
 
-      return cache.get(this);
+      return cache.get(this).dedicated();
     }
 
     /**
@@ -223,15 +278,18 @@ public abstract class JavascriptTextTransformer {
       for (String script : scripts) {
         engine.eval(script);
       }
-      JAVASCRIPT_RELOAD_LATENCY_MS.update(Instant.now().toEpochMilli() - startTime);
+      JAVASCRIPT_ENGINE_CREATION_LATENCY_MS.update(Instant.now().toEpochMilli() - startTime);
       return (Invocable) engine;
     }
 
-    private static Invocable buildInvocable(JavascriptRuntime runtime)
+    private static InvocablePool buildInvocablePool(JavascriptRuntime runtime)
         throws IOException, ScriptException {
+      long startTime = Instant.now().toEpochMilli();
       // List of all scripts read from the filesystem
       Collection<String> scripts = getScripts(runtime.fileSystemPath());
-      return newInvocable(scripts);
+      InvocablePool pool = new InvocablePool(scripts, MAX_POOL_SIZE);
+      JAVASCRIPT_RELOAD_LATENCY_MS.update(Instant.now().toEpochMilli() - startTime);
+      return pool;
     }
 
     private static ScriptEngine getJavaScriptEngine() {
@@ -265,14 +323,17 @@ public abstract class JavascriptTextTransformer {
      */
     @Nullable
     public String invoke(String data) throws ScriptException, IOException, NoSuchMethodException {
-      Invocable invocable = getInvocable();
-      if (invocable == null) {
+      if (Strings.isNullOrEmpty(fileSystemPath())) {
         throw new RuntimeException("No UDF was loaded");
       }
 
+      InvocablePool pool = cache.get(this);
+      Invocable invocable = pool.borrow();
       Object result;
-      synchronized (invocable) {
+      try {
         result = invocable.invokeFunction(functionName(), data);
+      } finally {
+        pool.release(invocable);
       }
       if (result == null || ScriptObjectMirror.isUndefined(result)) {
         return null;
@@ -285,6 +346,58 @@ public abstract class JavascriptTextTransformer {
       }
     }
 
+    /**
+     * Invokes a batch UDF once for a list of elements. The function receives a JavaScript array of
+     * the elements and must return an array of the same length, in which each entry is the output
+     * String for the element at that position, null or undefined to drop it, or an {@code Error} to
+     * fail only that element.
+     *
+     * @param data elements to pass to the invocable function
+     * @return one {@link BatchResult} per element, in the order of {@code data}
+     */
+    public List<BatchResult> invokeBatch(List<String> data)
+        throws ScriptException, IOException, NoSuchMethodException {
+      if (Strings.isNullOrEmpty(fileSystemPath())) {
+        throw new RuntimeException("No UDF was loaded");
+      }
+
+      InvocablePool pool = cache.get(this);
+      Invocable invocable = pool.borrow();
+      Object result;
+      try {
+        Object udf = ((ScriptEngine) invocable).get(functionName());
+        if (!(udf instanceof ScriptObjectMirror) || !((ScriptObjectMirror) udf).isFunction()) {
+          throw new NoSuchMethodException("No such function " + functionName());
+        }
+        result = pool.batchAdapter(invocable).call(null, udf, data.toArray(new String[0]));
+      } finally {
+        pool.release(invocable);
+      }
+      if (!(result instanceof Object[]) || ((Object[]) result).length != data.size()) {
+        throw new RuntimeException(
+            String.format(
+                "Batch UDF Function must return an array of %d entries, one per element.",
+                data.size()));
+      }
+
+      List<BatchResult> results = new ArrayList<>(data.size());
+      for (Object entry : (Object[]) result) {
+        if (entry == null || ScriptObjectMirror.isUndefined(entry)) {
+          results.add(BatchResult.success(null));
+        } else if (entry instanceof String) {
+          results.add(BatchResult.success((String) entry));
+        } else if (entry instanceof String[]) {
+          String[] error = (String[]) entry;
+          results.add(BatchResult.failure(error[0], error[1]));
+        } else {
+          String message =
+              "UDF Function did not return a String. Instead got: " + entry.getClass().getName();
+          results.add(BatchResult.failure(message, message));
+        }
+      }
+      return results;
+    }
+
     /**
      * Loads into memory scripts from a File System from a given path. Supports any file system that
      * {@link FileSystems} supports.
@@ -312,6 +425,105 @@ public abstract class JavascriptTextTransformer {
               })
           .collect(Collectors.toList());
     }
+
+    /**
+     * A bounded pool of {@link Invocable}s, each evaluated from the same scripts in its own engine,
+     * so that threads on a worker run the UDF concurrently instead of queueing behind one engine.
+     * Engines are created on demand up to {@code maxSize}, after which borrowers wait for one to be
+     * released.
+     */
+    private static class InvocablePool {
+      private final Collection<String> scripts;
+      private final int maxSize;
+      private final BlockingQueue<Invocable> idle;
+      private final AtomicInteger size = new AtomicInteger();
+      // The engine returned by getInvocable(), created on first use and never borrowed.
+      private Invocable dedicated;
+      // The batch adapter function of each engine, evaluated on the first batch call.
+      private final Map<Invocable, ScriptObjectMirror> batchAdapters = new ConcurrentHashMap<>();
+
+      private InvocablePool(Collection<String> scripts, int maxSize) throws ScriptException {
+        this.scripts = scripts;
+        this.maxSize = maxSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+        // Evaluate the scripts once eagerly so that broken scripts fail when loading the pool.
+        idle.add(newInvocable(scripts));
+        size.incrementAndGet();
+      }
+
+      private synchronized Invocable dedicated() throws ScriptException {
+        if (dedicated == null) {
+          dedicated = newInvocable(scripts);
+        }
+        return dedicated;
+      }
+
+      private Invocable borrow() throws ScriptException {
+        Invocable invocable = idle.poll();
+        if (invocable != null) {
+          return invocable;
+        }
+        for (int current = size.get(); current < maxSize; current = size.get()) {
+          if (size.compareAndSet(current, current + 1)) {
+            try {
+              return newInvocable(scripts);
+            } catch (ScriptException | RuntimeException e) {
+              size.decrementAndGet();
+              throw e;
+            }
+          }
+        }
+        long startTime = Instant.now().toEpochMilli();
+        try {
+          invocable = idle.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Interrupted while waiting for a JavaScript engine", e);
+        }
+        JAVASCRIPT_ENGINE_POOL_WAIT_MS.update(Instant.now().toEpochMilli() - startTime);
+        return invocable;
+      }
+
+      private void release(Invocable invocable) {
+        idle.offer(invocable);
+      }
+
+      /** Returns the {@link #BATCH_ADAPTER_SCRIPT} function of a borrowed engine. */
+      private ScriptObjectMirror batchAdapter(Invocable invocable) throws ScriptException {
+        ScriptObjectMirror adapter = batchAdapters.get(invocable);
+        if (adapter == null) {
+          // Only the thread which borrowed the engine evaluates its adapter.
+          adapter = (ScriptObjectMirror) ((ScriptEngine) invocable).eval(BATCH_ADAPTER_SCRIPT);
+          batchAdapters.put(invocable, adapter);
+        }
+        return adapter;
+      }
+    }
+  }
+
+  /** The outcome of a batch UDF for a single element, see {@link JavascriptRuntime#invokeBatch}. */
+  @AutoValue
+  public abstract static class BatchResult {
+
+    /** The transformed element, or null if the UDF dropped it or failed. */
+    public abstract @Nullable String output();
+
+    /** The error raised by the UDF for this element, or null if it succeeded. */
+    public abstract @Nullable String errorMessage();
+
+    public abstract @Nullable String stacktrace();
+
+    public boolean isFailure() {
+      return errorMessage() != null;
+    }
+
+    static BatchResult success(@Nullable String output) {
+      return new AutoValue_JavascriptTextTransformer_BatchResult(output, null, null);
+    }
+
+    static BatchResult failure(String errorMessage, String stacktrace) {
+      return new AutoValue_JavascriptTextTransformer_BatchResult(null, errorMessage, stacktrace);
+    }
   }
 
   /** Transforms Text Strings via a Javascript UDF. */
@@ -324,6 +536,15 @@ public abstract class JavascriptTextTransformer {
 
     public abstract @Nullable Integer reloadIntervalMinutes();
 
+    /**
+     * When set above 1, elements are buffered and the UDF is invoked once per batch of up to this
+     * many elements through {@link JavascriptRuntime#invokeBatch}, instead of once per element.
+     */
+    public abstract @Nullable Integer batchSize();
+
+    /** Maximum total payload size of a batch, in bytes. Only used when batching is enabled. */
+    public abstract @Nullable Integer batchSizeBytes();
+
     /** Builder for {@link TransformTextViaJavascript}. */
     @AutoValue.Builder
     public abstract static class Builder {
@@ -333,6 +554,10 @@ public abstract class JavascriptTextTransformer {
 
       public abstract Builder setReloadIntervalMinutes(@Nullable Integer value);
 
+      public abstract Builder setBatchSize(@Nullable Integer batchSize);
+
+      public abstract Builder setBatchSizeBytes(@Nullable Integer batchSizeBytes);
+
       public abstract TransformTextViaJavascript build();
     }
 
@@ -346,6 +571,7 @@ public abstract class JavascriptTextTransformer {
           ParDo.of(
               new DoFn<String, String>() {
                 private JavascriptRuntime javascriptRuntime;
+                private UdfBatch<String> batch;
 
                 @Setup
                 public void setup() {
@@ -358,11 +584,32 @@ public abstract class JavascriptTextTransformer {
                   }
                 }
 
+                @StartBundle
+                public void startBundle() {
+                  batch = new UdfBatch<>(batchSize(), batchSizeBytes());
+                }
+
                 @ProcessElement
-                public void processElement(ProcessContext c)
+                public void processElement(ProcessContext c, BoundedWindow window)
                     throws IOException, NoSuchMethodException, ScriptException {
                   String element = c.element();
 
+                  if (javascriptRuntime != null && batch.isEnabled()) {
+                    if (batch.add(element, element, c.timestamp(), window)) {
+                      runBatch();
+                      // Output the results of the batch now, except for the elements of other
+                      // windows, which are output when the bundle finishes.
+                      for (BufferedElement<String> buffered : batch.takeProcessed(window)) {
+                        if (!Strings.isNullOrEmpty(buffered.result.output())) {
+                          c.outputWithTimestamp(
+                              buffered.result.output(),
+                              BufferedElement.outputTimestamp(buffered, c.timestamp()));
+                        }
+                      }
+                    }
+                    return;
+                  }
+
                   if (javascriptRuntime != null) {
                     element = javascriptRuntime.invoke(element);
                   }
@@ -371,6 +618,31 @@ public abstract class JavascriptTextTransformer {
                     c.output(element);
                   }
                 }
+
+                @FinishBundle
+                public void finishBundle(FinishBundleContext context)
+                    throws IOException, NoSuchMethodException, ScriptException {
+                  if (javascriptRuntime == null || !batch.isEnabled()) {
+                    return;
+                  }
+                  runBatch();
+                  for (BufferedElement<String> buffered : batch.takeProcessed(null)) {
+                    if (!Strings.isNullOrEmpty(buffered.result.output())) {
+                      context.output(buffered.result.output(), buffered.timestamp, buffered.window);
+                    }
+                  }
+                }
+
+                /** Runs the UDF over the buffered elements, failing on the first UDF error. */
+                private void runBatch() throws IOException, NoSuchMethodException, ScriptException {
+                  batch.run(javascriptRuntime);
+                  for (BufferedElement<String> buffered : batch.processed) {
+                    if (buffered.result.isFailure()) {
+                      throw new RuntimeException(
+                          "UDF Function failed: " + buffered.result.errorMessage());
+                    }
+                  }
+                }
               }));
     }
   }
@@ -391,6 +663,15 @@ public abstract class JavascriptTextTransformer {
 
     public abstract @Nullable Boolean loggingEnabled();
 
+    /**
+     * When set above 1, elements are buffered and the UDF is invoked once per batch of up to this
+     * many elements through {@link JavascriptRuntime#invokeBatch}, instead of once per element.
+     */
+    public abstract @Nullable Integer batchSize();
+
+    /** Maximum total payload size of a batch, in bytes. Only used when batching is enabled. */
+    public abstract @Nullable Integer batchSizeBytes();
+
     public abstract TupleTag<FailsafeElement<T, String>> successTag();
 
     public abstract TupleTag<FailsafeElement<T, String>> failureTag();
@@ -416,6 +697,10 @@ public abstract class JavascriptTextTransformer {
 
       public abstract Builder<T> setLoggingEnabled(@Nullable Boolean loggingEnabled);
 
+      public abstract Builder<T> setBatchSize(@Nullable Integer batchSize);
+
+      public abstract Builder<T> setBatchSizeBytes(@Nullable Integer batchSizeBytes);
+
       public abstract Builder<T> setSuccessTag(TupleTag<FailsafeElement<T, String>> successTag);
 
       public abstract Builder<T> setFailureTag(TupleTag<FailsafeElement<T, String>> failureTag);
@@ -431,6 +716,7 @@ public abstract class JavascriptTextTransformer {
                   new DoFn<FailsafeElement<T, String>, FailsafeElement<T, String>>() {
                     private JavascriptRuntime javascriptRuntime;
                     private boolean loggingEnabled;
+                    private UdfBatch<FailsafeElement<T, String>> batch;
 
                     @Setup
                     public void setup() {
@@ -447,11 +733,38 @@ public abstract class JavascriptTextTransformer {
                       }
                     }
 
+                    @StartBundle
+                    public void startBundle() {
+                      batch = new UdfBatch<>(batchSize(), batchSizeBytes());
+                    }
+
                     @ProcessElement
-                    public void processElement(ProcessContext context) {
+                    public void processElement(ProcessContext context, BoundedWindow window) {
                       FailsafeElement<T, String> element = context.element();
                       String payloadStr = element.getPayload();
 
+                      if (javascriptRuntime != null && batch.isEnabled()) {
+                        if (batch.add(element, payloadStr, context.timestamp(), window)) {
+                          runBatch();
+                          // Output the results of the batch now, except for the elements of other
+                          // windows, which are output when the bundle finishes.
+                          for (BufferedElement<FailsafeElement<T, String>> buffered :
+                              batch.takeProcessed(window)) {
+                            org.joda.time.Instant timestamp =
+                                BufferedElement.outputTimestamp(buffered, context.timestamp());
+                            if (buffered.result.isFailure()) {
+                              context.outputWithTimestamp(
+                                  failureTag(), failure(buffered), timestamp);
+                              failedCounter.inc();
+                            } else if (!Strings.isNullOrEmpty(buffered.result.output())) {
+                              context.outputWithTimestamp(success(buffered), timestamp);
+                              successCounter.inc();
+                            }
+                          }
+                        }
+                        return;
+                      }
+
                       try {
                         if (javascriptRuntime != null) {
                           payloadStr = javascriptRuntime.invoke(payloadStr);
@@ -481,11 +794,196 @@ public abstract class JavascriptTextTransformer {
                         failedCounter.inc();
                       }
                     }
+
+                    @FinishBundle
+                    public void finishBundle(FinishBundleContext context) {
+                      if (javascriptRuntime == null || !batch.isEnabled()) {
+                        return;
+                      }
+                      runBatch();
+                      for (BufferedElement<FailsafeElement<T, String>> buffered :
+                          batch.takeProcessed(null)) {
+                        if (buffered.result.isFailure()) {
+                          context.output(
+                              failureTag(), failure(buffered), buffered.timestamp, buffered.window);
+                          failedCounter.inc();
+                        } else if (!Strings.isNullOrEmpty(buffered.result.output())) {
+                          context.output(success(buffered), buffered.timestamp, buffered.window);
+                          successCounter.inc();
+                        }
+                      }
+                    }
+
+                    /**
+                     * Runs the UDF over the buffered elements. If the batch call itself fails, the
+                     * elements are retried one at a time so that the failure is attributed only to
+                     * the elements causing it.
+                     */
+                    private void runBatch() {
+                      try {
+                        batch.run(javascriptRuntime);
+                      } catch (Throwable e) {
+                        // Throwable caught because UDFS can trigger Errors (e.g., StackOverflow)
+                        batch.runEach(
+                            javascriptRuntime,
+                            elementError -> {
+                              if (loggingEnabled) {
+                                LOG.warn(
+                                    "Exception occurred while applying UDF '{}' from file path"
+                                        + " '{}' due to '{}'",
+                                    functionName(),
+                                    fileSystemPath(),
+                                    elementError.getMessage());
+                              }
+                            });
+                      }
+                    }
+
+                    private FailsafeElement<T, String> success(
+                        BufferedElement<FailsafeElement<T, String>> buffered) {
+                      return FailsafeElement.of(
+                          buffered.element.getOriginalPayload(), buffered.result.output());
+                    }
+
+                    private FailsafeElement<T, String> failure(
+                        BufferedElement<FailsafeElement<T, String>> buffered) {
+                      return FailsafeElement.of(buffered.element)
+                          .setErrorMessage(buffered.result.errorMessage())
+                          .setStacktrace(buffered.result.stacktrace());
+                    }
                   })
               .withOutputTags(successTag(), TupleTagList.of(failureTag())));
     }
   }
 
+  /**
+   * The elements of a bundle buffered for batch UDF calls. Once a batch has run, its elements move
+   * to {@link #processed} until their results are output.
+   */
+  private static class UdfBatch<ElementT> {
+    private static final int DEFAULT_BATCH_SIZE_BYTES = 1024 * 1024;
+
+    private final int batchSize;
+    private final long batchSizeBytes;
+    private final List<BufferedElement<ElementT>> pending = new ArrayList<>();
+    private final List<BufferedElement<ElementT>> processed = new ArrayList<>();
+    private long pendingBytes;
+
+    private UdfBatch(@Nullable Integer batchSize, @Nullable Integer batchSizeBytes) {
+      this.batchSize = batchSize != null ? batchSize : 1;
+      this.batchSizeBytes = batchSizeBytes != null ? batchSizeBytes : DEFAULT_BATCH_SIZE_BYTES;
+    }
+
+    private boolean isEnabled() {
+      return batchSize > 1;
+    }
+
+    /** Buffers an element, and returns whether the batch is full and should be run. */
+    private boolean add(
+        ElementT element,
+        @Nullable String payload,
+        org.joda.time.Instant timestamp,
+        BoundedWindow window) {
+      pending.add(new BufferedElement<>(element, payload, timestamp, window));
+      pendingBytes += payload == null ? 0 : payload.length();
+      return pending.size() >= batchSize || pendingBytes >= batchSizeBytes;
+    }
+
+    /** Runs the UDF once over the pending elements. */
+    private void run(JavascriptRuntime runtime)
+        throws ScriptException, IOException, NoSuchMethodException {
+      if (pending.isEmpty()) {
+        return;
+      }
+      assignResults(runtime, pending);
+      movePendingToProcessed();
+    }
+
+    /**
+     * Runs the UDF over each pending element on its own, so that a failure is attributed only to
+     * the element causing it.
+     */
+    private void runEach(JavascriptRuntime runtime, Consumer<Throwable> onError) {
+      for (BufferedElement<ElementT> buffered : pending) {
+        try {
+          assignResults(runtime, Collections.singletonList(buffered));
+        } catch (Throwable e) {
+          // Throwable caught because UDFS can trigger Errors (e.g., StackOverflow)
+          onError.accept(e);
+          buffered.result =
+              BatchResult.failure(e.getMessage(), Throwables.getStackTraceAsString(e));
+        }
+      }
+      movePendingToProcessed();
+    }
+
+    /**
+     * Removes and returns the processed elements of a window, or of all windows if the window is
+     * null, for their results to be output.
+     */
+    private List<BufferedElement<ElementT>> takeProcessed(@Nullable BoundedWindow window) {
+      List<BufferedElement<ElementT>> taken = new ArrayList<>();
+      Iterator<BufferedElement<ElementT>> iterator = processed.iterator();
+      while (iterator.hasNext()) {
+        BufferedElement<ElementT> buffered = iterator.next();
+        if (window == null || window.equals(buffered.window)) {
+          taken.add(buffered);
+          iterator.remove();
+        }
+      }
+      return taken;
+    }
+
+    private void movePendingToProcessed() {
+      processed.addAll(pending);
+      pending.clear();
+      pendingBytes = 0;
+    }
+
+    private static <ElementT> void assignResults(
+        JavascriptRuntime runtime, List<BufferedElement<ElementT>> batch)
+        throws ScriptException, IOException, NoSuchMethodException {
+      List<String> payloads = new ArrayList<>(batch.size());
+      for (BufferedElement<ElementT> buffered : batch) {
+        payloads.add(buffered.payload);
+      }
+      List<BatchResult> results = runtime.invokeBatch(payloads);
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).result = results.get(i);
+      }
+    }
+  }
+
+  /** An element buffered for a batch UDF call, along with its result once available. */
+  private static class BufferedElement<ElementT> {
+    private final ElementT element;
+    private final @Nullable String payload;
+    private final org.joda.time.Instant timestamp;
+    private final BoundedWindow window;
+    private BatchResult result;
+
+    private BufferedElement(
+        ElementT element,
+        @Nullable String payload,
+        org.joda.time.Instant timestamp,
+        BoundedWindow window) {
+      this.element = element;
+      this.payload = payload;
+      this.timestamp = timestamp;
+      this.window = window;
+    }
+
+    /**
+     * Returns the timestamp at which the result of a buffered element is output while processing a
+     * later element. A DoFn can not output before the timestamp of the element being processed, so
+     * the results of earlier elements are output at that timestamp instead.
+     */
+    private static org.joda.time.Instant outputTimestamp(
+        BufferedElement<?> buffered, org.joda.time.Instant current) {
+      return buffered.timestamp.isBefore(current) ? current : buffered.timestamp;
+    }
+  }
+
   /**
    * Retrieves a {@link JavascriptRuntime} configured to invoke the specified function within the
    * script. If either the fileSystemPath or functionName is null or empty, this method will return
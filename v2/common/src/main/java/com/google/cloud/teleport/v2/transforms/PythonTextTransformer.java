@@ -22,22 +22,31 @@ import com.google.cloud.teleport.metadata.TemplateParameter;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.base.Strings;
 import com.google.common.io.CharStreams;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -58,6 +67,10 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Throwables;
+import org.joda.time.Instant;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,6 +81,14 @@ public abstract class PythonTextTransformer implements Serializable {
 
   public static final String DEFAULT_PYTHON_VERSION = "python3";
 
+  private static final int DEFAULT_RUNTIME_RETRIES = 5;
+
+  private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 1000;
+
+  private static final int DEFAULT_RESPONSE_TIMEOUT_SECONDS = 300;
+
+  private static final String WORKER_SCRIPT_RESOURCE = "/python-udf/udf_worker.py";
+
   private static final Logger LOG = LoggerFactory.getLogger(PythonTextTransformer.class);
 
   /** Necessary CLI options for running UDF function. */
@@ -131,9 +152,12 @@ public abstract class PythonTextTransformer implements Serializable {
     @Nullable
     public abstract Integer runtimeRetries();
 
-    private ProcessBuilder process;
-
-    private Process runtime;
+    /**
+     * The number of seconds a worker may go without answering any request before it is killed and
+     * restarted.
+     */
+    @Nullable
+    public abstract Integer responseTimeoutSeconds();
 
     private Process installRuntime;
     private Boolean pythonWasBuilt = false;
@@ -152,6 +176,8 @@ public abstract class PythonTextTransformer implements Serializable {
 
       public abstract Builder setRuntimeRetries(@Nullable Integer runtimeRetries);
 
+      public abstract Builder setResponseTimeoutSeconds(@Nullable Integer responseTimeoutSeconds);
+
       public abstract PythonRuntime build();
     }
 
@@ -164,45 +190,6 @@ public abstract class PythonTextTransformer implements Serializable {
       return new AutoValue_PythonTextTransformer_PythonRuntime.Builder();
     }
 
-    /**
-     * Gets a cached Javascript Invocable, if fileSystemPath() not set, returns null. NEED
-     * REPLACEMENT FOR INVOCABLE
-     *
-     * @return a python Invocable or null
-     */
-    @Nullable
-    public ProcessBuilder getProcessBuilder() throws IOException {
-
-      // return null if no UDF path specified.
-      if (Strings.isNullOrEmpty(fileSystemPath())) {
-        throw new IllegalArgumentException("Python UDF Transform: no file provided.");
-      }
-
-      if (process == null) {
-        Collection<String> scripts = getScripts(fileSystemPath());
-        FileWriter writer = new FileWriter(functionName());
-        if (scripts.size() == 0) {
-          throw new IllegalArgumentException(
-              String.format("Python UDF Transform: file %s not valid.", fileSystemPath()));
-        }
-        for (String str : scripts) {
-          writer.write(str + System.lineSeparator());
-        }
-        writer.close();
-
-        process = newProcess();
-      }
-      return process;
-    }
-
-    /** Factory method for making a new Invocable. */
-    @Nullable
-    private static ProcessBuilder newProcess() {
-      ProcessBuilder pb = new ProcessBuilder();
-
-      return pb;
-    }
-
     /**
      * Build Python Runtime Environment.
      *
@@ -238,83 +225,64 @@ public abstract class PythonTextTransformer implements Serializable {
     }
 
     /**
-     * Invokes the UDF with specified list of data.
+     * Starts a long-lived {@link PythonWorker} running {@link #functionName()} from the scripts at
+     * {@link #fileSystemPath()}. Python is only installed on the worker if it cannot be found.
      *
-     * @param data data to pass to the invocable function
-     * @return The data transformed by the UDF in String format
+     * @param maxInFlightRequests the number of requests which may be awaiting a response before
+     *     {@link PythonWorker#submit} blocks
+     * @return a started {@link PythonWorker}
      */
-    @Nullable
-    public List<String> invoke(File file, Integer retries)
+    public PythonWorker startWorker(int maxInFlightRequests)
         throws IOException, NoSuchMethodException, InterruptedException {
-      // Save Data in Temporary File
-      LOG.info("Applying runtime");
-
-      // Apply Python
-      List<String> results = applyRuntimeToFile(file, retries);
-
-      return results;
-    }
-
-    @Nullable
-    public List<String> applyRuntimeToFile(File dataFile, Integer retries)
-        throws IOException, NoSuchMethodException, InterruptedException {
-      // Vars Required in function
-      Process runtime;
-      String pythonVersion = runtimeVersion();
-      Integer retriesRemaining = retries - 1;
-      String stderr;
+      if (Strings.isNullOrEmpty(fileSystemPath())) {
+        throw new IllegalArgumentException("Python UDF Transform: no file provided.");
+      }
+      Collection<String> scripts = getScripts(fileSystemPath());
+      if (scripts.isEmpty()) {
+        throw new IllegalArgumentException(
+            String.format("Python UDF Transform: file %s not valid.", fileSystemPath()));
+      }
+      File udfFile = File.createTempFile("udf_" + functionName() + "_", ".py");
+      udfFile.deleteOnExit();
+      Files.write(
+          udfFile.toPath(),
+          String.join(System.lineSeparator(), scripts).getBytes(StandardCharsets.UTF_8));
+
+      File workerFile = File.createTempFile("udf_worker_", ".py");
+      workerFile.deleteOnExit();
+      try (InputStream workerScript =
+          PythonTextTransformer.class.getResourceAsStream(WORKER_SCRIPT_RESOURCE)) {
+        if (workerScript == null) {
+          throw new IOException("Missing resource " + WORKER_SCRIPT_RESOURCE);
+        }
+        Files.copy(workerScript, workerFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
 
-      // Apply Python
+      String pythonVersion = runtimeVersion() != null ? runtimeVersion() : DEFAULT_PYTHON_VERSION;
+      PythonWorker worker =
+          new PythonWorker(
+              Arrays.asList(
+                  pythonVersion,
+                  workerFile.getAbsolutePath(),
+                  udfFile.getAbsolutePath(),
+                  functionName()),
+              maxInFlightRequests,
+              runtimeRetries() != null ? runtimeRetries() : DEFAULT_RUNTIME_RETRIES,
+              TimeUnit.SECONDS.toNanos(
+                  responseTimeoutSeconds() != null
+                      ? responseTimeoutSeconds()
+                      : DEFAULT_RESPONSE_TIMEOUT_SECONDS));
       try {
-        LOG.info("Apply Python to File: " + dataFile.getAbsolutePath());
-        runtime =
-            getProcessBuilder()
-                .command(pythonVersion, functionName(), dataFile.getAbsolutePath())
-                .start();
-        LOG.info("Waiting For Results: " + dataFile.getAbsolutePath());
-        if (retriesRemaining > 0) {
-          if (runtime != null) {
-            runtime.destroyForcibly();
-          }
-          return applyRuntimeToFile(dataFile, retriesRemaining);
-        }
+        worker.start();
       } catch (IOException e) {
-        LOG.info("IO Exception Seen");
-        if (e.getMessage().startsWith(missingPythonErrorMessage)) {
-          // Build Python and Retry
-          buildPythonExecutable(pythonVersion);
-          if (retriesRemaining > 0) {
-            return applyRuntimeToFile(dataFile, retriesRemaining);
-          } else {
-            throw e;
-          }
-        } else {
+        if (e.getMessage() == null || !e.getMessage().startsWith(missingPythonErrorMessage)) {
           throw e;
         }
-      } catch (Exception e) {
-        LOG.info("Non IO Exception Seen");
-        throw e;
+        LOG.info("Build Python Env for version {}", pythonVersion);
+        buildPythonExecutable(pythonVersion);
+        worker.start();
       }
-
-      // Test Runtime Exists (should not be possible to hit this case)
-      if (runtime == null) {
-        throw new IOException("no runtime was provided");
-      }
-
-      // Process Python Results
-      LOG.info("Process Python Results: " + dataFile.getAbsolutePath());
-      List<String> results = new ArrayList<>();
-      try {
-        final BufferedReader reader =
-            new BufferedReader(new InputStreamReader(runtime.getInputStream()));
-        reader.lines().iterator().forEachRemaining(results::add);
-      } catch (Exception e) {
-        e.printStackTrace();
-      } finally {
-        runtime.destroy();
-      }
-
-      return results;
+      return worker;
     }
 
     /**
@@ -350,6 +318,223 @@ public abstract class PythonTextTransformer implements Serializable {
     }
   }
 
+  /**
+   * A long-lived Python process running a UDF through the bundled {@code udf_worker.py} harness.
+   *
+   * <p>Requests and responses are exchanged over the process' stdin and stdout as length-prefixed
+   * JSON frames, so many requests can be in flight at once. {@link #submit} blocks once {@code
+   * maxInFlightRequests} requests are awaiting a response. If the process dies, it is restarted and
+   * every request which has not been answered yet is sent again; after {@code maxRestarts} restarts
+   * the unanswered requests are reported as failed instead. A process which answers none of its
+   * requests for {@code responseTimeoutNanos}, e.g. because the UDF hangs, is killed and handled as
+   * if it had died.
+   *
+   * <p>Instances are not thread safe, each {@link DoFn} instance owns its own worker.
+   */
+  public static class PythonWorker implements AutoCloseable {
+
+    private final List<String> command;
+    private final int maxRestarts;
+    private final long responseTimeoutNanos;
+    private final Semaphore inFlight;
+    private final Map<String, byte[]> unanswered = new ConcurrentHashMap<>();
+    private final BlockingQueue<JSONObject> responses = new LinkedBlockingQueue<>();
+
+    private Process process;
+    private DataOutputStream requests;
+    private volatile int generation;
+    private volatile boolean crashed;
+    private volatile long lastProgressNanos;
+    private int restarts;
+
+    PythonWorker(
+        List<String> command, int maxInFlightRequests, int maxRestarts, long responseTimeoutNanos) {
+      this.command = command;
+      this.maxRestarts = maxRestarts;
+      this.responseTimeoutNanos = responseTimeoutNanos;
+      this.inFlight = new Semaphore(maxInFlightRequests);
+    }
+
+    /** Starts the Python process and the thread reading its responses. */
+    public void start() throws IOException {
+      process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+      requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+      crashed = false;
+      lastProgressNanos = System.nanoTime();
+      int readerGeneration = ++generation;
+      DataInputStream responseStream =
+          new DataInputStream(new BufferedInputStream(process.getInputStream()));
+      Thread reader =
+          new Thread(
+              () -> readResponses(responseStream, readerGeneration), "python-udf-worker-reader");
+      reader.setDaemon(true);
+      reader.start();
+    }
+
+    /**
+     * Sends a request to the worker, blocking while {@code maxInFlightRequests} requests are
+     * awaiting a response.
+     *
+     * @param id the id used to match the response to the request
+     * @param request the JSON request, containing {@code id} and {@code event}
+     */
+    public void submit(String id, String request) throws IOException, InterruptedException {
+      if (!inFlight.tryAcquire()) {
+        // Let the worker catch up on what is buffered before waiting for a response.
+        flush();
+        while (!inFlight.tryAcquire(1, TimeUnit.SECONDS)) {
+          killIfUnresponsive();
+          restartIfCrashed();
+        }
+      }
+      byte[] frame = request.getBytes(StandardCharsets.UTF_8);
+      if (unanswered.isEmpty()) {
+        // An idle worker is not unresponsive, its timeout starts with its first request.
+        lastProgressNanos = System.nanoTime();
+      }
+      unanswered.put(id, frame);
+      try {
+        writeFrame(frame);
+      } catch (IOException e) {
+        LOG.warn("Failed to send request to the Python worker", e);
+        crashed = true;
+        restartIfCrashed();
+      }
+    }
+
+    /**
+     * Waits for every submitted request to be answered.
+     *
+     * @return the responses received since the last call, containing {@code id}, {@code status},
+     *     {@code events} and {@code error_message}
+     */
+    public List<JSONObject> awaitResponses() throws IOException, InterruptedException {
+      flush();
+      List<JSONObject> results = new ArrayList<>();
+      while (!unanswered.isEmpty() || !responses.isEmpty()) {
+        JSONObject response = responses.poll(1, TimeUnit.SECONDS);
+        if (response != null) {
+          results.add(response);
+        } else {
+          killIfUnresponsive();
+          restartIfCrashed();
+        }
+      }
+      restarts = 0;
+      return results;
+    }
+
+    @Override
+    public void close() {
+      generation++;
+      if (process != null) {
+        process.destroy();
+      }
+    }
+
+    private void writeFrame(byte[] frame) throws IOException {
+      requests.writeInt(frame.length);
+      requests.write(frame);
+    }
+
+    private void flush() throws IOException, InterruptedException {
+      try {
+        requests.flush();
+      } catch (IOException e) {
+        LOG.warn("Failed to send requests to the Python worker", e);
+        crashed = true;
+        restartIfCrashed();
+      }
+    }
+
+    /**
+     * Kills the process if it has requests to answer but has not answered any of them for {@code
+     * responseTimeoutNanos}, so that {@link #restartIfCrashed} restarts it.
+     */
+    private void killIfUnresponsive() {
+      if (crashed
+          || unanswered.isEmpty()
+          || System.nanoTime() - lastProgressNanos < responseTimeoutNanos) {
+        return;
+      }
+      LOG.warn(
+          "Python worker did not answer any of its {} requests for {} seconds, killing it",
+          unanswered.size(),
+          TimeUnit.NANOSECONDS.toSeconds(responseTimeoutNanos));
+      // Stops the reader thread from reporting the kill as a crash of its own.
+      generation++;
+      process.destroyForcibly();
+      crashed = true;
+    }
+
+    private void restartIfCrashed() throws IOException, InterruptedException {
+      while (crashed) {
+        close();
+        if (restarts >= maxRestarts) {
+          failUnanswered(
+              String.format("Python worker exited %d times, giving up on its requests", restarts));
+          restarts = 0;
+          start();
+          return;
+        }
+        restarts++;
+        LOG.warn(
+            "Python worker exited, restarting it and resending {} requests", unanswered.size());
+        start();
+        try {
+          for (byte[] frame : unanswered.values()) {
+            writeFrame(frame);
+          }
+          requests.flush();
+        } catch (IOException e) {
+          LOG.warn("Failed to resend requests to the Python worker", e);
+          crashed = true;
+        }
+      }
+    }
+
+    private void failUnanswered(String errorMessage) {
+      for (String id : new ArrayList<>(unanswered.keySet())) {
+        JSONObject response = new JSONObject();
+        response.put("id", id);
+        response.put("status", "FAILED");
+        response.put("error_message", errorMessage);
+        deliver(response);
+      }
+    }
+
+    /**
+     * Hands a response over to {@link #awaitResponses}, unless its request was already answered.
+     * The response is queued before the request stops counting as unanswered, so that {@link
+     * #awaitResponses} never sees the request answered without seeing its response.
+     */
+    private synchronized void deliver(JSONObject response) {
+      String id = response.getString("id");
+      if (unanswered.containsKey(id)) {
+        lastProgressNanos = System.nanoTime();
+        responses.add(response);
+        unanswered.remove(id);
+        inFlight.release();
+      }
+    }
+
+    private void readResponses(DataInputStream responseStream, int readerGeneration) {
+      try {
+        while (true) {
+          byte[] frame = new byte[responseStream.readInt()];
+          responseStream.readFully(frame);
+          // Requests resent after a restart may be answered twice, only the first answer is kept.
+          deliver(new JSONObject(new String(frame, StandardCharsets.UTF_8)));
+        }
+      } catch (IOException | RuntimeException e) {
+        if (readerGeneration == generation) {
+          LOG.warn("Python worker stopped responding", e);
+          crashed = true;
+        }
+      }
+    }
+  }
+
   /**
    * The {@link FailsafePythonUdf} class processes user-defined functions is a fail-safe manner by
    * maintaining the original payload post-transformation and outputting to a dead-letter on
@@ -367,6 +552,9 @@ public abstract class PythonTextTransformer implements Serializable {
 
     public abstract @Nullable Integer runtimeRetries();
 
+    /** The number of elements which may await a response from the Python worker at once. */
+    public abstract @Nullable Integer maxInFlightRequests();
+
     public abstract TupleTag<FailsafeElement<T, String>> successTag();
 
     public abstract TupleTag<FailsafeElement<T, String>> failureTag();
@@ -396,6 +584,8 @@ public abstract class PythonTextTransformer implements Serializable {
 
       public abstract Builder<T> setRuntimeRetries(@Nullable Integer runtimeRetries);
 
+      public abstract Builder<T> setMaxInFlightRequests(@Nullable Integer maxInFlightRequests);
+
       public abstract Builder<T> setSuccessTag(TupleTag<FailsafeElement<T, String>> successTag);
 
       public abstract Builder<T> setFailureTag(TupleTag<FailsafeElement<T, String>> failureTag);
@@ -411,20 +601,36 @@ public abstract class PythonTextTransformer implements Serializable {
       }
     }
 
+    private int getMaxInFlightRequests() {
+      if (maxInFlightRequests() != null) {
+        return maxInFlightRequests();
+      } else {
+        return DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+      }
+    }
+
+    /** An element sent to the Python worker, kept until its response arrives. */
+    private static class PendingElement<T> {
+      private final FailsafeElement<T, String> element;
+      private final Instant timestamp;
+      private final BoundedWindow window;
+
+      private PendingElement(
+          FailsafeElement<T, String> element, Instant timestamp, BoundedWindow window) {
+        this.element = element;
+        this.timestamp = timestamp;
+        this.window = window;
+      }
+    }
+
     @Override
     public PCollectionTuple expand(PCollection<FailsafeElement<T, String>> elements) {
       return elements.apply(
           "ProcessUdf",
           ParDo.of(
                   new DoFn<FailsafeElement<T, String>, FailsafeElement<T, String>>() {
-                    private PythonRuntime pythonRuntime;
-                    private Integer batchLimit;
-                    private Integer batchCounter;
-                    private HashMap<String, FailsafeElement<T, String>> futures;
-                    private String processUUID;
-                    private File manifestFile;
-                    private BufferedWriter dataWriter;
-                    private BoundedWindow window;
+                    private PythonWorker pythonWorker;
+                    private Map<String, PendingElement<T>> pendingElements;
 
                     @Setup
                     public void setup()
@@ -432,104 +638,103 @@ public abstract class PythonTextTransformer implements Serializable {
                       String runtimeVersion = getPythonVersion();
 
                       if (fileSystemPath() != null && functionName() != null) {
-                        LOG.info("getting runtime!");
-                        pythonRuntime =
-                            getPythonRuntime(fileSystemPath(), functionName(), runtimeVersion);
-                        LOG.info("Build Python Env for version {}", runtimeVersion);
-
-                        pythonRuntime.buildPythonExecutable(runtimeVersion);
+                        LOG.info("Starting Python worker for version {}", runtimeVersion);
+                        pythonWorker =
+                            getPythonRuntime(
+                                    fileSystemPath(),
+                                    functionName(),
+                                    runtimeVersion,
+                                    runtimeRetries())
+                                .startWorker(getMaxInFlightRequests());
                       } else {
                         LOG.warn(
                             "Not setting up a Python Mapper runtime, because "
                                 + "fileSystemPath={} and functionName={}",
                             fileSystemPath(),
                             functionName());
-                        return;
                       }
                     }
 
                     @StartBundle
-                    public void startBundle(StartBundleContext context) throws IOException {
-                      batchCounter = 0;
-                      batchLimit = 1000;
-                      processUUID = UUID.randomUUID().toString();
-                      manifestFile =
-                          File.createTempFile(String.format("manifest_%s", processUUID), null);
-                      futures = new HashMap<String, FailsafeElement<T, String>>();
-                      dataWriter =
-                          new BufferedWriter(new FileWriter(manifestFile.getAbsolutePath()));
-                      LOG.info("file is at {}", manifestFile.getAbsolutePath());
-
-                      // initialize a temp file (non local) and a counter
-                      // TODO: createFile function
-
+                    public void startBundle() {
+                      pendingElements = new HashMap<>();
                     }
 
                     @ProcessElement
                     public void processElement(ProcessContext context, BoundedWindow window)
-                        throws IOException {
-                      this.window = window;
+                        throws IOException, InterruptedException {
                       FailsafeElement<T, String> element = context.element();
-                      String payloadStr = element.getPayload();
+                      if (pythonWorker == null) {
+                        context.output(element);
+                        return;
+                      }
                       String eventId = UUID.randomUUID().toString();
-                      JSONObject originalPayload = new JSONObject(payloadStr);
                       JSONObject json = new JSONObject();
-                      json.put("id", eventId);
-                      json.put("event", originalPayload);
-                      String wrappedPayload = json.toString();
-                      futures.put(eventId, element);
-                      // TODO: add a counter of sum of total bytes
-                      // 1) add event and increase counter
-                      // 2) if counter > X process all of the rows
-
-                      dataWriter.write(wrappedPayload);
-                      dataWriter.newLine();
-                      dataWriter.flush();
-                      batchCounter++;
+                      try {
+                        json.put("id", eventId);
+                        json.put("event", new JSONObject(element.getPayload()));
+                      } catch (JSONException e) {
+                        context.output(
+                            failureTag(),
+                            FailsafeElement.of(element.getOriginalPayload(), element.getPayload())
+                                .setErrorMessage(e.getMessage())
+                                .setStacktrace(Throwables.getStackTraceAsString(e)));
+                        failedCounter.inc();
+                        return;
+                      }
+                      pendingElements.put(
+                          eventId, new PendingElement<>(element, context.timestamp(), window));
+                      pythonWorker.submit(eventId, json.toString());
                     }
 
-                    // TODO: create an execute batch fn
-
                     @FinishBundle
                     public void finishBundle(FinishBundleContext context)
-                        throws IOException, NoSuchMethodException, InterruptedException {
-                      LOG.info("closing batch at {} events", batchCounter);
-                      Integer retries = runtimeRetries();
-                      List<String> results = new ArrayList<>();
-                      LOG.info("executing the batch!!!");
-                      results = pythonRuntime.invoke(manifestFile, retries);
-                      LOG.info("processed {} number of records", results.size());
-                      for (int iter = 0; iter < results.size(); iter++) {
-                        String event = results.get(iter);
-                        JSONObject json = new JSONObject(event);
-                        String eventId = json.getString("id");
-                        FailsafeElement<T, String> originalEvent = futures.get(eventId);
-
-                        // FIX THIS
-                        if (json.getString("status").equals("SUCCESS")) {
-                          String transformedEvent = json.getJSONObject("event").toString();
-                          context.output(
-                              FailsafeElement.of(
-                                  originalEvent.getOriginalPayload(),
-                                  json.getJSONObject("event").toString()),
-                              window.maxTimestamp(),
-                              window);
+                        throws IOException, InterruptedException {
+                      if (pythonWorker == null) {
+                        return;
+                      }
+                      List<JSONObject> results = pythonWorker.awaitResponses();
+                      LOG.debug("processed {} number of records", results.size());
+                      for (JSONObject result : results) {
+                        PendingElement<T> pending = pendingElements.remove(result.getString("id"));
+                        if (pending == null) {
+                          LOG.warn(
+                              "Dropping response for unknown event {}", result.getString("id"));
+                          continue;
+                        }
+                        FailsafeElement<T, String> originalEvent = pending.element;
+                        if ("SUCCESS".equals(result.getString("status"))) {
+                          JSONArray events = result.getJSONArray("events");
+                          for (int i = 0; i < events.length(); i++) {
+                            context.output(
+                                FailsafeElement.of(
+                                    originalEvent.getOriginalPayload(), events.get(i).toString()),
+                                pending.timestamp,
+                                pending.window);
+                          }
                           successCounter.inc();
-                        } else if (json.getString("status").equals("FAILED")) {
-                          context.output(
-                              originalEvent
-                                  .setErrorMessage(json.getString("error_message"))
-                                  .setStacktrace(json.getString("error_message")),
-                              window.maxTimestamp(),
-                              window);
                         } else {
-                          LOG.info("Failed to emit an event");
-                          LOG.info("event status was {}", json.getString("status"));
+                          String errorMessage = result.optString("error_message");
+                          context.output(
+                              failureTag(),
+                              FailsafeElement.of(
+                                      originalEvent.getOriginalPayload(),
+                                      originalEvent.getPayload())
+                                  .setErrorMessage(errorMessage)
+                                  .setStacktrace(errorMessage),
+                              pending.timestamp,
+                              pending.window);
+                          failedCounter.inc();
                         }
                       }
-                      futures.clear();
-                      dataWriter.close();
-                      manifestFile.delete();
+                      pendingElements.clear();
+                    }
+
+                    @Teardown
+                    public void teardown() {
+                      if (pythonWorker != null) {
+                        pythonWorker.close();
+                      }
                     }
                   })
               .withOutputTags(successTag(), TupleTagList.of(failureTag())));
@@ -543,10 +748,15 @@ public abstract class PythonTextTransformer implements Serializable {
    *
    * @param fileSystemPath The file path to the JavaScript file to execute.
    * @param functionName The function name which will be invoked within the JavaScript script.
+   * @param pythonVersion The python executable to run the script with.
+   * @param runtimeRetries The number of times a crashed worker is restarted.
    * @return The {@link PythonRuntime} instance.
    */
   private static PythonRuntime getPythonRuntime(
-      String fileSystemPath, String functionName, String pythonVersion) {
+      String fileSystemPath,
+      String functionName,
+      String pythonVersion,
+      @Nullable Integer runtimeRetries) {
     PythonRuntime runtime = null;
 
     if (!Strings.isNullOrEmpty(fileSystemPath) && !Strings.isNullOrEmpty(functionName)) {
@@ -555,6 +765,7 @@ public abstract class PythonTextTransformer implements Serializable {
               .setFunctionName(functionName)
               .setRuntimeVersion(pythonVersion)
               .setFileSystemPath(fileSystemPath)
+              .setRuntimeRetries(runtimeRetries)
               .build();
     }
 
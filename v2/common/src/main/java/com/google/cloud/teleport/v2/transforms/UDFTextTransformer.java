@@ -87,6 +87,7 @@ public class UDFTextTransformer {
     public String javascriptTransformPath;
     public String javascriptTransformFnName;
     public Integer javascriptTransformReloadInterval;
+    public Integer javascriptTransformBatchSize;
     public String pythonTransformPath;
     public String pythonTransformFnName;
     public Integer pythonTransformRetries;
@@ -106,9 +107,35 @@ public class UDFTextTransformer {
         String pythonTransformFnName,
         Integer pythonTransformRetries,
         FailsafeElementCoder<InputT, String> coder) {
+      this(
+          javascriptTransformPath,
+          javascriptTransformFnName,
+          javascriptTransformReloadInterval,
+          null,
+          pythonTransformPath,
+          pythonTransformFnName,
+          pythonTransformRetries,
+          coder);
+    }
+
+    /**
+     * Same as {@link #InputUDFToTableRow(String, String, Integer, String, String, Integer,
+     * FailsafeElementCoder)}, additionally invoking the JavaScript UDF on batches of {@code
+     * javascriptTransformBatchSize} elements.
+     */
+    public InputUDFToTableRow(
+        String javascriptTransformPath,
+        String javascriptTransformFnName,
+        Integer javascriptTransformReloadInterval,
+        Integer javascriptTransformBatchSize,
+        String pythonTransformPath,
+        String pythonTransformFnName,
+        Integer pythonTransformRetries,
+        FailsafeElementCoder<InputT, String> coder) {
       this.javascriptTransformPath = javascriptTransformPath;
       this.javascriptTransformFnName = javascriptTransformFnName;
       this.javascriptTransformReloadInterval = javascriptTransformReloadInterval;
+      this.javascriptTransformBatchSize = javascriptTransformBatchSize;
       this.pythonTransformPath = pythonTransformPath;
       this.pythonTransformFnName = pythonTransformFnName;
       this.pythonTransformRetries = pythonTransformRetries;
@@ -139,6 +166,7 @@ public class UDFTextTransformer {
                     .setFileSystemPath(this.javascriptTransformPath)
                     .setFunctionName(this.javascriptTransformFnName)
                     .setReloadIntervalMinutes(this.javascriptTransformReloadInterval)
+                    .setBatchSize(this.javascriptTransformBatchSize)
                     .setSuccessTag(udfTempOut)
                     .setFailureTag(udfDeadletterOut)
                     .build());
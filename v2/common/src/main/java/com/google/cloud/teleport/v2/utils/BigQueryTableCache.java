@@ -33,8 +33,8 @@ import org.slf4j.LoggerFactory;
  * local cache for each worker thread.
  *
  * <p>The key factors addressed are ensuring expiration of cached tables, consistent update behavior
- * to ensure reliability, and easy cache reloads. Open Question: Does the class require thread-safe
- * behaviors? Currently, it does not since there is no iteration and get/set are not continuous.
+ * to ensure reliability, and easy cache reloads. Lookups are thread-safe and only the creation of
+ * missing tables is serialized.
  */
 public class BigQueryTableCache extends MappedObjectCache<TableId, Table> {
 
@@ -65,11 +65,12 @@ public class BigQueryTableCache extends MappedObjectCache<TableId, Table> {
    * @param dayPartitioning is a Boolean which informs if day time partitioning should be enabled.
    */
   public Table getOrCreateBigQueryTable(TableId tableId, Boolean dayPartitioning) {
-    Table table = this.cachedObjects.getIfPresent(tableId);
+    Table table = this.get(tableId);
     if (table != null) {
       return table;
     }
 
+    // Only table creation is serialized, lookups of existing tables never wait for it.
     synchronized (this) {
       table = this.reset(tableId, table);
       if (table != null) {
@@ -89,6 +90,7 @@ public class BigQueryTableCache extends MappedObjectCache<TableId, Table> {
       LOG.info("Creating BQ Table {} with  schema {}", tableId, schema);
       TableInfo tableInfo = TableInfo.newBuilder(tableId, tableDefinitionBuilder.build()).build();
       table = bigquery.create(tableInfo);
+      this.cachedObjects.put(tableId, table);
     }
 
     return table;
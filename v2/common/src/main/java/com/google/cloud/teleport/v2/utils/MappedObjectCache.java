@@ -15,10 +15,27 @@
  */
 package com.google.cloud.teleport.v2.utils;
 
-import com.google.common.cache.Cache;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.io.Serializable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,24 +43,51 @@ import org.slf4j.LoggerFactory;
  * The {@link MappedObjectCache} allows you to easily create a Map&lt;Key,Value&gt; cache where each
  * element expires and is re-acquired on a configurable basis.
  *
- * <p>The key factors addressed are ensuring expiration of cached objects, consistent update
- * behavior to ensure reliability, and easy cache reloads. Open Question: Does the class require
- * thread-safe behaviors? Currently, it does not since there is no iteration and get/set are not
- * continuous.
+ * <p>The cache is thread-safe without a global lock. Every key is loaded at most once at a time:
+ * threads requesting a key which is being loaded wait for that load, while requests for other keys
+ * are never blocked. Once three quarters of the cache life of an element have passed, the next
+ * request reloads it in the background and keeps being served the current value until the reload
+ * completes, so hot keys are never reloaded on the request path.
+ *
+ * <p>Cache hits, misses and the latency of every load are reported as Beam metrics in the namespace
+ * of the concrete cache class.
  */
 public abstract class MappedObjectCache<KeyT, ValueT> implements Serializable {
 
   private static final Logger LOG = LoggerFactory.getLogger(MappedObjectCache.class);
 
-  public Cache<KeyT, ValueT> cachedObjects =
-      CacheBuilder.newBuilder().expireAfterWrite(5, TimeUnit.MINUTES).<KeyT, ValueT>build();
-  private int maxNumRetries = 0;
+  private static final long DEFAULT_CACHE_RESET_MINUTES = 5;
+  // elements are refreshed once this fraction of their cache life has passed
+  private static final double REFRESH_AHEAD_FRACTION = 0.75;
+
+  private static final Executor REFRESH_EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("mapped-object-cache-refresh-%d")
+              .build());
+
+  // marks loads running on the requesting thread, to tell cache misses from hits
+  private static final ThreadLocal<Boolean> LOADED_ON_REQUEST = new ThreadLocal<>();
 
-  // private Integer cacheResetTimeUnitValue = 5;
-  // private TimeUnit cacheResetTimeUnit = TimeUnit.MINUTES;
+  private final Counter cacheHits = Metrics.counter(getClass(), "cacheHits");
+  private final Counter cacheMisses = Metrics.counter(getClass(), "cacheMisses");
+  private final Distribution loadLatencyMs = Metrics.distribution(getClass(), "cacheLoadLatencyMs");
+
+  // latencies of background refreshes, reported from the next requesting thread since Beam metrics
+  // can only be updated from the threads processing elements
+  private final Queue<Long> refreshLatenciesMs = new ConcurrentLinkedQueue<>();
+
+  public LoadingCache<KeyT, ValueT> cachedObjects;
+  private int maxNumRetries = 0;
+  private long cacheResetNanos;
+  private Ticker ticker = Ticker.systemTicker();
 
   /** Create an instance of a {@link MappedObjectCache} to track table schemas. */
-  public MappedObjectCache() {}
+  public MappedObjectCache() {
+    this.cacheResetNanos = TimeUnit.MINUTES.toNanos(DEFAULT_CACHE_RESET_MINUTES);
+    this.cachedObjects = buildCache();
+  }
 
   /**
    * Set the cache life for the {@code MappedObjectCache} instance.
@@ -51,8 +95,8 @@ public abstract class MappedObjectCache<KeyT, ValueT> implements Serializable {
    * @param value The number of minutes before reseting a cached value.
    */
   public MappedObjectCache withCacheResetTimeUnitValue(Integer value) {
-    this.cachedObjects =
-        CacheBuilder.newBuilder().expireAfterWrite(value, TimeUnit.MINUTES).<KeyT, ValueT>build();
+    this.cacheResetNanos = TimeUnit.MINUTES.toNanos(value);
+    this.cachedObjects = buildCache();
 
     return this;
   }
@@ -69,18 +113,75 @@ public abstract class MappedObjectCache<KeyT, ValueT> implements Serializable {
     return this;
   }
 
+  /** Set the cache life in nanoseconds and the ticker measuring it, for tests. */
+  @VisibleForTesting
+  MappedObjectCache withCacheLife(long nanos, Ticker ticker) {
+    this.cacheResetNanos = nanos;
+    this.ticker = ticker;
+    this.cachedObjects = buildCache();
+
+    return this;
+  }
+
+  private LoadingCache<KeyT, ValueT> buildCache() {
+    CacheLoader<KeyT, ValueT> loader =
+        new CacheLoader<KeyT, ValueT>() {
+          @Override
+          public ValueT load(KeyT key) {
+            LOADED_ON_REQUEST.set(Boolean.TRUE);
+            long startNanos = System.nanoTime();
+            try {
+              return getObjectValueWithRetries(key, maxNumRetries);
+            } finally {
+              loadLatencyMs.update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            }
+          }
+
+          @Override
+          public ListenableFuture<ValueT> reload(KeyT key, ValueT oldValue) {
+            ListenableFutureTask<ValueT> task =
+                ListenableFutureTask.create(
+                    () -> {
+                      long startNanos = System.nanoTime();
+                      try {
+                        ValueT value = getObjectValueWithRetries(key, maxNumRetries);
+                        // keep serving the current value when the object cannot be found anymore
+                        return value != null ? value : oldValue;
+                      } finally {
+                        refreshLatenciesMs.add(
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                      }
+                    });
+            REFRESH_EXECUTOR.execute(task);
+            return task;
+          }
+        };
+
+    return CacheBuilder.newBuilder()
+        .ticker(ticker)
+        .refreshAfterWrite((long) (cacheResetNanos * REFRESH_AHEAD_FRACTION), TimeUnit.NANOSECONDS)
+        .expireAfterWrite(cacheResetNanos, TimeUnit.NANOSECONDS)
+        .build(loader);
+  }
+
   /**
    * Return a {@code ValueT} representing the value requested to be stored.
    *
    * @param key A key used to lookup the value in the set.
    */
   public ValueT get(KeyT key) {
-    // Reset cache if the object DNE in the map.
-    ValueT value = cachedObjects.getIfPresent(key);
-    if (value == null) {
-      return this.reset(key, false, null);
+    reportRefreshLatencies();
+    LOADED_ON_REQUEST.remove();
+    try {
+      return load(key);
+    } finally {
+      if (LOADED_ON_REQUEST.get() != null) {
+        cacheMisses.inc();
+        LOADED_ON_REQUEST.remove();
+      } else {
+        cacheHits.inc();
+      }
     }
-    return value;
   }
 
   public abstract ValueT getObjectValue(KeyT key);
@@ -109,42 +210,53 @@ public abstract class MappedObjectCache<KeyT, ValueT> implements Serializable {
    * @param key a key used to lookup the value in the set.
    */
   public ValueT reset(KeyT key) {
-    return this.reset(key, true, null);
+    cachedObjects.invalidate(key);
+    return this.get(key);
   }
 
   /**
    * Returns a {@code ValueT} extracted from abstract getObjectValue(key) and sets the value in the
    * local cache.
    *
+   * <p>Only the first of several threads resetting the same {@code currentValue} reloads it, the
+   * others are served the reloaded value.
+   *
    * @param key a key used to lookup the value in the set.
    * @param currentValue is the current ValueT which a thread is using and if the stored value is
    *     already different than supply that.
    */
   public ValueT reset(KeyT key, ValueT currentValue) {
-    return this.reset(key, false, currentValue);
+    if (currentValue != null) {
+      cachedObjects.asMap().remove(key, currentValue);
+    }
+    return this.get(key);
   }
 
   /**
-   * Returns a {@code ValueT} extracted from abstract getObjectValue(key) and sets the value in the
-   * local cache.
-   *
-   * @param key a key used to lookup the value in the set.
-   * @param force a boolean which tells the cache to ignore existing cache values.
-   * @param currentValue is the current ValueT which a thread is using and if the stored value is
-   *     already different than supply that.
+   * Returns the cached value of {@code key}, loading it if needed, or null if it does not exist.
    */
-  private synchronized ValueT reset(KeyT key, Boolean force, ValueT currentValue) {
-    ValueT value;
-    if (!force) {
-      value = cachedObjects.getIfPresent(key);
-      if (value != null && value != currentValue) {
-        return value;
+  private ValueT load(KeyT key) {
+    try {
+      return cachedObjects.get(key);
+    } catch (InvalidCacheLoadException e) {
+      // getObjectValue returned null, which is not cached
+      return null;
+    } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
       }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
     }
-    value = getObjectValueWithRetries(key, this.maxNumRetries);
-    if (value != null) {
-      cachedObjects.put(key, value);
+  }
+
+  private void reportRefreshLatencies() {
+    Long latencyMs;
+    while ((latencyMs = refreshLatenciesMs.poll()) != null) {
+      loadLatencyMs.update(latencyMs);
     }
-    return value;
   }
 }
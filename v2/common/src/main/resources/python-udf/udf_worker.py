@@ -0,0 +1,93 @@
+"""
+Copyright (C) 2024 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License"); you may not
+use this file except in compliance with the License. You may obtain a copy of
+the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+License for the specific language governing permissions and limitations under
+the License.
+"""
+
+"""
+Long-lived worker used by PythonTextTransformer to run a Python UDF.
+
+Usage: udf_worker.py <udf file> <function name>
+
+Requests and responses are exchanged over stdin/stdout as frames made of a
+4-byte big-endian length followed by that many bytes of UTF-8 JSON.
+
+Request:  {"id": <string>, "event": <object>}
+Response: {"id": <string>, "status": "SUCCESS" | "FAILED",
+           "events": [<object>, ...], "error_message": <string or null>}
+
+A UDF returning a list produces one output event per item, returning None
+discards the event.
+"""
+import importlib.util
+import json
+import struct
+import sys
+import traceback
+
+_HEADER = struct.Struct('>I')
+
+
+def _load_function(udf_path, function_name):
+  spec = importlib.util.spec_from_file_location('udf', udf_path)
+  module = importlib.util.module_from_spec(spec)
+  spec.loader.exec_module(module)
+  return getattr(module, function_name)
+
+
+def _read_exactly(stream, length):
+  data = stream.read(length)
+  if data is None or len(data) < length:
+    return None
+  return data
+
+
+def _handle(function, request):
+  try:
+    result = function(request['event'])
+    if result is None:
+      events = []
+    elif isinstance(result, list):
+      events = result
+    else:
+      events = [result]
+    return {'id': request['id'], 'status': 'SUCCESS', 'events': events,
+            'error_message': None}
+  except Exception:
+    return {'id': request['id'], 'status': 'FAILED', 'events': [],
+            'error_message': traceback.format_exc()}
+
+
+def main():
+  udf_path, function_name = sys.argv[1], sys.argv[2]
+  requests = sys.stdin.buffer
+  responses = sys.stdout.buffer
+  # Anything the UDF prints would corrupt the framing, send it to stderr.
+  sys.stdout = sys.stderr
+  function = _load_function(udf_path, function_name)
+
+  while True:
+    header = _read_exactly(requests, _HEADER.size)
+    if header is None:
+      return
+    payload = _read_exactly(requests, _HEADER.unpack(header)[0])
+    if payload is None:
+      return
+    response = json.dumps(_handle(function, json.loads(payload))).encode('utf-8')
+    responses.write(_HEADER.pack(len(response)))
+    responses.write(response)
+    responses.flush()
+
+
+if __name__ == '__main__':
+  main()
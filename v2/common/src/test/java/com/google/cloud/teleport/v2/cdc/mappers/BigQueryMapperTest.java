@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.cdc.mappers;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.api.services.bigquery.model.TableRow;
+import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.teleport.v2.cdc.mappers.BigQueryMapper.RowShapeMemo;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BigQueryMapper}. */
+@RunWith(JUnit4.class)
+public class BigQueryMapperTest {
+
+  private static final TableId TABLE = TableId.of("project", "dataset", "table");
+  private static final TableId OTHER_TABLE = TableId.of("project", "dataset", "other");
+
+  @Test
+  public void testRowShapeMemoMatchesKeySetsInAnyOrder() {
+    RowShapeMemo memo = new RowShapeMemo();
+    Table table = mock(Table.class);
+    TableRow row = new TableRow().set("id", 1).set("name", "a").set("updated", 2);
+
+    assertThat(memo.contains(TABLE, table, row.keySet())).isFalse();
+    memo.add(TABLE, table, row.keySet());
+
+    assertThat(
+            memo.contains(
+                TABLE,
+                table,
+                new TableRow().set("updated", 3).set("id", 4).set("name", "b").keySet()))
+        .isTrue();
+    assertThat(memo.contains(OTHER_TABLE, table, row.keySet())).isFalse();
+    assertThat(memo.contains(TABLE, table, ImmutableSet.of("id", "name"))).isFalse();
+    assertThat(memo.contains(TABLE, table, ImmutableSet.of("id", "name", "updated", "new_column")))
+        .isFalse();
+  }
+
+  @Test
+  public void testRowShapeMemoIsBoundedPerTable() {
+    RowShapeMemo memo = new RowShapeMemo();
+    Table table = mock(Table.class);
+    for (int i = 0; i < RowShapeMemo.MAX_SHAPES_PER_TABLE; i++) {
+      memo.add(TABLE, table, ImmutableSet.of("id", "column_" + i));
+    }
+    assertThat(memo.contains(TABLE, table, ImmutableSet.of("id", "column_0"))).isTrue();
+
+    memo.add(TABLE, table, ImmutableSet.of("id", "column_overflow"));
+
+    assertThat(memo.contains(TABLE, table, ImmutableSet.of("id", "column_0"))).isFalse();
+    assertThat(memo.contains(TABLE, table, ImmutableSet.of("id", "column_overflow"))).isTrue();
+  }
+
+  @Test
+  public void testRowShapeMemoForgetsShapesOfReloadedTables() {
+    RowShapeMemo memo = new RowShapeMemo();
+    Table table = mock(Table.class);
+    Table reloadedTable = mock(Table.class);
+    memo.add(TABLE, table, ImmutableSet.of("id", "name"));
+
+    assertThat(memo.contains(TABLE, reloadedTable, ImmutableSet.of("id", "name"))).isFalse();
+
+    memo.add(TABLE, reloadedTable, ImmutableSet.of("id"));
+
+    assertThat(memo.contains(TABLE, reloadedTable, ImmutableSet.of("id"))).isTrue();
+    assertThat(memo.contains(TABLE, reloadedTable, ImmutableSet.of("id", "name"))).isFalse();
+    assertThat(memo.contains(TABLE, table, ImmutableSet.of("id"))).isFalse();
+  }
+
+  @Test
+  public void testFingerprintIgnoresKeyOrder() {
+    assertThat(RowShapeMemo.fingerprint(ImmutableSet.of("a", "b", "c")))
+        .isEqualTo(RowShapeMemo.fingerprint(ImmutableSet.of("c", "a", "b")));
+    assertThat(RowShapeMemo.fingerprint(ImmutableSet.of("a", "b")))
+        .isNotEqualTo(RowShapeMemo.fingerprint(ImmutableSet.of("a", "b", "c")));
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.coders;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.coders.Coder.NonDeterministicException;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.SerializableUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the {@link FingerprintGenericRecordCoder} class. */
+@RunWith(JUnit4.class)
+public class FingerprintGenericRecordCoderTest {
+
+  private static final Schema KNOWN_SCHEMA =
+      SchemaBuilder.record("known").fields().requiredLong("id").optionalString("name").endRecord();
+
+  private static final Schema OTHER_SCHEMA =
+      SchemaBuilder.record("other").fields().requiredInt("count").endRecord();
+
+  private static GenericRecord knownRecord() {
+    GenericRecord record = new GenericData.Record(KNOWN_SCHEMA);
+    record.put("id", 42L);
+    record.put("name", "agent");
+    return record;
+  }
+
+  private static GenericRecord otherRecord() {
+    GenericRecord record = new GenericData.Record(OTHER_SCHEMA);
+    record.put("count", 7);
+    return record;
+  }
+
+  @Test
+  public void testRoundTripKnownSchema() throws Exception {
+    CoderProperties.coderDecodeEncodeEqual(
+        FingerprintGenericRecordCoder.of(KNOWN_SCHEMA), knownRecord());
+  }
+
+  @Test
+  public void testRoundTripSeveralKnownSchemas() throws Exception {
+    FingerprintGenericRecordCoder coder =
+        FingerprintGenericRecordCoder.of(KNOWN_SCHEMA, OTHER_SCHEMA);
+
+    CoderProperties.coderDecodeEncodeEqual(coder, knownRecord());
+    CoderProperties.coderDecodeEncodeEqual(coder, otherRecord());
+  }
+
+  @Test
+  public void testEncodeUnknownSchemaFails() {
+    assertThrows(
+        CoderException.class,
+        () ->
+            CoderUtils.encodeToByteArray(
+                FingerprintGenericRecordCoder.of(KNOWN_SCHEMA), otherRecord()));
+  }
+
+  @Test
+  public void testKnownSchemaIsNotEncoded() throws Exception {
+    byte[] fingerprinted =
+        CoderUtils.encodeToByteArray(FingerprintGenericRecordCoder.of(KNOWN_SCHEMA), knownRecord());
+    byte[] inline = CoderUtils.encodeToByteArray(GenericRecordCoder.of(), knownRecord());
+
+    assertThat(new String(fingerprinted)).doesNotContain(KNOWN_SCHEMA.getName());
+    assertThat(fingerprinted.length).isLessThan(inline.length);
+  }
+
+  @Test
+  public void testDecodeWithDeserializedCoder() throws Exception {
+    FingerprintGenericRecordCoder coder = FingerprintGenericRecordCoder.of(KNOWN_SCHEMA);
+    byte[] encoded = CoderUtils.encodeToByteArray(coder, knownRecord());
+
+    FingerprintGenericRecordCoder clone = SerializableUtils.clone(coder);
+
+    assertThat(clone).isEqualTo(coder);
+    assertThat(CoderUtils.decodeFromByteArray(clone, encoded)).isEqualTo(knownRecord());
+  }
+
+  @Test
+  public void testDecodeUnknownFingerprintFails() throws Exception {
+    byte[] encoded =
+        CoderUtils.encodeToByteArray(FingerprintGenericRecordCoder.of(OTHER_SCHEMA), otherRecord());
+
+    assertThrows(
+        CoderException.class,
+        () -> CoderUtils.decodeFromByteArray(FingerprintGenericRecordCoder.of(), encoded));
+  }
+
+  @Test
+  public void testCoderIsDeterministicWithoutMaps() throws Exception {
+    CoderProperties.coderDeterministic(
+        FingerprintGenericRecordCoder.of(KNOWN_SCHEMA, OTHER_SCHEMA), knownRecord(), knownRecord());
+  }
+
+  @Test
+  public void testCoderIsNotDeterministicWithMaps() {
+    Schema withMap =
+        SchemaBuilder.record("withMap")
+            .fields()
+            .name("tags")
+            .type()
+            .map()
+            .values()
+            .stringType()
+            .noDefault()
+            .endRecord();
+
+    assertThrows(
+        NonDeterministicException.class,
+        () -> FingerprintGenericRecordCoder.of(KNOWN_SCHEMA, withMap).verifyDeterministic());
+  }
+
+  @Test
+  public void testFingerprintDistinguishesLogicalTypes() {
+    Schema plain = SchemaBuilder.record("ts").fields().requiredLong("value").endRecord();
+    Schema withLogicalType =
+        new Schema.Parser()
+            .parse(
+                "{\"type\":\"record\",\"name\":\"ts\",\"fields\":[{\"name\":\"value\",\"type\":"
+                    + "{\"type\":\"long\",\"logicalType\":\"timestamp-micros\"}}]}");
+
+    assertThat(FingerprintGenericRecordCoder.fingerprint(plain))
+        .isNotEqualTo(FingerprintGenericRecordCoder.fingerprint(withLogicalType));
+  }
+}
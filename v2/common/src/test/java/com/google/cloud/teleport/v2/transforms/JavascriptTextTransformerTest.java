@@ -23,9 +23,11 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
 import com.google.cloud.teleport.v2.coders.FailsafeElementCoder;
+import com.google.cloud.teleport.v2.transforms.JavascriptTextTransformer.BatchResult;
 import com.google.cloud.teleport.v2.transforms.JavascriptTextTransformer.FailsafeJavascriptUdf;
 import com.google.cloud.teleport.v2.transforms.JavascriptTextTransformer.JavascriptRuntime;
 import com.google.cloud.teleport.v2.transforms.JavascriptTextTransformer.TransformTextViaJavascript;
@@ -33,10 +35,15 @@ import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.script.Invocable;
 import org.apache.beam.sdk.coders.CoderRegistry;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.io.gcp.pubsub.PubsubMessage;
@@ -45,9 +52,11 @@ import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.MapElements;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TypeDescriptors;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -71,10 +80,18 @@ public class JavascriptTextTransformerTest {
   private static final TupleTag<FailsafeElement<PubsubMessage, String>> FAILURE_TAG =
       new TupleTag<FailsafeElement<PubsubMessage, String>>() {};
 
+  private static final TupleTag<FailsafeElement<String, String>> STRING_SUCCESS_TAG =
+      new TupleTag<FailsafeElement<String, String>>() {};
+
+  private static final TupleTag<FailsafeElement<String, String>> STRING_FAILURE_TAG =
+      new TupleTag<FailsafeElement<String, String>>() {};
+
   private static final String RESOURCES_DIR = "JavascriptTextTransformerTest/";
 
   private static final String TRANSFORM_FILE_PATH =
       Resources.getResource(RESOURCES_DIR + "transform.js").getPath();
+  private static final String BATCH_TRANSFORM_FILE_PATH =
+      Resources.getResource(RESOURCES_DIR + "batch_transform.js").getPath();
   private static final String ES6_TRANSFORM_FILE_PATH =
       Resources.getResource(RESOURCES_DIR + "es6_transform.js").getPath();
   private static final String SCRIPT_PARSE_EXCEPTION_FILE_PATH =
@@ -126,6 +143,43 @@ public class JavascriptTextTransformerTest {
     assertEquals("{\"answerToLife\":42,\"someProp\":\"someValue\"}", data);
   }
 
+  /**
+   * Test {@link JavascriptRuntime#invoke(String)} returns transformed data when called from many
+   * threads at once, each borrowing its own engine from the pool, while the engine returned by
+   * {@link JavascriptRuntime#getInvocable} is in use.
+   */
+  @Test
+  public void testInvokeConcurrently() throws Exception {
+    JavascriptRuntime javascriptRuntime =
+        JavascriptRuntime.newBuilder()
+            .setFileSystemPath(TRANSFORM_FILE_PATH)
+            .setFunctionName("transform")
+            .setReloadIntervalMinutes(0)
+            .build();
+    Invocable invocable = javascriptRuntime.getInvocable();
+    assertSame(invocable, javascriptRuntime.getInvocable());
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        String input = String.format("{\"answerToLife\":%d}", i);
+        results.add(executor.submit(() -> javascriptRuntime.invoke(input)));
+      }
+      for (int i = 0; i < 200; i++) {
+        assertEquals(
+            String.format("{\"answerToLife\":%d,\"someProp\":\"someValue\"}", -i),
+            invocable.invokeFunction("transform", String.format("{\"answerToLife\":%d}", -i)));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals(
+            String.format("{\"answerToLife\":%d,\"someProp\":\"someValue\"}", i),
+            results.get(i).get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Test {@link JavascriptRuntime#invoke(String)} returns transformed data when an ES6 javascript
    * transform function is given.
@@ -334,6 +388,128 @@ public class JavascriptTextTransformerTest {
     pipeline.run();
   }
 
+  /**
+   * Test {@link JavascriptRuntime#invokeBatch(List)} maps every entry of the returned array to its
+   * element.
+   */
+  @Test
+  public void testInvokeBatch() throws Exception {
+    JavascriptRuntime javascriptRuntime =
+        JavascriptRuntime.newBuilder()
+            .setFileSystemPath(BATCH_TRANSFORM_FILE_PATH)
+            .setFunctionName("transformBatch")
+            .setReloadIntervalMinutes(0)
+            .build();
+
+    List<BatchResult> results =
+        javascriptRuntime.invokeBatch(
+            Arrays.asList("{\"answerToLife\":42}", "{\"fail\":true}", "{\"drop\":true}"));
+
+    assertEquals(3, results.size());
+    assertEquals("{\"answerToLife\":42,\"someProp\":\"someValue\"}", results.get(0).output());
+    assertThat(results.get(1).isFailure(), is(true));
+    assertEquals("failing on purpose", results.get(1).errorMessage());
+    assertThat(results.get(2).isFailure(), is(false));
+    assertNull(results.get(2).output());
+  }
+
+  /**
+   * Test {@link JavascriptRuntime#invokeBatch(List)} does not add any name to the global scope of
+   * the UDF.
+   */
+  @Test
+  public void testInvokeBatchKeepsUdfScope() throws Exception {
+    JavascriptRuntime javascriptRuntime =
+        JavascriptRuntime.newBuilder()
+            .setFileSystemPath(BATCH_TRANSFORM_FILE_PATH)
+            .setFunctionName("globalNames")
+            .setReloadIntervalMinutes(0)
+            .build();
+
+    List<BatchResult> results = javascriptRuntime.invokeBatch(Arrays.asList("{}"));
+
+    assertEquals("globalNames,transformBatch", results.get(0).output());
+  }
+
+  /** Test {@link TransformTextViaJavascript} transforms data through a batch UDF. */
+  @Test
+  @Category(NeedsRunner.class)
+  public void testDoFnBatch() {
+    PCollection<String> transformedJson =
+        pipeline
+            .apply(
+                "Create",
+                Create.of(
+                    Arrays.asList(
+                        "{\"answerToLife\":42}", "{\"drop\":true}", "{\"answerToLife\":43}")))
+            .apply(
+                TransformTextViaJavascript.newBuilder()
+                    .setFileSystemPath(BATCH_TRANSFORM_FILE_PATH)
+                    .setFunctionName("transformBatch")
+                    .setBatchSize(2)
+                    .build());
+
+    PAssert.that(transformedJson)
+        .containsInAnyOrder(
+            "{\"answerToLife\":42,\"someProp\":\"someValue\"}",
+            "{\"answerToLife\":43,\"someProp\":\"someValue\"}");
+
+    pipeline.run();
+  }
+
+  /**
+   * Tests the {@link FailsafeJavascriptUdf} with batching enabled, where one element fails within
+   * the UDF and another breaks the whole batch call.
+   */
+  @Test
+  @Category(NeedsRunner.class)
+  public void testFailsafeJavaScriptUdfBatch() {
+    FailsafeElementCoder<String, String> coder =
+        FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of());
+    List<FailsafeElement<String, String>> inputs =
+        Arrays.asList(
+            FailsafeElement.of("{\"id\":1}", "{\"id\":1}"),
+            FailsafeElement.of("{\"id\":2}", "{\"id\":2}"),
+            FailsafeElement.of("{\"fail\":true}", "{\"fail\":true}"),
+            FailsafeElement.of("{\"drop\":true}", "{\"drop\":true}"),
+            FailsafeElement.of("not json", "not json"));
+
+    PCollectionTuple output =
+        pipeline
+            .apply("CreateInput", Create.of(inputs).withCoder(coder))
+            .apply(
+                "InvokeUdf",
+                FailsafeJavascriptUdf.<String>newBuilder()
+                    .setFileSystemPath(BATCH_TRANSFORM_FILE_PATH)
+                    .setFunctionName("transformBatch")
+                    .setReloadIntervalMinutes(0)
+                    .setBatchSize(10)
+                    .setSuccessTag(STRING_SUCCESS_TAG)
+                    .setFailureTag(STRING_FAILURE_TAG)
+                    .build());
+    output.get(STRING_SUCCESS_TAG).setCoder(coder);
+    output.get(STRING_FAILURE_TAG).setCoder(coder);
+
+    PAssert.that(
+            output
+                .get(STRING_SUCCESS_TAG)
+                .apply(
+                    "SuccessPayloads",
+                    MapElements.into(TypeDescriptors.strings()).via(FailsafeElement::getPayload)))
+        .containsInAnyOrder(
+            "{\"id\":1,\"someProp\":\"someValue\"}", "{\"id\":2,\"someProp\":\"someValue\"}");
+    PAssert.that(
+            output
+                .get(STRING_FAILURE_TAG)
+                .apply(
+                    "FailurePayloads",
+                    MapElements.into(TypeDescriptors.strings())
+                        .via(FailsafeElement::getOriginalPayload)))
+        .containsInAnyOrder("{\"fail\":true}", "not json");
+
+    pipeline.run();
+  }
+
   /**
    * Tests the {@link FailsafeJavascriptUdf} when it's passed invalid JSON. In this case the UDF
    * should output the input {@link FailsafeElement} to the dead-letter enriched with error
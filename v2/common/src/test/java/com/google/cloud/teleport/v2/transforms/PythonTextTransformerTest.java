@@ -18,18 +18,19 @@ package com.google.cloud.teleport.v2.transforms;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
 
 import com.google.cloud.teleport.v2.coders.FailsafeElementCoder;
 import com.google.cloud.teleport.v2.transforms.PythonTextTransformer.FailsafePythonUdf;
 import com.google.cloud.teleport.v2.transforms.PythonTextTransformer.PythonRuntime;
+import com.google.cloud.teleport.v2.transforms.PythonTextTransformer.PythonWorker;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.beam.sdk.coders.CoderRegistry;
@@ -42,12 +43,13 @@ import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.TupleTag;
-import org.junit.Assert;
+import org.json.JSONObject;
 import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +61,8 @@ public class PythonTextTransformerTest {
 
   @Rule public final transient TestPipeline pipeline = TestPipeline.create();
 
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
   private static final Logger LOG = LoggerFactory.getLogger(PythonTextTransformer.class);
   // Define the TupleTag's here otherwise the anonymous class will force the test method to
   // be serialized.
@@ -75,30 +79,116 @@ public class PythonTextTransformerTest {
   private static final String TRANSFORM_FILE_PATH =
       Resources.getResource(RESOURCES_DIR + "transform.py").getPath();
 
+  private static final String CRASH_ONCE_FILE_PATH =
+      Resources.getResource(RESOURCES_DIR + "crash_once.py").getPath();
+
   /**
-   * Test {@link PythonRuntime#invoke} returns transformed data when a good python transform
-   * function given. Requires installed python3 on local worker.
+   * Test {@link PythonRuntime#startWorker} keeps a worker answering requests, including failed
+   * ones. Skipped if python3 is not installed on the local worker.
+   */
+  @Test
+  public void testPythonWorkerAnswersRequests() throws Exception {
+    assumeTrue(isPythonInstalled());
+    PythonRuntime pythonRuntime =
+        PythonRuntime.newBuilder()
+            .setFileSystemPath(CRASH_ONCE_FILE_PATH)
+            .setFunctionName("transform")
+            .setRuntimeVersion(PYTHON_VERSION)
+            .build();
+
+    try (PythonWorker worker = pythonRuntime.startWorker(2)) {
+      for (int i = 0; i < 10; i++) {
+        worker.submit("id" + i, String.format("{\"id\": \"id%d\", \"event\": {\"n\": %d}}", i, i));
+      }
+      worker.submit("bad", "{\"id\": \"bad\", \"event\": {\"fail\": true}}");
+
+      Map<String, JSONObject> responses = new HashMap<>();
+      for (JSONObject response : worker.awaitResponses()) {
+        responses.put(response.getString("id"), response);
+      }
+
+      assertEquals(11, responses.size());
+      JSONObject good = responses.get("id3");
+      assertEquals("SUCCESS", good.getString("status"));
+      assertEquals(3, good.getJSONArray("events").getJSONObject(0).getInt("n"));
+      assertEquals("new_value", good.getJSONArray("events").getJSONObject(0).getString("new_key"));
+      assertEquals("FAILED", responses.get("bad").getString("status"));
+      assertThat(
+          responses.get("bad").getString("error_message").contains("failing on purpose"), is(true));
+    }
+  }
+
+  /**
+   * Test {@link PythonWorker} restarts a crashed worker and resends its unanswered requests.
+   * Skipped if python3 is not installed on the local worker.
    */
-  @Ignore
   @Test
-  public void testInvokeGood() throws Exception {
+  public void testPythonWorkerRestartsAfterCrash() throws Exception {
+    assumeTrue(isPythonInstalled());
+    File marker = new File(tempFolder.getRoot(), "crashed");
     PythonRuntime pythonRuntime =
         PythonRuntime.newBuilder()
-            .setFileSystemPath(TRANSFORM_FILE_PATH)
+            .setFileSystemPath(CRASH_ONCE_FILE_PATH)
             .setFunctionName("transform")
             .setRuntimeVersion(PYTHON_VERSION)
+            .setRuntimeRetries(1)
             .build();
 
-    File tempFile = File.createTempFile("temp_file.json", null);
-    BufferedWriter dataWriter = new BufferedWriter(new FileWriter(tempFile.getAbsolutePath()));
-    String sendData = "{\"answerToLife\": 42}";
-    dataWriter.write(sendData);
-    dataWriter.flush();
-    dataWriter.close();
-    List<String> expectedJson =
-        Arrays.asList("{\"answerToLife\": 42, \"someProp\": \"someValue\"}");
-    List<String> data = pythonRuntime.invoke(tempFile, 5);
-    Assert.assertEquals(expectedJson, data);
+    try (PythonWorker worker = pythonRuntime.startWorker(10)) {
+      JSONObject crashing = new JSONObject();
+      crashing.put("id", "crash");
+      crashing.put("event", new JSONObject().put("crash", marker.getAbsolutePath()));
+      worker.submit("crash", crashing.toString());
+      worker.submit("after", "{\"id\": \"after\", \"event\": {\"n\": 1}}");
+
+      List<JSONObject> responses = worker.awaitResponses();
+
+      assertEquals(2, responses.size());
+      for (JSONObject response : responses) {
+        assertEquals("SUCCESS", response.getString("status"));
+      }
+      assertThat(marker.exists(), is(true));
+    }
+  }
+
+  /**
+   * Test {@link PythonWorker} kills and restarts a worker which stops answering, and fails the
+   * request once it runs out of restarts. Skipped if python3 is not installed on the local worker.
+   */
+  @Test
+  public void testPythonWorkerTimesOutHangingUdf() throws Exception {
+    assumeTrue(isPythonInstalled());
+    PythonRuntime pythonRuntime =
+        PythonRuntime.newBuilder()
+            .setFileSystemPath(CRASH_ONCE_FILE_PATH)
+            .setFunctionName("transform")
+            .setRuntimeVersion(PYTHON_VERSION)
+            .setRuntimeRetries(1)
+            .setResponseTimeoutSeconds(1)
+            .build();
+
+    try (PythonWorker worker = pythonRuntime.startWorker(10)) {
+      worker.submit("hang", "{\"id\": \"hang\", \"event\": {\"hang\": true}}");
+
+      List<JSONObject> responses = worker.awaitResponses();
+
+      assertEquals(1, responses.size());
+      assertEquals("FAILED", responses.get(0).getString("status"));
+
+      worker.submit("after", "{\"id\": \"after\", \"event\": {\"n\": 1}}");
+      responses = worker.awaitResponses();
+
+      assertEquals(1, responses.size());
+      assertEquals("SUCCESS", responses.get(0).getString("status"));
+    }
+  }
+
+  private static boolean isPythonInstalled() {
+    try {
+      return new ProcessBuilder(PYTHON_VERSION, "--version").start().waitFor() == 0;
+    } catch (Exception e) {
+      return false;
+    }
   }
 
   /** Tests the {@link FailsafePythonUdf} when the input is valid. */
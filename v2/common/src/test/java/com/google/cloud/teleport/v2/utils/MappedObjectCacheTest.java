@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.base.Ticker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Test cases for the {@link MappedObjectCache} class. */
+@RunWith(JUnit4.class)
+public class MappedObjectCacheTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /** A cache counting its loads, which optionally wait for a latch to be released. */
+  private static class TestCache extends MappedObjectCache<String, String> {
+    final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+    final Map<String, CountDownLatch> latches = new ConcurrentHashMap<>();
+    final Map<String, String> values = new ConcurrentHashMap<>();
+
+    @Override
+    public String getObjectValue(String key) {
+      int load = loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+      CountDownLatch latch = latches.get(key);
+      if (latch != null) {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      return values.getOrDefault(key, key + "-" + load);
+    }
+
+    int loads(String key) {
+      AtomicInteger count = loads.get(key);
+      return count == null ? 0 : count.get();
+    }
+  }
+
+  private static class FakeTicker extends Ticker {
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+
+    void advance(long delta) {
+      nanos.addAndGet(delta);
+    }
+  }
+
+  @Test
+  public void testConcurrentGetsOfSameKeyLoadOnce() throws Exception {
+    TestCache cache = new TestCache();
+    CountDownLatch latch = new CountDownLatch(1);
+    cache.latches.put("key", latch);
+
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(executor.submit(() -> cache.get("key")));
+    }
+    Thread.sleep(100);
+    latch.countDown();
+
+    for (Future<String> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("key-1");
+    }
+    assertThat(cache.loads("key")).isEqualTo(1);
+  }
+
+  @Test
+  public void testSlowLoadDoesNotBlockOtherKeys() throws Exception {
+    TestCache cache = new TestCache();
+    CountDownLatch latch = new CountDownLatch(1);
+    cache.latches.put("slow", latch);
+
+    Future<String> slow = executor.submit(() -> cache.get("slow"));
+    while (cache.loads("slow") == 0) {
+      Thread.sleep(10);
+    }
+
+    assertThat(executor.submit(() -> cache.get("fast")).get(10, TimeUnit.SECONDS))
+        .isEqualTo("fast-1");
+    assertThat(slow.isDone()).isFalse();
+    latch.countDown();
+    assertThat(slow.get(10, TimeUnit.SECONDS)).isEqualTo("slow-1");
+  }
+
+  @Test
+  public void testRefreshAheadServesCurrentValue() throws Exception {
+    FakeTicker ticker = new FakeTicker();
+    TestCache cache = new TestCache();
+    cache.withCacheLife(TimeUnit.MINUTES.toNanos(1), ticker);
+    assertThat(cache.get("key")).isEqualTo("key-1");
+
+    CountDownLatch latch = new CountDownLatch(1);
+    cache.latches.put("key", latch);
+    ticker.advance(TimeUnit.SECONDS.toNanos(50));
+
+    // the refresh runs in the background while the current value is served
+    assertThat(cache.get("key")).isEqualTo("key-1");
+    assertThat(cache.get("key")).isEqualTo("key-1");
+    latch.countDown();
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!cache.get("key").equals("key-2") && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(cache.get("key")).isEqualTo("key-2");
+    assertThat(cache.loads("key")).isEqualTo(2);
+  }
+
+  @Test
+  public void testExpiredValueIsReloaded() {
+    FakeTicker ticker = new FakeTicker();
+    TestCache cache = new TestCache();
+    cache.withCacheLife(TimeUnit.MINUTES.toNanos(1), ticker);
+    assertThat(cache.get("key")).isEqualTo("key-1");
+
+    ticker.advance(TimeUnit.MINUTES.toNanos(2));
+
+    assertThat(cache.get("key")).isEqualTo("key-2");
+  }
+
+  @Test
+  public void testMissingValuesAreNotCached() {
+    MappedObjectCache<String, String> cache =
+        new MappedObjectCache<String, String>() {
+          @Override
+          public String getObjectValue(String key) {
+            return null;
+          }
+        };
+
+    assertThat(cache.get("key")).isNull();
+    assertThat(cache.cachedObjects.getIfPresent("key")).isNull();
+  }
+
+  @Test
+  public void testResetOnlyReloadsCurrentValue() {
+    TestCache cache = new TestCache();
+    String stale = cache.get("key");
+
+    String reloaded = cache.reset("key", stale);
+    // a second thread resetting the same stale value gets the reloaded one
+    assertThat(cache.reset("key", stale)).isSameInstanceAs(reloaded);
+    assertThat(reloaded).isEqualTo("key-2");
+    assertThat(cache.reset("key")).isEqualTo("key-3");
+  }
+
+  @Test
+  public void testFailedLoadIsRethrown() {
+    MappedObjectCache<String, String> cache =
+        new MappedObjectCache<String, String>() {
+          @Override
+          public String getObjectValue(String key) {
+            throw new IllegalStateException("unavailable");
+          }
+        };
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> cache.get("key"));
+    assertThat(e).hasMessageThat().isEqualTo("unavailable");
+  }
+}
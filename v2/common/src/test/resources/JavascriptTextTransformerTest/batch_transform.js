@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/**
+ * A batch transform function. Throws for the whole batch on invalid JSON, fails
+ * single elements with "fail" set and drops elements with "drop" set.
+ * @param {string[]} batch
+ * @return {(string|Error|null)[]}
+ */
+function transformBatch(batch) {
+  return batch.map(function (inJson) {
+    var obj = JSON.parse(inJson);
+    if (obj.fail) {
+      return new Error('failing on purpose');
+    }
+    if (obj.drop) {
+      return null;
+    }
+    obj.someProp = 'someValue';
+    return JSON.stringify(obj);
+  });
+}
+
+/**
+ * A batch function returning the names in its global scope for every element.
+ * @param {string[]} batch
+ * @return {string[]}
+ */
+function globalNames(batch) {
+  var names = Object.keys(this).sort().join(',');
+  return batch.map(function () {
+    return names;
+  });
+}
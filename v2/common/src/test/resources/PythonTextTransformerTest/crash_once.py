@@ -0,0 +1,37 @@
+"""
+Copyright (C) 2024 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License"); you may not
+use this file except in compliance with the License. You may obtain a copy of
+the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+License for the specific language governing permissions and limitations under
+the License.
+"""
+
+"""
+A transform function which kills its worker the first time it sees an event
+with "crash" set, fails for events with "fail" set and never returns for events
+with "hang" set.
+"""
+import os
+import sys
+import time
+
+def transform(event):
+  if event.get('fail'):
+    raise ValueError('failing on purpose')
+  if event.get('hang'):
+    time.sleep(3600)
+  if event.get('crash'):
+    marker = event['crash']
+    if not os.path.exists(marker):
+      open(marker, 'w').close()
+      os._exit(1)
+  event['new_key'] = 'new_value'
+  return event
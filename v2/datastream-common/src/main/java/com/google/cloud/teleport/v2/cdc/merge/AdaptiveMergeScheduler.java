@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.cdc.merge;
+
+import com.google.cloud.bigquery.TableId;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.TimeDomain;
+import org.apache.beam.sdk.state.Timer;
+import org.apache.beam.sdk.state.TimerSpec;
+import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.WithKeys;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+/**
+ * Schedules the merges of each table from the volume of rows ingested for it, and spreads the
+ * scheduled merges over the {@link MergeConfiguration#mergeConcurrency()} job keys by their
+ * estimated cost.
+ *
+ * <p>A table is merged once {@link MergeConfiguration#rowsPerMerge()} rows were ingested for it
+ * since its last merge, but no more often than every {@link MergeConfiguration#minMergeInterval()},
+ * and at the latest {@link MergeConfiguration#mergeWindowDuration()} after its oldest unmerged row.
+ * Hot tables are therefore merged often and cold tables rarely, and tables without new rows are not
+ * merged.
+ *
+ * <p>The rows are counted while they are written to the staging table, so the rows counted shortly
+ * before a merge may not have landed in time for it. A table which ingested rows within {@link
+ * #SETTLE_DELAY} before a merge is therefore merged once more, {@link #SETTLE_DELAY} after those
+ * rows.
+ *
+ * <p>The cost of a merge is estimated by the number of rows ingested since the previous merge of
+ * the table. Each merge is assigned the job key with the least outstanding cost, where the cost
+ * assigned to a key decays by half every minimum merge interval.
+ *
+ * <p>The staleness of a table, the age of its oldest unmerged row, is exported as the {@code
+ * mergeStalenessSeconds-TABLE} gauge, and its value when the table is merged as the {@code
+ * mergeStalenessSeconds} distribution.
+ */
+public class AdaptiveMergeScheduler
+    extends PTransform<PCollection<KV<String, MergeInfo>>, PCollection<KV<Integer, MergeInfo>>> {
+
+  /** The time given to the counted rows to land in the staging table. */
+  static final Duration SETTLE_DELAY = Duration.standardMinutes(5);
+
+  private static final String JOB_ID_PREFIX = "datastream_merge";
+
+  private final MergeConfiguration mergeConfiguration;
+
+  public AdaptiveMergeScheduler(MergeConfiguration mergeConfiguration) {
+    this.mergeConfiguration = mergeConfiguration;
+  }
+
+  @Override
+  public PCollection<KV<Integer, MergeInfo>> expand(PCollection<KV<String, MergeInfo>> input) {
+    Coder<MergeInfo> mergeInfoCoder =
+        ((KvCoder<String, MergeInfo>) input.getCoder()).getValueCoder();
+    KvCoder<MergeInfo, Long> costedMergeCoder = KvCoder.of(mergeInfoCoder, VarLongCoder.of());
+    return input
+        .apply(Window.<KV<String, MergeInfo>>into(new GlobalWindows()))
+        .apply("CountRowsPerTable", ParDo.of(new CountRowsPerTableFn()))
+        .setCoder(KvCoder.of(StringUtf8Coder.of(), costedMergeCoder))
+        .apply(
+            "ScheduleMerges",
+            ParDo.of(
+                new ScheduleMergesFn(
+                    mergeConfiguration.minMergeInterval(),
+                    mergeConfiguration.mergeWindowDuration(),
+                    mergeConfiguration.rowsPerMerge())))
+        .setCoder(costedMergeCoder)
+        .apply("KeyByScheduler", WithKeys.of(0))
+        .setCoder(KvCoder.of(VarIntCoder.of(), costedMergeCoder))
+        .apply(
+            "AssignJobKeys",
+            ParDo.of(
+                new AssignJobKeysFn(
+                    mergeConfiguration.mergeConcurrency(), mergeConfiguration.minMergeInterval())))
+        .setCoder(KvCoder.of(VarIntCoder.of(), mergeInfoCoder));
+  }
+
+  /** Counts the rows of each table within a bundle, keeping the last merge info of the table. */
+  static class CountRowsPerTableFn
+      extends DoFn<KV<String, MergeInfo>, KV<String, KV<MergeInfo, Long>>> {
+
+    private transient Map<String, KV<MergeInfo, Long>> rowsPerTable;
+    private transient Map<String, Instant> timestampPerTable;
+
+    @StartBundle
+    public void startBundle() {
+      rowsPerTable = new HashMap<>();
+      timestampPerTable = new HashMap<>();
+    }
+
+    @ProcessElement
+    public void process(@Element KV<String, MergeInfo> element, @Timestamp Instant timestamp) {
+      KV<MergeInfo, Long> previous = rowsPerTable.get(element.getKey());
+      long rows = previous == null ? 1 : previous.getValue() + 1;
+      rowsPerTable.put(element.getKey(), KV.of(element.getValue(), rows));
+      timestampPerTable.merge(element.getKey(), timestamp, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext c) {
+      for (Map.Entry<String, KV<MergeInfo, Long>> table : rowsPerTable.entrySet()) {
+        c.output(
+            KV.of(table.getKey(), table.getValue()),
+            timestampPerTable.get(table.getKey()),
+            GlobalWindow.INSTANCE);
+      }
+    }
+  }
+
+  /** Outputs the merges of each table with their estimated cost, when they are due. */
+  static class ScheduleMergesFn extends DoFn<KV<String, KV<MergeInfo, Long>>, KV<MergeInfo, Long>> {
+
+    private final Duration minMergeInterval;
+    private final Duration maxMergeInterval;
+    private final long rowsPerMerge;
+
+    @StateId("schedule")
+    private final StateSpec<ValueState<TableMergeSchedule>> scheduleSpec =
+        StateSpecs.value(SerializableCoder.of(TableMergeSchedule.class));
+
+    @TimerId("merge")
+    private final TimerSpec mergeSpec = TimerSpecs.timer(TimeDomain.PROCESSING_TIME);
+
+    private final Distribution mergeStaleness =
+        Metrics.distribution(BigQueryMerger.class, "mergeStalenessSeconds");
+
+    ScheduleMergesFn(Duration minMergeInterval, Duration maxMergeInterval, long rowsPerMerge) {
+      this.minMergeInterval = minMergeInterval;
+      this.maxMergeInterval = maxMergeInterval;
+      this.rowsPerMerge = rowsPerMerge;
+    }
+
+    @ProcessElement
+    public void process(
+        @Element KV<String, KV<MergeInfo, Long>> element,
+        @StateId("schedule") ValueState<TableMergeSchedule> scheduleState,
+        @TimerId("merge") Timer mergeTimer) {
+      TableMergeSchedule schedule = scheduleState.read();
+      if (schedule == null) {
+        schedule = new TableMergeSchedule();
+      }
+      Instant now = Instant.now();
+      KV<MergeInfo, Long> rows = element.getValue();
+      Instant dueTime =
+          schedule.addRows(
+              rows.getKey(),
+              rows.getValue(),
+              now,
+              minMergeInterval,
+              maxMergeInterval,
+              rowsPerMerge);
+      if (schedule.reschedule(dueTime)) {
+        mergeTimer
+            .offset(dueTime.isAfter(now) ? new Duration(now, dueTime) : Duration.ZERO)
+            .setRelative();
+      }
+      scheduleState.write(schedule);
+      Metrics.gauge(BigQueryMerger.class, "mergeStalenessSeconds-" + element.getKey())
+          .set(schedule.getStaleness(now).getStandardSeconds());
+    }
+
+    @OnTimer("merge")
+    public void onMerge(
+        @Key String table,
+        @StateId("schedule") ValueState<TableMergeSchedule> scheduleState,
+        @TimerId("merge") Timer mergeTimer,
+        OutputReceiver<KV<MergeInfo, Long>> out) {
+      TableMergeSchedule schedule = scheduleState.read();
+      if (schedule == null || !schedule.hasPendingMerge()) {
+        return;
+      }
+      Instant now = Instant.now();
+      long staleness = schedule.getStaleness(now).getStandardSeconds();
+      mergeStaleness.update(staleness);
+      // The merge info is kept from the last ingested row, so a merge without new rows since the
+      // previous one would reuse its job id, and BigQuery would return the previous job instead.
+      out.output(
+          KV.of(
+              withNewJobId(schedule.getMergeInfo()),
+              schedule.takePendingRows(now, SETTLE_DELAY)));
+      Instant followUpTime = schedule.getFollowUpTime(SETTLE_DELAY, minMergeInterval);
+      if (followUpTime != null && schedule.reschedule(followUpTime)) {
+        mergeTimer
+            .offset(followUpTime.isAfter(now) ? new Duration(now, followUpTime) : Duration.ZERO)
+            .setRelative();
+      }
+      scheduleState.write(schedule);
+      Metrics.gauge(BigQueryMerger.class, "mergeStalenessSeconds-" + table).set(0);
+    }
+  }
+
+  /** Returns the merge info with a job id which no other merge uses. */
+  static MergeInfo withNewJobId(MergeInfo mergeInfo) {
+    TableId replicaTable = mergeInfo.getReplicaTable();
+    return mergeInfo.withJobId(
+        String.join(
+            "_",
+            JOB_ID_PREFIX,
+            mergeInfo.getProjectId(),
+            replicaTable.getDataset(),
+            replicaTable.getTable(),
+            UUID.randomUUID().toString()));
+  }
+
+  /** Assigns each merge the job key with the least outstanding cost. */
+  static class AssignJobKeysFn
+      extends DoFn<KV<Integer, KV<MergeInfo, Long>>, KV<Integer, MergeInfo>> {
+
+    private final int mergeConcurrency;
+    private final Duration costHalfLife;
+
+    @StateId("balancer")
+    private final StateSpec<ValueState<JobKeyBalancer>> balancerSpec =
+        StateSpecs.value(SerializableCoder.of(JobKeyBalancer.class));
+
+    AssignJobKeysFn(int mergeConcurrency, Duration costHalfLife) {
+      this.mergeConcurrency = mergeConcurrency;
+      this.costHalfLife = costHalfLife;
+    }
+
+    @ProcessElement
+    public void process(
+        @Element KV<Integer, KV<MergeInfo, Long>> element,
+        @StateId("balancer") ValueState<JobKeyBalancer> balancerState,
+        OutputReceiver<KV<Integer, MergeInfo>> out) {
+      JobKeyBalancer balancer = balancerState.read();
+      if (balancer == null) {
+        balancer = new JobKeyBalancer(mergeConcurrency);
+      }
+      KV<MergeInfo, Long> merge = element.getValue();
+      int jobKey = balancer.assign(merge.getValue(), Instant.now(), costHalfLife);
+      balancerState.write(balancer);
+      out.output(KV.of(jobKey, merge.getKey()));
+    }
+  }
+
+  /** The rows of a table waiting to be merged and the time of its next merge. */
+  static class TableMergeSchedule implements Serializable {
+
+    private MergeInfo mergeInfo;
+    private long pendingRows;
+    private Long firstPendingMillis;
+    private Long lastRowsMillis;
+    private Long lastMergeMillis;
+    private Long scheduledMillis;
+    // Whether rows taken by the last merge may have landed after it.
+    private boolean followUpPending;
+
+    /**
+     * Records rows ingested for the table.
+     *
+     * @return the time at which the table should be merged
+     */
+    Instant addRows(
+        MergeInfo mergeInfo,
+        long rows,
+        Instant now,
+        Duration minMergeInterval,
+        Duration maxMergeInterval,
+        long rowsPerMerge) {
+      this.mergeInfo = mergeInfo;
+      pendingRows += rows;
+      if (firstPendingMillis == null) {
+        firstPendingMillis = now.getMillis();
+      }
+      lastRowsMillis = now.getMillis();
+      Instant earliest =
+          lastMergeMillis == null ? now : new Instant(lastMergeMillis).plus(minMergeInterval);
+      Instant due =
+          pendingRows >= rowsPerMerge
+              ? now
+              : new Instant(firstPendingMillis).plus(maxMergeInterval);
+      return due.isBefore(earliest) ? earliest : due;
+    }
+
+    /** Returns whether the merge timer should be set to {@code dueTime}. */
+    boolean reschedule(Instant dueTime) {
+      if (scheduledMillis != null && scheduledMillis <= dueTime.getMillis()) {
+        return false;
+      }
+      scheduledMillis = dueTime.getMillis();
+      return true;
+    }
+
+    /**
+     * Returns the number of pending rows, which are now being merged.
+     *
+     * <p>When rows were ingested within {@code settleDelay} before the merge, a follow-up merge is
+     * kept pending for the rows which may not have landed in time.
+     */
+    long takePendingRows(Instant now, Duration settleDelay) {
+      long rows = pendingRows;
+      pendingRows = 0;
+      scheduledMillis = null;
+      lastMergeMillis = now.getMillis();
+      followUpPending =
+          lastRowsMillis != null && lastRowsMillis + settleDelay.getMillis() > now.getMillis();
+      firstPendingMillis = followUpPending ? lastRowsMillis : null;
+      return rows;
+    }
+
+    /** Returns the time of the follow-up merge, or {@code null} when none is pending. */
+    Instant getFollowUpTime(Duration settleDelay, Duration minMergeInterval) {
+      if (!followUpPending) {
+        return null;
+      }
+      Instant settled = new Instant(lastRowsMillis).plus(settleDelay);
+      Instant earliest = new Instant(lastMergeMillis).plus(minMergeInterval);
+      return settled.isBefore(earliest) ? earliest : settled;
+    }
+
+    /** Returns whether the table has rows to merge, or rows to merge again. */
+    boolean hasPendingMerge() {
+      return pendingRows > 0 || followUpPending;
+    }
+
+    Duration getStaleness(Instant now) {
+      return firstPendingMillis == null
+          ? Duration.ZERO
+          : new Duration(firstPendingMillis, Math.max(firstPendingMillis, now.getMillis()));
+    }
+
+    MergeInfo getMergeInfo() {
+      return mergeInfo;
+    }
+  }
+
+  /** The outstanding cost of the merges assigned to each job key. */
+  static class JobKeyBalancer implements Serializable {
+
+    private final double[] costs;
+    private long lastUpdateMillis;
+
+    JobKeyBalancer(int jobKeys) {
+      this.costs = new double[jobKeys];
+    }
+
+    /** Returns the job key with the least outstanding cost, and adds {@code cost} to it. */
+    int assign(long cost, Instant now, Duration costHalfLife) {
+      if (lastUpdateMillis > 0 && now.getMillis() > lastUpdateMillis) {
+        double decay =
+            Math.pow(0.5, (double) (now.getMillis() - lastUpdateMillis) / costHalfLife.getMillis());
+        for (int i = 0; i < costs.length; i++) {
+          costs[i] *= decay;
+        }
+      }
+      lastUpdateMillis = now.getMillis();
+      int jobKey = 0;
+      for (int i = 1; i < costs.length; i++) {
+        if (costs[i] < costs[jobKey]) {
+          jobKey = i;
+        }
+      }
+      costs[jobKey] += cost;
+      return jobKey;
+    }
+  }
+}
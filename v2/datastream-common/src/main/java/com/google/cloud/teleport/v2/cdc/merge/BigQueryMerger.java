@@ -18,17 +18,27 @@ package com.google.cloud.teleport.v2.cdc.merge;
 import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.BigQueryException;
 import com.google.cloud.bigquery.BigQueryOptions;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.FieldValueList;
 import com.google.cloud.bigquery.Job;
 import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.JobStatistics.QueryStatistics;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.TableResult;
+import com.google.common.annotations.VisibleForTesting;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.ValueState;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.GroupByKey;
 import org.apache.beam.sdk.transforms.MapElements;
@@ -67,24 +77,53 @@ public class BigQueryMerger extends PTransform<PCollection<MergeInfo>, PCollecti
 
   @Override
   public PCollection<Void> expand(PCollection<MergeInfo> input) {
-    return input
-        .apply(
+    PCollection<KV<String, MergeInfo>> tableMerges =
+        input.apply(
             MapElements.into(
                     TypeDescriptors.kvs(
                         TypeDescriptors.strings(), TypeDescriptor.of(MergeInfo.class)))
-                .via(mergeInfo -> KV.of(mergeInfo.getReplicaTableReference(), mergeInfo)))
-        .apply(
-            new TriggerPerKeyOnFixedIntervals<String, MergeInfo>(
-                mergeConfiguration.mergeWindowDuration()))
-        .apply(
-            MapElements.into(
-                    TypeDescriptors.kvs(
-                        TypeDescriptors.integers(), TypeDescriptor.of(MergeInfo.class)))
-                .via(kv -> KV.of(createJobKey(kv.getKey()), kv.getValue())))
-        .apply(Reshuffle.of())
-        .apply(Values.create())
-        .apply(ParDo.of(new BigQueryStatementIssuingFn(bigQueryClient, mergeConfiguration)))
-        .apply(MapElements.into(TypeDescriptors.voids()).via(whatever -> null));
+                .via(mergeInfo -> KV.of(mergeInfo.getReplicaTableReference(), mergeInfo)));
+    PCollection<KV<Integer, MergeInfo>> keyedMerges;
+    if (mergeConfiguration.minMergeInterval() != null) {
+      keyedMerges = tableMerges.apply(new AdaptiveMergeScheduler(mergeConfiguration));
+    } else {
+      keyedMerges =
+          tableMerges
+              .apply(
+                  new TriggerPerKeyOnFixedIntervals<String, MergeInfo>(
+                      mergeConfiguration.mergeWindowDuration()))
+              .apply(
+                  MapElements.into(
+                          TypeDescriptors.kvs(
+                              TypeDescriptors.integers(), TypeDescriptor.of(MergeInfo.class)))
+                      .via(kv -> KV.of(createJobKey(kv.getKey()), kv.getValue())));
+    }
+    PCollection<Void> issuedMerges;
+    if (mergeConfiguration.incrementalMergeOverlap() != null) {
+      // The watermarks are kept per table, as the merges of a table do not always get the same job
+      // key, e.g. when they are balanced by the adaptive scheduler.
+      issuedMerges =
+          keyedMerges
+              .apply(
+                  "KeyByTable",
+                  MapElements.into(
+                          TypeDescriptors.kvs(
+                              TypeDescriptors.strings(), TypeDescriptor.of(MergeInfo.class)))
+                      .via(kv -> KV.of(kv.getValue().getReplicaTableReference(), kv.getValue())))
+              .apply(ParDo.of(new IncrementalStatementIssuingFn(createStatementIssuingFn())));
+    } else {
+      issuedMerges =
+          keyedMerges
+              .apply(Reshuffle.of())
+              .apply(Values.create())
+              .apply(ParDo.of(createStatementIssuingFn()));
+    }
+    return issuedMerges.apply(MapElements.into(TypeDescriptors.voids()).via(whatever -> null));
+  }
+
+  @VisibleForTesting
+  BigQueryStatementIssuingFn createStatementIssuingFn() {
+    return new BigQueryStatementIssuingFn(bigQueryClient, mergeConfiguration);
   }
 
   /**
@@ -172,6 +211,8 @@ public class BigQueryMerger extends PTransform<PCollection<MergeInfo>, PCollecti
 
     private static final int BIGQUERY_DUPLICATE_JOB_ERROR_CODE = 409;
     private final Counter mergesIssued = Metrics.counter(BigQueryMerger.class, "mergesIssued");
+    private final Distribution mergeBytesProcessed =
+        Metrics.distribution(BigQueryMerger.class, "mergeBytesProcessed");
 
     private BigQuery bigQueryClient;
     private final MergeConfiguration mergeConfiguration;
@@ -202,16 +243,27 @@ public class BigQueryMerger extends PTransform<PCollection<MergeInfo>, PCollecti
 
     @ProcessElement
     public void process(ProcessContext c) throws InterruptedException {
-      MergeInfo mergeInfo = c.element();
-      String statement = mergeInfo.buildMergeStatement(mergeConfiguration);
+      issueMerge(c.element(), null);
+    }
+
+    /**
+     * Issues the merge of a table, reading the staging rows after {@code sortFieldLowerBound} if it
+     * is not {@code null}.
+     *
+     * @return whether the merge succeeded
+     */
+    boolean issueMerge(MergeInfo mergeInfo, @Nullable Long sortFieldLowerBound)
+        throws InterruptedException {
+      String statement = mergeInfo.buildMergeStatement(mergeConfiguration, sortFieldLowerBound);
       try {
         TableResult queryResult = issueQueryToBQ(mergeInfo, statement);
         mergesIssued.inc();
         LOG.info("Merge job executed: {}", statement);
+        return true;
       } catch (BigQueryException e) {
         LOG.warn(
             "Merge Job Failed With BigQuery Exception: {} Statement: {}", e.toString(), statement);
-        return;
+        return false;
       } catch (Exception e) {
         LOG.warn(
             "Merge Job Failed With Unexpected exception: {} Statement: {}",
@@ -238,7 +290,9 @@ public class BigQueryMerger extends PTransform<PCollection<MergeInfo>, PCollecti
       LOG.info("Triggering job {} for statement |{}|", jobId.toString(), statement);
 
       try {
-        return bigQueryClient.query(jobConfiguration, jobId);
+        TableResult result = bigQueryClient.query(jobConfiguration, jobId);
+        recordBytesProcessed(jobId);
+        return result;
       } catch (BigQueryException e) {
         // If we get a duplicate job error, it means that the worker is trying to issue an already
         // existing job in BigQuery. We wait for the original job's execution to finish and return
@@ -253,5 +307,105 @@ public class BigQueryMerger extends PTransform<PCollection<MergeInfo>, PCollecti
         }
       }
     }
+
+    /**
+     * Returns the greatest primary sort field value among the staging rows after {@code
+     * sortFieldLowerBound}, or {@code null} if there are none.
+     */
+    @Nullable
+    Long queryLatestSortFieldValue(MergeInfo mergeInfo, @Nullable Long sortFieldLowerBound)
+        throws InterruptedException {
+      String query =
+          mergeInfo.buildLatestSortFieldValueQuery(mergeConfiguration, sortFieldLowerBound);
+      TableResult result = bigQueryClient.query(QueryJobConfiguration.newBuilder(query).build());
+      Iterator<FieldValueList> rows = result.iterateAll().iterator();
+      if (!rows.hasNext()) {
+        return null;
+      }
+      FieldValue latestValue = rows.next().get(0);
+      return latestValue.isNull() ? null : latestValue.getLongValue();
+    }
+
+    private void recordBytesProcessed(JobId jobId) {
+      Job job = bigQueryClient.getJob(jobId);
+      if (job != null && job.getStatistics() instanceof QueryStatistics) {
+        Long bytesProcessed = ((QueryStatistics) job.getStatistics()).getTotalBytesProcessed();
+        if (bytesProcessed != null) {
+          mergeBytesProcessed.update(bytesProcessed);
+        }
+      }
+    }
+  }
+
+  /**
+   * Issues incremental merges keyed by table, keeping in state the last merged watermark of the
+   * table, that is the greatest primary sort field value among the staging rows read by its last
+   * merge.
+   *
+   * <p>Each merge only reads the staging rows after the watermark minus {@link
+   * MergeConfiguration#incrementalMergeOverlap()}, and is skipped if none of them is after the
+   * watermark. Rows inside the overlap which reached the staging table late are then merged by the
+   * next merge that runs, as the lower bound does not move. The first merge of a table reads the
+   * whole partition retention window. A merge is also skipped if the watermark query fails, leaving
+   * the watermark unchanged.
+   */
+  public static class IncrementalStatementIssuingFn extends DoFn<KV<String, MergeInfo>, Void> {
+
+    private final BigQueryStatementIssuingFn issuingFn;
+    private final long overlapSeconds;
+
+    @StateId("watermark")
+    private final StateSpec<ValueState<Long>> watermarkSpec = StateSpecs.value(VarLongCoder.of());
+
+    private final Counter mergesSkipped = Metrics.counter(BigQueryMerger.class, "mergesSkipped");
+    private final Counter watermarkQueriesFailed =
+        Metrics.counter(BigQueryMerger.class, "watermarkQueriesFailed");
+
+    public IncrementalStatementIssuingFn(BigQueryStatementIssuingFn issuingFn) {
+      this.issuingFn = issuingFn;
+      this.overlapSeconds =
+          issuingFn.mergeConfiguration.incrementalMergeOverlap().getStandardSeconds();
+    }
+
+    @Setup
+    public void setUp() {
+      issuingFn.setUp();
+    }
+
+    @ProcessElement
+    public void process(
+        @Element KV<String, MergeInfo> element,
+        @StateId("watermark") ValueState<Long> watermarkState)
+        throws InterruptedException {
+      MergeInfo mergeInfo = element.getValue();
+      String table = element.getKey();
+      Long watermark = watermarkState.read();
+      Long sortFieldLowerBound = watermark == null ? null : watermark - overlapSeconds;
+
+      // Read the new watermark before merging, so that it never passes rows which were not merged.
+      Long latestValue;
+      try {
+        latestValue = issuingFn.queryLatestSortFieldValue(mergeInfo, sortFieldLowerBound);
+      } catch (BigQueryException e) {
+        // Like a failed merge, the merge is retried on the next interval from the same watermark.
+        watermarkQueriesFailed.inc();
+        LOG.warn(
+            "Skipping merge of {}, failed to read the latest sort field value: {}",
+            table,
+            e.toString());
+        return;
+      }
+      // The rows inside the overlap stay in the staging table, so an idle table still has rows
+      // after the lower bound, but none after the watermark.
+      if (latestValue == null || (watermark != null && latestValue <= watermark)) {
+        mergesSkipped.inc();
+        LOG.debug("Skipping merge of {}, no staging rows after {}", table, watermark);
+        return;
+      }
+      if (issuingFn.issueMerge(mergeInfo, sortFieldLowerBound)) {
+        watermarkState.write(latestValue);
+        Metrics.gauge(BigQueryMerger.class, "lastMergedWatermark-" + table).set(latestValue);
+      }
+    }
   }
 }
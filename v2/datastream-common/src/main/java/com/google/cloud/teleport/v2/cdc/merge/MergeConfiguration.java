@@ -60,6 +60,7 @@ public abstract class MergeConfiguration implements Serializable {
   public static final int DEFAULT_PARTITION_RETENTION_DAYS = 1;
   public static final Duration DEFAULT_MERGE_WINDOW_DURATION = Duration.standardMinutes(30);
   public static final int DEFAULT_MERGE_CONCURRENCY = 30;
+  public static final long DEFAULT_ROWS_PER_MERGE = 100_000L;
 
   // BigQuery-specific properties
   public static final String BIGQUERY_QUOTE_CHARACTER = "`";
@@ -79,6 +80,13 @@ public abstract class MergeConfiguration implements Serializable {
 
   public abstract int mergeConcurrency();
 
+  /**
+   * The overlap subtracted from the last merged watermark of a table when building an incremental
+   * merge, or {@code null} to merge the whole partition retention window on every merge.
+   */
+  @Nullable
+  public abstract Duration incrementalMergeOverlap();
+
   public static MergeConfiguration bigQueryConfiguration() {
     return MergeConfiguration.builder().setQuoteCharacter(BIGQUERY_QUOTE_CHARACTER).build();
   }
@@ -101,6 +109,46 @@ public abstract class MergeConfiguration implements Serializable {
     return this.toBuilder().setMergeConcurrency(mergeConcurrency).build();
   }
 
+  /**
+   * Restricts each merge after the first one to the staging rows whose primary sort field is after
+   * the last merged watermark of the table, minus {@code overlap}.
+   *
+   * <p>The primary sort field must hold epoch seconds, as {@code _metadata_timestamp} does. Rows
+   * reaching the staging table more than {@code overlap} after rows with a later sort field value
+   * were merged are only merged after the watermarks are reset, e.g. by a pipeline update.
+   */
+  public MergeConfiguration withIncrementalMerge(Duration overlap) {
+    checkArgument(!overlap.isShorterThan(Duration.ZERO), "overlap must not be negative");
+    return this.toBuilder().setIncrementalMergeOverlap(overlap).build();
+  }
+
+  /**
+   * The minimum interval between two merges of a table when merges are scheduled adaptively, or
+   * {@code null} to merge every table on fixed intervals of {@link #mergeWindowDuration()}.
+   */
+  @Nullable
+  public abstract Duration minMergeInterval();
+
+  /** The number of rows ingested for a table after which it is merged as soon as possible. */
+  public abstract long rowsPerMerge();
+
+  /**
+   * Schedules the merges of each table from its ingest volume instead of fixed intervals.
+   *
+   * <p>A table is merged once {@code rowsPerMerge} rows were ingested for it, but no more often
+   * than every {@code minMergeInterval}, and at the latest {@link #mergeWindowDuration()} after its
+   * oldest unmerged row. Tables without new rows are not merged. See {@link
+   * AdaptiveMergeScheduler}.
+   */
+  public MergeConfiguration withAdaptiveMergeScheduling(
+      Duration minMergeInterval, long rowsPerMerge) {
+    checkArgument(rowsPerMerge > 0, "rowsPerMerge must be greater than 0");
+    return this.toBuilder()
+        .setMinMergeInterval(minMergeInterval)
+        .setRowsPerMerge(rowsPerMerge)
+        .build();
+  }
+
   public abstract Builder toBuilder();
 
   static Builder builder() {
@@ -110,7 +158,8 @@ public abstract class MergeConfiguration implements Serializable {
         .setPartitionRetention(DEFAULT_PARTITION_RETENTION_DAYS)
         .setSupportPartitionedTables(true)
         .setMergeWindowDuration(DEFAULT_MERGE_WINDOW_DURATION)
-        .setMergeConcurrency(DEFAULT_MERGE_CONCURRENCY);
+        .setMergeConcurrency(DEFAULT_MERGE_CONCURRENCY)
+        .setRowsPerMerge(DEFAULT_ROWS_PER_MERGE);
   }
 
   @AutoValue.Builder
@@ -129,6 +178,12 @@ public abstract class MergeConfiguration implements Serializable {
 
     abstract Builder setMergeConcurrency(int mergeConcurrency);
 
+    abstract Builder setIncrementalMergeOverlap(Duration incrementalMergeOverlap);
+
+    abstract Builder setMinMergeInterval(Duration minMergeInterval);
+
+    abstract Builder setRowsPerMerge(long rowsPerMerge);
+
     abstract MergeConfiguration build();
   }
 }
@@ -27,6 +27,7 @@ import com.google.common.annotations.VisibleForTesting;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.beam.sdk.schemas.AutoValueSchema;
 import org.apache.beam.sdk.schemas.annotations.DefaultSchema;
 import org.apache.beam.sdk.schemas.annotations.SchemaCreate;
@@ -94,6 +95,19 @@ public abstract class MergeInfo implements Serializable {
         jobId);
   }
 
+  /** Returns a copy of this merge info with another BigQuery job id. */
+  public MergeInfo withJobId(String jobId) {
+    return create(
+        getProjectId(),
+        getAllPkFields(),
+        getOrderByFields(),
+        getDeleteField(),
+        getStagingTable(),
+        getReplicaTable(),
+        getCustomColumns(),
+        jobId);
+  }
+
   /** Returns the formatted String reference to the BigQuery replica table. */
   public String getReplicaTableReference() {
     return getTableReference(this.getReplicaTable());
@@ -110,6 +124,18 @@ public abstract class MergeInfo implements Serializable {
    * @param mergeConfiguration contains all the Merge query settings required to build a Merge SQL
    */
   public String buildMergeStatement(MergeConfiguration mergeConfiguration) {
+    return buildMergeStatement(mergeConfiguration, null);
+  }
+
+  /**
+   * Returns a Merge SQL string which only reads the staging rows whose primary sort field is
+   * greater than {@code sortFieldLowerBound}, or all the retained rows if it is {@code null}.
+   *
+   * @param mergeConfiguration contains all the Merge query settings required to build a Merge SQL
+   * @param sortFieldLowerBound exclusive lower bound of the primary sort field
+   */
+  public String buildMergeStatement(
+      MergeConfiguration mergeConfiguration, @Nullable Long sortFieldLowerBound) {
     MergeStatementBuilder mergeBuilder = new MergeStatementBuilder(mergeConfiguration);
     return mergeBuilder.buildMergeStatement(
         getReplicaTableReference(),
@@ -117,7 +143,22 @@ public abstract class MergeInfo implements Serializable {
         this.getAllPkFields(),
         this.getOrderByFields(),
         this.getDeleteField(),
-        this.getColumns());
+        this.getColumns(),
+        sortFieldLowerBound);
+  }
+
+  /**
+   * Returns a SQL query for the greatest primary sort field value among the staging rows read by
+   * the Merge SQL built with the same {@code sortFieldLowerBound}.
+   */
+  public String buildLatestSortFieldValueQuery(
+      MergeConfiguration mergeConfiguration, @Nullable Long sortFieldLowerBound) {
+    return new MergeStatementBuilder(mergeConfiguration)
+        .buildLatestSortFieldValueQuery(
+            getStagingTableReference(),
+            this.getOrderByFields(),
+            this.getDeleteField(),
+            sortFieldLowerBound);
   }
 
   @Override
@@ -42,6 +42,28 @@ public class MergeStatementBuilder implements Serializable {
       List<String> orderByFields,
       String deletedFieldName,
       List<String> allFields) {
+    return buildMergeStatement(
+        replicaTable,
+        stagingTable,
+        primaryKeyFields,
+        orderByFields,
+        deletedFieldName,
+        allFields,
+        null);
+  }
+
+  /**
+   * Builds a merge statement which only reads the staging rows whose primary sort field is greater
+   * than {@code sortFieldLowerBound}, or all the retained staging rows if it is {@code null}.
+   */
+  public String buildMergeStatement(
+      String replicaTable,
+      String stagingTable,
+      List<String> primaryKeyFields,
+      List<String> orderByFields,
+      String deletedFieldName,
+      List<String> allFields,
+      Long sortFieldLowerBound) {
     // Key/Value Map used to replace values in template
     Map<String, String> mergeQueryValues = new HashMap<>();
 
@@ -58,7 +80,7 @@ public class MergeStatementBuilder implements Serializable {
             primaryKeyFields,
             orderByFields,
             deletedFieldName,
-            configuration.partitionRetention()));
+            sortFieldLowerBound));
 
     mergeQueryValues.put(
         "joinCondition",
@@ -115,14 +137,38 @@ public class MergeStatementBuilder implements Serializable {
       List<String> primaryKeyFields,
       List<String> orderByFields,
       String deletedFieldName,
-      Integer daysOfRetention) {
+      Long sortFieldLowerBound) {
     String commaSeparatedFields = joinStringFields(",", allFields, "`");
 
     return String.format(
         LATEST_FROM_STAGING_TEMPLATE,
         commaSeparatedFields,
         buildPartitionedByPKAndSorted(
-            stagingTable, allFields, primaryKeyFields, orderByFields, deletedFieldName));
+            stagingTable,
+            allFields,
+            primaryKeyFields,
+            orderByFields,
+            deletedFieldName,
+            sortFieldLowerBound));
+  }
+
+  public static final String LATEST_SORT_FIELD_VALUE_TEMPLATE = "SELECT MAX(%s) FROM `%s` %s";
+
+  /**
+   * Builds a query for the greatest primary sort field value among the staging rows read by a merge
+   * statement with the same {@code sortFieldLowerBound}.
+   */
+  public String buildLatestSortFieldValueQuery(
+      String stagingTable,
+      List<String> orderByFields,
+      String deletedFieldName,
+      Long sortFieldLowerBound) {
+    return String.format(
+        LATEST_SORT_FIELD_VALUE_TEMPLATE,
+        quote(getPrimarySortField(orderByFields)),
+        stagingTable,
+        buildStagingWhereClause(
+            deletedFieldName, getPrimarySortField(orderByFields), sortFieldLowerBound));
   }
 
   private static String joinStringFields(String delimiter, List<String> fields, String quoteChar) {
@@ -147,7 +193,8 @@ public class MergeStatementBuilder implements Serializable {
       List<String> allFields,
       List<String> primaryKeyFields,
       List<String> orderByFields,
-      String deletedFieldName) {
+      String deletedFieldName,
+      Long sortFieldLowerBound) {
     String commaSeparatedFields = joinStringFields(",", allFields, configuration.quoteCharacter());
     String commaSeparatedPKFields =
         joinStringFields(", ", primaryKeyFields, configuration.quoteCharacter());
@@ -158,7 +205,25 @@ public class MergeStatementBuilder implements Serializable {
         buildOrderByFieldsSql(orderByFields),
         buildDeletedFieldSql(deletedFieldName),
         stagingTable,
-        buildRetentionWhereClause(deletedFieldName));
+        buildStagingWhereClause(
+            deletedFieldName, getPrimarySortField(orderByFields), sortFieldLowerBound));
+  }
+
+  private String buildStagingWhereClause(
+      String deletedFieldName, String primarySortField, Long sortFieldLowerBound) {
+    String retentionWhereClause = buildRetentionWhereClause(deletedFieldName);
+    if (sortFieldLowerBound == null) {
+      return retentionWhereClause;
+    }
+    String watermarkCondition =
+        String.format("%s > %d", quote(primarySortField), sortFieldLowerBound);
+    return retentionWhereClause.isEmpty()
+        ? "WHERE " + watermarkCondition
+        : retentionWhereClause + " AND " + watermarkCondition;
+  }
+
+  private String quote(String field) {
+    return configuration.quoteCharacter() + field + configuration.quoteCharacter();
   }
 
   private String buildOrderByFieldsSql(List<String> orderByFields) {
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.coders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.coders.BigEndianLongCoder;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CoderProvider;
+import org.apache.beam.sdk.coders.CoderProviders;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.values.TypeDescriptor;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
+
+/**
+ * A {@link CustomCoder} for {@link DatastreamChangeEvent} which encodes the row of each event as a
+ * compact binary tree instead of as JSON text.
+ *
+ * <p>Every node is written as a one byte tag followed by its value: integers as zigzag varints,
+ * doubles as their 8 bytes, decimals as their scale and unscaled bytes, text as UTF-8 and arrays
+ * and objects as their size followed by their elements. Numbers are therefore neither rendered nor
+ * parsed, and decoding restores the exact kind of every node.
+ *
+ * <p>The field names of objects are written as their index in a dictionary of the {@code
+ * _metadata_*} fields added to every change event, so that they are not repeated in every element.
+ * The names of the source columns are written as UTF-8, as the tables replicated by a stream are
+ * only known when it is read, and each element must be decodable on its own.
+ *
+ * <p>The coder is not deterministic, as equal rows may hold their fields in different orders.
+ */
+public class DatastreamChangeEventCoder extends CustomCoder<DatastreamChangeEvent> {
+
+  private static final DatastreamChangeEventCoder INSTANCE = new DatastreamChangeEventCoder();
+
+  private static final int NULL = 0;
+  private static final int FALSE = 1;
+  private static final int TRUE = 2;
+  private static final int INT = 3;
+  private static final int LONG = 4;
+  private static final int BIG_INTEGER = 5;
+  private static final int DOUBLE = 6;
+  private static final int DECIMAL = 7;
+  private static final int TEXT = 8;
+  private static final int ARRAY = 9;
+  private static final int OBJECT = 10;
+
+  // The names of the metadata fields, by their index in the encoding. Names may only be appended,
+  // as changing an index would break decoding elements encoded by a running pipeline.
+  private static final List<String> FIELD_NAMES =
+      ImmutableList.of(
+          "_metadata_stream",
+          "_metadata_timestamp",
+          "_metadata_read_timestamp",
+          "_metadata_read_method",
+          "_metadata_source_type",
+          "_metadata_deleted",
+          "_metadata_table",
+          "_metadata_change_type",
+          "_metadata_primary_keys",
+          "_metadata_uuid",
+          "_metadata_schema",
+          "_metadata_log_file",
+          "_metadata_log_position",
+          "_metadata_lsn",
+          "_metadata_tx_id",
+          "_metadata_scn",
+          "_metadata_ssn",
+          "_metadata_rs_id",
+          "_metadata_row_id",
+          "_metadata_source",
+          "_metadata_dataflow_timestamp",
+          "_metadata_retry_count",
+          "_metadata_error",
+          "_metadata_dlq_reconsumed");
+
+  private static final Map<String, Integer> FIELD_INDEXES = indexFieldNames();
+
+  // Written instead of a dictionary index before the UTF-8 name of a field outside the dictionary.
+  private static final int INLINE_NAME = 0;
+
+  private static final StringUtf8Coder STRING_CODER = StringUtf8Coder.of();
+  private static final ByteArrayCoder BYTES_CODER = ByteArrayCoder.of();
+  private static final BigEndianLongCoder LONG_CODER = BigEndianLongCoder.of();
+
+  private DatastreamChangeEventCoder() {}
+
+  public static DatastreamChangeEventCoder of() {
+    return INSTANCE;
+  }
+
+  /** Returns the {@link CoderProvider} used by {@code @DefaultCoder} on the value class. */
+  public static CoderProvider getCoderProvider() {
+    return CoderProviders.forCoder(TypeDescriptor.of(DatastreamChangeEvent.class), INSTANCE);
+  }
+
+  @Override
+  public void encode(DatastreamChangeEvent value, OutputStream outStream) throws IOException {
+    if (value == null) {
+      throw new CoderException("The DatastreamChangeEventCoder cannot encode a null object!");
+    }
+    encodeNode(value.getRow(), outStream);
+  }
+
+  @Override
+  public DatastreamChangeEvent decode(InputStream inStream) throws IOException {
+    JsonNode row = decodeNode(inStream);
+    if (!row.isObject()) {
+      throw new CoderException("Change event row is not an object: " + row.getNodeType());
+    }
+    return DatastreamChangeEvent.of((ObjectNode) row);
+  }
+
+  @Override
+  public void verifyDeterministic() throws NonDeterministicException {
+    throw new NonDeterministicException(
+        this, "The order of the fields of a JSON object is not canonical.");
+  }
+
+  private static Map<String, Integer> indexFieldNames() {
+    ImmutableMap.Builder<String, Integer> indexes = ImmutableMap.builder();
+    for (int i = 0; i < FIELD_NAMES.size(); i++) {
+      indexes.put(FIELD_NAMES.get(i), i + 1);
+    }
+    return indexes.build();
+  }
+
+  private static void encodeFieldName(String name, OutputStream outStream) throws IOException {
+    Integer index = FIELD_INDEXES.get(name);
+    if (index != null) {
+      VarInt.encode(index, outStream);
+    } else {
+      VarInt.encode(INLINE_NAME, outStream);
+      STRING_CODER.encode(name, outStream);
+    }
+  }
+
+  private static String decodeFieldName(InputStream inStream) throws IOException {
+    int index = VarInt.decodeInt(inStream);
+    if (index == INLINE_NAME) {
+      return STRING_CODER.decode(inStream);
+    }
+    if (index > FIELD_NAMES.size()) {
+      throw new CoderException("Unknown change event field name index " + index);
+    }
+    return FIELD_NAMES.get(index - 1);
+  }
+
+  private static void encodeNode(JsonNode node, OutputStream outStream) throws IOException {
+    switch (node.getNodeType()) {
+      case NULL:
+        outStream.write(NULL);
+        break;
+      case BOOLEAN:
+        outStream.write(node.booleanValue() ? TRUE : FALSE);
+        break;
+      case NUMBER:
+        encodeNumber(node, outStream);
+        break;
+      case STRING:
+        outStream.write(TEXT);
+        STRING_CODER.encode(node.textValue(), outStream);
+        break;
+      case ARRAY:
+        outStream.write(ARRAY);
+        VarInt.encode(node.size(), outStream);
+        for (JsonNode element : node) {
+          encodeNode(element, outStream);
+        }
+        break;
+      case OBJECT:
+        outStream.write(OBJECT);
+        VarInt.encode(node.size(), outStream);
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+          Map.Entry<String, JsonNode> field = fields.next();
+          encodeFieldName(field.getKey(), outStream);
+          encodeNode(field.getValue(), outStream);
+        }
+        break;
+      default:
+        throw new CoderException("Cannot encode a " + node.getNodeType() + " node");
+    }
+  }
+
+  private static void encodeNumber(JsonNode node, OutputStream outStream) throws IOException {
+    if (node.isInt()) {
+      outStream.write(INT);
+      VarInt.encode(zigzag(node.intValue()), outStream);
+    } else if (node.isLong()) {
+      outStream.write(LONG);
+      VarInt.encode(zigzag(node.longValue()), outStream);
+    } else if (node.isBigInteger()) {
+      outStream.write(BIG_INTEGER);
+      BYTES_CODER.encode(node.bigIntegerValue().toByteArray(), outStream);
+    } else if (node.isDouble()) {
+      outStream.write(DOUBLE);
+      LONG_CODER.encode(Double.doubleToRawLongBits(node.doubleValue()), outStream);
+    } else if (node.isBigDecimal()) {
+      BigDecimal value = node.decimalValue();
+      outStream.write(DECIMAL);
+      VarInt.encode(zigzag(value.scale()), outStream);
+      BYTES_CODER.encode(value.unscaledValue().toByteArray(), outStream);
+    } else {
+      throw new CoderException("Cannot encode a " + node.numberType() + " number");
+    }
+  }
+
+  private static JsonNode decodeNode(InputStream inStream) throws IOException {
+    int tag = inStream.read();
+    switch (tag) {
+      case NULL:
+        return NullNode.getInstance();
+      case FALSE:
+        return BooleanNode.FALSE;
+      case TRUE:
+        return BooleanNode.TRUE;
+      case INT:
+        return IntNode.valueOf(unzigzag(VarInt.decodeInt(inStream)));
+      case LONG:
+        return LongNode.valueOf(unzigzag(VarInt.decodeLong(inStream)));
+      case BIG_INTEGER:
+        return BigIntegerNode.valueOf(new BigInteger(BYTES_CODER.decode(inStream)));
+      case DOUBLE:
+        return DoubleNode.valueOf(Double.longBitsToDouble(LONG_CODER.decode(inStream)));
+      case DECIMAL:
+        int scale = unzigzag(VarInt.decodeInt(inStream));
+        return DecimalNode.valueOf(
+            new BigDecimal(new BigInteger(BYTES_CODER.decode(inStream)), scale));
+      case TEXT:
+        return TextNode.valueOf(STRING_CODER.decode(inStream));
+      case ARRAY:
+        int length = VarInt.decodeInt(inStream);
+        ArrayNode array = JsonNodeFactory.instance.arrayNode(length);
+        for (int i = 0; i < length; i++) {
+          array.add(decodeNode(inStream));
+        }
+        return array;
+      case OBJECT:
+        int size = VarInt.decodeInt(inStream);
+        ObjectNode object = JsonNodeFactory.instance.objectNode();
+        for (int i = 0; i < size; i++) {
+          String key = decodeFieldName(inStream);
+          object.set(key, decodeNode(inStream));
+        }
+        return object;
+      case -1:
+        throw new CoderException("Unexpected end of stream while decoding a change event");
+      default:
+        throw new CoderException("Unknown change event node tag " + tag);
+    }
+  }
+
+  private static int zigzag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static int unzigzag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
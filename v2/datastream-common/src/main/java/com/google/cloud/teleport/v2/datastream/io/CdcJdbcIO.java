@@ -26,7 +26,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
@@ -46,6 +50,7 @@ import org.apache.beam.sdk.util.FluentBackoff;
 import org.apache.beam.sdk.util.Sleeper;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PDone;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
@@ -65,6 +70,12 @@ import org.slf4j.LoggerFactory;
  * <p>JDBC sink supports writing records into a database. It writes a {@link PCollection} to the
  * database by converting each T into a string via a user-provided {@link StatementFormatter}.
  *
+ * <p>Optionally, a {@link PreparedStatementFormatter} can be provided to write records using
+ * parameterised SQL instead. Records are then grouped by their parameterised SQL, which identifies
+ * the table, DML kind and column set being written, and each group is executed as a batch on a
+ * single reused {@link PreparedStatement}. Records the {@link PreparedStatementFormatter} cannot
+ * parameterise are still written through the {@link StatementFormatter}.
+ *
  * <p>Like the source, to configure the sink, you have to provide a {@link DataSourceConfiguration}.
  *
  * <pre>{@code
@@ -315,6 +326,30 @@ public class CdcJdbcIO {
     String formatStatement(T element);
   }
 
+  /**
+   * An interface used by the JdbcIO Write to write records using a parameterised SQL statement.
+   * Records formatted to the same SQL are written together as a batch on a shared {@link
+   * PreparedStatement}.
+   */
+  public interface PreparedStatementFormatter<T> extends Serializable {
+
+    /**
+     * Returns the parameterised SQL for the element, or {@code null} if the element can only be
+     * written as the literal SQL returned by the {@link StatementFormatter}.
+     */
+    @Nullable
+    String formatPreparedStatement(T element);
+
+    /** Binds the values of the element to the statement returned by formatPreparedStatement. */
+    void setParameters(T element, PreparedStatement preparedStatement) throws SQLException;
+
+    /**
+     * Returns a key identifying the row changed by the element. Changes to the same row are always
+     * applied in the order they were received, even if they are written by different statements.
+     */
+    String getRowKey(T element);
+  }
+
   /**
    * An interface used to control if we retry the statements when a {@link SQLException} occurs. If
    * {@link RetryStrategy#apply(SQLException)} returns true, {@link Write} tries to replay the
@@ -357,6 +392,11 @@ public class CdcJdbcIO {
       return new Write(inner.withStatementFormatter(formatter));
     }
 
+    /** See {@link WriteVoid#withPreparedStatementFormatter(PreparedStatementFormatter)}. */
+    public Write<T> withPreparedStatementFormatter(PreparedStatementFormatter<T> formatter) {
+      return new Write(inner.withPreparedStatementFormatter(formatter));
+    }
+
     /** See {@link WriteVoid#withBatchSize(long)}. */
     public Write<T> withBatchSize(long batchSize) {
       return new Write(inner.withBatchSize(batchSize));
@@ -409,6 +449,9 @@ public class CdcJdbcIO {
     @Nullable
     abstract StatementFormatter<T> getStatementFormatter();
 
+    @Nullable
+    abstract PreparedStatementFormatter<T> getPreparedStatementFormatter();
+
     @Nullable
     abstract RetryStrategy getRetryStrategy();
 
@@ -423,6 +466,8 @@ public class CdcJdbcIO {
 
       abstract Builder<T> setStatementFormatter(StatementFormatter<T> formatter);
 
+      abstract Builder<T> setPreparedStatementFormatter(PreparedStatementFormatter<T> formatter);
+
       abstract Builder<T> setRetryStrategy(RetryStrategy deadlockPredicate);
 
       abstract WriteVoid<T> build();
@@ -441,6 +486,15 @@ public class CdcJdbcIO {
       return toBuilder().setStatementFormatter(formatter).build();
     }
 
+    /**
+     * Write records using parameterised SQL whenever the {@link PreparedStatementFormatter} can
+     * format them. Records sharing the same SQL are executed as one {@link PreparedStatement}
+     * batch.
+     */
+    public WriteVoid<T> withPreparedStatementFormatter(PreparedStatementFormatter<T> formatter) {
+      return toBuilder().setPreparedStatementFormatter(formatter).build();
+    }
+
     /**
      * Provide a maximum size in number of SQL statement for the batch. Default is 1000.
      *
@@ -470,11 +524,13 @@ public class CdcJdbcIO {
       return input.apply(ParDo.of(new WriteFn<>(this)));
     }
 
-    private static class WriteFn<T> extends DoFn<T, Void> {
+    @VisibleForTesting
+    static class WriteFn<T> extends DoFn<T, Void> {
 
       private final WriteVoid<T> spec;
 
       private static final int MAX_RETRIES = 5;
+      private static final int MAX_CACHED_STATEMENTS = 100;
       private static final FluentBackoff BUNDLE_WRITE_BACKOFF =
           FluentBackoff.DEFAULT
               .withMaxRetries(MAX_RETRIES)
@@ -483,6 +539,7 @@ public class CdcJdbcIO {
       private DataSource dataSource;
       private Connection connection;
       private Statement statement;
+      private Map<String, PreparedStatement> preparedStatements;
       private final List<T> records = new ArrayList<>();
 
       public WriteFn(WriteVoid<T> spec) {
@@ -499,6 +556,17 @@ public class CdcJdbcIO {
         connection = dataSource.getConnection();
         connection.setAutoCommit(false);
         statement = connection.createStatement();
+        preparedStatements =
+            new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= MAX_CACHED_STATEMENTS) {
+                  return false;
+                }
+                closeQuietly(eldest.getValue());
+                return true;
+              }
+            };
       }
 
       @ProcessElement
@@ -516,6 +584,10 @@ public class CdcJdbcIO {
       public void finishBundle() throws Exception {
         executeBatch();
         try {
+          for (PreparedStatement preparedStatement : preparedStatements.values()) {
+            closeQuietly(preparedStatement);
+          }
+          preparedStatements.clear();
           if (statement != null) {
             statement.close();
           }
@@ -526,73 +598,129 @@ public class CdcJdbcIO {
         }
       }
 
+      /**
+       * Groups the buffered records by the SQL they are written with and executes each group as a
+       * single batch. Groups are flushed early whenever a row would otherwise be changed twice by
+       * different groups, so changes to a row are applied in order.
+       */
       private void executeBatch() throws SQLException, IOException, InterruptedException {
         if (records.isEmpty()) {
           return;
         }
+        PreparedStatementFormatter<T> formatter = spec.getPreparedStatementFormatter();
+        if (formatter == null) {
+          executeGroup(null, records);
+          records.clear();
+          return;
+        }
+
+        Map<String, List<T>> groups = new LinkedHashMap<>();
+        Set<String> rowKeys = new HashSet<>();
+        for (T record : records) {
+          if (!rowKeys.add(formatter.getRowKey(record))) {
+            executeGroups(groups);
+            rowKeys.clear();
+            rowKeys.add(formatter.getRowKey(record));
+          }
+          String sql = formatter.formatPreparedStatement(record);
+          groups.computeIfAbsent(sql, k -> new ArrayList<>()).add(record);
+        }
+        executeGroups(groups);
+        records.clear();
+      }
+
+      private void executeGroups(Map<String, List<T>> groups)
+          throws SQLException, IOException, InterruptedException {
+        for (Map.Entry<String, List<T>> group : groups.entrySet()) {
+          executeGroup(group.getKey(), group.getValue());
+        }
+        groups.clear();
+      }
+
+      /**
+       * Executes a group of records sharing the same parameterised SQL, or the literal SQL from the
+       * {@link StatementFormatter} if {@code sql} is null. Failing batches are retried with
+       * backoff, after which the group is bisected to isolate and skip the records that cannot be
+       * written.
+       */
+      private void executeGroup(@Nullable String sql, List<T> group)
+          throws SQLException, IOException, InterruptedException {
         Sleeper sleeper = Sleeper.DEFAULT;
         BackOff backoff = BUNDLE_WRITE_BACKOFF.backoff();
-        boolean singleStatementMode = false;
         while (true) {
           try {
-            executeBatchStatementFormatting(singleStatementMode);
-            break;
+            executeStatements(sql, group);
+            return;
           } catch (SQLException exception) {
-            // TODO: How should we handle failures?
             connection.rollback();
-            if (!BackOffUtils.next(sleeper, backoff)) {
-              if (singleStatementMode) {
-                // max batch retries reached, running
-                throw exception;
-              }
-              // attempt to execute one statement at a time as a final attempt
-              singleStatementMode = true;
-            }
             LOG.warn("SQLException Occurred: {}", exception.toString());
+            if (!isRetryable(exception) || !BackOffUtils.next(sleeper, backoff)) {
+              break;
+            }
           }
         }
-        records.clear();
+        // Retries are exhausted, isolate the failing records by bisecting the group.
+        executeBisecting(sql, group);
       }
 
-      private void executeBatchStatementFormatting(boolean singleStatementMode)
-          throws SQLException, IOException, InterruptedException {
-        if (singleStatementMode) {
-          executeBatchSingleStatementFormatting();
-        } else {
-          executeBatchMultiStatementFormatting();
+      private void executeBisecting(@Nullable String sql, List<T> group) throws SQLException {
+        try {
+          executeStatements(sql, group);
+          return;
+        } catch (SQLException exception) {
+          connection.rollback();
+          if (group.size() == 1) {
+            LOG.error(
+                "SQLException Occurred: {} while executing statement: {}",
+                exception.toString(),
+                sql != null ? sql : spec.getStatementFormatter().formatStatement(group.get(0)));
+            return;
+          }
         }
+        int middle = group.size() / 2;
+        executeBisecting(sql, group.subList(0, middle));
+        executeBisecting(sql, group.subList(middle, group.size()));
       }
 
-      private void executeBatchMultiStatementFormatting()
-          throws SQLException, IOException, InterruptedException {
-        statement = connection.createStatement();
+      private boolean isRetryable(SQLException exception) {
+        return spec.getRetryStrategy() == null || spec.getRetryStrategy().apply(exception);
+      }
 
-        for (T record : records) {
-          String formattedStatement = spec.getStatementFormatter().formatStatement(record);
-          statement.addBatch(formattedStatement);
+      private void executeStatements(@Nullable String sql, List<T> group) throws SQLException {
+        if (sql == null) {
+          try {
+            for (T record : group) {
+              statement.addBatch(spec.getStatementFormatter().formatStatement(record));
+            }
+            statement.executeBatch();
+          } finally {
+            statement.clearBatch();
+          }
+        } else {
+          PreparedStatement preparedStatement = preparedStatements.get(sql);
+          if (preparedStatement == null) {
+            preparedStatement = connection.prepareStatement(sql);
+            preparedStatements.put(sql, preparedStatement);
+          }
+          try {
+            for (T record : group) {
+              preparedStatement.clearParameters();
+              spec.getPreparedStatementFormatter().setParameters(record, preparedStatement);
+              preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+          } finally {
+            preparedStatement.clearBatch();
+          }
         }
-
-        // execute the batch
-        statement.executeBatch();
         connection.commit();
       }
 
-      private void executeBatchSingleStatementFormatting()
-          throws SQLException, IOException, InterruptedException {
-        statement = connection.createStatement();
-
-        for (T record : records) {
-          String formattedStatement = spec.getStatementFormatter().formatStatement(record);
-          try {
-            statement.executeUpdate(formattedStatement);
-            connection.commit();
-          } catch (SQLException exception) {
-            LOG.error(
-                "SQLException Occurred: {} while executing statement: {}",
-                exception.toString(),
-                formattedStatement);
-            connection.rollback();
-          }
+      private static void closeQuietly(Statement statement) {
+        try {
+          statement.close();
+        } catch (SQLException e) {
+          LOG.warn("Failed to close statement: {}", e.toString());
         }
       }
     }
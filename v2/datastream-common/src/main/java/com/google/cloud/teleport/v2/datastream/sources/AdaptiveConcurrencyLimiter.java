@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.sources;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Limits the number of file ranges read concurrently in a JVM, adapting the limit with
+ * additive-increase/multiplicative-decrease.
+ *
+ * <p>Every completed read is reported to the limiter:
+ *
+ * <ul>
+ *   <li>a heap usage above the threshold halves the limit, as buffered records are piling up;
+ *   <li>a read throughput below half of the moving average reduces the limit, as the reads are
+ *       contending for the network or the CPU;
+ *   <li>otherwise the limit grows by one per window of successful reads.
+ * </ul>
+ */
+class AdaptiveConcurrencyLimiter {
+
+  private static final double HEAP_DECREASE_FACTOR = 0.5;
+  private static final double THROUGHPUT_DECREASE_FACTOR = 0.75;
+  // a read slower than this fraction of the average throughput counts as contention
+  private static final double SLOW_READ_FRACTION = 0.5;
+  // weight of the latest read in the moving average of the throughput
+  private static final double THROUGHPUT_WEIGHT = 0.2;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double maxHeapUsage;
+  private final DoubleSupplier heapUsage;
+
+  private int limit;
+  private int inFlight;
+  private int successfulReads;
+  private double averageThroughput;
+
+  AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit, double maxHeapUsage) {
+    this(initialLimit, maxLimit, maxHeapUsage, AdaptiveConcurrencyLimiter::currentHeapUsage);
+  }
+
+  AdaptiveConcurrencyLimiter(
+      int initialLimit, int maxLimit, double maxHeapUsage, DoubleSupplier heapUsage) {
+    this.minLimit = 1;
+    this.maxLimit = Math.max(initialLimit, maxLimit);
+    this.maxHeapUsage = maxHeapUsage;
+    this.heapUsage = heapUsage;
+    this.limit = initialLimit;
+  }
+
+  /** Blocks until fewer reads than the current limit are in flight. */
+  synchronized void acquire() throws InterruptedException {
+    while (inFlight >= limit) {
+      wait();
+    }
+    inFlight++;
+  }
+
+  /**
+   * Reports a completed read and lets a waiting read start.
+   *
+   * @param bytes approximate number of bytes read
+   * @param nanos time taken by the read
+   */
+  synchronized void release(long bytes, long nanos) {
+    inFlight--;
+    if (heapUsage.getAsDouble() > maxHeapUsage) {
+      decrease(HEAP_DECREASE_FACTOR);
+    } else if (bytes > 0 && nanos > 0) {
+      double throughput = (double) bytes / nanos;
+      if (averageThroughput > 0 && throughput < averageThroughput * SLOW_READ_FRACTION) {
+        decrease(THROUGHPUT_DECREASE_FACTOR);
+      } else if (++successfulReads >= limit) {
+        limit = Math.min(maxLimit, limit + 1);
+        successfulReads = 0;
+      }
+      averageThroughput =
+          averageThroughput == 0
+              ? throughput
+              : THROUGHPUT_WEIGHT * throughput + (1 - THROUGHPUT_WEIGHT) * averageThroughput;
+    }
+    notifyAll();
+  }
+
+  /** Returns the number of reads which may currently be in flight. */
+  synchronized int getLimit() {
+    return limit;
+  }
+
+  private void decrease(double factor) {
+    limit = Math.max(minLimit, (int) (limit * factor));
+    successfulReads = 0;
+  }
+
+  private static double currentHeapUsage() {
+    Runtime runtime = Runtime.getRuntime();
+    return (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+  }
+}
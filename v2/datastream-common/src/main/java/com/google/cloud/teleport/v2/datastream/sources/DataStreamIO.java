@@ -21,8 +21,10 @@ import com.google.api.client.util.DateTime;
 import com.google.api.services.storage.model.Objects;
 import com.google.api.services.storage.model.StorageObject;
 import com.google.cloud.teleport.v2.coders.FailsafeElementCoder;
+import com.google.cloud.teleport.v2.datastream.coders.DatastreamChangeEventCoder;
 import com.google.cloud.teleport.v2.datastream.transforms.FormatDatastreamJsonToJson;
 import com.google.cloud.teleport.v2.datastream.transforms.FormatDatastreamRecordToJson;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.base.Strings;
 import java.io.FileNotFoundException;
@@ -33,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.extensions.avro.io.AvroSource;
 import org.apache.beam.sdk.extensions.gcp.util.GcsUtil;
@@ -58,9 +61,11 @@ import org.apache.beam.sdk.transforms.Values;
 import org.apache.beam.sdk.transforms.Watch;
 import org.apache.beam.sdk.transforms.Watch.Growth;
 import org.apache.beam.sdk.transforms.Watch.Growth.PollFn;
+import org.apache.beam.sdk.transforms.WithKeys;
 import org.apache.beam.sdk.values.PBegin;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.TypeDescriptor;
 import org.apache.beam.sdk.values.TypeDescriptors;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Lists;
 import org.joda.time.Duration;
@@ -114,6 +119,7 @@ public class DataStreamIO extends PTransform<PBegin, PCollection<FailsafeElement
   private Map<String, String> renameColumns = new HashMap<>();
   private Boolean hashRowId = false;
   private Duration directoryWatchDuration = Duration.standardMinutes(10);
+  private Boolean incrementalListing = false;
   PCollection<String> directories = null;
 
   private Boolean applyReshuffle = true;
@@ -174,6 +180,19 @@ public class DataStreamIO extends PTransform<PBegin, PCollection<FailsafeElement
     return this;
   }
 
+  /**
+   * Discover the files of each table in the Polling Pipeline with a single incremental listing per
+   * poll, instead of watching every per-minute directory for {@code directoryWatchDuration}.
+   *
+   * <p>A listing cursor is kept in state for each table directory, so every poll only lists the
+   * directories which were updated within {@code directoryWatchDuration}. See {@link
+   * IncrementalFileListingFn}.
+   */
+  public DataStreamIO withIncrementalListing() {
+    this.incrementalListing = true;
+    return this;
+  }
+
   /**
    * Set {@code applyReshuffle} to {@code false} to skip the reshuffle step for Datastream records.
    *
@@ -188,6 +207,14 @@ public class DataStreamIO extends PTransform<PBegin, PCollection<FailsafeElement
     return this;
   }
 
+  /**
+   * Returns a transform reading the change events as {@link DatastreamChangeEvent} values, encoded
+   * with the compact {@link DatastreamChangeEventCoder}, instead of as JSON strings.
+   */
+  public PTransform<PBegin, PCollection<DatastreamChangeEvent>> changeEvents() {
+    return new ReadChangeEvents();
+  }
+
   @Override
   public PCollection<FailsafeElement<String, String>> expand(PBegin input) {
     PCollection<ReadableFile> datastreamFiles =
@@ -199,10 +226,23 @@ public class DataStreamIO extends PTransform<PBegin, PCollection<FailsafeElement
 
   public PCollection<FailsafeElement<String, String>> expandDataStreamJsonStrings(
       PCollection<ReadableFile> datastreamFiles) {
-    PCollection<FailsafeElement<String, String>> datastreamRecords;
+    return expandDataStreamChangeEvents(datastreamFiles)
+        .apply(
+            "RenderJson",
+            MapElements.into(new TypeDescriptor<FailsafeElement<String, String>>() {})
+                .via(
+                    (DatastreamChangeEvent event) -> {
+                      String json = event.toJson();
+                      return FailsafeElement.of(json, json);
+                    }))
+        .setCoder(FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of()));
+  }
+
+  public PCollection<DatastreamChangeEvent> expandDataStreamChangeEvents(
+      PCollection<ReadableFile> datastreamFiles) {
+    PCollection<DatastreamChangeEvent> datastreamRecords;
 
-    FailsafeElementCoder coder =
-        FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of());
+    DatastreamChangeEventCoder coder = DatastreamChangeEventCoder.of();
     if (this.fileType.equals(JSON_SUFFIX)) {
       datastreamRecords =
           datastreamFiles
@@ -222,7 +262,7 @@ public class DataStreamIO extends PTransform<PBegin, PCollection<FailsafeElement
                               .withLowercaseSourceColumns(this.lowercaseSourceColumns)))
               .setCoder(coder);
     } else {
-      SerializableFunction<GenericRecord, FailsafeElement<String, String>> parseFn =
+      SerializableFunction<GenericRecord, DatastreamChangeEvent> parseFn =
           FormatDatastreamRecordToJson.create()
               .withStreamName(this.streamName)
               .withRenameColumnValues(this.renameColumns)
@@ -234,7 +274,7 @@ public class DataStreamIO extends PTransform<PBegin, PCollection<FailsafeElement
               .apply(
                   "ParseAvroRows",
                   ParDo.of(
-                      new ReadFileRangesFn<FailsafeElement<String, String>>(
+                      ReadFileRangesFn.<DatastreamChangeEvent>fromMetadata(
                           new CreateParseSourceFn(parseFn, coder),
                           new ReadFileRangesFn.ReadFileRangesFnExceptionHandler())))
               .setCoder(coder);
@@ -244,20 +284,31 @@ public class DataStreamIO extends PTransform<PBegin, PCollection<FailsafeElement
         : datastreamRecords;
   }
 
+  /** Reads the change events of the {@link DataStreamIO} as {@link DatastreamChangeEvent}. */
+  private class ReadChangeEvents extends PTransform<PBegin, PCollection<DatastreamChangeEvent>> {
+
+    @Override
+    public PCollection<DatastreamChangeEvent> expand(PBegin input) {
+      PCollection<ReadableFile> datastreamFiles =
+          input.apply("Read Datastream Files", new DataStreamFileIO());
+      return expandDataStreamChangeEvents(datastreamFiles);
+    }
+  }
+
   private static class CreateParseSourceFn
-      implements SerializableFunction<String, FileBasedSource<FailsafeElement<String, String>>> {
-    private final SerializableFunction<GenericRecord, FailsafeElement<String, String>> parseFn;
-    private final Coder<FailsafeElement<String, String>> coder;
+      implements SerializableFunction<Metadata, FileBasedSource<DatastreamChangeEvent>> {
+    private final SerializableFunction<GenericRecord, DatastreamChangeEvent> parseFn;
+    private final Coder<DatastreamChangeEvent> coder;
 
     CreateParseSourceFn(
-        SerializableFunction<GenericRecord, FailsafeElement<String, String>> parseFn,
-        Coder<FailsafeElement<String, String>> coder) {
+        SerializableFunction<GenericRecord, DatastreamChangeEvent> parseFn,
+        Coder<DatastreamChangeEvent> coder) {
       this.parseFn = parseFn;
       this.coder = coder;
     }
 
     @Override
-    public FileBasedSource<FailsafeElement<String, String>> apply(String input) {
+    public FileBasedSource<DatastreamChangeEvent> apply(Metadata input) {
       return AvroSource.from(input).withParseFn(parseFn, coder);
     }
   }
@@ -289,6 +340,9 @@ public class DataStreamIO extends PTransform<PBegin, PCollection<FailsafeElement
     }
 
     public PCollection<ReadableFile> expandPollingPipeline(PBegin input) {
+      if (incrementalListing) {
+        return expandIncrementalListingPipeline(input);
+      }
       directories =
           input
               .apply("StartPipeline", Create.of(inputFilePattern))
@@ -315,6 +369,25 @@ public class DataStreamIO extends PTransform<PBegin, PCollection<FailsafeElement
                       Growth.afterTimeSinceNewOutput(directoryWatchDuration)))
           .apply("ReadFiles", FileIO.readMatches());
     }
+
+    public PCollection<ReadableFile> expandIncrementalListingPipeline(PBegin input) {
+      directories =
+          input
+              .apply("StartPipeline", Create.of(inputFilePattern))
+              .apply(
+                  "FindTableDirectory",
+                  Watch.growthOf(new DirectoryMatchPollFn(1, 1, null, "/"))
+                      .withPollInterval(Duration.standardSeconds(120)))
+              .apply(Values.create());
+
+      return directories
+          .apply("KeyByTableDirectory", WithKeys.of((String path) -> path))
+          .setCoder(KvCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of()))
+          .apply(
+              "ListDatastreamFiles",
+              ParDo.of(new IncrementalFileListingFn(directoryWatchDuration, rfcStartDateTime)))
+          .apply("ReadFiles", FileIO.readMatches());
+    }
   }
 
   static class ExtractGcsFile extends DoFn<PubsubMessage, Metadata> {
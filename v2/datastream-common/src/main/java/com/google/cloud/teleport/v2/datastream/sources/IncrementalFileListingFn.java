@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.sources;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.storage.Storage;
+import com.google.api.services.storage.model.Objects;
+import com.google.api.services.storage.model.StorageObject;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.extensions.gcp.options.GcsOptions;
+import org.apache.beam.sdk.extensions.gcp.util.Transport;
+import org.apache.beam.sdk.extensions.gcp.util.gcsfs.GcsPath;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.TimeDomain;
+import org.apache.beam.sdk.state.Timer;
+import org.apache.beam.sdk.state.TimerSpec;
+import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+/**
+ * Discovers the files written by Datastream for each table directory with a single incremental
+ * listing per poll.
+ *
+ * <p>The input is keyed by table directory, such as {@code gs://BUCKET/root/prefix/HR_JOBS/}. For
+ * each table a {@link ListingCursor} is kept in state, holding the object name from which the next
+ * listing starts and the names of the objects already output at or after it. Datastream writes the
+ * files of a table under per-minute directories, so the listing only needs to start at the earliest
+ * directory which may still receive files, that is the directory of the earliest file updated
+ * within the directory watch duration.
+ *
+ * <p>The poll interval of a table is halved when a poll finds new files and doubled when it does
+ * not, between {@link #MIN_POLL_INTERVAL} and {@link #MAX_POLL_INTERVAL}.
+ *
+ * <p>The files are output with the time of the poll which discovered them, and each poll timer
+ * holds the output watermark at the time it was set, so that the watermark advances with the polls
+ * rather than staying at the timestamp of the table directory.
+ */
+class IncrementalFileListingFn extends DoFn<KV<String, String>, Metadata> {
+
+  static final Duration MIN_POLL_INTERVAL = Duration.standardSeconds(5);
+  static final Duration MAX_POLL_INTERVAL = Duration.standardSeconds(60);
+
+  private static final String LIST_FIELDS =
+      "nextPageToken,items(name,bucket,size,updated,contentEncoding)";
+
+  private final Duration directoryWatchDuration;
+  private final DateTime startDateTime;
+
+  private transient Storage storage;
+
+  @StateId("cursor")
+  private final StateSpec<ValueState<ListingCursor>> cursorSpec =
+      StateSpecs.value(SerializableCoder.of(ListingCursor.class));
+
+  @TimerId("poll")
+  private final TimerSpec pollSpec = TimerSpecs.timer(TimeDomain.PROCESSING_TIME);
+
+  // Number of object listing requests sent to GCS.
+  private final Counter listCalls =
+      Metrics.counter(IncrementalFileListingFn.class, "GCS list calls");
+
+  private final Counter filesDiscovered =
+      Metrics.counter(IncrementalFileListingFn.class, "Files discovered");
+
+  // Time between the last update of a file and its discovery.
+  private final Distribution discoveryLag =
+      Metrics.distribution(IncrementalFileListingFn.class, "File discovery lag ms");
+
+  IncrementalFileListingFn(Duration directoryWatchDuration, String rfcStartDateTime) {
+    this.directoryWatchDuration = directoryWatchDuration;
+    this.startDateTime =
+        DateTime.parseRfc3339(
+            rfcStartDateTime != null ? rfcStartDateTime : "1970-01-01T00:00:00.00Z");
+  }
+
+  @ProcessElement
+  public void processElement(
+      @Element KV<String, String> tableDirectory,
+      @Timestamp Instant timestamp,
+      @StateId("cursor") ValueState<ListingCursor> cursorState,
+      @TimerId("poll") Timer poll) {
+    if (cursorState.read() != null) {
+      // The table is already being polled.
+      return;
+    }
+    cursorState.write(new ListingCursor(tableDirectory.getKey()));
+    poll.withOutputTimestamp(latest(Instant.now(), timestamp)).offset(Duration.ZERO).setRelative();
+  }
+
+  @OnTimer("poll")
+  public void onPoll(
+      @Timestamp Instant timestamp,
+      @StateId("cursor") ValueState<ListingCursor> cursorState,
+      @TimerId("poll") Timer poll,
+      OutputReceiver<Metadata> out)
+      throws IOException {
+    ListingCursor cursor = cursorState.read();
+    GcsPath path = GcsPath.fromUri(cursor.getTableDirectory());
+    Instant now = Instant.now();
+    // The timestamp of the timer is the time of the previous poll.
+    Instant outputTimestamp = latest(now, timestamp);
+    List<StorageObject> newObjects =
+        cursor.update(listObjects(path, cursor.getStartOffset()), now, directoryWatchDuration);
+    for (StorageObject object : newObjects) {
+      if (object.getUpdated().getValue() < startDateTime.getValue()) {
+        // Skip file due to initial timestamp
+        continue;
+      }
+      filesDiscovered.inc();
+      discoveryLag.update(Math.max(0, now.getMillis() - object.getUpdated().getValue()));
+      out.outputWithTimestamp(toMetadata(object), outputTimestamp);
+    }
+    cursorState.write(cursor);
+    poll.withOutputTimestamp(outputTimestamp).offset(cursor.getPollInterval()).setRelative();
+  }
+
+  @VisibleForTesting
+  List<StorageObject> listObjects(GcsPath path, String startOffset) throws IOException {
+    List<StorageObject> result = new ArrayList<>();
+    String pageToken = null;
+    do {
+      Storage.Objects.List request =
+          getStorage()
+              .objects()
+              .list(path.getBucket())
+              .setPrefix(path.getObject())
+              .setStartOffset(startOffset)
+              .setPageToken(pageToken)
+              .setFields(LIST_FIELDS);
+      Objects objects = request.execute();
+      listCalls.inc();
+      if (objects.getItems() != null) {
+        result.addAll(objects.getItems());
+      }
+      pageToken = objects.getNextPageToken();
+    } while (pageToken != null);
+    return result;
+  }
+
+  private Storage getStorage() {
+    if (storage == null) {
+      storage = Transport.newStorageClient(PipelineOptionsFactory.as(GcsOptions.class)).build();
+    }
+    return storage;
+  }
+
+  private static Instant latest(Instant a, Instant b) {
+    return a.isAfter(b) ? a : b;
+  }
+
+  private static Metadata toMetadata(StorageObject object) {
+    return Metadata.builder()
+        .setResourceId(
+            FileSystems.matchNewResource(
+                "gs://" + object.getBucket() + "/" + object.getName(), false))
+        .setSizeBytes(object.getSize().longValue())
+        .setIsReadSeekEfficient(!"gzip".equalsIgnoreCase(object.getContentEncoding()))
+        .setLastModifiedMillis(object.getUpdated().getValue())
+        .build();
+  }
+
+  /** The listing position of a table directory. */
+  static class ListingCursor implements Serializable {
+
+    private final String tableDirectory;
+    private String startOffset;
+    // Update times of the objects already output, by name, for names at or after startOffset.
+    private final Map<String, Long> listedObjects = new HashMap<>();
+    private Duration pollInterval = MIN_POLL_INTERVAL;
+
+    ListingCursor(String tableDirectory) {
+      this.tableDirectory = tableDirectory;
+      this.startOffset = GcsPath.fromUri(tableDirectory).getObject();
+    }
+
+    String getTableDirectory() {
+      return tableDirectory;
+    }
+
+    String getStartOffset() {
+      return startOffset;
+    }
+
+    Duration getPollInterval() {
+      return pollInterval;
+    }
+
+    /**
+     * Records the objects of a listing started at the start offset and advances the cursor.
+     *
+     * @return the files which were not returned by a previous listing
+     */
+    List<StorageObject> update(
+        List<StorageObject> objects, Instant now, Duration directoryWatchDuration) {
+      List<StorageObject> newObjects = new ArrayList<>();
+      for (StorageObject object : objects) {
+        if (object.getName().endsWith("/") || listedObjects.containsKey(object.getName())) {
+          continue;
+        }
+        listedObjects.put(object.getName(), object.getUpdated().getValue());
+        newObjects.add(object);
+      }
+
+      // Start the next listing at the earliest directory with a recently updated file, or at the
+      // latest directory when none was recently updated.
+      long watchedSince = now.minus(directoryWatchDuration).getMillis();
+      String nextStartOffset = null;
+      String latestName = null;
+      for (Map.Entry<String, Long> object : listedObjects.entrySet()) {
+        String directory = getDirectory(object.getKey());
+        if (object.getValue() >= watchedSince
+            && (nextStartOffset == null || directory.compareTo(nextStartOffset) < 0)) {
+          nextStartOffset = directory;
+        }
+        if (latestName == null || object.getKey().compareTo(latestName) > 0) {
+          latestName = object.getKey();
+        }
+      }
+      if (nextStartOffset == null && latestName != null) {
+        nextStartOffset = getDirectory(latestName);
+      }
+      if (nextStartOffset != null && nextStartOffset.compareTo(startOffset) > 0) {
+        startOffset = nextStartOffset;
+        listedObjects.keySet().removeIf(name -> name.compareTo(startOffset) < 0);
+      }
+
+      pollInterval =
+          newObjects.isEmpty()
+              ? min(pollInterval.multipliedBy(2), MAX_POLL_INTERVAL)
+              : max(pollInterval.dividedBy(2), MIN_POLL_INTERVAL);
+      return newObjects;
+    }
+
+    private static String getDirectory(String objectName) {
+      return objectName.substring(0, objectName.lastIndexOf('/') + 1);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+      return a.isShorterThan(b) ? a : b;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+      return a.isLongerThan(b) ? a : b;
+    }
+  }
+}
@@ -18,18 +18,22 @@ package com.google.cloud.teleport.v2.datastream.sources;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.concurrent.Semaphore;
 import org.apache.beam.sdk.io.BoundedSource;
 import org.apache.beam.sdk.io.CompressedSource;
+import org.apache.beam.sdk.io.Compression;
 import org.apache.beam.sdk.io.FileBasedSource;
 import org.apache.beam.sdk.io.FileIO;
 import org.apache.beam.sdk.io.FileIO.ReadableFile;
+import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
 import org.apache.beam.sdk.io.fs.ResourceId;
 import org.apache.beam.sdk.io.range.OffsetRange;
 import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Gauge;
 import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.transforms.splittabledofn.OffsetRangeTracker;
+import org.apache.beam.sdk.transforms.splittabledofn.RestrictionTracker;
 import org.apache.beam.sdk.values.PCollection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,76 +45,199 @@ import org.slf4j.LoggerFactory;
  *
  * <p>To obtain the collection of {@link ReadableFile} from a filepattern, use {@link
  * FileIO#readMatches()}.
+ *
+ * <p>Uncompressed files whose source supports subranges are split into chunks of a fixed number of
+ * bytes. The restriction of an element is a range of chunk indices, so the runner can split a large
+ * file across workers both initially and dynamically, and reports the bytes left in the unread
+ * chunks as the backlog. Each chunk is read as a subrange of the source, which starts and ends the
+ * reads at record boundaries, such as the sync markers of an Avro file. Other files are read whole
+ * as a single chunk.
+ *
+ * <p>The number of chunks read concurrently in a JVM is limited by an {@link
+ * AdaptiveConcurrencyLimiter}.
  */
+@DoFn.BoundedPerElement
 public class ReadFileRangesFn<T> extends DoFn<ReadableFile, T> implements Serializable {
 
   private static final Logger LOG = LoggerFactory.getLogger(ReadFileRangesFn.class);
-  private final SerializableFunction<String, ? extends FileBasedSource<T>> createSource;
+
+  static final long DEFAULT_CHUNK_SIZE_BYTES = 16L << 20;
+
+  // Number of chunks in each initial split of a file, the rest of the splits are left to the
+  // runner.
+  private static final long CHUNKS_PER_INITIAL_SPLIT = 8;
+
+  private static final int INITIAL_CONCURRENT_READS = 5;
+  private static final double MAX_HEAP_USAGE = 0.8;
+
+  private static final AdaptiveConcurrencyLimiter READ_LIMITER =
+      new AdaptiveConcurrencyLimiter(
+          INITIAL_CONCURRENT_READS, 2 * Runtime.getRuntime().availableProcessors(), MAX_HEAP_USAGE);
+
+  private final SerializableFunction<Metadata, ? extends FileBasedSource<T>> createSource;
   private final ReadFileRangesFnExceptionHandler exceptionHandler;
-  private boolean acquiredPermit = false;
-  private static final Semaphore jvmThreads = new Semaphore(5, true);
+  private final long chunkSizeBytes;
 
   private final Counter gcsFilesRead =
       Metrics.counter(ReadFileRangesFn.class, "Total GCS files processed");
 
+  private final Counter chunksRead = Metrics.counter(ReadFileRangesFn.class, "File chunks read");
+
+  private final Gauge concurrencyLimit =
+      Metrics.gauge(ReadFileRangesFn.class, "File read concurrency limit");
+
+  /**
+   * Creates a {@link ReadFileRangesFn} which reads each file whole, with the source created for its
+   * path.
+   */
   public ReadFileRangesFn(
       SerializableFunction<String, ? extends FileBasedSource<T>> createSource,
       ReadFileRangesFnExceptionHandler exceptionHandler) {
+    this(new CreateSourceForPathFn<>(createSource), exceptionHandler, DEFAULT_CHUNK_SIZE_BYTES);
+  }
+
+  /**
+   * Creates a {@link ReadFileRangesFn} which reads each file with the source created for its
+   * metadata. Files are split when the source is a single file source, such as {@code
+   * AvroSource.from(metadata)}.
+   */
+  public static <T> ReadFileRangesFn<T> fromMetadata(
+      SerializableFunction<Metadata, ? extends FileBasedSource<T>> createSource,
+      ReadFileRangesFnExceptionHandler exceptionHandler) {
+    return new ReadFileRangesFn<>(createSource, exceptionHandler, DEFAULT_CHUNK_SIZE_BYTES);
+  }
+
+  ReadFileRangesFn(
+      SerializableFunction<Metadata, ? extends FileBasedSource<T>> createSource,
+      ReadFileRangesFnExceptionHandler exceptionHandler,
+      long chunkSizeBytes) {
     this.createSource = createSource;
     this.exceptionHandler = exceptionHandler;
+    this.chunkSizeBytes = chunkSizeBytes;
   }
 
-  @StartBundle
-  public void startBundle() throws Exception {
-    try {
-      jvmThreads.acquire();
-    } catch (InterruptedException e) {
-      throw e;
+  @GetInitialRestriction
+  public OffsetRange getInitialRestriction(@Element ReadableFile file) {
+    if (!isSplittable(file, createSource.apply(file.getMetadata()))) {
+      return new OffsetRange(0, 1);
+    }
+    long sizeBytes = file.getMetadata().sizeBytes();
+    return new OffsetRange(0, Math.max(1, (sizeBytes + chunkSizeBytes - 1) / chunkSizeBytes));
+  }
+
+  @SplitRestriction
+  public void splitRestriction(
+      @Restriction OffsetRange restriction, OutputReceiver<OffsetRange> receiver) {
+    for (OffsetRange split : restriction.split(CHUNKS_PER_INITIAL_SPLIT, 1)) {
+      receiver.output(split);
     }
-    acquiredPermit = true;
-    LOG.info(String.format("StartBundle: %d", jvmThreads.availablePermits()));
   }
 
-  @FinishBundle
-  public void finishBundle() throws Exception {
-    jvmThreads.release();
-    acquiredPermit = false;
-    LOG.info(String.format("FinishBundle: %d", jvmThreads.availablePermits()));
+  @NewTracker
+  public OffsetRangeTracker newTracker(@Restriction OffsetRange restriction) {
+    return new OffsetRangeTracker(restriction);
   }
 
-  @Teardown
-  public void tearDown() throws Exception {
-    if (acquiredPermit) {
-      jvmThreads.release();
+  @GetRestrictionCoder
+  public OffsetRange.Coder getRestrictionCoder() {
+    return OffsetRange.Coder.of();
+  }
+
+  /** Returns the number of bytes left to read in the given chunks of the file. */
+  @GetSize
+  public double getSize(@Element ReadableFile file, @Restriction OffsetRange restriction) {
+    long sizeBytes = file.getMetadata().sizeBytes();
+    if (!isSplittable(file, createSource.apply(file.getMetadata()))) {
+      return restriction.getTo() > restriction.getFrom() ? sizeBytes : 0;
     }
+    long start = Math.min(restriction.getFrom() * chunkSizeBytes, sizeBytes);
+    long end = Math.min(restriction.getTo() * chunkSizeBytes, sizeBytes);
+    return Math.max(0, end - start);
   }
 
   @ProcessElement
-  public void process(ProcessContext c) throws IOException {
-    gcsFilesRead.inc();
+  public void process(ProcessContext c, RestrictionTracker<OffsetRange, Long> tracker)
+      throws IOException, InterruptedException {
     ReadableFile file = c.element();
-    ResourceId resourceId = file.getMetadata().resourceId();
+    Metadata metadata = file.getMetadata();
+    ResourceId resourceId = metadata.resourceId();
     try {
-      FileBasedSource<T> source =
-          CompressedSource.from(createSource.apply(resourceId.toString()))
-              .withCompression(file.getCompression());
-      try (BoundedSource.BoundedReader<T> reader = source.createReader(c.getPipelineOptions())) {
-        for (boolean more = reader.start(); more; more = reader.advance()) {
-          c.output(reader.getCurrent());
-        }
-      } catch (RuntimeException e) {
-        if (exceptionHandler.apply(file, null, e)) {
-          throw new RuntimeException(
-              String.format(
-                  "Encountered an error while reading from file %s:", resourceId.getFilename()),
-              e);
+      FileBasedSource<T> source = createSource.apply(metadata);
+      boolean splittable = isSplittable(file, source);
+      if (!splittable) {
+        source = CompressedSource.from(source).withCompression(file.getCompression());
+      }
+      for (long chunk = tracker.currentRestriction().getFrom(); tracker.tryClaim(chunk); ++chunk) {
+        if (chunk == 0) {
+          gcsFilesRead.inc();
         }
+        OffsetRange byteRange =
+            splittable
+                ? new OffsetRange(
+                    chunk * chunkSizeBytes,
+                    Math.min((chunk + 1) * chunkSizeBytes, metadata.sizeBytes()))
+                : new OffsetRange(0, metadata.sizeBytes());
+        FileBasedSource<T> chunkSource =
+            splittable
+                ? source.createSourceForSubrange(byteRange.getFrom(), byteRange.getTo())
+                : source;
+        readChunk(c, file, chunkSource, byteRange);
       }
     } catch (FileNotFoundException e) {
       LOG.warn("Ignoring non-existent file {}", resourceId, e);
     }
   }
 
+  private void readChunk(
+      ProcessContext c, ReadableFile file, FileBasedSource<T> source, OffsetRange byteRange)
+      throws IOException, InterruptedException {
+    READ_LIMITER.acquire();
+    long startNanos = System.nanoTime();
+    try (BoundedSource.BoundedReader<T> reader = source.createReader(c.getPipelineOptions())) {
+      for (boolean more = reader.start(); more; more = reader.advance()) {
+        c.output(reader.getCurrent());
+      }
+    } catch (RuntimeException e) {
+      if (exceptionHandler.apply(file, byteRange, e)) {
+        throw new RuntimeException(
+            String.format(
+                "Encountered an error while reading from file %s:",
+                file.getMetadata().resourceId().getFilename()),
+            e);
+      }
+    } finally {
+      READ_LIMITER.release(byteRange.getTo() - byteRange.getFrom(), System.nanoTime() - startNanos);
+      concurrencyLimit.set(READ_LIMITER.getLimit());
+    }
+    chunksRead.inc();
+  }
+
+  /**
+   * Returns whether the file is read in chunks, which requires an uncompressed file and a source
+   * supporting subranges. The sources created from a path are file patterns, so those files are
+   * always read whole as a single chunk.
+   */
+  private static boolean isSplittable(ReadableFile file, FileBasedSource<?> source) {
+    return file.getCompression() == Compression.UNCOMPRESSED
+        && file.getMetadata().isReadSeekEfficient()
+        && source.getMode() == FileBasedSource.Mode.SINGLE_FILE_OR_SUBRANGE;
+  }
+
+  /** Creates the source of a file from its path, so that the file is read whole. */
+  private static class CreateSourceForPathFn<T>
+      implements SerializableFunction<Metadata, FileBasedSource<T>> {
+    private final SerializableFunction<String, ? extends FileBasedSource<T>> createSource;
+
+    CreateSourceForPathFn(SerializableFunction<String, ? extends FileBasedSource<T>> createSource) {
+      this.createSource = createSource;
+    }
+
+    @Override
+    public FileBasedSource<T> apply(Metadata metadata) {
+      return createSource.apply(metadata.resourceId().toString());
+    }
+  }
+
   /** A class to handle errors which occur during file reads. */
   public static class ReadFileRangesFnExceptionHandler implements Serializable {
 
@@ -119,7 +246,7 @@ public class ReadFileRangesFn<T> extends DoFn<ReadableFile, T> implements Serial
      * if the exception should be thrown.
      */
     public boolean apply(ReadableFile file, OffsetRange range, Exception e) {
-      LOG.error("Avro File Read Failure {} {}", file.getMetadata().resourceId(), e);
+      LOG.error("Avro File Read Failure {} {} {}", file.getMetadata().resourceId(), range, e);
       return false;
       // return true;
     }
@@ -18,7 +18,7 @@ package com.google.cloud.teleport.v2.datastream.transforms;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.cloud.teleport.v2.values.FailsafeElement;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
@@ -30,14 +30,16 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Formats a plain datastream-json record coming from Datastream into the full JSON record that we
- * will use downstream.
+ * will use downstream, held as a {@link DatastreamChangeEvent}.
  */
 public final class FormatDatastreamJsonToJson
-    extends FormatDatastreamRecord<String, FailsafeElement<String, String>> {
+    extends FormatDatastreamRecord<String, DatastreamChangeEvent> {
 
   static final Logger LOG = LoggerFactory.getLogger(FormatDatastreamJsonToJson.class);
   static final DateTimeFormatter DEFAULT_TIMESTAMP_WITH_TZ_FORMATTER =
       DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+  // Shared by all records, ObjectMapper is thread safe once configured.
+  static final ObjectMapper MAPPER = new ObjectMapper();
 
   private FormatDatastreamJsonToJson() {}
 
@@ -51,7 +53,7 @@ public final class FormatDatastreamJsonToJson
     JsonNode record = null;
 
     try {
-      record = new ObjectMapper().readTree(c.element());
+      record = MAPPER.readTree(c.element());
 
       // check if payload is null/empty
       // re: b/183584054
@@ -67,8 +69,7 @@ public final class FormatDatastreamJsonToJson
       return;
     }
 
-    ObjectMapper mapper = new ObjectMapper();
-    ObjectNode outputObject = mapper.createObjectNode();
+    ObjectNode outputObject = MAPPER.createObjectNode();
 
     // General DataStream Metadata
     String sourceType = getSourceType(record);
@@ -122,7 +123,7 @@ public final class FormatDatastreamJsonToJson
     // All Raw Metadata
     outputObject.put("_metadata_source", getSourceMetadata(record));
 
-    c.output(FailsafeElement.of(outputObject.toString(), outputObject.toString()));
+    c.output(DatastreamChangeEvent.of(outputObject));
   }
 
   private String getStreamName(JsonNode record) {
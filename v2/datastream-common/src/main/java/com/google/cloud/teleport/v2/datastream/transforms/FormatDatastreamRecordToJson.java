@@ -18,7 +18,7 @@ package com.google.cloud.teleport.v2.datastream.transforms;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.cloud.teleport.v2.values.FailsafeElement;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
@@ -50,10 +50,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Formats a plain Avro-to-json record coming from Datastream into the full JSON record that we will
- * use downstream.
+ * use downstream, held as a {@link DatastreamChangeEvent}.
  */
 public class FormatDatastreamRecordToJson
-    implements SerializableFunction<GenericRecord, FailsafeElement<String, String>> {
+    implements SerializableFunction<GenericRecord, DatastreamChangeEvent> {
 
   /** Names of the custom avro types that we'll be using. */
   public static class CustomAvroTypes {
@@ -70,6 +70,8 @@ public class FormatDatastreamRecordToJson
       DateTimeFormatter.ISO_OFFSET_DATE_TIME;
   static final DecimalConversion DECIMAL_CONVERSION = new DecimalConversion();
   static final DateConversion DATE_CONVERSION = new DateConversion();
+  // Shared by all records, ObjectMapper is thread safe once configured.
+  static final ObjectMapper MAPPER = new ObjectMapper();
   private String streamName;
   private boolean lowercaseSourceColumns = false;
   private String rowIdColumnName;
@@ -112,9 +114,8 @@ public class FormatDatastreamRecordToJson
   }
 
   @Override
-  public FailsafeElement<String, String> apply(GenericRecord record) {
-    ObjectMapper mapper = new ObjectMapper();
-    ObjectNode outputObject = mapper.createObjectNode();
+  public DatastreamChangeEvent apply(GenericRecord record) {
+    ObjectNode outputObject = MAPPER.createObjectNode();
     UnifiedTypesFormatter.payloadToJson(getPayload(record), outputObject);
     if (this.lowercaseSourceColumns) {
       outputObject = getLowerCaseObject(outputObject);
@@ -163,7 +164,7 @@ public class FormatDatastreamRecordToJson
 
     // All Raw Metadata
     outputObject.put("_metadata_source", getSourceMetadataJson(record));
-    return FailsafeElement.of(outputObject.toString(), outputObject.toString());
+    return DatastreamChangeEvent.of(outputObject);
   }
 
   private GenericRecord getPayload(GenericRecord record) {
@@ -171,8 +172,7 @@ public class FormatDatastreamRecordToJson
   }
 
   private ObjectNode getLowerCaseObject(ObjectNode outputObject) {
-    ObjectMapper mapper = new ObjectMapper();
-    ObjectNode loweredOutputObject = mapper.createObjectNode();
+    ObjectNode loweredOutputObject = MAPPER.createObjectNode();
 
     for (Iterator<String> fieldNames = outputObject.fieldNames(); fieldNames.hasNext(); ) {
       String fieldName = fieldNames.next();
@@ -183,10 +183,9 @@ public class FormatDatastreamRecordToJson
   }
 
   private JsonNode getSourceMetadataJson(GenericRecord record) {
-    ObjectMapper mapper = new ObjectMapper();
     JsonNode dataInput;
     try {
-      dataInput = mapper.readTree(record.get("source_metadata").toString());
+      dataInput = MAPPER.readTree(record.get("source_metadata").toString());
     } catch (IOException e) {
       LOG.error("Issue parsing JSON record. Unable to continue.", e);
       throw new RuntimeException(e);
@@ -638,10 +637,9 @@ public class FormatDatastreamRecordToJson
           jsonObject.put(fieldName, convertedIntervalNano);
           break;
         default:
-          ObjectMapper mapper = new ObjectMapper();
           JsonNode dataInput;
           try {
-            dataInput = mapper.readTree(element.toString());
+            dataInput = MAPPER.readTree(element.toString());
             jsonObject.put(fieldName, dataInput);
           } catch (IOException e) {
             LOG.error("Issue parsing JSON record. Unable to continue.", e);
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.values;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.cloud.teleport.v2.datastream.coders.DatastreamChangeEventCoder;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.Map;
+import org.apache.beam.sdk.coders.DefaultCoder;
+
+/**
+ * The {@link DatastreamChangeEvent} class holds one CDC event read from Datastream as the tree of
+ * its flattened row: the {@code _metadata_*} fields followed by the columns of the source row.
+ *
+ * <p>Change events are passed between the stages of the Datastream templates as this tree and
+ * encoded in a compact binary form by {@link DatastreamChangeEventCoder}, so they are not rendered
+ * to and parsed from JSON by every stage. JSON is only rendered with {@link #toJson()} where an
+ * event leaves the pipeline, e.g. to a dead letter queue, and parsed with {@link #fromJson(String)}
+ * where it comes back.
+ *
+ * <p>The tree is normalized to the nodes parsing its JSON would give, e.g. binary values become
+ * their base64 text, so that {@link #readRow(ObjectMapper)} returns the same tree as {@code
+ * mapper.readTree(event.toJson())}. Only the decimals of events built by {@link #fromJson(String)}
+ * are read as big decimals whatever the configuration of the mapper, as they keep their exact
+ * value.
+ */
+@DefaultCoder(DatastreamChangeEventCoder.class)
+public final class DatastreamChangeEvent {
+
+  // Keeps the exact value of decimal numbers, which may not fit a double.
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper()
+          .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+          .setNodeFactory(JsonNodeFactory.withExactBigDecimals(true));
+
+  private final ObjectNode row;
+
+  private DatastreamChangeEvent(ObjectNode row) {
+    this.row = row;
+  }
+
+  /**
+   * Build a {@code DatastreamChangeEvent} for use in pipelines. The event takes ownership of {@code
+   * row}, which must not be modified afterwards.
+   *
+   * @param row The flattened row of the change event.
+   */
+  public static DatastreamChangeEvent of(ObjectNode row) {
+    normalize(row);
+    return new DatastreamChangeEvent(row);
+  }
+
+  /**
+   * Build a {@code DatastreamChangeEvent} from its JSON, e.g. as written to a dead letter queue.
+   *
+   * @param json The flattened row of the change event as a JSON object.
+   */
+  public static DatastreamChangeEvent fromJson(String json) throws IOException {
+    JsonNode row = MAPPER.readTree(json);
+    if (row == null || !row.isObject()) {
+      throw new IOException("Change event is not a JSON object: " + json);
+    }
+    return of((ObjectNode) row);
+  }
+
+  /**
+   * Returns the row of the change event. The tree is shared and must not be modified, stages which
+   * only read the row should use it instead of {@link #readRow(ObjectMapper)}.
+   */
+  public JsonNode getRow() {
+    return row;
+  }
+
+  /**
+   * Returns a copy of the row read with {@code mapper}, as {@code mapper.readTree(toJson())} would
+   * read it but without rendering the JSON. The copy may be modified, and its numbers follow the
+   * configuration of {@code mapper}.
+   */
+  public JsonNode readRow(ObjectMapper mapper) throws IOException {
+    return mapper.readTree(row.traverse());
+  }
+
+  /** Returns the row of the change event rendered as a JSON object. */
+  public String toJson() {
+    return row.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof DatastreamChangeEvent)) {
+      return false;
+    }
+    return row.equals(((DatastreamChangeEvent) o).row);
+  }
+
+  @Override
+  public int hashCode() {
+    return row.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+
+  /**
+   * Replaces, in place, the nodes of {@code node} which would be read back from JSON as another
+   * kind of node. Returns the node replacing {@code node} itself, or {@code node} if it is
+   * unchanged.
+   */
+  private static JsonNode normalize(JsonNode node) {
+    switch (node.getNodeType()) {
+      case OBJECT:
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+          Map.Entry<String, JsonNode> field = fields.next();
+          JsonNode value = normalize(field.getValue());
+          if (value != field.getValue()) {
+            field.setValue(value);
+          }
+        }
+        return node;
+      case ARRAY:
+        ArrayNode array = (ArrayNode) node;
+        for (int i = 0; i < array.size(); i++) {
+          JsonNode value = normalize(array.get(i));
+          if (value != array.get(i)) {
+            array.set(i, value);
+          }
+        }
+        return node;
+      case BINARY:
+        return TextNode.valueOf(Base64Variants.getDefaultVariant().encode(binaryValue(node)));
+      case POJO:
+        Object pojo = ((POJONode) node).getPojo();
+        return pojo == null ? NullNode.getInstance() : normalize(MAPPER.valueToTree(pojo));
+      case NUMBER:
+        return normalizeNumber(node);
+      default:
+        return node;
+    }
+  }
+
+  private static JsonNode normalizeNumber(JsonNode node) {
+    if (node.isIntegralNumber()) {
+      return normalizeIntegral(node);
+    }
+    if (node.isFloat()) {
+      // Floats are rendered with their own shortest representation, which reads back as a double.
+      return DoubleNode.valueOf(Double.parseDouble(Float.toString(node.floatValue())));
+    }
+    if (node.isBigDecimal()) {
+      BigDecimal value = node.decimalValue();
+      String text = value.toString();
+      if (text.indexOf('.') < 0 && text.indexOf('E') < 0) {
+        // Rendered without a fraction or an exponent, so it reads back as an integer.
+        return normalizeIntegral(BigIntegerNode.valueOf(value.toBigIntegerExact()));
+      }
+    }
+    return node;
+  }
+
+  /** Integers read back as the smallest of int, long and big integer nodes holding them. */
+  private static JsonNode normalizeIntegral(JsonNode node) {
+    if (node.isInt()) {
+      return node;
+    } else if (node.canConvertToInt()) {
+      return IntNode.valueOf(node.intValue());
+    } else if (node.isLong()) {
+      return node;
+    } else if (node.canConvertToLong()) {
+      return LongNode.valueOf(node.longValue());
+    } else if (node.isBigInteger()) {
+      return node;
+    }
+    return BigIntegerNode.valueOf(node.bigIntegerValue());
+  }
+
+  private static byte[] binaryValue(JsonNode node) {
+    try {
+      return node.binaryValue();
+    } catch (IOException e) {
+      throw new IllegalStateException("Binary node without a binary value: " + node, e);
+    }
+  }
+}
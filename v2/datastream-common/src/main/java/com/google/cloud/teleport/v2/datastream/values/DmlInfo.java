@@ -18,6 +18,7 @@ package com.google.cloud.teleport.v2.datastream.values;
 import com.google.auto.value.AutoValue;
 import java.io.Serializable;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.beam.sdk.schemas.AutoValueSchema;
 import org.apache.beam.sdk.schemas.annotations.DefaultSchema;
 import org.apache.beam.sdk.schemas.annotations.SchemaCreate;
@@ -43,7 +44,17 @@ public abstract class DmlInfo implements Serializable {
 
   public abstract List<String> getOrderByValues();
 
-  @SchemaCreate
+  /**
+   * The DML as parameterised SQL, or null if the DML can only be applied as {@link #getDmlSql()}.
+   * The SQL is shared by all DMLs of the same kind writing the same columns of a table.
+   */
+  @Nullable
+  public abstract String getPreparedDmlSql();
+
+  /** The values bound, in order, to the parameters of {@link #getPreparedDmlSql()}. */
+  @Nullable
+  public abstract List<String> getPreparedDmlValues();
+
   public static DmlInfo of(
       String failsafeValue,
       String dmlSql,
@@ -53,6 +64,31 @@ public abstract class DmlInfo implements Serializable {
       List<String> orderByFields,
       List<String> primaryKeyValues,
       List<String> orderByValues) {
+    return of(
+        failsafeValue,
+        dmlSql,
+        schemaName,
+        tableName,
+        allPkFields,
+        orderByFields,
+        primaryKeyValues,
+        orderByValues,
+        null,
+        null);
+  }
+
+  @SchemaCreate
+  public static DmlInfo of(
+      String failsafeValue,
+      String dmlSql,
+      String schemaName,
+      String tableName,
+      List<String> allPkFields,
+      List<String> orderByFields,
+      List<String> primaryKeyValues,
+      List<String> orderByValues,
+      @Nullable String preparedDmlSql,
+      @Nullable List<String> preparedDmlValues) {
     return new AutoValue_DmlInfo(
         failsafeValue,
         dmlSql,
@@ -61,7 +97,9 @@ public abstract class DmlInfo implements Serializable {
         allPkFields,
         orderByFields,
         primaryKeyValues,
-        orderByValues);
+        orderByValues,
+        preparedDmlSql,
+        preparedDmlValues);
   }
 
   public String getStateWindowKey() {
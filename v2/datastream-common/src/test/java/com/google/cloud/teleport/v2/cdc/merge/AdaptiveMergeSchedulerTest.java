@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.cdc.merge;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.teleport.v2.cdc.merge.AdaptiveMergeScheduler.JobKeyBalancer;
+import com.google.cloud.teleport.v2.cdc.merge.AdaptiveMergeScheduler.TableMergeSchedule;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link AdaptiveMergeScheduler}. */
+@RunWith(JUnit4.class)
+public class AdaptiveMergeSchedulerTest {
+
+  private static final Duration MIN_INTERVAL = Duration.standardMinutes(2);
+  private static final Duration MAX_INTERVAL = Duration.standardMinutes(30);
+  private static final Duration SETTLE_DELAY = AdaptiveMergeScheduler.SETTLE_DELAY;
+  private static final Instant NOW = Instant.parse("2024-07-14T12:00:00Z");
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  @Test
+  public void testColdTableIsMergedAfterMaxInterval() {
+    TableMergeSchedule schedule = new TableMergeSchedule();
+
+    Instant due = schedule.addRows(mergeInfo("cold"), 10, NOW, MIN_INTERVAL, MAX_INTERVAL, 1000);
+    assertThat(due).isEqualTo(NOW.plus(MAX_INTERVAL));
+    assertThat(schedule.reschedule(due)).isTrue();
+
+    // Later rows do not postpone the merge.
+    Instant later = NOW.plus(Duration.standardMinutes(10));
+    due = schedule.addRows(mergeInfo("cold"), 10, later, MIN_INTERVAL, MAX_INTERVAL, 1000);
+    assertThat(due).isEqualTo(NOW.plus(MAX_INTERVAL));
+    assertThat(schedule.reschedule(due)).isFalse();
+    assertThat(schedule.getStaleness(later)).isEqualTo(Duration.standardMinutes(10));
+  }
+
+  @Test
+  public void testHotTableIsMergedAfterMinInterval() {
+    TableMergeSchedule schedule = new TableMergeSchedule();
+
+    Instant due = schedule.addRows(mergeInfo("hot"), 1000, NOW, MIN_INTERVAL, MAX_INTERVAL, 1000);
+    assertThat(due).isEqualTo(NOW);
+    assertThat(schedule.reschedule(due)).isTrue();
+    assertThat(schedule.takePendingRows(NOW, SETTLE_DELAY)).isEqualTo(1000);
+
+    Instant later = NOW.plus(Duration.standardSeconds(30));
+    due = schedule.addRows(mergeInfo("hot"), 2000, later, MIN_INTERVAL, MAX_INTERVAL, 1000);
+    assertThat(due).isEqualTo(NOW.plus(MIN_INTERVAL));
+    assertThat(schedule.reschedule(due)).isTrue();
+  }
+
+  @Test
+  public void testRowsBeforeMergeAreMergedAgainOnceSettled() {
+    TableMergeSchedule schedule = new TableMergeSchedule();
+
+    schedule.addRows(mergeInfo("hot"), 1000, NOW, MIN_INTERVAL, MAX_INTERVAL, 1000);
+    Instant merged = NOW.plus(Duration.standardSeconds(10));
+    assertThat(schedule.takePendingRows(merged, SETTLE_DELAY)).isEqualTo(1000);
+
+    // The rows may not have landed in the staging table in time for the merge.
+    assertThat(schedule.hasPendingMerge()).isTrue();
+    assertThat(schedule.getStaleness(merged)).isEqualTo(Duration.standardSeconds(10));
+    Instant followUp = schedule.getFollowUpTime(SETTLE_DELAY, MIN_INTERVAL);
+    assertThat(followUp).isEqualTo(NOW.plus(SETTLE_DELAY));
+    assertThat(schedule.reschedule(followUp)).isTrue();
+
+    // Once the follow-up merge ran after the rows settled, the table is not merged again.
+    assertThat(schedule.takePendingRows(followUp, SETTLE_DELAY)).isEqualTo(0);
+    assertThat(schedule.hasPendingMerge()).isFalse();
+    assertThat(schedule.getFollowUpTime(SETTLE_DELAY, MIN_INTERVAL)).isNull();
+    assertThat(schedule.getStaleness(followUp)).isEqualTo(Duration.ZERO);
+  }
+
+  @Test
+  public void testBalancerAssignsLeastLoadedJobKey() {
+    JobKeyBalancer balancer = new JobKeyBalancer(3);
+
+    assertThat(balancer.assign(100, NOW, MIN_INTERVAL)).isEqualTo(0);
+    assertThat(balancer.assign(10, NOW, MIN_INTERVAL)).isEqualTo(1);
+    assertThat(balancer.assign(10, NOW, MIN_INTERVAL)).isEqualTo(2);
+    assertThat(balancer.assign(10, NOW, MIN_INTERVAL)).isEqualTo(1);
+
+    // The outstanding costs decay over time, a key which was loaded can be picked again.
+    Instant later = NOW.plus(MIN_INTERVAL.multipliedBy(10));
+    assertThat(balancer.assign(1000, later, MIN_INTERVAL)).isEqualTo(2);
+    assertThat(balancer.assign(1, later, MIN_INTERVAL)).isEqualTo(1);
+    assertThat(balancer.assign(1, later, MIN_INTERVAL)).isEqualTo(0);
+  }
+
+  @Test
+  public void testSchedulesMergeAndFollowUpPerTable() {
+    TestStream<KV<String, MergeInfo>> rows =
+        TestStream.create(KvCoder.of(StringUtf8Coder.of(), SerializableCoder.of(MergeInfo.class)))
+            .addElements(
+                KV.of("hot", mergeInfo("hot")),
+                KV.of("hot", mergeInfo("hot")),
+                KV.of("hot", mergeInfo("hot")),
+                KV.of("cold", mergeInfo("cold")))
+            .advanceProcessingTime(MAX_INTERVAL.plus(MIN_INTERVAL))
+            .advanceProcessingTime(SETTLE_DELAY)
+            .advanceWatermarkToInfinity();
+
+    PCollection<String> mergedTables =
+        pipeline
+            .apply(rows)
+            .apply(
+                new AdaptiveMergeScheduler(
+                    MergeConfiguration.bigQueryConfiguration()
+                        .withAdaptiveMergeScheduling(MIN_INTERVAL, 2)))
+            .apply(
+                MapElements.into(TypeDescriptors.strings())
+                    .via(merge -> merge.getValue().getReplicaTable().getTable()));
+
+    // Each table is merged once more after its rows settled, and then no longer.
+    PAssert.that(mergedTables).containsInAnyOrder("hot", "cold", "hot", "cold");
+    pipeline.run();
+  }
+
+  @Test
+  public void testMergesOfTheSameTableGetDifferentJobIds() {
+    TestStream<KV<String, MergeInfo>> rows =
+        TestStream.create(KvCoder.of(StringUtf8Coder.of(), SerializableCoder.of(MergeInfo.class)))
+            .addElements(KV.of("hot", mergeInfo("hot")), KV.of("hot", mergeInfo("hot")))
+            .advanceProcessingTime(MAX_INTERVAL.plus(MIN_INTERVAL))
+            .advanceProcessingTime(SETTLE_DELAY)
+            .advanceWatermarkToInfinity();
+
+    PCollection<String> jobIds =
+        pipeline
+            .apply(rows)
+            .apply(
+                new AdaptiveMergeScheduler(
+                    MergeConfiguration.bigQueryConfiguration()
+                        .withAdaptiveMergeScheduling(MIN_INTERVAL, 2)))
+            .apply(
+                MapElements.into(TypeDescriptors.strings())
+                    .via(merge -> merge.getValue().getJobId()));
+
+    // The merge and its follow-up are scheduled from the same merge info, but are distinct jobs.
+    PAssert.that(jobIds)
+        .satisfies(
+            ids -> {
+              assertThat(ids).hasSize(2);
+              assertThat(ImmutableSet.copyOf(ids)).hasSize(2);
+              assertThat(ids).doesNotContain("job-hot");
+              return null;
+            });
+    pipeline.run();
+  }
+
+  private static MergeInfo mergeInfo(String table) {
+    return MergeInfo.create(
+        "project",
+        ImmutableList.of("id"),
+        ImmutableList.of("_metadata_timestamp"),
+        "_metadata_deleted",
+        TableId.of("project", "staging", table + "_log"),
+        TableId.of("project", "replica", table),
+        "job-" + table);
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.cdc.merge;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.teleport.v2.cdc.merge.BigQueryMerger.BigQueryStatementIssuingFn;
+import com.google.cloud.teleport.v2.cdc.merge.BigQueryMerger.IncrementalStatementIssuingFn;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.KV;
+import org.joda.time.Duration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link BigQueryMerger}. */
+@RunWith(JUnit4.class)
+public class BigQueryMergerTest {
+
+  // The greatest primary sort field value of the rows in every staging table.
+  private static final long LATEST_STAGED_VALUE = 100L;
+
+  private static final Duration MIN_INTERVAL = Duration.standardMinutes(2);
+  private static final Duration MAX_INTERVAL = MergeConfiguration.DEFAULT_MERGE_WINDOW_DURATION;
+
+  // The tables and lower bounds of the merges issued by FakeStatementIssuingFn.
+  private static final List<String> ISSUED_MERGES = Collections.synchronizedList(new ArrayList<>());
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  @Before
+  public void setUp() {
+    ISSUED_MERGES.clear();
+  }
+
+  @Test
+  public void testIncrementalMergeSkipsIdleTable() {
+    MergeConfiguration configuration =
+        MergeConfiguration.bigQueryConfiguration()
+            .withIncrementalMerge(Duration.standardMinutes(5));
+    TestStream<KV<String, MergeInfo>> merges =
+        TestStream.create(KvCoder.of(StringUtf8Coder.of(), SerializableCoder.of(MergeInfo.class)))
+            .addElements(KV.of("idle", mergeInfo("idle")))
+            .addElements(KV.of("idle", mergeInfo("idle")))
+            .addElements(KV.of("idle", mergeInfo("idle")))
+            .advanceWatermarkToInfinity();
+
+    pipeline
+        .apply(merges)
+        .apply(
+            ParDo.of(
+                new IncrementalStatementIssuingFn(new FakeStatementIssuingFn(configuration))));
+    pipeline.run();
+
+    // Only the first merge reads the rows, the rows in the overlap do not trigger more merges.
+    assertThat(ISSUED_MERGES).containsExactly("idle after null");
+  }
+
+  @Test
+  public void testIncrementalMergeWithAdaptiveSchedulingKeepsWatermarksPerTable() {
+    MergeConfiguration configuration =
+        MergeConfiguration.bigQueryConfiguration()
+            .withMergeConcurrency(2)
+            .withAdaptiveMergeScheduling(MIN_INTERVAL, 2)
+            .withIncrementalMerge(Duration.standardMinutes(5));
+    TestStream<MergeInfo> rows =
+        TestStream.create(SerializableCoder.of(MergeInfo.class))
+            .addElements(mergeInfo("hot"), mergeInfo("hot"), mergeInfo("hot"), mergeInfo("cold"))
+            .advanceProcessingTime(MAX_INTERVAL.plus(MIN_INTERVAL))
+            .advanceProcessingTime(AdaptiveMergeScheduler.SETTLE_DELAY)
+            .advanceWatermarkToInfinity();
+
+    pipeline
+        .apply(rows)
+        .apply(
+            new BigQueryMerger(null, configuration) {
+              @Override
+              BigQueryStatementIssuingFn createStatementIssuingFn() {
+                return new FakeStatementIssuingFn(configuration);
+              }
+            });
+    pipeline.run();
+
+    // Each table is merged twice by the scheduler, and its follow-up merge may get another job key
+    // than its first merge. The follow-up still finds the watermark and is skipped.
+    assertThat(ISSUED_MERGES).containsExactly("hot after null", "cold after null");
+  }
+
+  private static MergeInfo mergeInfo(String table) {
+    return MergeInfo.create(
+        "project",
+        ImmutableList.of("id"),
+        ImmutableList.of("_metadata_timestamp"),
+        "_metadata_deleted",
+        TableId.of("project", "staging", table + "_log"),
+        TableId.of("project", "replica", table),
+        "job-" + table);
+  }
+
+  /** Issues no BigQuery jobs, and records the merges instead. */
+  private static class FakeStatementIssuingFn extends BigQueryStatementIssuingFn {
+
+    FakeStatementIssuingFn(MergeConfiguration mergeConfiguration) {
+      super(null, mergeConfiguration);
+    }
+
+    @Override
+    public void setUp() {}
+
+    @Override
+    boolean issueMerge(MergeInfo mergeInfo, @Nullable Long sortFieldLowerBound) {
+      ISSUED_MERGES.add(mergeInfo.getReplicaTable().getTable() + " after " + sortFieldLowerBound);
+      return true;
+    }
+
+    @Override
+    @Nullable
+    Long queryLatestSortFieldValue(MergeInfo mergeInfo, @Nullable Long sortFieldLowerBound) {
+      return sortFieldLowerBound == null || sortFieldLowerBound < LATEST_STAGED_VALUE
+          ? LATEST_STAGED_VALUE
+          : null;
+    }
+  }
+}
@@ -155,6 +155,35 @@ public final class MergeInfoTest {
     assertThat(mergeInfo.buildMergeStatement(cfg)).isEqualTo(MERGE_SQL);
   }
 
+  @Test
+  public void buildMergeStatement_withSortFieldLowerBound() {
+    MergeInfo mergeInfo =
+        MergeInfo.create(
+            "projectId",
+            ImmutableList.of("id"),
+            ImmutableList.of("timestamp", "other"),
+            "metadata_deleteField",
+            TableId.of("projectId", "dataset", "staging_table"),
+            TableId.of("projectId", "dataset", "table"),
+            ImmutableList.of("id, cola", "colb", "timestamp", "other"),
+            "job-id-dataset-table");
+    MergeConfiguration cfg = MergeConfiguration.bigQueryConfiguration();
+
+    assertThat(mergeInfo.buildMergeStatement(cfg, 1000L))
+        .isEqualTo(
+            MERGE_SQL.replace(
+                "metadata_deleteField))) WHERE row_num=1",
+                "metadata_deleteField)) AND `timestamp` > 1000) WHERE row_num=1"));
+    assertThat(mergeInfo.buildLatestSortFieldValueQuery(cfg, 1000L))
+        .isEqualTo(
+            "SELECT MAX(`timestamp`) FROM `projectId.dataset.staging_table` WHERE"
+                + " COALESCE(_PARTITIONTIME, CURRENT_TIMESTAMP()) >= TIMESTAMP(DATE_ADD(CURRENT_DATE(),"
+                + " INTERVAL -2 DAY)) AND (COALESCE(_PARTITIONTIME, CURRENT_TIMESTAMP()) >="
+                + " TIMESTAMP(DATE_ADD(CURRENT_DATE(), INTERVAL -1 DAY))    OR (_PARTITIONTIME >="
+                + " TIMESTAMP(DATE_ADD(CURRENT_DATE(), INTERVAL -2 DAY))        AND"
+                + " metadata_deleteField)) AND `timestamp` > 1000");
+  }
+
   @Test
   public void getMergeFields_expectedResult() {
     MergeInfo mergeInfo = buildSampleMergeInfo();
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.coders;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import org.apache.beam.sdk.coders.Coder.NonDeterministicException;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DatastreamChangeEventCoder}. */
+@RunWith(JUnit4.class)
+public class DatastreamChangeEventCoderTest {
+
+  private static final DatastreamChangeEventCoder CODER = DatastreamChangeEventCoder.of();
+
+  @Test
+  public void testCoderRoundTrip() throws Exception {
+    ObjectNode row = JsonNodeFactory.instance.objectNode();
+    row.put("_metadata_table", "users");
+    row.put("_metadata_deleted", true);
+    row.put("_metadata_lsn", false);
+    row.put("id", -42);
+    row.put("_metadata_timestamp", Long.MIN_VALUE);
+    row.put("big_id", new BigInteger("-123456789012345678901234567890"));
+    row.put("ratio", -0.1d);
+    row.put("amount", new BigDecimal("-10.50"));
+    row.put("tiny", new BigDecimal("1E-40"));
+    row.put("name", "Zoë");
+    row.putNull("missing");
+    row.putArray("tags").add("a").add(1).addArray();
+    row.putObject("nested").put("k", "v");
+    DatastreamChangeEvent event = DatastreamChangeEvent.of(row);
+
+    CoderProperties.coderDecodeEncodeEqual(CODER, event);
+    CoderProperties.coderDecodeEncodeEqual(
+        CODER, DatastreamChangeEvent.of(JsonNodeFactory.instance.objectNode()));
+  }
+
+  @Test
+  public void testCoderKeepsNodeKinds() throws Exception {
+    DatastreamChangeEvent event =
+        DatastreamChangeEvent.fromJson("{\"id\":1,\"ts\":5000000000,\"amount\":10.50}");
+
+    JsonNode decoded = CoderUtils.clone(CODER, event).getRow();
+
+    assertTrue(decoded.get("id").isInt());
+    assertTrue(decoded.get("ts").isLong());
+    assertEquals(new BigDecimal("10.50"), decoded.get("amount").decimalValue());
+  }
+
+  @Test
+  public void testCoderWritesMetadataFieldNamesAsIndexes() throws Exception {
+    ObjectNode row = JsonNodeFactory.instance.objectNode();
+    row.put("_metadata_table", "users");
+    row.put("_metadata_timestamp", 1L);
+    row.put("name", "Zoë");
+    DatastreamChangeEvent event = DatastreamChangeEvent.fromJson(row.toString());
+
+    String encoded = new String(CoderUtils.encodeToByteArray(CODER, event), UTF_8);
+
+    assertFalse(encoded.contains("_metadata_table"));
+    assertFalse(encoded.contains("_metadata_timestamp"));
+    assertTrue(encoded.contains("name"));
+    assertEquals(event, CoderUtils.clone(CODER, event));
+  }
+
+  @Test
+  public void testCoderIsNotDeterministic() {
+    assertThrows(NonDeterministicException.class, CODER::verifyDeterministic);
+  }
+
+  @Test
+  public void testDecodeRejectsInvalidInput() {
+    assertThrows(CoderException.class, () -> CODER.decode(new ByteArrayInputStream(new byte[] {})));
+    assertThrows(
+        CoderException.class, () -> CODER.decode(new ByteArrayInputStream(new byte[] {42})));
+    assertThrows(
+        CoderException.class, () -> CODER.decode(new ByteArrayInputStream(new byte[] {2})));
+    // An object with a field name index outside the dictionary.
+    assertThrows(
+        CoderException.class,
+        () -> CODER.decode(new ByteArrayInputStream(new byte[] {10, 1, 100, 0})));
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.io;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.teleport.v2.datastream.io.CdcJdbcIO.PreparedStatementFormatter;
+import com.google.cloud.teleport.v2.datastream.io.CdcJdbcIO.WriteVoid.WriteFn;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Test cases for the batched writes of {@link CdcJdbcIO}. */
+@RunWith(JUnit4.class)
+public class CdcJdbcIOTest {
+
+  private static DataSource dataSource;
+
+  private Connection connection;
+
+  /** Statements in the order their batches were executed, with the values of each batch. */
+  private List<String> executedBatches;
+
+  /** Values bound to the batches which were committed. */
+  private List<String> committedValues;
+
+  private List<String> uncommittedValues;
+
+  @Before
+  public void setUp() throws SQLException {
+    connection = mock(Connection.class);
+    dataSource = mock(DataSource.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.createStatement()).thenReturn(mock(Statement.class));
+    executedBatches = new ArrayList<>();
+    committedValues = new ArrayList<>();
+    uncommittedValues = new ArrayList<>();
+    when(connection.prepareStatement(anyString()))
+        .thenAnswer(invocation -> preparedStatement(invocation.getArgument(0)));
+    doAnswer(
+            invocation -> {
+              committedValues.addAll(uncommittedValues);
+              uncommittedValues.clear();
+              return null;
+            })
+        .when(connection)
+        .commit();
+    doAnswer(
+            invocation -> {
+              uncommittedValues.clear();
+              return null;
+            })
+        .when(connection)
+        .rollback();
+  }
+
+  /** Returns a statement which fails to execute any batch binding the value {@code "bad"}. */
+  private PreparedStatement preparedStatement(String sql) throws SQLException {
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    List<String> parameters = new ArrayList<>();
+    List<String> batch = new ArrayList<>();
+    doAnswer(invocation -> parameters.add(invocation.getArgument(1)))
+        .when(preparedStatement)
+        .setString(anyInt(), anyString());
+    doAnswer(invocation -> batch.addAll(parameters)).when(preparedStatement).addBatch();
+    doAnswer(
+            invocation -> {
+              parameters.clear();
+              return null;
+            })
+        .when(preparedStatement)
+        .clearParameters();
+    doAnswer(
+            invocation -> {
+              batch.clear();
+              return null;
+            })
+        .when(preparedStatement)
+        .clearBatch();
+    when(preparedStatement.executeBatch())
+        .thenAnswer(
+            invocation -> {
+              executedBatches.add(sql + " " + batch);
+              if (batch.contains("bad")) {
+                throw new SQLException("Duplicate key", "23505");
+              }
+              uncommittedValues.addAll(batch);
+              return new int[batch.size()];
+            });
+    return preparedStatement;
+  }
+
+  /**
+   * Formats records written as {@code "<sql>|<row key>|<value>"}, binding the value as the only
+   * parameter.
+   */
+  private static class TestFormatter implements PreparedStatementFormatter<String> {
+    @Override
+    public String formatPreparedStatement(String element) {
+      return element.split("\\|")[0];
+    }
+
+    @Override
+    public void setParameters(String element, PreparedStatement preparedStatement)
+        throws SQLException {
+      preparedStatement.setString(1, element.split("\\|")[2]);
+    }
+
+    @Override
+    public String getRowKey(String element) {
+      return element.split("\\|")[1];
+    }
+  }
+
+  private void write(String... records) throws Exception {
+    CdcJdbcIO.WriteVoid<String> spec =
+        CdcJdbcIO.<String>writeVoid()
+            .withDataSourceProviderFn(input -> dataSource)
+            .withStatementFormatter(element -> element)
+            .withPreparedStatementFormatter(new TestFormatter())
+            // failures are not retried, so the failing batches are bisected right away
+            .withRetryStrategy(exception -> false);
+    WriteFn<String> writeFn = new WriteFn<>(spec);
+    writeFn.setup();
+    writeFn.startBundle();
+    for (String record : records) {
+      writeFn.processElement(processContext(record));
+    }
+    writeFn.finishBundle();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static DoFn<String, Void>.ProcessContext processContext(String record) {
+    DoFn<String, Void>.ProcessContext context = mock(DoFn.ProcessContext.class);
+    when(context.element()).thenReturn(record);
+    return context;
+  }
+
+  @Test
+  public void testRecordsAreBatchedByStatement() throws Exception {
+    write(
+        "INSERT INTO t1|t1:1|a",
+        "INSERT INTO t2|t2:1|b",
+        "INSERT INTO t1|t1:2|c",
+        "INSERT INTO t2|t2:2|d");
+
+    assertThat(executedBatches).containsExactly("INSERT INTO t1 [a, c]", "INSERT INTO t2 [b, d]");
+    verify(connection, times(1)).prepareStatement("INSERT INTO t1");
+    verify(connection, times(1)).prepareStatement("INSERT INTO t2");
+    assertThat(committedValues).containsExactly("a", "c", "b", "d").inOrder();
+    verify(connection, times(1)).close();
+  }
+
+  @Test
+  public void testChangesToTheSameRowAreWrittenInOrder() throws Exception {
+    write(
+        "INSERT INTO t1|t1:1|a",
+        "DELETE FROM t1|t1:1|a",
+        "INSERT INTO t1|t1:2|b",
+        "INSERT INTO t1|t1:1|c");
+
+    // the second change to row t1:1 flushes the batches holding the first one, and so on
+    assertThat(executedBatches)
+        .containsExactly(
+            "INSERT INTO t1 [a]", "DELETE FROM t1 [a]", "INSERT INTO t1 [b]", "INSERT INTO t1 [c]")
+        .inOrder();
+    assertThat(committedValues).containsExactly("a", "a", "b", "c").inOrder();
+    // the prepared statements are reused across the flushes
+    verify(connection, times(1)).prepareStatement("INSERT INTO t1");
+  }
+
+  @Test
+  public void testFailingBatchIsBisectedToSkipTheFailingRecords() throws Exception {
+    write(
+        "INSERT INTO t1|t1:1|a",
+        "INSERT INTO t1|t1:2|b",
+        "INSERT INTO t1|t1:3|bad",
+        "INSERT INTO t1|t1:4|d");
+
+    assertThat(executedBatches)
+        .containsExactly(
+            "INSERT INTO t1 [a, b, bad, d]",
+            // bisection
+            "INSERT INTO t1 [a, b, bad, d]",
+            "INSERT INTO t1 [a, b]",
+            "INSERT INTO t1 [bad, d]",
+            "INSERT INTO t1 [bad]",
+            "INSERT INTO t1 [d]")
+        .inOrder();
+    assertThat(committedValues).containsExactly("a", "b", "d").inOrder();
+    verify(connection, times(4)).rollback();
+  }
+}
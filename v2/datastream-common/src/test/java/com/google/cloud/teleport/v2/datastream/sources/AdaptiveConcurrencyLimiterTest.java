@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.sources;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link AdaptiveConcurrencyLimiter}. */
+@RunWith(JUnit4.class)
+public class AdaptiveConcurrencyLimiterTest {
+
+  @Test
+  public void testLimitGrowsWithSuccessfulReads() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 3, 0.8, () -> 0.1);
+
+    for (int i = 0; i < 10; i++) {
+      limiter.acquire();
+      limiter.release(1000, 1000);
+    }
+
+    assertThat(limiter.getLimit()).isEqualTo(3);
+  }
+
+  @Test
+  public void testLimitShrinksUnderHeapPressure() throws InterruptedException {
+    AtomicReference<Double> heapUsage = new AtomicReference<>(0.1);
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 8, 0.8, heapUsage::get);
+
+    heapUsage.set(0.9);
+    limiter.acquire();
+    limiter.release(1000, 1000);
+    assertThat(limiter.getLimit()).isEqualTo(4);
+
+    for (int i = 0; i < 5; i++) {
+      limiter.acquire();
+      limiter.release(1000, 1000);
+    }
+    assertThat(limiter.getLimit()).isEqualTo(1);
+  }
+
+  @Test
+  public void testLimitShrinksOnSlowReads() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 8, 0.8, () -> 0.1);
+
+    limiter.acquire();
+    limiter.release(1000, 1000);
+    limiter.acquire();
+    limiter.release(1000, 10000);
+
+    assertThat(limiter.getLimit()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.sources;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.storage.model.StorageObject;
+import com.google.cloud.teleport.v2.datastream.sources.IncrementalFileListingFn.ListingCursor;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.gcp.util.gcsfs.GcsPath;
+import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
+import org.apache.beam.sdk.io.fs.MetadataCoderV2;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.TimeDomain;
+import org.apache.beam.sdk.state.Timer;
+import org.apache.beam.sdk.state.TimerSpec;
+import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.WithKeys;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link IncrementalFileListingFn}. */
+@RunWith(JUnit4.class)
+public class IncrementalFileListingFnTest {
+
+  private static final String TABLE_DIRECTORY = "gs://bucket/root/HR_JOBS/";
+  private static final Duration WATCH_DURATION = Duration.standardMinutes(10);
+  private static final Instant NOW = Instant.parse("2024-07-14T12:30:00Z");
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  @Test
+  public void testReturnsOnlyNewFiles() {
+    ListingCursor cursor = new ListingCursor(TABLE_DIRECTORY);
+    StorageObject first = object("root/HR_JOBS/2024/07/14/12/29/a.avro", NOW);
+
+    assertThat(names(cursor.update(Arrays.asList(first), NOW, WATCH_DURATION)))
+        .containsExactly(first.getName());
+
+    StorageObject second = object("root/HR_JOBS/2024/07/14/12/29/b.avro", NOW);
+    StorageObject directory = object("root/HR_JOBS/2024/07/14/12/30/", NOW);
+    assertThat(names(cursor.update(Arrays.asList(first, second, directory), NOW, WATCH_DURATION)))
+        .containsExactly(second.getName());
+  }
+
+  @Test
+  public void testStartsAtEarliestWatchedDirectory() {
+    ListingCursor cursor = new ListingCursor(TABLE_DIRECTORY);
+    assertThat(cursor.getStartOffset()).isEqualTo("root/HR_JOBS/");
+
+    cursor.update(
+        Arrays.asList(
+            object("root/HR_JOBS/2024/07/14/12/00/a.avro", NOW.minus(Duration.standardMinutes(30))),
+            object("root/HR_JOBS/2024/07/14/12/25/a.avro", NOW.minus(Duration.standardMinutes(5))),
+            object("root/HR_JOBS/2024/07/14/12/29/a.avro", NOW)),
+        NOW,
+        WATCH_DURATION);
+    assertThat(cursor.getStartOffset()).isEqualTo("root/HR_JOBS/2024/07/14/12/25/");
+
+    // Once no file was updated within the watch duration, only the latest directory is listed.
+    Instant later = NOW.plus(Duration.standardMinutes(20));
+    cursor.update(Arrays.asList(), later, WATCH_DURATION);
+    assertThat(cursor.getStartOffset()).isEqualTo("root/HR_JOBS/2024/07/14/12/29/");
+  }
+
+  @Test
+  public void testAdaptsPollInterval() {
+    ListingCursor cursor = new ListingCursor(TABLE_DIRECTORY);
+
+    cursor.update(Arrays.asList(), NOW, WATCH_DURATION);
+    cursor.update(Arrays.asList(), NOW, WATCH_DURATION);
+    assertThat(cursor.getPollInterval()).isEqualTo(Duration.standardSeconds(20));
+
+    for (int i = 0; i < 10; i++) {
+      cursor.update(Arrays.asList(), NOW, WATCH_DURATION);
+    }
+    assertThat(cursor.getPollInterval()).isEqualTo(IncrementalFileListingFn.MAX_POLL_INTERVAL);
+
+    cursor.update(
+        Arrays.asList(object("root/HR_JOBS/2024/07/14/12/29/a.avro", NOW)), NOW, WATCH_DURATION);
+    assertThat(cursor.getPollInterval()).isEqualTo(Duration.standardSeconds(30));
+  }
+
+  /**
+   * Tests that the files are output with the time of their poll, and that the output watermark
+   * advances from one poll to the next instead of staying at the timestamp of the directory.
+   */
+  @Test
+  public void testWatermarkAdvancesAcrossPolls() {
+    FakeListingFn.POLLS.set(0);
+    TestStream<KV<String, String>> directories =
+        TestStream.create(KvCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of()))
+            .addElements(TimestampedValue.of(KV.of(TABLE_DIRECTORY, TABLE_DIRECTORY), NOW))
+            .advanceWatermarkTo(Instant.now().plus(Duration.standardDays(1)))
+            .advanceProcessingTime(IncrementalFileListingFn.MAX_POLL_INTERVAL)
+            .advanceProcessingTime(IncrementalFileListingFn.MAX_POLL_INTERVAL)
+            .advanceProcessingTime(IncrementalFileListingFn.MAX_POLL_INTERVAL)
+            .advanceWatermarkToInfinity();
+
+    PCollection<KV<String, Integer>> pollsWhenPassed =
+        pipeline
+            .apply(directories)
+            .apply(ParDo.of(new FakeListingFn()))
+            .apply(WithKeys.of((Metadata file) -> file.resourceId().getFilename()))
+            .setCoder(KvCoder.of(StringUtf8Coder.of(), MetadataCoderV2.of()))
+            .apply(ParDo.of(new WatermarkObserverFn()));
+
+    // The watermark passes the file of the first poll at the second poll.
+    PAssert.that(pollsWhenPassed)
+        .satisfies(
+            passed -> {
+              assertThat(passed).contains(KV.of("0.avro", 2));
+              return null;
+            });
+    pipeline.run();
+  }
+
+  /** Lists one more file at each poll, instead of listing GCS. */
+  private static class FakeListingFn extends IncrementalFileListingFn {
+
+    private static final AtomicInteger POLLS = new AtomicInteger();
+
+    FakeListingFn() {
+      super(WATCH_DURATION, null);
+    }
+
+    @Override
+    List<StorageObject> listObjects(GcsPath path, String startOffset) {
+      try {
+        // Leaves some time between the polls, so that each of them has a later timestamp.
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      int poll = POLLS.incrementAndGet();
+      List<StorageObject> objects = new ArrayList<>();
+      for (int i = 0; i < poll; i++) {
+        objects.add(
+            object("root/HR_JOBS/2024/07/14/12/29/" + i + ".avro", Instant.now())
+                .setSize(BigInteger.ONE));
+      }
+      return objects;
+    }
+  }
+
+  /** Outputs, when the watermark passes the timestamp of a file, the number of polls so far. */
+  private static class WatermarkObserverFn extends DoFn<KV<String, Metadata>, KV<String, Integer>> {
+
+    @StateId("file")
+    private final StateSpec<ValueState<String>> fileSpec = StateSpecs.value(StringUtf8Coder.of());
+
+    @TimerId("passed")
+    private final TimerSpec passedSpec = TimerSpecs.timer(TimeDomain.EVENT_TIME);
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<String, Metadata> file,
+        @Timestamp Instant timestamp,
+        @StateId("file") ValueState<String> fileState,
+        @TimerId("passed") Timer passed) {
+      assertThat(timestamp).isGreaterThan(NOW);
+      fileState.write(file.getKey());
+      passed.set(timestamp);
+    }
+
+    @OnTimer("passed")
+    public void onPassed(
+        @StateId("file") ValueState<String> fileState, OutputReceiver<KV<String, Integer>> out) {
+      out.output(KV.of(fileState.read(), FakeListingFn.POLLS.get()));
+    }
+  }
+
+  private static StorageObject object(String name, Instant updated) {
+    return new StorageObject()
+        .setBucket("bucket")
+        .setName(name)
+        .setUpdated(new DateTime(updated.getMillis()));
+  }
+
+  private static List<String> names(List<StorageObject> objects) {
+    return objects.stream().map(StorageObject::getName).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.sources;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Strings;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.avro.io.AvroSource;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.values.PCollection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ReadFileRangesFn}. */
+@RunWith(JUnit4.class)
+public class ReadFileRangesFnTest {
+
+  private static final Schema SCHEMA =
+      SchemaBuilder.record("Row").fields().requiredString("value").endRecord();
+
+  private static final String PADDING_SEPARATOR = "|";
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  @Rule public final transient TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadsEachRecordOnceAcrossChunks() throws IOException {
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      values.add("value-" + i);
+    }
+    File file = writeAvroFile(values);
+
+    PCollection<String> records =
+        pipeline
+            .apply(FileIO.match().filepattern(file.getAbsolutePath()))
+            .apply(FileIO.readMatches())
+            .apply(
+                ParDo.of(
+                    new ReadFileRangesFn<String>(
+                        new CreateValueSourceFn(),
+                        new ReadFileRangesFn.ReadFileRangesFnExceptionHandler(),
+                        1024)))
+            .setCoder(StringUtf8Coder.of());
+
+    PAssert.that(records).containsInAnyOrder(values);
+    pipeline.run();
+  }
+
+  @Test
+  public void testReadsFilesWholeWithSourcesCreatedFromPath() throws IOException {
+    // Pads the records so that the file spans several chunks of the default size.
+    String padding = Strings.repeat("x", 100 * 1024);
+    List<String> values = new ArrayList<>();
+    List<String> paddedValues = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      values.add("value-" + i);
+      paddedValues.add("value-" + i + PADDING_SEPARATOR + padding);
+    }
+    File file = writeAvroFile(paddedValues);
+    assertThat(file.length()).isGreaterThan(ReadFileRangesFn.DEFAULT_CHUNK_SIZE_BYTES);
+
+    PCollection<String> records =
+        pipeline
+            .apply(FileIO.match().filepattern(file.getAbsolutePath()))
+            .apply(FileIO.readMatches())
+            .apply(
+                ParDo.of(
+                    new ReadFileRangesFn<String>(
+                        new CreateUnpaddedValueSourceFn(),
+                        new ReadFileRangesFn.ReadFileRangesFnExceptionHandler())))
+            .setCoder(StringUtf8Coder.of());
+
+    PAssert.that(records).containsInAnyOrder(values);
+    pipeline.run();
+  }
+
+  private File writeAvroFile(List<String> values) throws IOException {
+    File file = tmpFolder.newFile("rows.avro");
+    try (DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(SCHEMA))) {
+      writer.setSyncInterval(64);
+      writer.create(SCHEMA, file);
+      for (String value : values) {
+        GenericRecord record = new GenericData.Record(SCHEMA);
+        record.put("value", value);
+        writer.append(record);
+      }
+    }
+    return file;
+  }
+
+  private static class CreateUnpaddedValueSourceFn
+      implements SerializableFunction<String, AvroSource<String>> {
+    @Override
+    public AvroSource<String> apply(String path) {
+      return AvroSource.from(path)
+          .withParseFn(
+              record -> {
+                String value = record.get("value").toString();
+                return value.substring(0, value.indexOf(PADDING_SEPARATOR));
+              },
+              StringUtf8Coder.of());
+    }
+  }
+
+  private static class CreateValueSourceFn
+      implements SerializableFunction<Metadata, AvroSource<String>> {
+    @Override
+    public AvroSource<String> apply(Metadata metadata) {
+      return AvroSource.from(metadata)
+          .withParseFn(record -> record.get("value").toString(), StringUtf8Coder.of());
+    }
+  }
+}
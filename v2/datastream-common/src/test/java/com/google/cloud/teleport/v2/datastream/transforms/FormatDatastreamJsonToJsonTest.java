@@ -15,15 +15,13 @@
  */
 package com.google.cloud.teleport.v2.datastream.transforms;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.cloud.teleport.v2.coders.FailsafeElementCoder;
-import com.google.cloud.teleport.v2.values.FailsafeElement;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
 import java.util.Map;
-import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Create;
@@ -61,13 +59,7 @@ public class FormatDatastreamJsonToJsonTest {
   public void testProcessElement_validJson() {
     Map<String, String> renameColumns = ImmutableMap.of("_metadata_row_id", "rowid");
 
-    FailsafeElement<String, String> expectedElement =
-        FailsafeElement.of(EXAMPLE_DATASTREAM_RECORD, EXAMPLE_DATASTREAM_RECORD);
-
-    FailsafeElementCoder<String, String> failsafeElementCoder =
-        FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of());
-
-    PCollection<FailsafeElement<String, String>> pCollection =
+    PCollection<String> pCollection =
         pipeline
             .apply("CreateInput", Create.of(EXAMPLE_DATASTREAM_JSON))
             .apply(
@@ -78,11 +70,9 @@ public class FormatDatastreamJsonToJsonTest {
                             .withStreamName("my-stream")
                             .withRenameColumnValues(renameColumns)
                             .withLowercaseSourceColumns(false)))
-            .setCoder(failsafeElementCoder)
-            .apply("RemoveTimestampProperty", ParDo.of(new RemoveTimestampPropertyFn()))
-            .setCoder(failsafeElementCoder);
+            .apply("RemoveTimestampProperty", ParDo.of(new RemoveTimestampPropertyFn()));
 
-    PAssert.that(pCollection).containsInAnyOrder(expectedElement);
+    PAssert.that(pCollection).containsInAnyOrder(EXAMPLE_DATASTREAM_RECORD);
 
     pipeline.run();
   }
@@ -91,14 +81,7 @@ public class FormatDatastreamJsonToJsonTest {
   public void testProcessElement_hashRowId() {
     Map<String, String> renameColumns = ImmutableMap.of("_metadata_row_id", "rowid");
 
-    FailsafeElement<String, String> expectedElement =
-        FailsafeElement.of(
-            EXAMPLE_DATASTREAM_RECORD_WITH_HASH_ROWID, EXAMPLE_DATASTREAM_RECORD_WITH_HASH_ROWID);
-
-    FailsafeElementCoder<String, String> failsafeElementCoder =
-        FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of());
-
-    PCollection<FailsafeElement<String, String>> pCollection =
+    PCollection<String> pCollection =
         pipeline
             .apply("CreateInput", Create.of(EXAMPLE_DATASTREAM_JSON))
             .apply(
@@ -110,30 +93,25 @@ public class FormatDatastreamJsonToJsonTest {
                             .withRenameColumnValues(renameColumns)
                             .withHashRowId(true)
                             .withLowercaseSourceColumns(false)))
-            .setCoder(failsafeElementCoder)
-            .apply("RemoveDataflowTimestampProperty", ParDo.of(new RemoveTimestampPropertyFn()))
-            .setCoder(failsafeElementCoder);
+            .apply("RemoveDataflowTimestampProperty", ParDo.of(new RemoveTimestampPropertyFn()));
 
-    PAssert.that(pCollection).containsInAnyOrder(expectedElement);
+    PAssert.that(pCollection).containsInAnyOrder(EXAMPLE_DATASTREAM_RECORD_WITH_HASH_ROWID);
 
     pipeline.run();
   }
 
   // Static nested DoFn class to remove timestamp property
-  static class RemoveTimestampPropertyFn
-      extends DoFn<FailsafeElement<String, String>, FailsafeElement<String, String>> {
+  static class RemoveTimestampPropertyFn extends DoFn<DatastreamChangeEvent, String> {
 
     @ProcessElement
-    public void processElement(
-        @Element FailsafeElement<String, String> element,
-        OutputReceiver<FailsafeElement<String, String>> out)
-        throws JsonProcessingException {
+    public void processElement(@Element DatastreamChangeEvent element, OutputReceiver<String> out)
+        throws IOException {
       ObjectMapper mapper = new ObjectMapper();
-      JsonNode changeEvent = mapper.readTree(element.getPayload());
+      JsonNode changeEvent = element.readRow(mapper);
       if (changeEvent instanceof ObjectNode) {
         ((ObjectNode) changeEvent).remove("_metadata_dataflow_timestamp");
       }
-      out.output(FailsafeElement.of(changeEvent.toString(), changeEvent.toString()));
+      out.output(changeEvent.toString());
     }
   }
 }
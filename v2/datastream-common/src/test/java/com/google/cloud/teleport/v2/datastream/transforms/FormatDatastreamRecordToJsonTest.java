@@ -128,7 +128,7 @@ public class FormatDatastreamRecordToJsonTest {
     DatumReader<GenericRecord> datumReader = new GenericDatumReader<>();
     DataFileReader<GenericRecord> dataFileReader = new DataFileReader<>(file, datumReader);
     GenericRecord record = dataFileReader.next();
-    String jsonData = FormatDatastreamRecordToJson.create().apply(record).getOriginalPayload();
+    String jsonData = FormatDatastreamRecordToJson.create().apply(record).toJson();
     ObjectMapper mapper = new ObjectMapper();
     JsonNode changeEvent = mapper.readTree(jsonData);
     ((ObjectNode) changeEvent).remove(EVENT_UUID_KEY);
@@ -151,7 +151,7 @@ public class FormatDatastreamRecordToJsonTest {
     DataFileReader<GenericRecord> dataFileReader = new DataFileReader<>(file, datumReader);
 
     GenericRecord record = dataFileReader.next();
-    String jsonData = FormatDatastreamRecordToJson.create().apply(record).getOriginalPayload();
+    String jsonData = FormatDatastreamRecordToJson.create().apply(record).toJson();
     ObjectMapper mapper = new ObjectMapper();
     JsonNode changeEvent = mapper.readTree(jsonData);
     ((ObjectNode) changeEvent).remove(EVENT_UUID_KEY);
@@ -176,7 +176,7 @@ public class FormatDatastreamRecordToJsonTest {
     // mysql_numbers_test.avro has 2 records. We are interested in testing the second record
     dataFileReader.next();
     GenericRecord record = dataFileReader.next();
-    String jsonData = FormatDatastreamRecordToJson.create().apply(record).getOriginalPayload();
+    String jsonData = FormatDatastreamRecordToJson.create().apply(record).toJson();
     ObjectMapper mapper = new ObjectMapper();
     JsonNode changeEvent = mapper.readTree(jsonData);
     ((ObjectNode) changeEvent).remove(EVENT_UUID_KEY);
@@ -192,7 +192,7 @@ public class FormatDatastreamRecordToJsonTest {
     DatumReader<GenericRecord> datumReader = new GenericDatumReader<>();
     DataFileReader<GenericRecord> dataFileReader = new DataFileReader<>(file, datumReader);
     GenericRecord record = dataFileReader.next();
-    String jsonData = FormatDatastreamRecordToJson.create().apply(record).getOriginalPayload();
+    String jsonData = FormatDatastreamRecordToJson.create().apply(record).toJson();
     ObjectMapper mapper = new ObjectMapper();
     JsonNode changeEvent = mapper.readTree(jsonData);
     // The avro file contains binary_content: b'\xde\xad\xbe\xef', which is converted to
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.values;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DatastreamChangeEvent}. */
+@RunWith(JUnit4.class)
+public class DatastreamChangeEventTest {
+
+  private static final ObjectMapper DEFAULT_MAPPER = new ObjectMapper();
+
+  private static final ObjectMapper BIG_DECIMAL_MAPPER =
+      new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+  private static ObjectNode formattedRow() {
+    ObjectNode row = JsonNodeFactory.instance.objectNode();
+    row.put("_metadata_table", "users");
+    row.put("_metadata_deleted", false);
+    row.put("_metadata_timestamp", 1597101230L);
+    row.put("id", new BigDecimal("1000"));
+    row.put("big_id", new BigInteger("123456789012345678901234567890"));
+    row.put("price", 12.5f);
+    row.put("ratio", 0.1d);
+    row.put("payload", new byte[] {1, 2, 3});
+    row.putPOJO("nested", null);
+    row.putNull("missing");
+    row.putArray("tags").add("a").add(1L);
+    return row;
+  }
+
+  @Test
+  public void testReadRowMatchesParsedJson() throws IOException {
+    DatastreamChangeEvent event = DatastreamChangeEvent.of(formattedRow());
+
+    assertEquals(DEFAULT_MAPPER.readTree(event.toJson()), event.readRow(DEFAULT_MAPPER));
+    assertEquals(BIG_DECIMAL_MAPPER.readTree(event.toJson()), event.readRow(BIG_DECIMAL_MAPPER));
+  }
+
+  @Test
+  public void testRowIsNormalized() {
+    JsonNode row = DatastreamChangeEvent.of(formattedRow()).getRow();
+
+    assertTrue(row.get("_metadata_timestamp").isInt());
+    assertTrue(row.get("id").isInt());
+    assertTrue(row.get("big_id").isBigInteger());
+    assertTrue(row.get("price").isDouble());
+    assertEquals("AQID", row.get("payload").textValue());
+    assertTrue(row.get("nested").isNull());
+    assertTrue(row.get("tags").get(1).isInt());
+  }
+
+  @Test
+  public void testFromJsonKeepsExactDecimals() throws IOException {
+    String json = "{\"id\":1,\"amount\":10.50,\"ratio\":0.1}";
+    DatastreamChangeEvent event = DatastreamChangeEvent.fromJson(json);
+
+    assertEquals(json, event.toJson());
+    assertEquals(new BigDecimal("10.50"), event.getRow().get("amount").decimalValue());
+    assertEquals(event, DatastreamChangeEvent.fromJson(event.toJson()));
+  }
+
+  @Test
+  public void testFromJsonRejectsNonObjects() {
+    assertThrows(IOException.class, () -> DatastreamChangeEvent.fromJson("[1,2]"));
+    assertThrows(IOException.class, () -> DatastreamChangeEvent.fromJson("{\"id\":"));
+  }
+}
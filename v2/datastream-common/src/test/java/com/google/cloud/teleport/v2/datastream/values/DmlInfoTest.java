@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.datastream.values;
+
+import java.util.Arrays;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.schemas.SchemaRegistry;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.values.TypeDescriptor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DmlInfo}. */
+@RunWith(JUnit4.class)
+public class DmlInfoTest {
+
+  @Test
+  public void testSchemaCoderRoundTrip() throws Exception {
+    Coder<DmlInfo> coder =
+        SchemaRegistry.createDefault().getSchemaCoder(TypeDescriptor.of(DmlInfo.class));
+
+    CoderProperties.coderDecodeEncodeEqual(
+        coder,
+        DmlInfo.of(
+            "{}",
+            "DELETE FROM t WHERE id=1;",
+            "s",
+            "t",
+            Arrays.asList("id"),
+            Arrays.asList("_metadata_timestamp"),
+            Arrays.asList("1"),
+            Arrays.asList("2")));
+    CoderProperties.coderDecodeEncodeEqual(
+        coder,
+        DmlInfo.of(
+            "{}",
+            "DELETE FROM t WHERE id=1;",
+            "s",
+            "t",
+            Arrays.asList("id"),
+            Arrays.asList("_metadata_timestamp"),
+            Arrays.asList("1"),
+            Arrays.asList("2"),
+            "DELETE FROM t WHERE id=?;",
+            Arrays.asList("1")));
+  }
+}
@@ -33,8 +33,10 @@ import com.google.cloud.teleport.v2.common.UncaughtExceptionLogger;
 import com.google.cloud.teleport.v2.datastream.mappers.DataStreamMapper;
 import com.google.cloud.teleport.v2.datastream.mappers.MergeInfoMapper;
 import com.google.cloud.teleport.v2.datastream.sources.DataStreamIO;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.options.BigQueryStorageApiStreamingOptions;
 import com.google.cloud.teleport.v2.templates.DataStreamToBigQuery.Options;
+import com.google.cloud.teleport.v2.transforms.ChangeEventToTableRow;
 import com.google.cloud.teleport.v2.transforms.DLQWriteTransform;
 import com.google.cloud.teleport.v2.transforms.StatefulRowCleaner;
 import com.google.cloud.teleport.v2.transforms.StatefulRowCleaner.RowCleanerDeadLetterQueueSanitizer;
@@ -43,6 +45,7 @@ import com.google.cloud.teleport.v2.transforms.UDFTextTransformer.InputUDFToTabl
 import com.google.cloud.teleport.v2.utils.BigQueryIOUtils;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -70,6 +73,7 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TypeDescriptor;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -367,6 +371,55 @@ public class DataStreamToBigQuery {
     Boolean getUseStorageWriteApiAtLeastOnce();
 
     void setUseStorageWriteApiAtLeastOnce(Boolean value);
+
+    @TemplateParameter.Integer(
+        order = 21,
+        optional = true,
+        parentName = "applyMerge",
+        parentTriggerValues = {"true"},
+        description = "Overlap in minutes of incremental merges.",
+        helpText =
+            "If zero or greater, each BigQuery MERGE after the first one of a table only reads the"
+                + " staging rows whose `_metadata_timestamp` is later than the last merged value"
+                + " minus this many minutes. Rows which reach the staging table later than this"
+                + " overlap are not merged until the job is restarted. Defaults to `-1`, which"
+                + " merges the whole partition retention window every time.")
+    @Default.Integer(-1)
+    Integer getIncrementalMergeOverlapMinutes();
+
+    void setIncrementalMergeOverlapMinutes(Integer value);
+
+    @TemplateParameter.Integer(
+        order = 22,
+        optional = true,
+        parentName = "applyMerge",
+        parentTriggerValues = {"true"},
+        description = "Minimum minutes between merges of a table.",
+        helpText =
+            "If greater than 0, the merges of each table are scheduled from its ingest volume: a"
+                + " table is merged once `mergeRowsThreshold` rows were ingested for it, but no"
+                + " more often than every this many minutes, and at the latest `mergeFrequencyMinutes`"
+                + " after its oldest unmerged row. Defaults to `-1`, which merges every table"
+                + " every `mergeFrequencyMinutes`.")
+    @Default.Integer(-1)
+    Integer getMinMergeFrequencyMinutes();
+
+    void setMinMergeFrequencyMinutes(Integer value);
+
+    @TemplateParameter.Long(
+        order = 23,
+        optional = true,
+        parentName = "applyMerge",
+        parentTriggerValues = {"true"},
+        description = "Rows ingested for a table before it is merged.",
+        helpText =
+            "The number of rows ingested for a table after which it is merged as soon as"
+                + " `minMergeFrequencyMinutes` allows. Only effective when"
+                + " `minMergeFrequencyMinutes` is greater than 0. Defaults to `100000`.")
+    @Default.Long(MergeConfiguration.DEFAULT_ROWS_PER_MERGE)
+    Long getMergeRowsThreshold();
+
+    void setMergeRowsThreshold(Long value);
   }
 
   /**
@@ -418,8 +471,8 @@ public class DataStreamToBigQuery {
   public static PipelineResult run(Options options) {
     /*
      * Stages:
-     *   1) Ingest and Normalize Data to FailsafeElement with JSON Strings
-     *   2) Write JSON Strings to TableRow Collection
+     *   1) Ingest and Normalize Data to typed change events
+     *   2) Write change events and DLQ JSON Strings to TableRow Collection
      *       - Optionally apply a UDF
      *   3) BigQuery Output of TableRow Data
      *     a) Map New Columns & Write to Staging Tables
@@ -439,21 +492,22 @@ public class DataStreamToBigQuery {
             options.getJavascriptTextTransformGcsPath(),
             options.getJavascriptTextTransformFunctionName(),
             options.getJavascriptTextTransformReloadIntervalMinutes(),
+            options.getJavascriptTextTransformBatchSize(),
             options.getPythonTextTransformGcsPath(),
             options.getPythonTextTransformFunctionName(),
             options.getRuntimeRetries(),
             FAILSAFE_ELEMENT_CODER);
 
+    ChangeEventToTableRow changeEventToTableRow = ChangeEventToTableRow.of();
     StatefulRowCleaner statefulCleaner = StatefulRowCleaner.of();
 
     /*
-     * Stage 1: Ingest and Normalize Data to FailsafeElement with JSON Strings
-     *   a) Read DataStream data from GCS into JSON String FailsafeElements (datastreamJsonRecords)
+     * Stage 1: Ingest and Normalize Data to typed change events
+     *   a) Read DataStream data from GCS into DatastreamChangeEvents (datastreamChangeEvents)
      *   b) Reconsume Dead Letter Queue data from GCS into JSON String FailsafeElements
      *     (dlqJsonRecords)
-     *   c) Flatten DataStream and DLQ Streams (jsonRecords)
      */
-    PCollection<FailsafeElement<String, String>> datastreamJsonRecords =
+    PCollection<DatastreamChangeEvent> datastreamChangeEvents =
         pipeline.apply(
             new DataStreamIO(
                     options.getStreamName(),
@@ -461,7 +515,8 @@ public class DataStreamToBigQuery {
                     options.getInputFileFormat(),
                     options.getGcsPubSubSubscription(),
                     options.getRfcStartDateTime())
-                .withFileReadConcurrency(options.getFileReadConcurrency()));
+                .withFileReadConcurrency(options.getFileReadConcurrency())
+                .changeEvents());
 
     // Elements sent to the Dead Letter Queue are to be reconsumed.
     // A DLQManager is to be created using PipelineOptions, and it is in charge
@@ -482,23 +537,54 @@ public class DataStreamToBigQuery {
                     }))
             .setCoder(FAILSAFE_ELEMENT_CODER);
 
-    PCollection<FailsafeElement<String, String>> jsonRecords =
-        PCollectionList.of(datastreamJsonRecords)
-            .and(dlqJsonRecords)
-            .apply("Merge Datastream & DLQ", Flatten.pCollections());
-
     /*
-     * Stage 2: Write JSON Strings to TableRow PCollectionTuple
-     *   a) Optionally apply a Javascript or Python UDF
-     *   b) Convert JSON String FailsafeElements to TableRow's (tableRowRecords)
+     * Stage 2: Write change events and DLQ JSON Strings to TableRows (tableRows)
+     *   a) With a Javascript or Python UDF, render the change events to JSON String
+     *     FailsafeElements, flatten them with the DLQ Stream and apply the UDF before converting
+     *     them to TableRow's
+     *   b) Without a UDF, convert the change events straight to TableRow's and only parse the DLQ
+     *     Stream
      */
-    PCollectionTuple tableRowRecords =
-        jsonRecords.apply("UDF to TableRow/udf", failsafeTableRowTransformer);
+    PCollection<TableRow> tableRows;
+    PCollectionList<FailsafeElement<String, String>> transformFailures;
+    if (hasUdf(options)) {
+      PCollection<FailsafeElement<String, String>> datastreamJsonRecords =
+          datastreamChangeEvents
+              .apply(
+                  "Render JSON",
+                  MapElements.into(new TypeDescriptor<FailsafeElement<String, String>>() {})
+                      .via(
+                          (DatastreamChangeEvent event) -> {
+                            String json = event.toJson();
+                            return FailsafeElement.of(json, json);
+                          }))
+              .setCoder(FAILSAFE_ELEMENT_CODER);
+      PCollectionTuple tableRowRecords =
+          PCollectionList.of(datastreamJsonRecords)
+              .and(dlqJsonRecords)
+              .apply("Merge Datastream & DLQ", Flatten.pCollections())
+              .apply("UDF to TableRow/udf", failsafeTableRowTransformer);
+      tableRows = tableRowRecords.get(failsafeTableRowTransformer.transformOut);
+      transformFailures =
+          PCollectionList.of(tableRowRecords.get(failsafeTableRowTransformer.udfDeadletterOut))
+              .and(tableRowRecords.get(failsafeTableRowTransformer.transformDeadletterOut));
+    } else {
+      PCollectionTuple changeEventRows =
+          datastreamChangeEvents.apply("Change Events to TableRow", changeEventToTableRow);
+      PCollectionTuple dlqTableRowRecords =
+          dlqJsonRecords.apply("UDF to TableRow/udf", failsafeTableRowTransformer);
+      tableRows =
+          PCollectionList.of(changeEventRows.get(changeEventToTableRow.successTag))
+              .and(dlqTableRowRecords.get(failsafeTableRowTransformer.transformOut))
+              .apply("Merge Datastream & DLQ", Flatten.pCollections());
+      transformFailures =
+          PCollectionList.of(changeEventRows.get(changeEventToTableRow.failureTag))
+              .and(dlqTableRowRecords.get(failsafeTableRowTransformer.udfDeadletterOut))
+              .and(dlqTableRowRecords.get(failsafeTableRowTransformer.transformDeadletterOut));
+    }
 
     PCollectionTuple cleanedRows =
-        tableRowRecords
-            .get(failsafeTableRowTransformer.transformOut)
-            .apply("UDF to TableRow/Oracle Cleaner", statefulCleaner);
+        tableRows.apply("UDF to TableRow/Oracle Cleaner", statefulCleaner);
 
     PCollection<TableRow> shuffledTableRows =
         cleanedRows
@@ -545,6 +631,23 @@ public class DataStreamToBigQuery {
                     .withFailedInsertRetryPolicy(InsertRetryPolicy.retryTransientErrors()));
 
     if (options.getApplyMerge()) {
+      MergeConfiguration mergeConfiguration =
+          MergeConfiguration.bigQueryConfiguration()
+              .withProjectId(bigqueryProjectId)
+              .withMergeWindowDuration(Duration.standardMinutes(options.getMergeFrequencyMinutes()))
+              .withMergeConcurrency(options.getMergeConcurrency())
+              .withPartitionRetention(options.getPartitionRetentionDays());
+      if (options.getIncrementalMergeOverlapMinutes() >= 0) {
+        mergeConfiguration =
+            mergeConfiguration.withIncrementalMerge(
+                Duration.standardMinutes(options.getIncrementalMergeOverlapMinutes()));
+      }
+      if (options.getMinMergeFrequencyMinutes() > 0) {
+        mergeConfiguration =
+            mergeConfiguration.withAdaptiveMergeScheduling(
+                Duration.standardMinutes(options.getMinMergeFrequencyMinutes()),
+                options.getMergeRowsThreshold());
+      }
       shuffledTableRows
           .apply(
               "Map To Replica Tables",
@@ -564,23 +667,14 @@ public class DataStreamToBigQuery {
                   options.getOutputStagingTableNameTemplate(),
                   options.getOutputDatasetTemplate(),
                   options.getOutputTableNameTemplate()))
-          .apply(
-              "BigQuery Merge/Merge into Replica Tables",
-              BigQueryMerger.of(
-                  MergeConfiguration.bigQueryConfiguration()
-                      .withProjectId(bigqueryProjectId)
-                      .withMergeWindowDuration(
-                          Duration.standardMinutes(options.getMergeFrequencyMinutes()))
-                      .withMergeConcurrency(options.getMergeConcurrency())
-                      .withPartitionRetention(options.getPartitionRetentionDays())));
+          .apply("BigQuery Merge/Merge into Replica Tables", BigQueryMerger.of(mergeConfiguration));
     }
 
     /*
      * Stage 4: Write Failures to GCS Dead Letter Queue
      */
     PCollection<String> udfDlqJson =
-        PCollectionList.of(tableRowRecords.get(failsafeTableRowTransformer.udfDeadletterOut))
-            .and(tableRowRecords.get(failsafeTableRowTransformer.transformDeadletterOut))
+        transformFailures
             .apply("Transform Failures/Flatten", Flatten.pCollections())
             .apply(
                 "Transform Failures/Sanitize",
@@ -631,6 +725,12 @@ public class DataStreamToBigQuery {
     return cleanTableRow;
   }
 
+  private static boolean hasUdf(Options options) {
+    return options.getPythonTextTransformGcsPath() != null
+        || (!Strings.isNullOrEmpty(options.getJavascriptTextTransformGcsPath())
+            && !Strings.isNullOrEmpty(options.getJavascriptTextTransformFunctionName()));
+  }
+
   private static String getBigQueryProjectId(Options options) {
     return options.getOutputProjectId() == null
         ? options.as(GcpOptions.class).getProject()
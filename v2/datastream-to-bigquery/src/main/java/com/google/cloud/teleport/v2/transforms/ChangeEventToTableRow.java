@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.transforms;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.services.bigquery.model.TableRow;
+import com.google.cloud.teleport.v2.coders.FailsafeElementCoder;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
+import com.google.cloud.teleport.v2.values.FailsafeElement;
+import java.io.IOException;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Throwables;
+
+/**
+ * The {@code ChangeEventToTableRow} class converts {@link DatastreamChangeEvent} rows to TableRows
+ * straight from their tree, without rendering and parsing them as JSON.
+ *
+ * <p>The TableRows are the same as those read from the JSON of the events by {@link
+ * org.apache.beam.sdk.io.gcp.bigquery.TableRowJsonCoder}. Events which cannot be converted are
+ * output to the {@code failureTag} as JSON FailsafeElements for the dead letter queue.
+ */
+public class ChangeEventToTableRow
+    extends PTransform<PCollection<DatastreamChangeEvent>, PCollectionTuple> {
+
+  // Reads TableRows as TableRowJsonCoder does, whose mapper only configures serialization.
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  public TupleTag<TableRow> successTag = new TupleTag<TableRow>() {};
+  public TupleTag<FailsafeElement<String, String>> failureTag =
+      new TupleTag<FailsafeElement<String, String>>() {};
+
+  private ChangeEventToTableRow() {}
+
+  public static ChangeEventToTableRow of() {
+    return new ChangeEventToTableRow();
+  }
+
+  @Override
+  public PCollectionTuple expand(PCollection<DatastreamChangeEvent> input) {
+    PCollectionTuple output =
+        input.apply(
+            ParDo.of(new ChangeEventToTableRowFn(failureTag))
+                .withOutputTags(successTag, TupleTagList.of(failureTag)));
+    output
+        .get(failureTag)
+        .setCoder(FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of()));
+    return output;
+  }
+
+  /** Returns the row of {@code event} as a TableRow. */
+  public static TableRow toTableRow(DatastreamChangeEvent event) throws IOException {
+    return MAPPER.readValue(event.getRow().traverse(), TableRow.class);
+  }
+
+  /** The {@code ChangeEventToTableRowFn} class reads the row of each event as a TableRow. */
+  public static class ChangeEventToTableRowFn extends DoFn<DatastreamChangeEvent, TableRow> {
+
+    public final TupleTag<FailsafeElement<String, String>> failureTag;
+
+    public ChangeEventToTableRowFn(TupleTag<FailsafeElement<String, String>> failureTag) {
+      this.failureTag = failureTag;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext context) {
+      DatastreamChangeEvent event = context.element();
+      try {
+        context.output(toTableRow(event));
+      } catch (IOException e) {
+        String json = event.toJson();
+        context.output(
+            failureTag,
+            FailsafeElement.of(json, json)
+                .setErrorMessage("Failed to serialize json to table row: " + json)
+                .setStacktrace(Throwables.getStackTraceAsString(e)));
+      }
+    }
+  }
+}
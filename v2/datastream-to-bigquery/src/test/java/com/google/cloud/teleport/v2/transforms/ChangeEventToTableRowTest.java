@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.transforms;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.api.services.bigquery.model.TableRow;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import org.apache.beam.sdk.testing.NeedsRunner;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ChangeEventToTableRow}. */
+@RunWith(JUnit4.class)
+public class ChangeEventToTableRowTest implements Serializable {
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  /** Tests that the TableRows are those parsed from the JSON of the events. */
+  @Test
+  public void testTableRowMatchesParsedJson() throws IOException {
+    DatastreamChangeEvent event = DatastreamChangeEvent.of(formattedRow());
+
+    TableRow tableRow = ChangeEventToTableRow.toTableRow(event);
+
+    assertEquals(BigQueryConverters.convertJsonToTableRow(event.toJson()), tableRow);
+    assertEquals(Integer.class, tableRow.get("_metadata_timestamp").getClass());
+    assertEquals(Long.class, tableRow.get("_metadata_source_timestamp").getClass());
+  }
+
+  /** Tests that the transform outputs the TableRows of the events and no failures. */
+  @Test
+  @Category(NeedsRunner.class)
+  public void testTransformOutputsTableRows() throws IOException {
+    DatastreamChangeEvent event = DatastreamChangeEvent.of(formattedRow());
+
+    ChangeEventToTableRow changeEventToTableRow = ChangeEventToTableRow.of();
+    PCollectionTuple output = pipeline.apply(Create.of(event)).apply(changeEventToTableRow);
+
+    PAssert.that(output.get(changeEventToTableRow.successTag))
+        .containsInAnyOrder(ChangeEventToTableRow.toTableRow(event));
+    PAssert.that(output.get(changeEventToTableRow.failureTag)).empty();
+
+    pipeline.run();
+  }
+
+  private static ObjectNode formattedRow() {
+    ObjectNode row = JsonNodeFactory.instance.objectNode();
+    row.put("_metadata_table", "users");
+    row.put("_metadata_deleted", false);
+    row.put("_metadata_timestamp", 1597101230L);
+    row.put("_metadata_source_timestamp", 1705320821122571751L);
+    row.put("id", new BigDecimal("1000"));
+    row.put("big_id", new BigInteger("123456789012345678901234567890"));
+    row.put("price", 12.5f);
+    row.put("payload", new byte[] {1, 2, 3});
+    row.putNull("missing");
+    row.putArray("tags").add("a").add(1L);
+    row.putObject("nested").put("ratio", 0.1d);
+    return row;
+  }
+}
@@ -29,6 +29,7 @@ import com.google.cloud.teleport.v2.coders.FailsafeElementCoder;
 import com.google.cloud.teleport.v2.common.UncaughtExceptionLogger;
 import com.google.cloud.teleport.v2.datastream.sources.DataStreamIO;
 import com.google.cloud.teleport.v2.datastream.utils.DataStreamClient;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.spanner.migrations.schema.ISchemaOverridesParser;
 import com.google.cloud.teleport.v2.spanner.migrations.schema.NoopSchemaOverridesParser;
@@ -45,7 +46,9 @@ import com.google.cloud.teleport.v2.templates.DataStreamToSpanner.Options;
 import com.google.cloud.teleport.v2.templates.constants.DatastreamToSpannerConstants;
 import com.google.cloud.teleport.v2.templates.datastream.DatastreamConstants;
 import com.google.cloud.teleport.v2.templates.spanner.ProcessInformationSchema;
+import com.google.cloud.teleport.v2.templates.transform.ChangeEventParserDoFn;
 import com.google.cloud.teleport.v2.templates.transform.ChangeEventTransformerDoFn;
+import com.google.cloud.teleport.v2.templates.transform.StaleChangeEventFilter;
 import com.google.cloud.teleport.v2.transforms.DLQWriteTransform;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.base.Strings;
@@ -559,6 +562,48 @@ public class DataStreamToSpanner {
     String getShadowTableSpannerDatabaseId();
 
     void setShadowTableSpannerDatabaseId(String value);
+
+    @TemplateParameter.Integer(
+        order = 34,
+        optional = true,
+        description = "Number of change events written per Spanner transaction.",
+        helpText =
+            "The maximum number of change events with distinct primary keys written in a single"
+                + " Spanner transaction. The shadow table rows of the events are read with a"
+                + " single multi-key read. Only applies when the shadow tables are in the main"
+                + " database. Defaults to: 1.")
+    @Default.Integer(1)
+    Integer getTransactionBatchSize();
+
+    void setTransactionBatchSize(Integer value);
+
+    @TemplateParameter.Integer(
+        order = 35,
+        optional = true,
+        description = "Minutes the latest sequence of a primary key is kept in state.",
+        helpText =
+            "If greater than 0, the latest sequence written for every primary key is kept in"
+                + " state for this many minutes after its last change, and change events older"
+                + " than it are dropped before reading the shadow table. Defaults to: 0, which"
+                + " disables the stage.")
+    @Default.Integer(0)
+    Integer getSequenceCacheTtlMinutes();
+
+    void setSequenceCacheTtlMinutes(Integer value);
+
+    @TemplateParameter.Boolean(
+        order = 36,
+        optional = true,
+        description = "Whether to discover Datastream files with incremental listings.",
+        helpText =
+            "If true, and no Pub/Sub notification subscription is set, the files of each table"
+                + " are discovered with a single listing per poll, which starts at the earliest"
+                + " directory updated within the directory watch duration, instead of watching"
+                + " every per-minute directory. Defaults to: false.")
+    @Default.Boolean(false)
+    Boolean getUseIncrementalFileListing();
+
+    void setUseIncrementalFileListing(Boolean value);
   }
 
   private static void validateSourceType(Options options) {
@@ -694,7 +739,7 @@ public class DataStreamToSpanner {
             .get(ProcessInformationSchema.SHADOW_TABLE_DDL_TAG)
             .apply("Cloud Spanner shadow tables DDL as view", View.asSingleton());
 
-    PCollection<FailsafeElement<String, String>> jsonRecords = null;
+    PCollection<DatastreamChangeEvent> changeEvents = null;
     // Elements sent to the Dead Letter Queue are to be reconsumed.
     // A DLQManager is to be created using PipelineOptions, and it is in charge
     // of building pieces of the DLQ.
@@ -715,38 +760,51 @@ public class DataStreamToSpanner {
           dlqManager.getReconsumerDataTransform(
               pipeline.apply(dlqManager.dlqReconsumer(options.getDlqRetryMinutes())));
     }
-    PCollection<FailsafeElement<String, String>> dlqJsonRecords =
+    // The retried events are parsed from JSON once, where they come back into the pipeline.
+    PCollectionTuple dlqChangeEvents =
         reconsumedElements
             .get(DeadLetterQueueManager.RETRYABLE_ERRORS)
-            .setCoder(FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of()));
+            .setCoder(FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of()))
+            .apply(
+                "Parse retried events",
+                ParDo.of(new ChangeEventParserDoFn())
+                    .withOutputTags(
+                        DatastreamToSpannerConstants.RETRIED_EVENT_TAG,
+                        TupleTagList.of(DatastreamToSpannerConstants.PERMANENT_ERROR_TAG)));
+    PCollection<DatastreamChangeEvent> dlqRecords =
+        dlqChangeEvents.get(DatastreamToSpannerConstants.RETRIED_EVENT_TAG);
     if (isRegularMode) {
       LOG.info("Regular Datastream flow");
-      PCollection<FailsafeElement<String, String>> datastreamJsonRecords =
-          pipeline.apply(
-              new DataStreamIO(
-                      options.getStreamName(),
-                      options.getInputFilePattern(),
-                      options.getInputFileFormat(),
-                      options.getGcsPubSubSubscription(),
-                      options.getRfcStartDateTime())
-                  .withFileReadConcurrency(options.getFileReadConcurrency())
-                  .withoutDatastreamRecordsReshuffle()
-                  .withDirectoryWatchDuration(
-                      Duration.standardMinutes(options.getDirectoryWatchDurationInMinutes())));
+      DataStreamIO datastreamIO =
+          new DataStreamIO(
+                  options.getStreamName(),
+                  options.getInputFilePattern(),
+                  options.getInputFileFormat(),
+                  options.getGcsPubSubSubscription(),
+                  options.getRfcStartDateTime())
+              .withFileReadConcurrency(options.getFileReadConcurrency())
+              .withoutDatastreamRecordsReshuffle()
+              .withDirectoryWatchDuration(
+                  Duration.standardMinutes(options.getDirectoryWatchDurationInMinutes()));
+      if (options.getUseIncrementalFileListing()) {
+        datastreamIO = datastreamIO.withIncrementalListing();
+      }
+      PCollection<DatastreamChangeEvent> datastreamRecords =
+          pipeline.apply(datastreamIO.changeEvents());
       int maxNumWorkers = options.getMaxNumWorkers() != 0 ? options.getMaxNumWorkers() : 1;
-      jsonRecords =
-          PCollectionList.of(datastreamJsonRecords)
-              .and(dlqJsonRecords)
+      changeEvents =
+          PCollectionList.of(datastreamRecords)
+              .and(dlqRecords)
               .apply(Flatten.pCollections())
               .apply(
                   "Reshuffle",
-                  Reshuffle.<FailsafeElement<String, String>>viaRandomKey()
+                  Reshuffle.<DatastreamChangeEvent>viaRandomKey()
                       .withNumBuckets(
                           maxNumWorkers * DatastreamToSpannerConstants.MAX_DOFN_PER_WORKER));
     } else {
       LOG.info("DLQ retry flow");
-      jsonRecords =
-          PCollectionList.of(dlqJsonRecords)
+      changeEvents =
+          PCollectionList.of(dlqRecords)
               .apply(Flatten.pCollections())
               .apply("Reshuffle", Reshuffle.viaRandomKey());
     }
@@ -785,7 +843,7 @@ public class DataStreamToSpanner {
             spannerConfig);
 
     PCollectionTuple transformedRecords =
-        jsonRecords.apply(
+        changeEvents.apply(
             "Apply Transformation to events",
             ParDo.of(changeEventTransformerDoFn)
                 .withSideInputs(ddlView)
@@ -818,19 +876,27 @@ public class DataStreamToSpanner {
     /*
      * Stage 4: Write transformed records to Cloud Spanner
      */
+    PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> eventsToWrite =
+        transformedRecords.get(DatastreamToSpannerConstants.TRANSFORMED_EVENT_TAG);
+    if (options.getSequenceCacheTtlMinutes() > 0) {
+      eventsToWrite =
+          eventsToWrite.apply(
+              "Drop stale events",
+              new StaleChangeEventFilter(
+                  ddlView, Duration.standardMinutes(options.getSequenceCacheTtlMinutes())));
+    }
     SpannerTransactionWriter.Result spannerWriteResults =
-        transformedRecords
-            .get(DatastreamToSpannerConstants.TRANSFORMED_EVENT_TAG)
-            .apply(
-                "Write events to Cloud Spanner",
-                new SpannerTransactionWriter(
-                    spannerConfig,
-                    shadowTableSpannerConfig,
-                    ddlView,
-                    shadowTableDdlView,
-                    options.getShadowTablePrefix(),
-                    options.getDatastreamSourceType(),
-                    isRegularMode));
+        eventsToWrite.apply(
+            "Write events to Cloud Spanner",
+            new SpannerTransactionWriter(
+                spannerConfig,
+                shadowTableSpannerConfig,
+                ddlView,
+                shadowTableDdlView,
+                options.getShadowTablePrefix(),
+                options.getDatastreamSourceType(),
+                isRegularMode,
+                options.getTransactionBatchSize()));
     /*
      * Stage 5: Write failures to GCS Dead Letter Queue
      * a) Retryable errors are written to retry GCS Dead letter queue
@@ -859,6 +925,7 @@ public class DataStreamToSpanner {
     // TODO: Write errors from transformer and spanner writer into separate folders
     PCollection<FailsafeElement<String, String>> permanentErrors =
         PCollectionList.of(dlqErrorRecords)
+            .and(dlqChangeEvents.get(DatastreamToSpannerConstants.PERMANENT_ERROR_TAG))
             .and(spannerWriteResults.permanentErrors())
             .and(transformedRecords.get(DatastreamToSpannerConstants.PERMANENT_ERROR_TAG))
             .apply(Flatten.pCollections());
@@ -17,6 +17,7 @@ package com.google.cloud.teleport.v2.templates;
 
 import com.google.auto.value.AutoValue;
 import com.google.cloud.Timestamp;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.templates.constants.DatastreamToSpannerConstants;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
@@ -38,10 +39,13 @@ import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
 
 /**
- * Takes an input of DataStream events as {@link FailsafeElement} objects and writes them to the
- * given Cloud Spanner database.
+ * Takes an input of DataStream events as {@link FailsafeElement} objects holding the original and
+ * transformed {@link DatastreamChangeEvent} and writes them to the given Cloud Spanner database.
+ * Events which could not be written are output as FailsafeElements of their JSON.
  *
- * <p>Each event will be written using a single Cloud Spanner Transaction.
+ * <p>Each event will be written using a single Cloud Spanner Transaction, unless a transaction
+ * batch size greater than 1 is set, in which case up to that many events with distinct primary keys
+ * are written together in one transaction.
  *
  * <p>The {@link Result} object contains two streams: the successfully written Mutation Group
  * objects with their commit timestamps, and the Mutation Group objects that failed to be written
@@ -49,7 +53,8 @@ import org.apache.beam.sdk.values.TupleTagList;
  */
 public class SpannerTransactionWriter
     extends PTransform<
-        PCollection<FailsafeElement<String, String>>, SpannerTransactionWriter.Result> {
+        PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>,
+        SpannerTransactionWriter.Result> {
 
   /* The spanner config specifying the destination Cloud Spanner database to connect to */
   private final SpannerConfig spannerConfig;
@@ -72,6 +77,9 @@ public class SpannerTransactionWriter
   /* The run mode, whether it is regular or retry. */
   private final Boolean isRegularRunMode;
 
+  /* The maximum number of change events written in a single transaction. */
+  private final int transactionBatchSize;
+
   public SpannerTransactionWriter(
       SpannerConfig spannerConfig,
       SpannerConfig shadowTableSpannerConfig,
@@ -80,7 +88,29 @@ public class SpannerTransactionWriter
       String shadowTablePrefix,
       String sourceType,
       Boolean isRegularRunMode) {
+    this(
+        spannerConfig,
+        shadowTableSpannerConfig,
+        ddlView,
+        shadowTableDdlView,
+        shadowTablePrefix,
+        sourceType,
+        isRegularRunMode,
+        1);
+  }
+
+  public SpannerTransactionWriter(
+      SpannerConfig spannerConfig,
+      SpannerConfig shadowTableSpannerConfig,
+      PCollectionView<Ddl> ddlView,
+      PCollectionView<Ddl> shadowTableDdlView,
+      String shadowTablePrefix,
+      String sourceType,
+      Boolean isRegularRunMode,
+      int transactionBatchSize) {
     Preconditions.checkNotNull(spannerConfig);
+    Preconditions.checkArgument(
+        transactionBatchSize > 0, "transactionBatchSize must be > 0: %s", transactionBatchSize);
     this.spannerConfig = spannerConfig;
     this.shadowTableSpannerConfig = shadowTableSpannerConfig;
     this.ddlView = ddlView;
@@ -88,11 +118,12 @@ public class SpannerTransactionWriter
     this.shadowTablePrefix = shadowTablePrefix;
     this.sourceType = sourceType;
     this.isRegularRunMode = isRegularRunMode;
+    this.transactionBatchSize = transactionBatchSize;
   }
 
   @Override
   public SpannerTransactionWriter.Result expand(
-      PCollection<FailsafeElement<String, String>> input) {
+      PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> input) {
     PCollectionTuple spannerWriteResults =
         input.apply(
             "Write Mutations",
@@ -104,7 +135,8 @@ public class SpannerTransactionWriter
                         shadowTableDdlView,
                         shadowTablePrefix,
                         sourceType,
-                        isRegularRunMode))
+                        isRegularRunMode,
+                        transactionBatchSize))
                 .withSideInputs(ddlView, shadowTableDdlView)
                 .withOutputTags(
                     DatastreamToSpannerConstants.SUCCESSFUL_EVENT_TAG,
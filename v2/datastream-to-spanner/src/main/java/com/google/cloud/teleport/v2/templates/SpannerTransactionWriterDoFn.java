@@ -26,9 +26,11 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.Options;
 import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.TransactionRunner;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.spanner.migrations.exceptions.ChangeEventConvertorException;
 import com.google.cloud.teleport.v2.spanner.migrations.exceptions.DroppedTableException;
@@ -40,15 +42,23 @@ import com.google.cloud.teleport.v2.templates.datastream.ChangeEventContext;
 import com.google.cloud.teleport.v2.templates.datastream.ChangeEventContextFactory;
 import com.google.cloud.teleport.v2.templates.datastream.ChangeEventSequence;
 import com.google.cloud.teleport.v2.templates.datastream.ChangeEventSequenceFactory;
+import com.google.cloud.teleport.v2.templates.datastream.ShadowTableReadUtils;
 import com.google.cloud.teleport.v2.templates.spanner.DatastreamToSpannerExceptionClassifier;
 import com.google.cloud.teleport.v2.templates.spanner.DatastreamToSpannerExceptionClassifier.ErrorTag;
 import com.google.cloud.teleport.v2.templates.utils.WatchdogRunnable;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import org.apache.beam.runners.dataflow.options.DataflowWorkerHarnessOptions;
 import org.apache.beam.sdk.io.gcp.spanner.SpannerAccessor;
 import org.apache.beam.sdk.io.gcp.spanner.SpannerConfig;
@@ -57,6 +67,7 @@ import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TupleTag;
 import org.joda.time.Duration;
@@ -77,7 +88,8 @@ import org.slf4j.LoggerFactory;
  * <p>Change events that failed to be written will be pushed onto the secondary output tagged with
  * PERMANENT_ERROR_TAG/RETRYABLE_ERROR_TAG along with the exception that caused the failure.
  */
-class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>, Timestamp>
+class SpannerTransactionWriterDoFn
+    extends DoFn<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>, Timestamp>
     implements Serializable {
 
   // TODO - Change Cloud Spanner nomenclature in code used to read DDL.
@@ -154,9 +166,23 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
   private final Counter droppedTableExceptions =
       Metrics.counter(SpannerTransactionWriterDoFn.class, "Dropped table exceptions");
 
+  // Number of change events written per transaction.
+  private final Distribution transactionBatchSizes =
+      Metrics.distribution(SpannerTransactionWriterDoFn.class, "Transaction batch size");
+
+  // Number of batches split in halves after a permanent error.
+  private final Counter splitBatches =
+      Metrics.counter(SpannerTransactionWriterDoFn.class, "Split transaction batches");
+
   // The max length of tag allowed in Spanner Transaction tags.
   private static final int MAX_TXN_TAG_LENGTH = 50;
 
+  /*
+   * The maximum number of mutated cells of a batch. Spanner allows 80,000 mutations per commit,
+   * half of it is left for the secondary indexes the cells are also written to.
+   */
+  static final long MAX_MUTATION_CELLS_PER_TRANSACTION = 40_000;
+
   /* The run mode, whether it is regular or retry. */
   private final Boolean isRegularRunMode;
 
@@ -182,6 +208,25 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
 
   private final boolean usesSeparateShadowTableDb;
 
+  /* The Spanner transaction tag, derived from the Dataflow job id. */
+  private transient String txnTag;
+
+  /*
+   * The maximum number of change events written in a single transaction. Events are batched only
+   * when the shadow tables are in the main database, as the cross database transaction locks the
+   * shadow table row of a single event.
+   */
+  private final int transactionBatchSize;
+
+  /* The change events waiting to be written in the next transaction. */
+  private transient List<BufferedEvent> batch;
+  /* The shadow table and normalized primary key of every event in the batch. */
+  private transient Set<List<Object>> batchKeys;
+  /* The number of mutated cells of the events in the batch. */
+  private transient long batchMutationCells;
+  /* The shadow table schema of the latest event added to the batch. */
+  private transient Ddl batchShadowTableDdl;
+
   SpannerTransactionWriterDoFn(
       SpannerConfig spannerConfig,
       SpannerConfig shadowTableSpannerConfig,
@@ -190,6 +235,26 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
       String shadowTablePrefix,
       String sourceType,
       Boolean isRegularRunMode) {
+    this(
+        spannerConfig,
+        shadowTableSpannerConfig,
+        ddlView,
+        shadowTableDdlView,
+        shadowTablePrefix,
+        sourceType,
+        isRegularRunMode,
+        1);
+  }
+
+  SpannerTransactionWriterDoFn(
+      SpannerConfig spannerConfig,
+      SpannerConfig shadowTableSpannerConfig,
+      PCollectionView<Ddl> ddlView,
+      PCollectionView<Ddl> shadowTableDdlView,
+      String shadowTablePrefix,
+      String sourceType,
+      Boolean isRegularRunMode,
+      int transactionBatchSize) {
     Preconditions.checkNotNull(spannerConfig);
     this.spannerConfig = spannerConfig;
     this.shadowTableSpannerConfig = shadowTableSpannerConfig;
@@ -202,6 +267,7 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
     this.usesSeparateShadowTableDb =
         !(spannerConfig.getInstanceId().equals(shadowTableSpannerConfig.getInstanceId())
             && spannerConfig.getDatabaseId().equals(shadowTableSpannerConfig.getDatabaseId()));
+    this.transactionBatchSize = transactionBatchSize;
   }
 
   /** Setup function connects to Cloud Spanner. */
@@ -237,15 +303,23 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
     keepWatchdogRunning.set(false);
   }
 
+  @StartBundle
+  public void startBundle() {
+    batch = new ArrayList<>();
+    batchKeys = new HashSet<>();
+    batchMutationCells = 0;
+  }
+
   @ProcessElement
-  public void processElement(ProcessContext c) {
-    FailsafeElement<String, String> msg = c.element();
+  public void processElement(ProcessContext c, BoundedWindow window) {
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> msg = c.element();
     Ddl ddl = c.sideInput(ddlView);
     // TODO: pass shadow table ddl to shdaow tble mutaiton generator and sequence reader.
     Ddl shadowTableDdl = c.sideInput(shadowTableDdlView);
     Instant startTimestamp = Instant.now();
     String migrationShardId = null;
     boolean isRetryRecord = false;
+    EventReceiver receiver = processContextReceiver(c);
     /*
      * Try Catch block to capture any exceptions that might occur while processing
      * DataStream events while writing to Cloud Spanner. All Exceptions that are caught
@@ -253,7 +327,7 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
      */
     try {
 
-      JsonNode changeEvent = mapper.readTree(msg.getPayload());
+      JsonNode changeEvent = msg.getPayload().readRow(mapper);
       migrationShardId =
           Optional.ofNullable(changeEvent.get(SHARD_ID_COLUMN_NAME))
               .map(shardIdNode -> changeEvent.get(shardIdNode.asText()).asText())
@@ -273,6 +347,23 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
           ChangeEventSequenceFactory.createChangeEventSequenceFromChangeEventContext(
               changeEventContext);
 
+      if (isBatchingEnabled()) {
+        addToBatch(
+            receiver,
+            new BufferedEvent(
+                msg,
+                changeEvent,
+                changeEventContext,
+                currentChangeEventSequence,
+                migrationShardId,
+                isRetryRecord,
+                startTimestamp,
+                c.timestamp(),
+                window),
+            shadowTableDdl);
+        return;
+      }
+
       if (usesSeparateShadowTableDb) {
         processCrossDatabaseTransaction(
             c, changeEventContext, currentChangeEventSequence, shadowTableDdl);
@@ -280,38 +371,72 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
         processSingleDatabaseTransaction(
             c, changeEventContext, currentChangeEventSequence, shadowTableDdl);
       }
-      com.google.cloud.Timestamp timestamp = com.google.cloud.Timestamp.now();
-      c.output(timestamp);
-      if (migrationShardId != null) {
-        Metrics.counter(
-                SpannerTransactionWriterDoFn.class,
-                migrationShardId + " : " + SUCCESSFUL_EVENTS_COUNTER_NAME)
-            .inc();
-      }
-      successfulEvents.inc();
-      updateLatencyMetrics(changeEvent, startTimestamp);
+      onEventWritten(receiver, changeEvent, migrationShardId, isRetryRecord, startTimestamp);
+    } catch (Exception e) {
+      handleEventError(receiver, msg, e, migrationShardId, isRetryRecord);
+    }
+  }
 
-      // increment the successful retry count if this was retry attempt
-      if (isRegularRunMode && isRetryRecord) {
-        successfulEventRetries.inc();
-      }
+  @FinishBundle
+  public void finishBundle(FinishBundleContext c) {
+    if (isBatchingEnabled() && !batch.isEmpty()) {
+      flushBatch(
+          event -> finishBundleContextReceiver(c, event.timestamp, event.window),
+          batchShadowTableDdl);
+    }
+  }
+
+  private boolean isBatchingEnabled() {
+    return transactionBatchSize > 1 && !usesSeparateShadowTableDb;
+  }
 
-    } catch (DroppedTableException e) {
+  /** Records a change event written to Cloud Spanner. */
+  private void onEventWritten(
+      EventReceiver receiver,
+      JsonNode changeEvent,
+      String migrationShardId,
+      boolean isRetryRecord,
+      Instant startTimestamp) {
+    com.google.cloud.Timestamp timestamp = com.google.cloud.Timestamp.now();
+    receiver.output(timestamp);
+    if (migrationShardId != null) {
+      Metrics.counter(
+              SpannerTransactionWriterDoFn.class,
+              migrationShardId + " : " + SUCCESSFUL_EVENTS_COUNTER_NAME)
+          .inc();
+    }
+    successfulEvents.inc();
+    updateLatencyMetrics(changeEvent, startTimestamp);
+
+    // increment the successful retry count if this was retry attempt
+    if (isRegularRunMode && isRetryRecord) {
+      successfulEventRetries.inc();
+    }
+  }
+
+  /** Routes a change event which could not be written to the permanent or retryable errors. */
+  private void handleEventError(
+      EventReceiver receiver,
+      FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> msg,
+      Exception e,
+      String migrationShardId,
+      boolean isRetryRecord) {
+    if (e instanceof DroppedTableException) {
       // Errors when table exists in source but was dropped during conversion. We do not output any
       // errors to dlq for this.
       LOG.warn(e.getMessage());
       droppedTableExceptions.inc();
-    } catch (InvalidChangeEventException e) {
+    } else if (e instanceof InvalidChangeEventException) {
       // Errors that result from invalid change events.
-      outputWithErrorTag(c, msg, e, DatastreamToSpannerConstants.PERMANENT_ERROR_TAG);
+      outputWithErrorTag(receiver, msg, e, DatastreamToSpannerConstants.PERMANENT_ERROR_TAG);
       invalidEvents.inc();
       if (migrationShardId != null) {
         Metrics.counter(SpannerTransactionWriterDoFn.class, migrationShardId + " : Invalid events")
             .inc();
       }
-    } catch (ChangeEventConvertorException e) {
+    } else if (e instanceof ChangeEventConvertorException) {
       // Errors that result during Event conversions are not retryable.
-      outputWithErrorTag(c, msg, e, DatastreamToSpannerConstants.PERMANENT_ERROR_TAG);
+      outputWithErrorTag(receiver, msg, e, DatastreamToSpannerConstants.PERMANENT_ERROR_TAG);
       if (migrationShardId != null) {
         Metrics.counter(
                 SpannerTransactionWriterDoFn.class,
@@ -319,18 +444,18 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
             .inc();
       }
       conversionErrors.inc();
-    } catch (IllegalStateException ex) {
+    } else if (e instanceof IllegalStateException) {
       /*
        * IllegalStateException can occur due to conditions like spanner pool being closed,
        * in which case if this event is requed to same or different node at a later point in time,
        * a retry might work.
        */
-      outputWithErrorTag(c, msg, ex, DatastreamToSpannerConstants.RETRYABLE_ERROR_TAG);
+      outputWithErrorTag(receiver, msg, e, DatastreamToSpannerConstants.RETRYABLE_ERROR_TAG);
       // do not increment the retry error count if this was retry attempt
       if (!isRetryRecord) {
         retryableErrors.inc();
       }
-    } catch (SpannerException ex) {
+    } else if (e instanceof SpannerException) {
       /*
        * There are many SpannerExceptions which can occur. Some of them are retryable and some of them are non-retryable.
        * Examples:
@@ -338,28 +463,29 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
        * 2. Failures due to foreign key/interleaved table constraints - Retryable error
        * 3. Unique index violation - Permanent error
        */
-      SpannerMigrationException spannerMigrationException = SpannerExceptionParser.parse(ex);
+      SpannerMigrationException spannerMigrationException =
+          SpannerExceptionParser.parse((SpannerException) e);
       ErrorTag outputTag =
           DatastreamToSpannerExceptionClassifier.classify(spannerMigrationException);
       switch (outputTag) {
         case PERMANENT_ERROR:
           LOG.error(
               "A severe error occurred while processing the event.", spannerMigrationException);
-          outputWithErrorTag(c, msg, ex, DatastreamToSpannerConstants.PERMANENT_ERROR_TAG);
+          outputWithErrorTag(receiver, msg, e, DatastreamToSpannerConstants.PERMANENT_ERROR_TAG);
           break;
         case RETRYABLE_ERROR:
           LOG.warn(
               "A retryable error occurred while processing the event, the event will be retried again.",
               spannerMigrationException);
-          outputWithErrorTag(c, msg, ex, DatastreamToSpannerConstants.RETRYABLE_ERROR_TAG);
+          outputWithErrorTag(receiver, msg, e, DatastreamToSpannerConstants.RETRYABLE_ERROR_TAG);
       }
       // do not increment the retry error count if this was retry attempt
       if (ErrorTag.RETRYABLE_ERROR.equals(outputTag) && !isRetryRecord) {
         retryableErrors.inc();
       }
-    } catch (Exception e) {
+    } else {
       // Any other errors are considered severe and not retryable.
-      outputWithErrorTag(c, msg, e, DatastreamToSpannerConstants.PERMANENT_ERROR_TAG);
+      outputWithErrorTag(receiver, msg, e, DatastreamToSpannerConstants.PERMANENT_ERROR_TAG);
       failedEvents.inc();
       if (migrationShardId != null) {
         Metrics.counter(
@@ -369,6 +495,127 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
     }
   }
 
+  /**
+   * Adds a change event to the batch. The batch is written first if it already holds an event for
+   * the same primary key, or if the event would take it over its size or mutation limits.
+   */
+  private void addToBatch(EventReceiver receiver, BufferedEvent event, Ddl shadowTableDdl) {
+    if (batchKeys.contains(event.key)
+        || batch.size() >= transactionBatchSize
+        || batchMutationCells + event.mutationCells > MAX_MUTATION_CELLS_PER_TRANSACTION) {
+      // Events buffered by earlier elements are output with the timestamp of the current one.
+      flushBatch(e -> receiver, shadowTableDdl);
+    }
+    batch.add(event);
+    batchKeys.add(event.key);
+    batchShadowTableDdl = shadowTableDdl;
+    batchMutationCells += event.mutationCells;
+    if (batch.size() >= transactionBatchSize) {
+      flushBatch(e -> receiver, shadowTableDdl);
+    }
+  }
+
+  private void flushBatch(Function<BufferedEvent, EventReceiver> receivers, Ddl shadowTableDdl) {
+    List<BufferedEvent> events = batch;
+    batch = new ArrayList<>();
+    batchKeys = new HashSet<>();
+    batchMutationCells = 0;
+    writeBatch(events, receivers, shadowTableDdl);
+  }
+
+  /**
+   * Writes a batch of change events with distinct primary keys in one transaction. If the batch
+   * fails with a permanent error, it is split in halves which are written separately, so that only
+   * the events causing the error are output as errors.
+   */
+  private void writeBatch(
+      List<BufferedEvent> events,
+      Function<BufferedEvent, EventReceiver> receivers,
+      Ddl shadowTableDdl) {
+    List<BufferedEvent> staleEvents;
+    try {
+      staleEvents = processBatchTransaction(events, receivers.apply(events.get(0)), shadowTableDdl);
+    } catch (Exception e) {
+      if (events.size() > 1 && !isRetryable(e)) {
+        splitBatches.inc();
+        int middle = events.size() / 2;
+        writeBatch(events.subList(0, middle), receivers, shadowTableDdl);
+        writeBatch(events.subList(middle, events.size()), receivers, shadowTableDdl);
+      } else {
+        for (BufferedEvent event : events) {
+          handleEventError(
+              receivers.apply(event), event.msg, e, event.migrationShardId, event.isRetryRecord);
+        }
+      }
+      return;
+    }
+    transactionBatchSizes.update(events.size());
+    skippedEvents.inc(staleEvents.size());
+    for (BufferedEvent event : events) {
+      onEventWritten(
+          receivers.apply(event),
+          event.changeEvent,
+          event.migrationShardId,
+          event.isRetryRecord,
+          event.startTimestamp);
+    }
+  }
+
+  /**
+   * Reads the shadow table rows of all events of the batch with one read per shadow table, and
+   * applies the mutations of the events which are not stale. Returns the stale events.
+   */
+  private List<BufferedEvent> processBatchTransaction(
+      List<BufferedEvent> events, EventReceiver receiver, Ddl shadowDdl) {
+    List<ChangeEventContext> changeEventContexts = new ArrayList<>(events.size());
+    for (BufferedEvent event : events) {
+      changeEventContexts.add(event.changeEventContext);
+    }
+    List<BufferedEvent> staleEvents = new ArrayList<>();
+    spannerAccessor
+        .getDatabaseClient()
+        .readWriteTransaction(
+            Options.tag(getTxnTag(receiver.getPipelineOptions())),
+            Options.priority(spannerConfig.getRpcPriority().get()))
+        .run(
+            (TransactionRunner.TransactionCallable<Void>)
+                transaction -> {
+                  isInTransaction.set(true);
+                  transactionAttemptCount.incrementAndGet();
+                  staleEvents.clear();
+                  // Sequence information for the last change event of every primary key.
+                  List<ChangeEventSequence> previousChangeEventSequences =
+                      ChangeEventSequenceFactory.createChangeEventSequencesFromShadowTable(
+                          transaction, changeEventContexts, shadowDdl);
+                  for (int i = 0; i < events.size(); i++) {
+                    ChangeEventSequence previousChangeEventSequence =
+                        previousChangeEventSequences.get(i);
+                    if (previousChangeEventSequence != null
+                        && previousChangeEventSequence.compareTo(events.get(i).sequence) >= 0) {
+                      staleEvents.add(events.get(i));
+                      continue;
+                    }
+                    transaction.buffer(events.get(i).changeEventContext.getMutations());
+                  }
+                  isInTransaction.set(false);
+                  return null;
+                });
+    return staleEvents;
+  }
+
+  /** Returns whether the whole batch should be retried later instead of being split. */
+  private static boolean isRetryable(Exception e) {
+    if (e instanceof IllegalStateException) {
+      return true;
+    }
+    if (e instanceof SpannerException) {
+      return ErrorTag.RETRYABLE_ERROR.equals(
+          DatastreamToSpannerExceptionClassifier.classify(
+              SpannerExceptionParser.parse((SpannerException) e)));
+    }
+    return false;
+  }
+
   private void processSingleDatabaseTransaction(
       ProcessContext c,
       ChangeEventContext changeEventContext,
@@ -515,16 +762,33 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
 
   void outputWithErrorTag(
       ProcessContext c,
-      FailsafeElement<String, String> changeEvent,
+      FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> changeEvent,
+      Exception e,
+      TupleTag<FailsafeElement<String, String>> errorTag) {
+    outputWithErrorTag(processContextReceiver(c), changeEvent, e, errorTag);
+  }
+
+  private static void outputWithErrorTag(
+      EventReceiver receiver,
+      FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> changeEvent,
       Exception e,
       TupleTag<FailsafeElement<String, String>> errorTag) {
-    // Making a copy, as the input must not be mutated.
-    FailsafeElement<String, String> output = FailsafeElement.of(changeEvent);
+    // The errors leave the pipeline for the dead letter queue, so they are rendered to JSON.
+    FailsafeElement<String, String> output =
+        FailsafeElement.of(
+            changeEvent.getOriginalPayload().toJson(), changeEvent.getPayload().toJson());
     output.setErrorMessage(e.getMessage());
-    c.output(errorTag, output);
+    receiver.output(errorTag, output);
   }
 
   String getTxnTag(PipelineOptions options) {
+    if (txnTag == null) {
+      txnTag = createTxnTag(options);
+    }
+    return txnTag;
+  }
+
+  private static String createTxnTag(PipelineOptions options) {
     String jobId = "datastreamToSpanner";
     try {
       DataflowWorkerHarnessOptions harnessOptions = options.as(DataflowWorkerHarnessOptions.class);
@@ -563,4 +827,104 @@ class SpannerTransactionWriterDoFn extends DoFn<FailsafeElement<String, String>,
   public void setIsInTransaction(AtomicBoolean isInTransaction) {
     this.isInTransaction = isInTransaction;
   }
+
+  /** Receives the outputs for a change event. */
+  private interface EventReceiver {
+    void output(com.google.cloud.Timestamp timestamp);
+
+    void output(TupleTag<FailsafeElement<String, String>> tag, FailsafeElement<String, String> msg);
+
+    PipelineOptions getPipelineOptions();
+  }
+
+  private static EventReceiver processContextReceiver(ProcessContext c) {
+    return new EventReceiver() {
+      @Override
+      public void output(com.google.cloud.Timestamp timestamp) {
+        c.output(timestamp);
+      }
+
+      @Override
+      public void output(
+          TupleTag<FailsafeElement<String, String>> tag, FailsafeElement<String, String> msg) {
+        c.output(tag, msg);
+      }
+
+      @Override
+      public PipelineOptions getPipelineOptions() {
+        return c.getPipelineOptions();
+      }
+    };
+  }
+
+  private static EventReceiver finishBundleContextReceiver(
+      FinishBundleContext c, Instant timestamp, BoundedWindow window) {
+    return new EventReceiver() {
+      @Override
+      public void output(com.google.cloud.Timestamp commitTimestamp) {
+        c.output(
+            DatastreamToSpannerConstants.SUCCESSFUL_EVENT_TAG, commitTimestamp, timestamp, window);
+      }
+
+      @Override
+      public void output(
+          TupleTag<FailsafeElement<String, String>> tag, FailsafeElement<String, String> msg) {
+        c.output(tag, msg, timestamp, window);
+      }
+
+      @Override
+      public PipelineOptions getPipelineOptions() {
+        return c.getPipelineOptions();
+      }
+    };
+  }
+
+  /** A parsed change event waiting in the batch of the next transaction. */
+  private static class BufferedEvent {
+    final FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> msg;
+    final JsonNode changeEvent;
+    final ChangeEventContext changeEventContext;
+    final ChangeEventSequence sequence;
+    final String migrationShardId;
+    final boolean isRetryRecord;
+    final Instant startTimestamp;
+    final Instant timestamp;
+    final BoundedWindow window;
+    final List<Object> key;
+    final long mutationCells;
+
+    BufferedEvent(
+        FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> msg,
+        JsonNode changeEvent,
+        ChangeEventContext changeEventContext,
+        ChangeEventSequence sequence,
+        String migrationShardId,
+        boolean isRetryRecord,
+        Instant startTimestamp,
+        Instant timestamp,
+        BoundedWindow window) {
+      this.msg = msg;
+      this.changeEvent = changeEvent;
+      this.changeEventContext = changeEventContext;
+      this.sequence = sequence;
+      this.migrationShardId = migrationShardId;
+      this.isRetryRecord = isRetryRecord;
+      this.startTimestamp = startTimestamp;
+      this.timestamp = timestamp;
+      this.window = window;
+      this.key =
+          Arrays.asList(
+              changeEventContext.getShadowTable(),
+              ShadowTableReadUtils.normalizeKeyParts(
+                  changeEventContext.getPrimaryKey().getParts()));
+      long cells = 0;
+      for (Mutation mutation : changeEventContext.getMutations()) {
+        cells +=
+            mutation.getOperation() == Mutation.Op.DELETE
+                ? 1
+                : Iterables.size(mutation.getColumns());
+      }
+      this.mutationCells = cells;
+    }
+  }
 }
@@ -16,6 +16,7 @@
 package com.google.cloud.teleport.v2.templates.constants;
 
 import com.google.cloud.Timestamp;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
 import org.apache.beam.sdk.values.TupleTag;
 
@@ -27,9 +28,14 @@ public class DatastreamToSpannerConstants {
   /* The tag for events filtered via custom transformation.*/
   public static final TupleTag<String> FILTERED_EVENT_TAG = new TupleTag<String>() {};
 
-  /* The tag for successfully transformed events. */
-  public static final TupleTag<FailsafeElement<String, String>> TRANSFORMED_EVENT_TAG =
-      new TupleTag<FailsafeElement<String, String>>() {};
+  /* The tag for events parsed from the dead letter queue to be retried. */
+  public static final TupleTag<DatastreamChangeEvent> RETRIED_EVENT_TAG =
+      new TupleTag<DatastreamChangeEvent>() {};
+
+  /* The tag for successfully transformed events, holding the original and transformed events. */
+  public static final TupleTag<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>
+      TRANSFORMED_EVENT_TAG =
+          new TupleTag<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>() {};
 
   /* The tag for events failed with non-retryable errors. */
   public static final TupleTag<FailsafeElement<String, String>> PERMANENT_ERROR_TAG =
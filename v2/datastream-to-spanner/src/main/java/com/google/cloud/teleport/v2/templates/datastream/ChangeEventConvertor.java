@@ -17,6 +17,7 @@ package com.google.cloud.teleport.v2.templates.datastream;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.cloud.spanner.Key;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.spanner.ddl.IndexColumn;
@@ -80,6 +81,17 @@ public class ChangeEventConvertor {
     }
   }
 
+  /** Returns the Cloud Spanner primary key of the row written by a change event. */
+  public static Key changeEventToPrimaryKey(Ddl ddl, JsonNode changeEvent)
+      throws ChangeEventConvertorException, InvalidChangeEventException {
+    convertChangeEventColumnKeysToLowerCase(changeEvent);
+    return ChangeEventSpannerConvertor.changeEventToPrimaryKey(
+        changeEvent.get(DatastreamConstants.EVENT_TABLE_NAME_KEY).asText(),
+        ddl,
+        changeEvent,
+        /* convertNameToLowerCase= */ true);
+  }
+
   static Mutation changeEventToMutation(Ddl ddl, JsonNode changeEvent)
       throws ChangeEventConvertorException, InvalidChangeEventException {
     String changeType =
@@ -15,11 +15,13 @@
  */
 package com.google.cloud.teleport.v2.templates.datastream;
 
+import java.io.Serializable;
+
 /**
  * Abstract class that will be the super class of classes that will contain event sequence
  * information for all databases.
  */
-public abstract class ChangeEventSequence implements Comparable<ChangeEventSequence> {
+public abstract class ChangeEventSequence implements Comparable<ChangeEventSequence>, Serializable {
 
   private final String sourceDatabaseType;
 
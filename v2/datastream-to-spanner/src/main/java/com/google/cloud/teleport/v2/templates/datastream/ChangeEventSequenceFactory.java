@@ -16,10 +16,20 @@
 package com.google.cloud.teleport.v2.templates.datastream;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.TransactionContext;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.spanner.migrations.exceptions.ChangeEventConvertorException;
 import com.google.cloud.teleport.v2.spanner.migrations.exceptions.InvalidChangeEventException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Factory classes for ChangeEventSequence classes which provides methods for 1) creating
@@ -44,16 +54,24 @@ public class ChangeEventSequenceFactory {
   public static ChangeEventSequence createChangeEventSequenceFromChangeEventContext(
       ChangeEventContext changeEventContext)
       throws ChangeEventConvertorException, InvalidChangeEventException {
+    return createChangeEventSequenceFromChangeEvent(changeEventContext.getChangeEvent());
+  }
 
-    String sourceType = getSourceType(changeEventContext.getChangeEvent());
+  /*
+   * Creates a ChangeEventSequence from the JSON of a change event.
+   */
+  public static ChangeEventSequence createChangeEventSequenceFromChangeEvent(JsonNode changeEvent)
+      throws ChangeEventConvertorException, InvalidChangeEventException {
+
+    String sourceType = getSourceType(changeEvent);
 
     // Create ChangeEventSequence from change event JSON.
     if (DatastreamConstants.MYSQL_SOURCE_TYPE.equals(sourceType)) {
-      return MySqlChangeEventSequence.createFromChangeEvent(changeEventContext);
+      return MySqlChangeEventSequence.createFromChangeEvent(changeEvent);
     } else if (DatastreamConstants.ORACLE_SOURCE_TYPE.equals(sourceType)) {
-      return OracleChangeEventSequence.createFromChangeEvent(changeEventContext);
+      return OracleChangeEventSequence.createFromChangeEvent(changeEvent);
     } else if (DatastreamConstants.POSTGRES_SOURCE_TYPE.equals(sourceType)) {
-      return PostgresChangeEventSequence.createFromChangeEvent(changeEventContext);
+      return PostgresChangeEventSequence.createFromChangeEvent(changeEvent);
     }
     throw new InvalidChangeEventException("Unsupported source database: " + sourceType);
   }
@@ -95,4 +113,98 @@ public class ChangeEventSequenceFactory {
     }
     throw new InvalidChangeEventException("Unsupported source database: " + sourceType);
   }
+
+  /*
+   * Creates ChangeEventSequence objects for the earlier events of several change events with
+   * distinct primary keys. The shadow table rows of each shadow table are read with a single
+   * multi-key read. The returned list holds the sequence for the change event at the same index,
+   * or null if the shadow table has no row for its primary key.
+   */
+  public static List<ChangeEventSequence> createChangeEventSequencesFromShadowTable(
+      final TransactionContext transactionContext,
+      final List<ChangeEventContext> changeEventContexts,
+      Ddl shadowDdl)
+      throws ChangeEventSequenceCreationException, InvalidChangeEventException {
+
+    List<ChangeEventSequence> sequences =
+        new ArrayList<>(Collections.nCopies(changeEventContexts.size(), null));
+    Map<String, List<Integer>> eventsByShadowTable = new LinkedHashMap<>();
+    for (int i = 0; i < changeEventContexts.size(); i++) {
+      eventsByShadowTable
+          .computeIfAbsent(changeEventContexts.get(i).getShadowTable(), t -> new ArrayList<>())
+          .add(i);
+    }
+
+    for (Map.Entry<String, List<Integer>> entry : eventsByShadowTable.entrySet()) {
+      String shadowTable = entry.getKey();
+      List<Integer> events = entry.getValue();
+      String sourceType = getSourceType(changeEventContexts.get(events.get(0)).getChangeEvent());
+      Map<List<Object>, Integer> eventsByKey = new HashMap<>();
+      KeySet.Builder keySet = KeySet.newBuilder();
+      for (int event : events) {
+        Key primaryKey = changeEventContexts.get(event).getPrimaryKey();
+        eventsByKey.put(ShadowTableReadUtils.normalizeKeyParts(primaryKey.getParts()), event);
+        keySet.addKey(primaryKey);
+      }
+      List<String> keyColumns = ShadowTableReadUtils.getPrimaryKeyColumns(shadowTable, shadowDdl);
+      List<String> readColumnList = new ArrayList<>(keyColumns);
+      readColumnList.addAll(getShadowTableReadColumns(sourceType));
+
+      boolean allRowsMatched = true;
+      try (ResultSet resultSet =
+          transactionContext.read(shadowTable, keySet.build(), readColumnList)) {
+        while (resultSet.next()) {
+          Struct row = resultSet.getCurrentRowAsStruct();
+          Integer event =
+              eventsByKey.get(
+                  ShadowTableReadUtils.normalizeKeyParts(
+                      ShadowTableReadUtils.readPrimaryKeyParts(row, shadowTable, shadowDdl)));
+          if (event == null) {
+            allRowsMatched = false;
+            break;
+          }
+          sequences.set(event, createChangeEventSequenceFromShadowTableRow(sourceType, row));
+        }
+      } catch (InvalidChangeEventException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new ChangeEventSequenceCreationException(e);
+      }
+
+      // The key of a row read could not be matched to an event, read the rows one at a time.
+      if (!allRowsMatched) {
+        for (int event : events) {
+          sequences.set(
+              event,
+              createChangeEventSequenceFromShadowTable(
+                  transactionContext, changeEventContexts.get(event), shadowDdl, false));
+        }
+      }
+    }
+    return sequences;
+  }
+
+  private static List<String> getShadowTableReadColumns(String sourceType)
+      throws InvalidChangeEventException {
+    if (DatastreamConstants.MYSQL_SOURCE_TYPE.equals(sourceType)) {
+      return MySqlChangeEventSequence.getShadowTableReadColumns();
+    } else if (DatastreamConstants.ORACLE_SOURCE_TYPE.equals(sourceType)) {
+      return OracleChangeEventSequence.getShadowTableReadColumns();
+    } else if (DatastreamConstants.POSTGRES_SOURCE_TYPE.equals(sourceType)) {
+      return PostgresChangeEventSequence.getShadowTableReadColumns();
+    }
+    throw new InvalidChangeEventException("Unsupported source database: " + sourceType);
+  }
+
+  private static ChangeEventSequence createChangeEventSequenceFromShadowTableRow(
+      String sourceType, Struct row) throws InvalidChangeEventException {
+    if (DatastreamConstants.MYSQL_SOURCE_TYPE.equals(sourceType)) {
+      return MySqlChangeEventSequence.createFromShadowTableRow(row);
+    } else if (DatastreamConstants.ORACLE_SOURCE_TYPE.equals(sourceType)) {
+      return OracleChangeEventSequence.createFromShadowTableRow(row);
+    } else if (DatastreamConstants.POSTGRES_SOURCE_TYPE.equals(sourceType)) {
+      return PostgresChangeEventSequence.createFromShadowTableRow(row);
+    }
+    throw new InvalidChangeEventException("Unsupported source database: " + sourceType);
+  }
 }
@@ -15,6 +15,7 @@
  */
 package com.google.cloud.teleport.v2.templates.datastream;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.cloud.spanner.Key;
 import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.Statement;
@@ -54,6 +55,14 @@ class MySqlChangeEventSequence extends ChangeEventSequence {
    */
   public static MySqlChangeEventSequence createFromChangeEvent(ChangeEventContext ctx)
       throws ChangeEventConvertorException, InvalidChangeEventException {
+    return createFromChangeEvent(ctx.getChangeEvent());
+  }
+
+  /*
+   * Creates MySqlChangeEventSequence from the JSON of a change event
+   */
+  public static MySqlChangeEventSequence createFromChangeEvent(JsonNode changeEvent)
+      throws ChangeEventConvertorException, InvalidChangeEventException {
 
     /* Dump events from MySql only has timestamp metadata filled in. They don't have
      * logfile and logposition metadata.
@@ -65,18 +74,14 @@ class MySqlChangeEventSequence extends ChangeEventSequence {
 
     logFile =
         ChangeEventTypeConvertor.toString(
-            ctx.getChangeEvent(),
-            DatastreamConstants.MYSQL_LOGFILE_KEY,
-            /* requiredField= */ false);
+            changeEvent, DatastreamConstants.MYSQL_LOGFILE_KEY, /* requiredField= */ false);
     if (logFile == null) {
       logFile = "";
     }
 
     logPosition =
         ChangeEventTypeConvertor.toLong(
-            ctx.getChangeEvent(),
-            DatastreamConstants.MYSQL_LOGPOSITION_KEY,
-            /* requiredField= */ false);
+            changeEvent, DatastreamConstants.MYSQL_LOGPOSITION_KEY, /* requiredField= */ false);
     if (logPosition == null) {
       logPosition = new Long(-1);
     }
@@ -84,9 +89,7 @@ class MySqlChangeEventSequence extends ChangeEventSequence {
     // Create MySqlChangeEventSequence from JSON keys in change event.
     return new MySqlChangeEventSequence(
         ChangeEventTypeConvertor.toLong(
-            ctx.getChangeEvent(),
-            DatastreamConstants.MYSQL_TIMESTAMP_KEY,
-            /* requiredField= */ true),
+            changeEvent, DatastreamConstants.MYSQL_TIMESTAMP_KEY, /* requiredField= */ true),
         logFile,
         logPosition);
   }
@@ -108,10 +111,7 @@ class MySqlChangeEventSequence extends ChangeEventSequence {
 
     try {
       // Read columns from shadow table
-      List<String> readColumnList =
-          DatastreamConstants.MYSQL_SORT_ORDER.values().stream()
-              .map(p -> p.getLeft())
-              .collect(Collectors.toList());
+      List<String> readColumnList = getShadowTableReadColumns();
       Struct row;
       // TODO: After beam release, use the latest client lib version which supports setting lock
       // hints via the read api. SQL string generation should be removed.
@@ -132,15 +132,33 @@ class MySqlChangeEventSequence extends ChangeEventSequence {
       if (row == null) {
         return null;
       }
-      return new MySqlChangeEventSequence(
-          row.getLong(readColumnList.get(0)),
-          row.getString(readColumnList.get(1)),
-          row.getLong(readColumnList.get(2)));
+      return createFromShadowTableRow(row);
     } catch (Exception e) {
       throw new ChangeEventSequenceCreationException(e);
     }
   }
 
+  /*
+   * Returns the shadow table columns holding the sequence information.
+   */
+  static List<String> getShadowTableReadColumns() {
+    return DatastreamConstants.MYSQL_SORT_ORDER.values().stream()
+        .map(p -> p.getLeft())
+        .collect(Collectors.toList());
+  }
+
+  /*
+   * Creates a MySqlChangeEventSequence from a shadow table row holding the columns returned by
+   * getShadowTableReadColumns().
+   */
+  static MySqlChangeEventSequence createFromShadowTableRow(Struct row) {
+    List<String> readColumnList = getShadowTableReadColumns();
+    return new MySqlChangeEventSequence(
+        row.getLong(readColumnList.get(0)),
+        row.getString(readColumnList.get(1)),
+        row.getLong(readColumnList.get(2)));
+  }
+
   Long getTimestamp() {
     return timestamp;
   }
@@ -15,6 +15,7 @@
  */
 package com.google.cloud.teleport.v2.templates.datastream;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.cloud.spanner.Key;
 import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.Statement;
@@ -50,6 +51,14 @@ class PostgresChangeEventSequence extends ChangeEventSequence {
    */
   public static PostgresChangeEventSequence createFromChangeEvent(ChangeEventContext ctx)
       throws ChangeEventConvertorException, InvalidChangeEventException {
+    return createFromChangeEvent(ctx.getChangeEvent());
+  }
+
+  /*
+   * Creates PostgresChangeEventSequence from the JSON of a change event
+   */
+  public static PostgresChangeEventSequence createFromChangeEvent(JsonNode changeEvent)
+      throws ChangeEventConvertorException, InvalidChangeEventException {
 
     /* Backfill events from Postgres "can" have only timestamp metadata filled in.
      * Set LSN to a smaller value than any real value
@@ -58,7 +67,7 @@ class PostgresChangeEventSequence extends ChangeEventSequence {
 
     lsn =
         ChangeEventTypeConvertor.toString(
-            ctx.getChangeEvent(), DatastreamConstants.POSTGRES_LSN_KEY, /* requiredField= */ false);
+            changeEvent, DatastreamConstants.POSTGRES_LSN_KEY, /* requiredField= */ false);
     if (lsn == null) {
       lsn = "";
     }
@@ -66,9 +75,7 @@ class PostgresChangeEventSequence extends ChangeEventSequence {
     // Change events from Postgres have timestamp and lsn filled in always.
     return new PostgresChangeEventSequence(
         ChangeEventTypeConvertor.toLong(
-            ctx.getChangeEvent(),
-            DatastreamConstants.POSTGRES_TIMESTAMP_KEY,
-            /* requiredField= */ true),
+            changeEvent, DatastreamConstants.POSTGRES_TIMESTAMP_KEY, /* requiredField= */ true),
         lsn);
   }
 
@@ -85,10 +92,7 @@ class PostgresChangeEventSequence extends ChangeEventSequence {
 
     try {
       // Read columns from shadow table
-      List<String> readColumnList =
-          DatastreamConstants.POSTGRES_SORT_ORDER.values().stream()
-              .map(p -> p.getLeft())
-              .collect(Collectors.toList());
+      List<String> readColumnList = getShadowTableReadColumns();
       Struct row;
       // TODO: After beam release, use the latest client lib version which supports setting lock
       // hints via the read api. SQL string generation should be removed.
@@ -110,13 +114,31 @@ class PostgresChangeEventSequence extends ChangeEventSequence {
         return null;
       }
 
-      return new PostgresChangeEventSequence(
-          row.getLong(readColumnList.get(0)), row.getString(readColumnList.get(1)));
+      return createFromShadowTableRow(row);
     } catch (Exception e) {
       throw new ChangeEventSequenceCreationException(e);
     }
   }
 
+  /*
+   * Returns the shadow table columns holding the sequence information.
+   */
+  static List<String> getShadowTableReadColumns() {
+    return DatastreamConstants.POSTGRES_SORT_ORDER.values().stream()
+        .map(p -> p.getLeft())
+        .collect(Collectors.toList());
+  }
+
+  /*
+   * Creates a PostgresChangeEventSequence from a shadow table row holding the columns returned by
+   * getShadowTableReadColumns().
+   */
+  static PostgresChangeEventSequence createFromShadowTableRow(Struct row) {
+    List<String> readColumnList = getShadowTableReadColumns();
+    return new PostgresChangeEventSequence(
+        row.getLong(readColumnList.get(0)), row.getString(readColumnList.get(1)));
+  }
+
   Long getTimestamp() {
     return timestamp;
   }
@@ -20,11 +20,13 @@ import com.google.cloud.Date;
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.Key;
 import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
 import com.google.cloud.teleport.v2.spanner.ddl.Column;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.spanner.ddl.Table;
 import com.google.cloud.teleport.v2.spanner.type.Type;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -101,4 +103,87 @@ public class ShadowTableReadUtils {
     }
     return stmtBuilder.build();
   }
+
+  /** Returns the names of the primary key columns of {@code shadowTable}, in key order. */
+  public static List<String> getPrimaryKeyColumns(String shadowTable, Ddl shadowTableDdl) {
+    return shadowTableDdl.table(shadowTable).primaryKeys().stream()
+        .map(col -> col.name())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Reads the primary key of a shadow table row, with the same Java types the change event primary
+   * keys are built with.
+   */
+  public static List<Object> readPrimaryKeyParts(
+      Struct row, String shadowTable, Ddl shadowTableDdl) {
+    Table table = shadowTableDdl.table(shadowTable);
+    List<Object> parts = new ArrayList<>();
+    for (String colName : getPrimaryKeyColumns(shadowTable, shadowTableDdl)) {
+      if (row.isNull(colName)) {
+        parts.add(null);
+        continue;
+      }
+      Type keyColType = table.column(colName).type();
+      switch (keyColType.getCode()) {
+        case BOOL:
+        case PG_BOOL:
+          parts.add(row.getBoolean(colName));
+          break;
+        case INT64:
+        case PG_INT8:
+          parts.add(row.getLong(colName));
+          break;
+        case FLOAT64:
+        case PG_FLOAT8:
+          parts.add(row.getDouble(colName));
+          break;
+        case STRING:
+        case PG_VARCHAR:
+        case PG_TEXT:
+          parts.add(row.getString(colName));
+          break;
+        case JSON:
+          parts.add(row.getJson(colName));
+          break;
+        case PG_JSONB:
+          parts.add(row.getPgJsonb(colName));
+          break;
+        case NUMERIC:
+          parts.add(row.getBigDecimal(colName));
+          break;
+        case PG_NUMERIC:
+          parts.add(new BigDecimal(row.getValue(colName).toString()));
+          break;
+        case BYTES:
+        case PG_BYTEA:
+          parts.add(row.getBytes(colName));
+          break;
+        case TIMESTAMP:
+        case PG_COMMIT_TIMESTAMP:
+        case PG_TIMESTAMPTZ:
+          parts.add(row.getTimestamp(colName));
+          break;
+        case DATE:
+        case PG_DATE:
+          parts.add(row.getDate(colName));
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported type: " + keyColType);
+      }
+    }
+    return parts;
+  }
+
+  /**
+   * Returns the key parts in a form which can be compared with equals, numerics with a different
+   * scale being the same key in Spanner.
+   */
+  public static List<Object> normalizeKeyParts(Iterable<Object> keyParts) {
+    List<Object> normalized = new ArrayList<>();
+    for (Object part : keyParts) {
+      normalized.add(part instanceof BigDecimal ? ((BigDecimal) part).stripTrailingZeros() : part);
+    }
+    return normalized;
+  }
 }
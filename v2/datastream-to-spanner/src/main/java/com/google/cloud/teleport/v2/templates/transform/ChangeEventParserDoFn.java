@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.templates.transform;
+
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
+import com.google.cloud.teleport.v2.templates.constants.DatastreamToSpannerConstants;
+import com.google.cloud.teleport.v2.values.FailsafeElement;
+import java.io.IOException;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+
+/**
+ * Parses the JSON change events reconsumed from the dead letter queue into {@link
+ * DatastreamChangeEvent} objects, so that they join the events read from Datastream.
+ *
+ * <p>Events which are not valid JSON objects cannot be retried and are output to the {@link
+ * DatastreamToSpannerConstants#PERMANENT_ERROR_TAG} with the parsing error.
+ */
+public class ChangeEventParserDoFn
+    extends DoFn<FailsafeElement<String, String>, DatastreamChangeEvent> {
+
+  private final Counter invalidEvents =
+      Metrics.counter(ChangeEventParserDoFn.class, "Invalid JSON events");
+
+  @ProcessElement
+  public void processElement(ProcessContext c) {
+    FailsafeElement<String, String> msg = c.element();
+    try {
+      c.output(DatastreamChangeEvent.fromJson(msg.getOriginalPayload()));
+    } catch (IOException e) {
+      // Making a copy, as the input must not be mutated.
+      FailsafeElement<String, String> output = FailsafeElement.of(msg);
+      output.setErrorMessage(e.getMessage());
+      c.output(DatastreamToSpannerConstants.PERMANENT_ERROR_TAG, output);
+      invalidEvents.inc();
+    }
+  }
+}
@@ -22,7 +22,9 @@ import static com.google.cloud.teleport.v2.templates.datastream.DatastreamConsta
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.auto.value.AutoValue;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.spanner.exceptions.InvalidTransformationException;
 import com.google.cloud.teleport.v2.spanner.migrations.convertors.ChangeEventSessionConvertor;
@@ -58,7 +60,8 @@ import org.slf4j.LoggerFactory;
 
 @AutoValue
 public abstract class ChangeEventTransformerDoFn
-    extends DoFn<FailsafeElement<String, String>, FailsafeElement<String, String>>
+    extends DoFn<
+        DatastreamChangeEvent, FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>
     implements Serializable {
 
   private static final Logger LOG = LoggerFactory.getLogger(ChangeEventTransformerDoFn.class);
@@ -169,14 +172,14 @@ public abstract class ChangeEventTransformerDoFn
 
   @ProcessElement
   public void processElement(ProcessContext c) {
-    FailsafeElement<String, String> msg = c.element();
+    DatastreamChangeEvent msg = c.element();
     processedEvents.inc();
     Instant startTimestamp = Instant.now();
     Ddl ddl = c.sideInput(ddlView());
     String migrationShardId = null;
     try {
 
-      JsonNode changeEvent = mapper.readTree(msg.getOriginalPayload());
+      JsonNode changeEvent = msg.readRow(mapper);
       Map<String, Object> sourceRecord =
           ChangeEventToMapConvertor.convertChangeEventToMap(changeEvent);
 
@@ -207,7 +210,7 @@ public abstract class ChangeEventTransformerDoFn
               getCustomTransformationResponse(changeEvent, sourceRecord);
           if (migrationTransformationResponse.isEventFiltered()) {
             filteredEvents.inc();
-            c.output(DatastreamToSpannerConstants.FILTERED_EVENT_TAG, msg.getOriginalPayload());
+            c.output(DatastreamToSpannerConstants.FILTERED_EVENT_TAG, msg.toJson());
             return;
           }
           if (migrationTransformationResponse != null
@@ -227,11 +230,11 @@ public abstract class ChangeEventTransformerDoFn
       Instant endTimestamp = Instant.now();
       transformationLatencyMs.update(new Duration(startTimestamp, endTimestamp).getMillis());
       transformedEvents.inc();
-      // Adding the original payload to the Failsafe element to ensure that input is not mutated in
+      // Adding the original event to the Failsafe element to ensure that input is not mutated in
       // case of retries.
       c.output(
           DatastreamToSpannerConstants.TRANSFORMED_EVENT_TAG,
-          FailsafeElement.of(msg.getOriginalPayload(), changeEvent.toString()));
+          FailsafeElement.of(msg, DatastreamChangeEvent.of((ObjectNode) changeEvent)));
     } catch (DroppedTableException e) {
       // Errors when table exists in source but was dropped during conversion. We do not output any
       // errors to dlq for this.
@@ -279,11 +282,12 @@ public abstract class ChangeEventTransformerDoFn
 
   void outputWithErrorTag(
       ProcessContext c,
-      FailsafeElement<String, String> changeEvent,
+      DatastreamChangeEvent changeEvent,
       Exception e,
       TupleTag<FailsafeElement<String, String>> errorTag) {
-    // Making a copy, as the input must not be mutated.
-    FailsafeElement<String, String> output = FailsafeElement.of(changeEvent);
+    // The errors leave the pipeline for the dead letter queue, so they are rendered to JSON.
+    String json = changeEvent.toJson();
+    FailsafeElement<String, String> output = FailsafeElement.of(json, json);
     output.setErrorMessage(e.getMessage());
     c.output(errorTag, output);
   }
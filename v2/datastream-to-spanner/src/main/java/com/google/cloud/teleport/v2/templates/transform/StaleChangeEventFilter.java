@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.templates.transform;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
+import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
+import com.google.cloud.teleport.v2.templates.datastream.ChangeEventConvertor;
+import com.google.cloud.teleport.v2.templates.datastream.ChangeEventSequence;
+import com.google.cloud.teleport.v2.templates.datastream.ChangeEventSequenceFactory;
+import com.google.cloud.teleport.v2.templates.datastream.DatastreamConstants;
+import com.google.cloud.teleport.v2.values.FailsafeElement;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.TimeDomain;
+import org.apache.beam.sdk.state.Timer;
+import org.apache.beam.sdk.state.TimerSpec;
+import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Flatten;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+import org.joda.time.Duration;
+
+/**
+ * Drops change events which are older than, or duplicates of, an event already forwarded for the
+ * same primary key, before they reach the shadow table reads of {@link
+ * com.google.cloud.teleport.v2.templates.SpannerTransactionWriter}.
+ *
+ * <p>Events are keyed by their table and Cloud Spanner primary key and the sequence of the latest
+ * event forwarded for a key is kept in state, until the key has not changed for the configured time
+ * to live. The shadow tables stay the source of truth: forwarded events are still checked against
+ * them, which covers restarts and keys whose state expired.
+ *
+ * <p>Events retried from the dead letter queue are always forwarded, as the state already holds
+ * their sequence from their first attempt. Events which cannot be keyed are forwarded unchanged for
+ * the writer to report their errors.
+ */
+public class StaleChangeEventFilter
+    extends PTransform<
+        PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>,
+        PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>> {
+
+  private static final TupleTag<
+          KV<String, FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>>
+      KEYED_EVENT_TAG =
+          new TupleTag<
+              KV<String, FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>>() {};
+
+  private static final TupleTag<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>
+      UNKEYED_EVENT_TAG =
+          new TupleTag<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>() {};
+
+  private final PCollectionView<Ddl> ddlView;
+
+  private final Duration stateTtl;
+
+  public StaleChangeEventFilter(PCollectionView<Ddl> ddlView, Duration stateTtl) {
+    this.ddlView = ddlView;
+    this.stateTtl = stateTtl;
+  }
+
+  @Override
+  public PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> expand(
+      PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> input) {
+    Coder<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> coder = input.getCoder();
+    PCollectionTuple keyedEvents =
+        input.apply(
+            "Key by primary key",
+            ParDo.of(new KeyByPrimaryKeyFn(ddlView))
+                .withSideInputs(ddlView)
+                .withOutputTags(KEYED_EVENT_TAG, TupleTagList.of(UNKEYED_EVENT_TAG)));
+
+    PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> forwardedEvents =
+        keyedEvents
+            .get(KEYED_EVENT_TAG)
+            .setCoder(KvCoder.of(StringUtf8Coder.of(), coder))
+            .apply("Drop stale events", ParDo.of(new DropStaleEventsFn(stateTtl)))
+            .setCoder(coder);
+
+    return PCollectionList.of(forwardedEvents)
+        .and(keyedEvents.get(UNKEYED_EVENT_TAG).setCoder(coder))
+        .apply("Merge forwarded events", Flatten.pCollections());
+  }
+
+  private static ObjectMapper createMapper() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    return mapper;
+  }
+
+  /** Keys change events by their table and Cloud Spanner primary key. */
+  static class KeyByPrimaryKeyFn
+      extends DoFn<
+          FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>,
+          KV<String, FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>> {
+
+    private final PCollectionView<Ddl> ddlView;
+
+    private transient ObjectMapper mapper;
+
+    KeyByPrimaryKeyFn(PCollectionView<Ddl> ddlView) {
+      this.ddlView = ddlView;
+    }
+
+    @Setup
+    public void setup() {
+      mapper = createMapper();
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> msg = c.element();
+      String key;
+      try {
+        JsonNode changeEvent = msg.getPayload().readRow(mapper);
+        com.google.cloud.spanner.Key primaryKey =
+            ChangeEventConvertor.changeEventToPrimaryKey(c.sideInput(ddlView), changeEvent);
+        key =
+            stateKey(
+                changeEvent.get(DatastreamConstants.EVENT_TABLE_NAME_KEY).asText(), primaryKey);
+      } catch (Exception e) {
+        c.output(UNKEYED_EVENT_TAG, msg);
+        return;
+      }
+      c.output(KV.of(key, msg));
+    }
+
+    /**
+     * Returns the state key of a primary key of a table. {@link
+     * com.google.cloud.spanner.Key#toString()} does not delimit its parts, so ("a,b", "c") and ("a",
+     * "b,c") would share a key.
+     */
+    @VisibleForTesting
+    static String stateKey(String tableName, com.google.cloud.spanner.Key primaryKey) {
+      StringBuilder key = new StringBuilder();
+      key.append(tableName.length()).append(':').append(tableName);
+      for (Object part : primaryKey.getParts()) {
+        String value = part == null ? "" : part.toString();
+        // Prefix each value with its length, so that the concatenation is unambiguous.
+        key.append(part == null ? -1 : value.length()).append(':').append(value);
+      }
+      return key.toString();
+    }
+  }
+
+  /** Forwards the change events newer than the latest event forwarded for their key. */
+  static class DropStaleEventsFn
+      extends DoFn<
+          KV<String, FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>>,
+          FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> {
+
+    private final Duration stateTtl;
+
+    @StateId("latestSequence")
+    private final StateSpec<ValueState<ChangeEventSequence>> latestSequenceSpec =
+        StateSpecs.value(SerializableCoder.of(ChangeEventSequence.class));
+
+    @TimerId("expiry")
+    private final TimerSpec expirySpec = TimerSpecs.timer(TimeDomain.PROCESSING_TIME);
+
+    // Number of events whose key had a sequence in state.
+    private final Counter cacheHits =
+        Metrics.counter(StaleChangeEventFilter.class, "Sequence cache hits");
+
+    // Number of events whose key had no sequence in state.
+    private final Counter cacheMisses =
+        Metrics.counter(StaleChangeEventFilter.class, "Sequence cache misses");
+
+    // Number of events dropped because a later event was already forwarded for their key.
+    private final Counter staleEvents =
+        Metrics.counter(StaleChangeEventFilter.class, "Stale events dropped");
+
+    DropStaleEventsFn(Duration stateTtl) {
+      this.stateTtl = stateTtl;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<String, FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> element,
+        @StateId("latestSequence") ValueState<ChangeEventSequence> latestSequence,
+        @TimerId("expiry") Timer expiry,
+        OutputReceiver<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> out) {
+      FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> msg = element.getValue();
+      ChangeEventSequence sequence;
+      boolean isRetryRecord;
+      try {
+        // The sequence is only read, so the shared row is not copied.
+        JsonNode changeEvent = msg.getPayload().getRow();
+        isRetryRecord = changeEvent.has("_metadata_retry_count");
+        sequence = ChangeEventSequenceFactory.createChangeEventSequenceFromChangeEvent(changeEvent);
+      } catch (Exception e) {
+        out.output(msg);
+        return;
+      }
+
+      ChangeEventSequence previousSequence = latestSequence.read();
+      boolean isStale;
+      if (previousSequence == null) {
+        cacheMisses.inc();
+        isStale = false;
+      } else {
+        cacheHits.inc();
+        try {
+          isStale = previousSequence.compareTo(sequence) >= 0;
+        } catch (RuntimeException e) {
+          // The sequences are of different source types, leave the comparison to the writer.
+          isStale = false;
+        }
+      }
+
+      if (isStale && !isRetryRecord) {
+        staleEvents.inc();
+        return;
+      }
+      if (!isStale) {
+        latestSequence.write(sequence);
+      }
+      expiry.offset(stateTtl).setRelative();
+      out.output(msg);
+    }
+
+    @OnTimer("expiry")
+    public void onExpiry(
+        @StateId("latestSequence") ValueState<ChangeEventSequence> latestSequence) {
+      latestSequence.clear();
+    }
+  }
+}
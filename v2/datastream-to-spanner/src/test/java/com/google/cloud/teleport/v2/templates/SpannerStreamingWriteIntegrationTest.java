@@ -25,6 +25,8 @@ import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.Struct;
 import com.google.cloud.teleport.v2.coders.FailsafeElementCoder;
+import com.google.cloud.teleport.v2.datastream.coders.DatastreamChangeEventCoder;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.spanner.IntegrationTest;
 import com.google.cloud.teleport.v2.spanner.SpannerServerResource;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
@@ -33,9 +35,9 @@ import com.google.cloud.teleport.v2.spanner.migrations.schema.Schema;
 import com.google.cloud.teleport.v2.templates.datastream.DatastreamConstants;
 import com.google.cloud.teleport.v2.templates.spanner.ProcessInformationSchema;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
+import java.io.IOException;
 import java.util.Arrays;
 import org.apache.beam.sdk.PipelineResult;
-import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.io.gcp.spanner.SpannerConfig;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Create;
@@ -139,7 +141,8 @@ public class SpannerStreamingWriteIntegrationTest {
     }
   }
 
-  private void constructAndRunPipeline(PCollection<FailsafeElement<String, String>> jsonRecords) {
+  private void constructAndRunPipeline(
+      PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> jsonRecords) {
     String shadowTablePrefix = "shadow";
     SpannerConfig spannerConfig = spannerServer.getSpannerConfig(testDb);
 
@@ -185,6 +188,12 @@ public class SpannerStreamingWriteIntegrationTest {
     return json;
   }
 
+  private static FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> changeEvent(
+      JSONObject json) throws IOException {
+    DatastreamChangeEvent event = DatastreamChangeEvent.fromJson(json.toString());
+    return FailsafeElement.of(event, event);
+  }
+
   private JSONObject getChangeEventForTable1(
       String id, String data, String changeType, String scn) {
     JSONObject json = getChangeEvent("Table1", changeType, scn);
@@ -198,13 +207,12 @@ public class SpannerStreamingWriteIntegrationTest {
     JSONObject json1 = getChangeEventForTable1("1", "334", "INSERT", "1");
     JSONObject json2 = getChangeEventForTable1("2", "32", "INSERT", "3");
 
-    PCollection<FailsafeElement<String, String>> jsonRecords =
+    PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> jsonRecords =
         testPipeline.apply(
-            Create.of(
-                    Arrays.asList(
-                        FailsafeElement.of(json1.toString(), json1.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString())))
-                .withCoder(FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of())));
+            Create.of(Arrays.asList(changeEvent(json1), changeEvent(json2)))
+                .withCoder(
+                    FailsafeElementCoder.of(
+                        DatastreamChangeEventCoder.of(), DatastreamChangeEventCoder.of())));
 
     constructAndRunPipeline(jsonRecords);
 
@@ -218,13 +226,12 @@ public class SpannerStreamingWriteIntegrationTest {
     JSONObject json1 = getChangeEventForTable1("1", "10", "INSERT", "1");
     JSONObject json2 = getChangeEventForTable1("1", "20", "UPDATE", "3");
 
-    PCollection<FailsafeElement<String, String>> jsonRecords =
+    PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> jsonRecords =
         testPipeline.apply(
-            Create.of(
-                    Arrays.asList(
-                        FailsafeElement.of(json1.toString(), json1.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString())))
-                .withCoder(FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of())));
+            Create.of(Arrays.asList(changeEvent(json1), changeEvent(json2)))
+                .withCoder(
+                    FailsafeElementCoder.of(
+                        DatastreamChangeEventCoder.of(), DatastreamChangeEventCoder.of())));
 
     constructAndRunPipeline(jsonRecords);
 
@@ -237,18 +244,20 @@ public class SpannerStreamingWriteIntegrationTest {
     JSONObject json1 = getChangeEventForTable1("1", "10", "INSERT", "1");
     JSONObject json2 = getChangeEventForTable1("1", "20", "UPDATE", "3");
 
-    PCollection<FailsafeElement<String, String>> jsonRecords =
+    PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> jsonRecords =
         testPipeline.apply(
             Create.of(
                     Arrays.asList(
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json1.toString(), json1.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json1.toString(), json1.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json1.toString(), json1.toString())))
-                .withCoder(FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of())));
+                        changeEvent(json2),
+                        changeEvent(json1),
+                        changeEvent(json2),
+                        changeEvent(json1),
+                        changeEvent(json2),
+                        changeEvent(json2),
+                        changeEvent(json1)))
+                .withCoder(
+                    FailsafeElementCoder.of(
+                        DatastreamChangeEventCoder.of(), DatastreamChangeEventCoder.of())));
 
     constructAndRunPipeline(jsonRecords);
 
@@ -272,19 +281,21 @@ public class SpannerStreamingWriteIntegrationTest {
      * Hence change event for interleaved table is repeated multiple times.
      * This also mimics the retry behavior during interleaved tables handling.
      */
-    PCollection<FailsafeElement<String, String>> jsonRecords =
+    PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> jsonRecords =
         testPipeline.apply(
             Create.of(
                     Arrays.asList(
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json1.toString(), json1.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString())))
-                .withCoder(FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of())));
+                        changeEvent(json2),
+                        changeEvent(json2),
+                        changeEvent(json1),
+                        changeEvent(json2),
+                        changeEvent(json2),
+                        changeEvent(json2),
+                        changeEvent(json2),
+                        changeEvent(json2)))
+                .withCoder(
+                    FailsafeElementCoder.of(
+                        DatastreamChangeEventCoder.of(), DatastreamChangeEventCoder.of())));
 
     constructAndRunPipeline(jsonRecords);
 
@@ -301,13 +312,12 @@ public class SpannerStreamingWriteIntegrationTest {
     json2.put("iD", "2");
     json2.put("DaTa", "23");
 
-    PCollection<FailsafeElement<String, String>> jsonRecords =
+    PCollection<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> jsonRecords =
         testPipeline.apply(
-            Create.of(
-                    Arrays.asList(
-                        FailsafeElement.of(json1.toString(), json1.toString()),
-                        FailsafeElement.of(json2.toString(), json2.toString())))
-                .withCoder(FailsafeElementCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of())));
+            Create.of(Arrays.asList(changeEvent(json1), changeEvent(json2)))
+                .withCoder(
+                    FailsafeElementCoder.of(
+                        DatastreamChangeEventCoder.of(), DatastreamChangeEventCoder.of())));
 
     constructAndRunPipeline(jsonRecords);
 
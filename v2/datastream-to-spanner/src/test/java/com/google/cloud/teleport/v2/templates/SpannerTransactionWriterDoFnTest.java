@@ -21,6 +21,7 @@ import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -31,18 +32,24 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.KeySet;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.Options;
+import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.TransactionContext;
 import com.google.cloud.spanner.TransactionRunner;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.spanner.migrations.constants.Constants;
 import com.google.cloud.teleport.v2.spanner.migrations.schema.Schema;
 import com.google.cloud.teleport.v2.templates.constants.DatastreamToSpannerConstants;
 import com.google.cloud.teleport.v2.templates.datastream.DatastreamConstants;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.beam.runners.dataflow.options.DataflowWorkerHarnessOptions;
@@ -51,6 +58,7 @@ import org.apache.beam.sdk.io.gcp.spanner.SpannerConfig;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.values.PCollectionView;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -145,8 +153,8 @@ public class SpannerTransactionWriterDoFnTest {
     outputObject.put("last_name", "Depp");
     outputObject.put("age", 13);
     outputObject.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, 12345);
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(outputObject.toString(), outputObject.toString());
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> failsafeElement =
+        failsafeEvent(outputObject);
     Ddl ddl = getTestDdl();
 
     when(processContextMock.element()).thenReturn(failsafeElement);
@@ -175,7 +183,7 @@ public class SpannerTransactionWriterDoFnTest {
     spannerTransactionWriterDoFn.setSpannerAccessor(spannerAccessor);
     spannerTransactionWriterDoFn.setIsInTransaction(new AtomicBoolean(false));
     spannerTransactionWriterDoFn.setTransactionAttemptCount(new AtomicLong(0));
-    spannerTransactionWriterDoFn.processElement(processContextMock);
+    spannerTransactionWriterDoFn.processElement(processContextMock, GlobalWindow.INSTANCE);
     ArgumentCaptor<Iterable<Mutation>> argument = ArgumentCaptor.forClass(Iterable.class);
     verify(transactionContext, times(1)).buffer(argument.capture());
     Iterable<Mutation> capturedMutations = argument.getValue();
@@ -236,8 +244,8 @@ public class SpannerTransactionWriterDoFnTest {
     outputObject.put("last_name", "Depp");
     outputObject.put("age", 13);
     outputObject.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, 123);
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(outputObject.toString(), outputObject.toString());
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> failsafeElement =
+        failsafeEvent(outputObject);
     Ddl ddl = getTestDdl();
 
     when(processContextMock.element()).thenReturn(failsafeElement);
@@ -249,7 +257,7 @@ public class SpannerTransactionWriterDoFnTest {
             spannerConfig, spannerConfig, ddlView, ddlView, "shadow", "mysql", true);
     spannerTransactionWriterDoFn.setMapper(mapper);
     spannerTransactionWriterDoFn.setSpannerAccessor(spannerAccessor);
-    spannerTransactionWriterDoFn.processElement(processContextMock);
+    spannerTransactionWriterDoFn.processElement(processContextMock, GlobalWindow.INSTANCE);
 
     ArgumentCaptor<FailsafeElement> argument = ArgumentCaptor.forClass(FailsafeElement.class);
     verify(processContextMock, times(1))
@@ -286,8 +294,8 @@ public class SpannerTransactionWriterDoFnTest {
     outputObject.put("last_name", "Depp");
     outputObject.put("age", 13);
     outputObject.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, 12345);
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(outputObject.toString(), outputObject.toString());
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> failsafeElement =
+        failsafeEvent(outputObject);
     Ddl ddl = getTestDdl();
 
     when(processContextMock.element()).thenReturn(failsafeElement);
@@ -316,7 +324,7 @@ public class SpannerTransactionWriterDoFnTest {
     spannerTransactionWriterDoFn.setSpannerAccessor(spannerAccessor);
     spannerTransactionWriterDoFn.setIsInTransaction(new AtomicBoolean(false));
     spannerTransactionWriterDoFn.setTransactionAttemptCount(new AtomicLong(0));
-    spannerTransactionWriterDoFn.processElement(processContextMock);
+    spannerTransactionWriterDoFn.processElement(processContextMock, GlobalWindow.INSTANCE);
     ArgumentCaptor<Iterable<Mutation>> argument = ArgumentCaptor.forClass(Iterable.class);
     verify(transactionContext, times(0)).buffer(anyList());
 
@@ -351,8 +359,8 @@ public class SpannerTransactionWriterDoFnTest {
     outputObject.put("last_name", "Depp");
     outputObject.put("age", 13);
     outputObject.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, 12345);
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(outputObject.toString(), outputObject.toString());
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> failsafeElement =
+        failsafeEvent(outputObject);
     Ddl ddl = getTestDdl();
 
     when(processContextMock.element()).thenReturn(failsafeElement);
@@ -381,11 +389,227 @@ public class SpannerTransactionWriterDoFnTest {
     spannerTransactionWriterDoFn.setSpannerAccessor(spannerAccessor);
     spannerTransactionWriterDoFn.setIsInTransaction(new AtomicBoolean(false));
     spannerTransactionWriterDoFn.setTransactionAttemptCount(new AtomicLong(0));
-    spannerTransactionWriterDoFn.processElement(processContextMock);
+    spannerTransactionWriterDoFn.processElement(processContextMock, GlobalWindow.INSTANCE);
     ArgumentCaptor<Iterable<Mutation>> argument = ArgumentCaptor.forClass(Iterable.class);
     verify(transactionContext, times(0)).buffer(anyList());
 
     verify(processContextMock, times(1))
         .output(eq(PERMANENT_ERROR_TAG), any(FailsafeElement.class));
   }
+
+  @Test
+  public void testProcessElementsInBatch() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    SpannerConfig spannerConfig = mock(SpannerConfig.class);
+    SpannerAccessor spannerAccessor = mock(SpannerAccessor.class);
+    PCollectionView<Ddl> ddlView = mock(PCollectionView.class);
+    DoFn.ProcessContext processContextMock = mock(DoFn.ProcessContext.class);
+    DoFn.FinishBundleContext finishBundleContextMock = mock(DoFn.FinishBundleContext.class);
+    DatabaseClient databaseClientMock = mock(DatabaseClient.class);
+    TransactionRunner transactionCallableMock = mock(TransactionRunner.class);
+    TransactionContext transactionContext = mock(TransactionContext.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    ValueProvider<Options.RpcPriority> rpcPriorityValueProviderMock = mock(ValueProvider.class);
+    ValueProvider<String> instanceId = mock(ValueProvider.class);
+    ValueProvider<String> databaseId = mock(ValueProvider.class);
+
+    String[] args = new String[] {"--jobId=123"};
+    DataflowWorkerHarnessOptions options =
+        PipelineOptionsFactory.fromArgs(args).as(DataflowWorkerHarnessOptions.class);
+
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> staleEvent =
+        userEvent(mapper, "Johnny", "Depp", 12345);
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> newEvent =
+        userEvent(mapper, "Keanu", "Reeve", 12345);
+    Ddl ddl = getTestDdl();
+
+    when(processContextMock.element()).thenReturn(staleEvent, newEvent);
+    when(processContextMock.sideInput(any())).thenReturn(ddl);
+    when(finishBundleContextMock.getPipelineOptions()).thenReturn(options);
+    when(rpcPriorityValueProviderMock.get()).thenReturn(Options.RpcPriority.LOW);
+    when(spannerConfig.getRpcPriority()).thenReturn(rpcPriorityValueProviderMock);
+    when(spannerConfig.getInstanceId()).thenReturn(instanceId);
+    when(spannerConfig.getDatabaseId()).thenReturn(databaseId);
+    when(instanceId.get()).thenReturn("test-instance");
+    when(databaseId.get()).thenReturn("test-database");
+    when(spannerAccessor.getDatabaseClient()).thenReturn(databaseClientMock);
+    when(transactionCallableMock.run(any()))
+        .thenAnswer(
+            invocation -> {
+              TransactionRunner.TransactionCallable<Void> callable = invocation.getArgument(0);
+              return callable.run(transactionContext);
+            });
+    when(databaseClientMock.readWriteTransaction(any(), any())).thenReturn(transactionCallableMock);
+    // Only the first event has a shadow table row, with a later sequence.
+    when(transactionContext.read(eq("shadow_Users"), any(KeySet.class), anyList()))
+        .thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, false);
+    when(resultSet.getCurrentRowAsStruct())
+        .thenReturn(
+            Struct.newBuilder()
+                .set("first_name")
+                .to("Johnny")
+                .set("last_name")
+                .to("Depp")
+                .set("timestamp")
+                .to(99999L)
+                .set("log_file")
+                .to("")
+                .set("log_position")
+                .to(-1L)
+                .build());
+
+    SpannerTransactionWriterDoFn spannerTransactionWriterDoFn =
+        new SpannerTransactionWriterDoFn(
+            spannerConfig, spannerConfig, ddlView, ddlView, "shadow", "mysql", true, 10);
+    spannerTransactionWriterDoFn.setMapper(mapper);
+    spannerTransactionWriterDoFn.setSpannerAccessor(spannerAccessor);
+    spannerTransactionWriterDoFn.setIsInTransaction(new AtomicBoolean(false));
+    spannerTransactionWriterDoFn.setTransactionAttemptCount(new AtomicLong(0));
+    spannerTransactionWriterDoFn.startBundle();
+    spannerTransactionWriterDoFn.processElement(processContextMock, GlobalWindow.INSTANCE);
+    spannerTransactionWriterDoFn.processElement(processContextMock, GlobalWindow.INSTANCE);
+    verify(databaseClientMock, times(0)).readWriteTransaction(any(), any());
+
+    spannerTransactionWriterDoFn.finishBundle(finishBundleContextMock);
+
+    // Both events are read with one multi-key read and written in one transaction.
+    verify(databaseClientMock, times(1)).readWriteTransaction(any(), any());
+    verify(transactionContext, times(1)).read(eq("shadow_Users"), any(KeySet.class), anyList());
+    ArgumentCaptor<Iterable<Mutation>> argument = ArgumentCaptor.forClass(Iterable.class);
+    verify(transactionContext, times(1)).buffer(argument.capture());
+    assertEquals(
+        "Keanu", argument.getValue().iterator().next().asMap().get("first_name").getString());
+    verify(finishBundleContextMock, times(2))
+        .output(
+            eq(DatastreamToSpannerConstants.SUCCESSFUL_EVENT_TAG),
+            any(com.google.cloud.Timestamp.class),
+            any(),
+            eq(GlobalWindow.INSTANCE));
+  }
+
+  @Test
+  public void testProcessElementsInBatchWithPermanentErrorForOneEvent() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    SpannerConfig spannerConfig = mock(SpannerConfig.class);
+    SpannerAccessor spannerAccessor = mock(SpannerAccessor.class);
+    PCollectionView<Ddl> ddlView = mock(PCollectionView.class);
+    DoFn.ProcessContext processContextMock = mock(DoFn.ProcessContext.class);
+    DoFn.FinishBundleContext finishBundleContextMock = mock(DoFn.FinishBundleContext.class);
+    DatabaseClient databaseClientMock = mock(DatabaseClient.class);
+    TransactionRunner transactionCallableMock = mock(TransactionRunner.class);
+    TransactionContext transactionContext = mock(TransactionContext.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    ValueProvider<Options.RpcPriority> rpcPriorityValueProviderMock = mock(ValueProvider.class);
+    ValueProvider<String> instanceId = mock(ValueProvider.class);
+    ValueProvider<String> databaseId = mock(ValueProvider.class);
+
+    String[] args = new String[] {"--jobId=123"};
+    DataflowWorkerHarnessOptions options =
+        PipelineOptionsFactory.fromArgs(args).as(DataflowWorkerHarnessOptions.class);
+
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> firstEvent =
+        userEvent(mapper, "Johnny", "Depp", 12345);
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> secondEvent =
+        userEvent(mapper, "Keanu", "Reeve", 12345);
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> failingEvent =
+        userEvent(mapper, "Bad", "Actor", 12345);
+    Ddl ddl = getTestDdl();
+
+    when(processContextMock.element()).thenReturn(firstEvent, failingEvent, secondEvent);
+    when(processContextMock.sideInput(any())).thenReturn(ddl);
+    when(finishBundleContextMock.getPipelineOptions()).thenReturn(options);
+    when(rpcPriorityValueProviderMock.get()).thenReturn(Options.RpcPriority.LOW);
+    when(spannerConfig.getRpcPriority()).thenReturn(rpcPriorityValueProviderMock);
+    when(spannerConfig.getInstanceId()).thenReturn(instanceId);
+    when(spannerConfig.getDatabaseId()).thenReturn(databaseId);
+    when(instanceId.get()).thenReturn("test-instance");
+    when(databaseId.get()).thenReturn("test-database");
+    when(spannerAccessor.getDatabaseClient()).thenReturn(databaseClientMock);
+    // Transactions writing the failing event fail to commit with a permanent error.
+    List<String> committedFirstNames = new ArrayList<>();
+    when(transactionCallableMock.run(any()))
+        .thenAnswer(
+            invocation -> {
+              List<String> bufferedFirstNames = new ArrayList<>();
+              doAnswer(
+                      buffer -> {
+                        Iterable<Mutation> mutations = buffer.getArgument(0);
+                        for (Mutation mutation : mutations) {
+                          if (mutation.getTable().equals("Users")) {
+                            bufferedFirstNames.add(mutation.asMap().get("first_name").getString());
+                          }
+                        }
+                        return null;
+                      })
+                  .when(transactionContext)
+                  .buffer(any(Iterable.class));
+              TransactionRunner.TransactionCallable<Void> callable = invocation.getArgument(0);
+              callable.run(transactionContext);
+              if (bufferedFirstNames.contains("Bad")) {
+                throw SpannerExceptionFactory.newSpannerException(
+                    ErrorCode.FAILED_PRECONDITION, "age must not be NULL in table Users");
+              }
+              committedFirstNames.addAll(bufferedFirstNames);
+              return null;
+            });
+    when(databaseClientMock.readWriteTransaction(any(), any())).thenReturn(transactionCallableMock);
+    // None of the events has a shadow table row.
+    when(transactionContext.read(eq("shadow_Users"), any(KeySet.class), anyList()))
+        .thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(false);
+
+    SpannerTransactionWriterDoFn spannerTransactionWriterDoFn =
+        new SpannerTransactionWriterDoFn(
+            spannerConfig, spannerConfig, ddlView, ddlView, "shadow", "mysql", true, 10);
+    spannerTransactionWriterDoFn.setMapper(mapper);
+    spannerTransactionWriterDoFn.setSpannerAccessor(spannerAccessor);
+    spannerTransactionWriterDoFn.setIsInTransaction(new AtomicBoolean(false));
+    spannerTransactionWriterDoFn.setTransactionAttemptCount(new AtomicLong(0));
+    spannerTransactionWriterDoFn.startBundle();
+    spannerTransactionWriterDoFn.processElement(processContextMock, GlobalWindow.INSTANCE);
+    spannerTransactionWriterDoFn.processElement(processContextMock, GlobalWindow.INSTANCE);
+    spannerTransactionWriterDoFn.processElement(processContextMock, GlobalWindow.INSTANCE);
+    spannerTransactionWriterDoFn.finishBundle(finishBundleContextMock);
+
+    // The batch of three is split in [Johnny] and [Bad, Keanu], and the latter in [Bad] and
+    // [Keanu].
+    verify(databaseClientMock, times(5)).readWriteTransaction(any(), any());
+    assertEquals(List.of("Johnny", "Keanu"), committedFirstNames);
+    ArgumentCaptor<FailsafeElement> argument = ArgumentCaptor.forClass(FailsafeElement.class);
+    verify(finishBundleContextMock, times(1))
+        .output(eq(PERMANENT_ERROR_TAG), argument.capture(), any(), eq(GlobalWindow.INSTANCE));
+    assertEquals(
+        failingEvent.getOriginalPayload().toJson(), argument.getValue().getOriginalPayload());
+    verify(finishBundleContextMock, times(0)).output(eq(RETRYABLE_ERROR_TAG), any(), any(), any());
+    verify(finishBundleContextMock, times(2))
+        .output(
+            eq(DatastreamToSpannerConstants.SUCCESSFUL_EVENT_TAG),
+            any(com.google.cloud.Timestamp.class),
+            any(),
+            eq(GlobalWindow.INSTANCE));
+  }
+
+  private static FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> userEvent(
+      ObjectMapper mapper, String firstName, String lastName, long timestamp) {
+    ObjectNode outputObject = mapper.createObjectNode();
+    outputObject.put(DatastreamConstants.EVENT_SOURCE_TYPE_KEY, Constants.MYSQL_SOURCE_TYPE);
+    outputObject.put(DatastreamConstants.EVENT_TABLE_NAME_KEY, "Users");
+    outputObject.put("first_name", firstName);
+    outputObject.put("last_name", lastName);
+    outputObject.put("age", 13);
+    outputObject.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, timestamp);
+    outputObject.put("_metadata_timestamp", timestamp);
+    outputObject.put("_metadata_read_timestamp", timestamp);
+    outputObject.put("_metadata_dataflow_timestamp", timestamp);
+    return failsafeEvent(outputObject);
+  }
+
+  private static FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> failsafeEvent(
+      ObjectNode outputObject) {
+    DatastreamChangeEvent event = DatastreamChangeEvent.of(outputObject.deepCopy());
+    return FailsafeElement.of(event, event);
+  }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.templates.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
+import com.google.cloud.teleport.v2.templates.constants.DatastreamToSpannerConstants;
+import com.google.cloud.teleport.v2.values.FailsafeElement;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/** Unit tests for {@link ChangeEventParserDoFn}. */
+public class ChangeEventParserDoFnTest {
+
+  @Test
+  public void testProcessElementParsesChangeEvent() throws Exception {
+    DoFn.ProcessContext processContextMock = mock(DoFn.ProcessContext.class);
+    String json = "{\"_metadata_table\":\"Users\",\"age\":13,\"_metadata_retry_count\":1}";
+    when(processContextMock.element()).thenReturn(FailsafeElement.of(json, json));
+
+    new ChangeEventParserDoFn().processElement(processContextMock);
+
+    verify(processContextMock, times(1)).output(DatastreamChangeEvent.fromJson(json));
+    verify(processContextMock, never())
+        .output(eq(DatastreamToSpannerConstants.PERMANENT_ERROR_TAG), any());
+  }
+
+  @Test
+  public void testProcessElementWithInvalidJson() {
+    DoFn.ProcessContext processContextMock = mock(DoFn.ProcessContext.class);
+    String invalidJson = "{\"column\": {\"nestedColumn\": {\"invalidDatatype\":}}}";
+    when(processContextMock.element()).thenReturn(FailsafeElement.of(invalidJson, invalidJson));
+
+    new ChangeEventParserDoFn().processElement(processContextMock);
+
+    ArgumentCaptor<FailsafeElement<String, String>> argument =
+        ArgumentCaptor.forClass(FailsafeElement.class);
+    verify(processContextMock, times(1))
+        .output(eq(DatastreamToSpannerConstants.PERMANENT_ERROR_TAG), argument.capture());
+    assertEquals(invalidJson, argument.getValue().getOriginalPayload());
+    assertNotNull(argument.getValue().getErrorMessage());
+  }
+}
@@ -17,7 +17,6 @@ package com.google.cloud.teleport.v2.templates.transform;
 
 import static com.google.cloud.teleport.v2.templates.datastream.DatastreamConstants.EVENT_CHANGE_TYPE_KEY;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.refEq;
 import static org.mockito.Mockito.any;
@@ -32,6 +31,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.spanner.exceptions.InvalidTransformationException;
 import com.google.cloud.teleport.v2.spanner.migrations.constants.Constants;
@@ -80,14 +80,13 @@ public class ChangeEventTransformerDoFnTest {
     changeEvent.put("last_name", "Depp");
     changeEvent.put("age", 13);
     changeEvent.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, 12345);
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(changeEvent.toString(), changeEvent.toString());
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(changeEvent.deepCopy());
 
     ObjectNode changeEvent2 = changeEvent.deepCopy();
     changeEvent2.put("synth_id", 123);
 
     when(schema.isEmpty()).thenReturn(false);
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
     when(changeEventSessionConvertor.transformChangeEventViaSessionFile(changeEvent))
         .thenReturn(changeEvent2);
     when(changeEventSessionConvertor.transformChangeEventData(
@@ -109,7 +108,7 @@ public class ChangeEventTransformerDoFnTest {
         .output(eq(DatastreamToSpannerConstants.TRANSFORMED_EVENT_TAG), argument.capture());
     assertEquals(
         "{\"_metadata_source_type\":\"mysql\",\"_metadata_table\":\"Users\",\"first_name\":\"Johnny\",\"last_name\":\"Depp\",\"age\":13,\"_metadata_timestamp\":12345,\"synth_id\":123}",
-        argument.getValue().getPayload());
+        ((DatastreamChangeEvent) argument.getValue().getPayload()).toJson());
   }
 
   @Test
@@ -137,8 +136,7 @@ public class ChangeEventTransformerDoFnTest {
     changeEvent.put("age", 13);
     changeEvent.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, 12345);
     changeEvent.put(EVENT_CHANGE_TYPE_KEY, "INSERT");
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(changeEvent.toString(), changeEvent.toString());
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(changeEvent.deepCopy());
 
     Map<String, Object> sourceRecord =
         ChangeEventToMapConvertor.convertChangeEventToMap(changeEvent);
@@ -150,7 +148,7 @@ public class ChangeEventTransformerDoFnTest {
         new MigrationTransformationResponse(spannerRecord, false);
 
     when(schema.isEmpty()).thenReturn(true);
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
     when(spannerMigrationTransformer.toSpannerRow(refEq(expectedRequest)))
         .thenReturn(migrationTransformationResponse);
     when(spannerAccessor.getDatabaseClient()).thenReturn(databaseClientMock);
@@ -173,7 +171,7 @@ public class ChangeEventTransformerDoFnTest {
         .output(eq(DatastreamToSpannerConstants.TRANSFORMED_EVENT_TAG), argument.capture());
     assertEquals(
         "{\"_metadata_source_type\":\"mysql\",\"_metadata_table\":\"Users\",\"first_name\":\"Johnny\",\"last_name\":\"Depp\",\"age\":10,\"_metadata_timestamp\":12345,\"_metadata_change_type\":\"INSERT\"}",
-        argument.getValue().getPayload());
+        ((DatastreamChangeEvent) argument.getValue().getPayload()).toJson());
   }
 
   @Test
@@ -207,8 +205,7 @@ public class ChangeEventTransformerDoFnTest {
     changeEvent.put("age", 13);
     changeEvent.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, 12345);
     changeEvent.put(EVENT_CHANGE_TYPE_KEY, "INSERT");
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(changeEvent.toString(), changeEvent.toString());
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(changeEvent.deepCopy());
 
     Map<String, Object> sourceRecord =
         ChangeEventToMapConvertor.convertChangeEventToMap(changeEvent);
@@ -220,7 +217,7 @@ public class ChangeEventTransformerDoFnTest {
         new MigrationTransformationResponse(spannerRecord, false);
 
     when(schema.isEmpty()).thenReturn(true);
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
     when(spannerMigrationTransformer.toSpannerRow(refEq(expectedRequest)))
         .thenReturn(migrationTransformationResponse);
     when(spannerAccessor.getDatabaseClient()).thenReturn(databaseClientMock);
@@ -251,7 +248,7 @@ public class ChangeEventTransformerDoFnTest {
         .output(eq(DatastreamToSpannerConstants.TRANSFORMED_EVENT_TAG), argument.capture());
     assertEquals(
         "{\"_metadata_source_type\":\"mysql\",\"_metadata_table\":\"Users\",\"_metadata_schema\":\"db1\",\"first_name\":\"Johnny\",\"last_name\":\"Depp\",\"age\":13,\"_metadata_timestamp\":12345,\"_metadata_change_type\":\"INSERT\",\"shardId\":\"shard1\"}",
-        argument.getValue().getPayload());
+        ((DatastreamChangeEvent) argument.getValue().getPayload()).toJson());
   }
 
   @Test
@@ -287,8 +284,7 @@ public class ChangeEventTransformerDoFnTest {
     changeEvent.put("age", 13);
     changeEvent.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, 12345);
     changeEvent.put(EVENT_CHANGE_TYPE_KEY, "INSERT");
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(changeEvent.toString(), changeEvent.toString());
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(changeEvent.deepCopy());
 
     Map<String, Object> sourceRecord =
         ChangeEventToMapConvertor.convertChangeEventToMap(changeEvent);
@@ -300,7 +296,7 @@ public class ChangeEventTransformerDoFnTest {
         new MigrationTransformationResponse(spannerRecord, false);
 
     when(schema.isEmpty()).thenReturn(true);
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
     when(spannerMigrationTransformer.toSpannerRow(refEq(expectedRequest)))
         .thenReturn(migrationTransformationResponse);
     when(spannerAccessor.getDatabaseClient()).thenReturn(databaseClientMock);
@@ -331,7 +327,7 @@ public class ChangeEventTransformerDoFnTest {
         .output(eq(DatastreamToSpannerConstants.TRANSFORMED_EVENT_TAG), argument.capture());
     assertEquals(
         "{\"_metadata_stream\":\"stream1\",\"_metadata_source_type\":\"mysql\",\"_metadata_table\":\"Users\",\"_metadata_schema\":\"db1\",\"first_name\":\"Johnny\",\"last_name\":\"Depp\",\"age\":13,\"_metadata_timestamp\":12345,\"_metadata_change_type\":\"INSERT\",\"shardId\":\"shard1\"}",
-        argument.getValue().getPayload());
+        ((DatastreamChangeEvent) argument.getValue().getPayload()).toJson());
   }
 
   @Test
@@ -359,8 +355,7 @@ public class ChangeEventTransformerDoFnTest {
     changeEvent.put("age", 13);
     changeEvent.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, 12345);
     changeEvent.put(EVENT_CHANGE_TYPE_KEY, "INSERT");
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(changeEvent.toString(), changeEvent.toString());
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(changeEvent.deepCopy());
 
     Map<String, Object> sourceRecord =
         ChangeEventToMapConvertor.convertChangeEventToMap(changeEvent);
@@ -372,7 +367,7 @@ public class ChangeEventTransformerDoFnTest {
         new MigrationTransformationResponse(spannerRecord, true);
 
     when(schema.isEmpty()).thenReturn(true);
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
     when(spannerMigrationTransformer.toSpannerRow(refEq(expectedRequest)))
         .thenReturn(migrationTransformationResponse);
     when(spannerAccessor.getDatabaseClient()).thenReturn(databaseClientMock);
@@ -420,8 +415,7 @@ public class ChangeEventTransformerDoFnTest {
     changeEvent.put(DatastreamConstants.EVENT_TABLE_NAME_KEY, "Users");
     changeEvent.put("first_name", "Johnny");
     changeEvent.put(EVENT_CHANGE_TYPE_KEY, "INSERT");
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(changeEvent.toString(), changeEvent.toString());
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(changeEvent.deepCopy());
 
     Map<String, Object> sourceRecord =
         ChangeEventToMapConvertor.convertChangeEventToMap(changeEvent);
@@ -429,7 +423,7 @@ public class ChangeEventTransformerDoFnTest {
         new MigrationTransformationRequest("Users", sourceRecord, "", "INSERT");
 
     when(schema.isEmpty()).thenReturn(true);
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
     doThrow(new InvalidTransformationException("invalid transformation"))
         .when(spannerMigrationTransformer)
         .toSpannerRow(refEq(expectedRequest));
@@ -474,14 +468,13 @@ public class ChangeEventTransformerDoFnTest {
     changeEvent.put(DatastreamConstants.EVENT_TABLE_NAME_KEY, "Users");
     changeEvent.put("first_name", "Johnny");
     changeEvent.put(EVENT_CHANGE_TYPE_KEY, "INSERT");
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(changeEvent.toString(), changeEvent.toString());
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(changeEvent.deepCopy());
 
     when(schema.isEmpty()).thenReturn(false);
     doThrow(new DroppedTableException("Cannot find entry for Users"))
         .when(schema)
         .verifyTableInSession("Users");
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
 
     ChangeEventTransformerDoFn changeEventTransformerDoFn =
         ChangeEventTransformerDoFn.create(
@@ -511,8 +504,7 @@ public class ChangeEventTransformerDoFnTest {
     changeEvent.put(DatastreamConstants.EVENT_TABLE_NAME_KEY, "Users");
     changeEvent.put("first_name", "Johnny");
     changeEvent.put(EVENT_CHANGE_TYPE_KEY, "INSERT");
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(changeEvent.toString(), changeEvent.toString());
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(changeEvent.deepCopy());
 
     when(schema.isEmpty()).thenReturn(false);
     doThrow(
@@ -520,7 +512,7 @@ public class ChangeEventTransformerDoFnTest {
                 "Missing entry for Users in srcToId map, provide a valid session file."))
         .when(schema)
         .verifyTableInSession("Users");
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
     when(spannerAccessor.getDatabaseClient()).thenReturn(databaseClientMock);
     when(changeEventSessionConvertor.transformChangeEventData(
             changeEvent, databaseClientMock, null))
@@ -543,7 +535,7 @@ public class ChangeEventTransformerDoFnTest {
   }
 
   @Test
-  public void testProcessElementWithException() {
+  public void testProcessElementWithException() throws Exception {
     ObjectMapper mapper = new ObjectMapper();
     mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
     Schema schema = mock(Schema.class);
@@ -551,24 +543,39 @@ public class ChangeEventTransformerDoFnTest {
     DoFn.ProcessContext processContextMock = mock(DoFn.ProcessContext.class);
     PCollectionView<Ddl> ddl = mock(PCollectionView.class);
     SpannerConfig spannerConfig = mock(SpannerConfig.class);
+    SpannerAccessor spannerAccessor = mock(SpannerAccessor.class);
+    DatabaseClient databaseClientMock = mock(DatabaseClient.class);
+    ChangeEventSessionConvertor changeEventSessionConvertor =
+        mock(ChangeEventSessionConvertor.class);
 
-    String invalidJson = "{\"column\": {\"nestedColumn\": {\"invalidDatatype\":}}}";
-    FailsafeElement<String, String> failsafeElement = FailsafeElement.of(invalidJson, invalidJson);
+    ObjectNode changeEvent = mapper.createObjectNode();
+    changeEvent.put(DatastreamConstants.EVENT_SOURCE_TYPE_KEY, Constants.MYSQL_SOURCE_TYPE);
+    changeEvent.put(DatastreamConstants.EVENT_TABLE_NAME_KEY, "Users");
+    changeEvent.put("first_name", "Johnny");
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(changeEvent.deepCopy());
 
     when(schema.isEmpty()).thenReturn(true);
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
+    when(spannerAccessor.getDatabaseClient()).thenReturn(databaseClientMock);
+    when(changeEventSessionConvertor.transformChangeEventData(
+            changeEvent, databaseClientMock, null))
+        .thenThrow(new RuntimeException("Unexpected error"));
 
     ChangeEventTransformerDoFn changeEventTransformerDoFn =
         ChangeEventTransformerDoFn.create(
             schema, null, null, null, "mysql", customTransformation, false, ddl, spannerConfig);
     changeEventTransformerDoFn.setMapper(mapper);
+    changeEventTransformerDoFn.setSpannerAccessor(spannerAccessor);
+    changeEventTransformerDoFn.setChangeEventSessionConvertor(changeEventSessionConvertor);
     changeEventTransformerDoFn.processElement(processContextMock);
 
     ArgumentCaptor<FailsafeElement<String, String>> argument =
         ArgumentCaptor.forClass(FailsafeElement.class);
     verify(processContextMock, times(1))
         .output(eq(DatastreamToSpannerConstants.PERMANENT_ERROR_TAG), argument.capture());
-    assertNotNull(argument.getValue().getErrorMessage());
+    assertEquals(changeEvent.toString(), argument.getValue().getOriginalPayload());
+    assertEquals(changeEvent.toString(), argument.getValue().getPayload());
+    assertEquals("Unexpected error", argument.getValue().getErrorMessage());
   }
 
   @Test
@@ -590,11 +597,10 @@ public class ChangeEventTransformerDoFnTest {
     ObjectNode invalidArrayNode = mapper.createObjectNode();
     ArrayNode invalidArray = invalidArrayNode.putArray("invalidKey");
     invalidArray.add("not a number");
-    FailsafeElement<String, String> failsafeElement =
-        FailsafeElement.of(invalidArrayNode.toString(), invalidArrayNode.toString());
+    DatastreamChangeEvent inputEvent = DatastreamChangeEvent.of(invalidArrayNode.deepCopy());
 
     when(schema.isEmpty()).thenReturn(true);
-    when(processContextMock.element()).thenReturn(failsafeElement);
+    when(processContextMock.element()).thenReturn(inputEvent);
     when(spannerAccessor.getDatabaseClient()).thenReturn(databaseClientMock);
     when(changeEventSessionConvertor.transformChangeEventData(
             invalidArrayNode, databaseClientMock, null))
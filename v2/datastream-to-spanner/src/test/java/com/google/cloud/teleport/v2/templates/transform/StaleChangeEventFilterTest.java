@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.templates.transform;
+
+import static org.junit.Assert.assertNotEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.teleport.v2.coders.FailsafeElementCoder;
+import com.google.cloud.teleport.v2.datastream.coders.DatastreamChangeEventCoder;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
+import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
+import com.google.cloud.teleport.v2.spanner.migrations.constants.Constants;
+import com.google.cloud.teleport.v2.templates.datastream.DatastreamConstants;
+import com.google.cloud.teleport.v2.values.FailsafeElement;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.joda.time.Duration;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Unit tests for {@link StaleChangeEventFilter}. */
+public class StaleChangeEventFilterTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  @Test
+  public void testDropsStaleAndDuplicateEvents() {
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> latest =
+        userEvent("Users", "Johnny", 2, false);
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> stale =
+        userEvent("Users", "Johnny", 1, false);
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> duplicate =
+        userEvent("Users", "Johnny", 2, false);
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> retried =
+        userEvent("Users", "Johnny", 1, true);
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> otherKey =
+        userEvent("Users", "Keanu", 1, false);
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> unknownTable =
+        userEvent("Movies", "Johnny", 1, false);
+
+    TestStream<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> events =
+        TestStream.create(
+                FailsafeElementCoder.of(
+                    DatastreamChangeEventCoder.of(), DatastreamChangeEventCoder.of()))
+            .addElements(latest)
+            .addElements(stale)
+            .addElements(duplicate)
+            .addElements(retried)
+            .addElements(otherKey)
+            .addElements(unknownTable)
+            .advanceWatermarkToInfinity();
+
+    PCollectionView<Ddl> ddlView =
+        pipeline
+            .apply("Create DDL", Create.of(getTestDdl()).withCoder(SerializableCoder.of(Ddl.class)))
+            .apply(View.asSingleton());
+    PCollection<String> forwarded =
+        pipeline
+            .apply(events)
+            .apply(new StaleChangeEventFilter(ddlView, Duration.standardMinutes(10)))
+            .apply(
+                MapElements.into(TypeDescriptors.strings())
+                    .via(element -> element.getOriginalPayload().toJson()));
+
+    PAssert.that(forwarded)
+        .containsInAnyOrder(
+            latest.getOriginalPayload().toJson(),
+            retried.getOriginalPayload().toJson(),
+            otherKey.getOriginalPayload().toJson(),
+            unknownTable.getOriginalPayload().toJson());
+    pipeline.run();
+  }
+
+  @Test
+  public void testForwardsEventsOfCompositeKeysWithTheSameString() {
+    // Both keys render as [a,b,c] with Key.toString().
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> first = pairEvent("a,b", "c", 2);
+    FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> second = pairEvent("a", "b,c", 1);
+
+    TestStream<FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent>> events =
+        TestStream.create(
+                FailsafeElementCoder.of(
+                    DatastreamChangeEventCoder.of(), DatastreamChangeEventCoder.of()))
+            .addElements(first)
+            .addElements(second)
+            .advanceWatermarkToInfinity();
+
+    PCollectionView<Ddl> ddlView =
+        pipeline
+            .apply("Create DDL", Create.of(getTestDdl()).withCoder(SerializableCoder.of(Ddl.class)))
+            .apply(View.asSingleton());
+    PCollection<String> forwarded =
+        pipeline
+            .apply(events)
+            .apply(new StaleChangeEventFilter(ddlView, Duration.standardMinutes(10)))
+            .apply(
+                MapElements.into(TypeDescriptors.strings())
+                    .via(element -> element.getOriginalPayload().toJson()));
+
+    PAssert.that(forwarded)
+        .containsInAnyOrder(
+            first.getOriginalPayload().toJson(), second.getOriginalPayload().toJson());
+    pipeline.run();
+  }
+
+  @Test
+  public void testStateKeyDelimitsKeyParts() {
+    assertNotEquals(
+        StaleChangeEventFilter.KeyByPrimaryKeyFn.stateKey("Pairs", Key.of("a,b", "c")),
+        StaleChangeEventFilter.KeyByPrimaryKeyFn.stateKey("Pairs", Key.of("a", "b,c")));
+    assertNotEquals(
+        StaleChangeEventFilter.KeyByPrimaryKeyFn.stateKey("Pairs", Key.of("a", null)),
+        StaleChangeEventFilter.KeyByPrimaryKeyFn.stateKey("Pairs", Key.of("a", "")));
+    assertNotEquals(
+        StaleChangeEventFilter.KeyByPrimaryKeyFn.stateKey("Users1", Key.of("a")),
+        StaleChangeEventFilter.KeyByPrimaryKeyFn.stateKey("Users", Key.of("1a")));
+  }
+
+  private static FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> pairEvent(
+      String left, String right, long timestamp) {
+    ObjectNode event = MAPPER.createObjectNode();
+    event.put(DatastreamConstants.EVENT_SOURCE_TYPE_KEY, Constants.MYSQL_SOURCE_TYPE);
+    event.put(DatastreamConstants.EVENT_TABLE_NAME_KEY, "Pairs");
+    event.put("left_name", left);
+    event.put("right_name", right);
+    event.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, timestamp);
+    return FailsafeElement.of(DatastreamChangeEvent.of(event), DatastreamChangeEvent.of(event));
+  }
+
+  private static FailsafeElement<DatastreamChangeEvent, DatastreamChangeEvent> userEvent(
+      String table, String firstName, long timestamp, boolean isRetry) {
+    ObjectNode event = MAPPER.createObjectNode();
+    event.put(DatastreamConstants.EVENT_SOURCE_TYPE_KEY, Constants.MYSQL_SOURCE_TYPE);
+    event.put(DatastreamConstants.EVENT_TABLE_NAME_KEY, table);
+    event.put("first_name", firstName);
+    event.put("age", timestamp);
+    event.put(DatastreamConstants.MYSQL_TIMESTAMP_KEY, timestamp);
+    if (isRetry) {
+      event.put("_metadata_retry_count", 1);
+    }
+    return FailsafeElement.of(DatastreamChangeEvent.of(event), DatastreamChangeEvent.of(event));
+  }
+
+  private static Ddl getTestDdl() {
+    return Ddl.builder()
+        .createTable("Users")
+        .column("first_name")
+        .string()
+        .max()
+        .endColumn()
+        .column("age")
+        .int64()
+        .endColumn()
+        .primaryKey()
+        .asc("first_name")
+        .end()
+        .endTable()
+        .createTable("Pairs")
+        .column("left_name")
+        .string()
+        .max()
+        .endColumn()
+        .column("right_name")
+        .string()
+        .max()
+        .endColumn()
+        .primaryKey()
+        .asc("left_name")
+        .asc("right_name")
+        .end()
+        .endTable()
+        .build();
+  }
+}
@@ -22,14 +22,17 @@ import com.google.cloud.teleport.metadata.TemplateParameter.TemplateEnumOption;
 import com.google.cloud.teleport.v2.common.UncaughtExceptionLogger;
 import com.google.cloud.teleport.v2.datastream.io.CdcJdbcIO;
 import com.google.cloud.teleport.v2.datastream.sources.DataStreamIO;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.datastream.values.DmlInfo;
 import com.google.cloud.teleport.v2.templates.DataStreamToSQL.Options;
 import com.google.cloud.teleport.v2.transforms.CreateDml;
 import com.google.cloud.teleport.v2.transforms.ProcessDml;
-import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.base.Splitter;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.PipelineResult;
@@ -282,14 +285,14 @@ public class DataStreamToSQL {
         jdbcDriverName = "org.postgresql.Driver";
         jdbcDriverConnectionString =
             String.format(
-                "jdbc:postgresql://%s:%s/%s",
+                "jdbc:postgresql://%s:%s/%s?reWriteBatchedInserts=true",
                 options.getDatabaseHost(), options.getDatabasePort(), options.getDatabaseName());
         break;
       case "mysql":
         jdbcDriverName = "com.mysql.cj.jdbc.Driver";
         jdbcDriverConnectionString =
             String.format(
-                "jdbc:mysql://%s:%s/%s",
+                "jdbc:mysql://%s:%s/%s?rewriteBatchedStatements=true",
                 options.getDatabaseHost(), options.getDatabasePort(), options.getDatabaseName());
         break;
       default:
@@ -345,8 +348,8 @@ public class DataStreamToSQL {
   public static PipelineResult run(Options options) {
     /*
      * Stages:
-     *   1) Ingest and Normalize Data to FailsafeElement with JSON Strings
-     *   2) Write JSON Strings to SQL DML Objects
+     *   1) Ingest and Normalize Data to typed change events
+     *   2) Write change events to SQL DML Objects
      *   3) Filter stale rows using stateful PK transform
      *   4) Write DML statements to SQL Database via jdbc
      */
@@ -359,10 +362,10 @@ public class DataStreamToSQL {
     LOG.info("Parsed schema map: {}", schemaMap);
 
     /*
-     * Stage 1: Ingest and Normalize Data to FailsafeElement with JSON Strings
-     *   a) Read DataStream data from GCS into JSON String FailsafeElements (datastreamJsonRecords)
+     * Stage 1: Ingest and Normalize Data to typed change events
+     *   a) Read DataStream data from GCS into DatastreamChangeEvents (datastreamChangeEvents)
      */
-    PCollection<FailsafeElement<String, String>> datastreamJsonRecords =
+    PCollection<DatastreamChangeEvent> datastreamChangeEvents =
         pipeline.apply(
             new DataStreamIO(
                     options.getStreamName(),
@@ -372,21 +375,26 @@ public class DataStreamToSQL {
                     options.getRfcStartDateTime())
                 .withLowercaseSourceColumns()
                 .withRenameColumnValue("_metadata_row_id", "rowid")
-                .withHashRowId());
+                .withHashRowId()
+                .changeEvents());
 
     /*
-     * Stage 2: Write JSON Strings to SQL Insert Strings
-     *   a) Convert JSON String FailsafeElements to TableRow's (tableRowRecords)
+     * Stage 2: Write change events to SQL Insert Strings
+     *   a) Convert DatastreamChangeEvents to DmlInfos (dmlStatements)
      * Stage 3) Filter stale rows using stateful PK transform
      */
     PCollection<KV<String, DmlInfo>> dmlStatements =
-        datastreamJsonRecords
+        datastreamChangeEvents
             .apply("Format to DML", CreateDml.of(dataSourceConfiguration).withSchemaMap(schemaMap))
             .apply("DML Stateful Processing", ProcessDml.statefulOrderByPK());
 
     /*
      * Stage 4: Write Inserts to CloudSQL
+     *   DMLs are written as prepared statement batches grouped by table, DML kind and column set.
+     *   Postgres binds values as untyped parameters so they are cast like the literal DML values.
      */
+    final int parameterSqlType =
+        options.getDatabaseType().equals("postgres") ? Types.OTHER : Types.VARCHAR;
     dmlStatements.apply(
         "Write to SQL",
         CdcJdbcIO.<KV<String, DmlInfo>>write()
@@ -397,6 +405,25 @@ public class DataStreamToSQL {
                     LOG.debug("Executing SQL: {}", element.getValue().getDmlSql());
                     return element.getValue().getDmlSql();
                   }
+                })
+            .withPreparedStatementFormatter(
+                new CdcJdbcIO.PreparedStatementFormatter<KV<String, DmlInfo>>() {
+                  public String formatPreparedStatement(KV<String, DmlInfo> element) {
+                    return element.getValue().getPreparedDmlSql();
+                  }
+
+                  public void setParameters(
+                      KV<String, DmlInfo> element, PreparedStatement preparedStatement)
+                      throws SQLException {
+                    List<String> values = element.getValue().getPreparedDmlValues();
+                    for (int i = 0; i < values.size(); i++) {
+                      preparedStatement.setObject(i + 1, values.get(i), parameterSqlType);
+                    }
+                  }
+
+                  public String getRowKey(KV<String, DmlInfo> element) {
+                    return element.getKey();
+                  }
                 }));
 
     // Execute the pipeline and return the result.
@@ -16,11 +16,11 @@
 package com.google.cloud.teleport.v2.transforms;
 
 import com.google.cloud.teleport.v2.datastream.io.CdcJdbcIO.DataSourceConfiguration;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.datastream.values.DmlInfo;
 import com.google.cloud.teleport.v2.utils.DatastreamToDML;
 import com.google.cloud.teleport.v2.utils.DatastreamToMySQLDML;
 import com.google.cloud.teleport.v2.utils.DatastreamToPostgresDML;
-import com.google.cloud.teleport.v2.values.FailsafeElement;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.beam.sdk.transforms.PTransform;
@@ -36,8 +36,7 @@ import org.slf4j.LoggerFactory;
  * objects.
  */
 public class CreateDml
-    extends PTransform<
-        PCollection<FailsafeElement<String, String>>, PCollection<KV<String, DmlInfo>>> {
+    extends PTransform<PCollection<DatastreamChangeEvent>, PCollection<KV<String, DmlInfo>>> {
 
   private static final Logger LOG = LoggerFactory.getLogger(CreateDml.class);
   private static final String WINDOW_DURATION = "1s";
@@ -79,13 +78,12 @@ public class CreateDml
   }
 
   @Override
-  public PCollection<KV<String, DmlInfo>> expand(
-      PCollection<FailsafeElement<String, String>> input) {
+  public PCollection<KV<String, DmlInfo>> expand(PCollection<DatastreamChangeEvent> input) {
     DatastreamToDML datastreamToDML = getDatastreamToDML();
     return input
         .apply(
             "Reshuffle Into Buckets",
-            Reshuffle.<FailsafeElement<String, String>>viaRandomKey().withNumBuckets(NUM_THREADS))
+            Reshuffle.<DatastreamChangeEvent>viaRandomKey().withNumBuckets(NUM_THREADS))
         .apply("Format to Postgres DML", ParDo.of(datastreamToDML));
   }
 }
@@ -18,9 +18,9 @@ package com.google.cloud.teleport.v2.utils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.teleport.v2.datastream.io.CdcJdbcIO;
+import com.google.cloud.teleport.v2.datastream.values.DatastreamChangeEvent;
 import com.google.cloud.teleport.v2.datastream.values.DatastreamRow;
 import com.google.cloud.teleport.v2.datastream.values.DmlInfo;
-import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
 import java.sql.Connection;
@@ -34,6 +34,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import javax.sql.DataSource;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.values.KV;
@@ -43,10 +44,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /** A set of Database Migration utilities to convert JSON data to DML. */
-public abstract class DatastreamToDML
-    extends DoFn<FailsafeElement<String, String>, KV<String, DmlInfo>> {
+public abstract class DatastreamToDML extends DoFn<DatastreamChangeEvent, KV<String, DmlInfo>> {
 
   private static final Logger LOG = LoggerFactory.getLogger(DatastreamToDML.class);
+  protected static final ObjectMapper MAPPER = new ObjectMapper();
 
   private static String rowIdColumnName = "rowid";
   private static List<String> defaultPrimaryKeys;
@@ -71,6 +72,12 @@ public abstract class DatastreamToDML
 
   public abstract String getTargetTableName(DatastreamRow row);
 
+  /**
+   * Returns the SQL referencing the value proposed for insertion into the quoted column, used to
+   * update conflicting rows in parameterised upserts.
+   */
+  public abstract String getInsertedValueSql(String quotedColumnName);
+
   /* An exception for delete DML without a primary key */
   private class DeletedWithoutPrimaryKey extends RuntimeException {
     public DeletedWithoutPrimaryKey(String errorMessage) {
@@ -78,6 +85,13 @@ public abstract class DatastreamToDML
     }
   }
 
+  /* An exception for values which cannot be bound as a statement parameter */
+  protected static class UnsupportedParameterValue extends RuntimeException {
+    public UnsupportedParameterValue(String errorMessage) {
+      super(errorMessage);
+    }
+  }
+
   public DatastreamToDML(CdcJdbcIO.DataSourceConfiguration config) {
     this.dataSourceConfiguration = config;
     this.quoteCharacter = getDefaultQuoteCharacter();
@@ -95,25 +109,23 @@ public abstract class DatastreamToDML
 
   @ProcessElement
   public void processElement(ProcessContext context) {
-    FailsafeElement<String, String> element = context.element();
-    String jsonString = element.getPayload();
-    ObjectMapper mapper = new ObjectMapper();
+    DatastreamChangeEvent element = context.element();
     JsonNode rowObj;
 
     try {
-      rowObj = mapper.readTree(jsonString);
-      DmlInfo dmlInfo = convertJsonToDmlInfo(rowObj, element.getOriginalPayload());
+      rowObj = element.readRow(MAPPER);
+      DmlInfo dmlInfo = convertJsonToDmlInfo(rowObj, element.toJson());
 
       // Null rows suggest no DML is required.
       if (dmlInfo != null) {
-        LOG.debug("Output Data: {}", jsonString);
+        LOG.debug("Output Data: {}", element);
         context.output(KV.of(dmlInfo.getStateWindowKey(), dmlInfo));
       } else {
-        LOG.debug("Skipping Null DmlInfo: {}", jsonString);
+        LOG.debug("Skipping Null DmlInfo: {}", element);
       }
     } catch (IOException e) {
       // TODO(dhercher): Push failure to DLQ collection
-      LOG.error("IOException: {} :: {}", jsonString, e.toString());
+      LOG.error("IOException: {} :: {}", element, e.toString());
     }
   }
 
@@ -226,6 +238,24 @@ public abstract class DatastreamToDML
               rowObj, catalogName, schemaName, tableName, primaryKeys, tableSchema);
 
       String dmlSql = StringSubstitutor.replace(dmlSqlTemplate, sqlTemplateValues, "{", "}");
+
+      String preparedDmlSql = null;
+      List<String> preparedDmlValues = new ArrayList<>();
+      try {
+        preparedDmlSql =
+            getPreparedDmlSql(
+                dmlSqlTemplate,
+                rowObj,
+                catalogName,
+                schemaName,
+                tableName,
+                primaryKeys,
+                tableSchema,
+                preparedDmlValues);
+      } catch (UnsupportedParameterValue e) {
+        LOG.debug("Falling back to literal DML: {}", e.getMessage());
+        preparedDmlValues = null;
+      }
       return DmlInfo.of(
           failsafeValue,
           dmlSql,
@@ -234,7 +264,9 @@ public abstract class DatastreamToDML
           primaryKeys,
           orderByFields,
           primaryKeyValues,
-          orderByValues);
+          orderByValues,
+          preparedDmlSql,
+          preparedDmlValues);
     } catch (DeletedWithoutPrimaryKey e) {
       LOG.error("CDC Error: {} :: {}", rowObj.toString(), e.toString());
       return null;
@@ -281,6 +313,96 @@ public abstract class DatastreamToDML
     return sqlTemplateValues;
   }
 
+  /**
+   * Builds the DML from {@code dmlSqlTemplate} as parameterised SQL, adding the values to bind to
+   * {@code preparedValues}. DMLs of the same kind writing the same columns of a table share the
+   * same SQL, so they can be executed as a single batch.
+   *
+   * @throws UnsupportedParameterValue if a value of the row cannot be bound as a parameter.
+   */
+  public String getPreparedDmlSql(
+      String dmlSqlTemplate,
+      JsonNode rowObj,
+      String catalogName,
+      String schemaName,
+      String tableName,
+      List<String> primaryKeys,
+      Map<String, String> tableSchema,
+      List<String> preparedValues) {
+    Map<String, String> sqlTemplateValues = new HashMap<>();
+    Map<String, List<String>> parameterValues = new HashMap<>();
+
+    List<String> primaryKeyValues = new ArrayList<>();
+    List<String> columnValues = new ArrayList<>();
+    sqlTemplateValues.put("quoted_catalog_name", quote(catalogName));
+    sqlTemplateValues.put("quoted_schema_name", quote(schemaName));
+    sqlTemplateValues.put("quoted_table_name", quote(tableName));
+    sqlTemplateValues.put(
+        "primary_key_kv_sql",
+        getPrimaryKeyToParameterFilterSql(rowObj, primaryKeys, tableSchema, primaryKeyValues));
+    parameterValues.put("primary_key_kv_sql", primaryKeyValues);
+    sqlTemplateValues.put("quoted_column_names", getColumnsListSql(rowObj, tableSchema));
+    sqlTemplateValues.put(
+        "column_value_sql", getColumnsParametersSql(rowObj, tableSchema, columnValues));
+    parameterValues.put("column_value_sql", columnValues);
+    sqlTemplateValues.put("primary_key_names_sql", String.join(",", primaryKeys));
+    sqlTemplateValues.put("column_kv_sql", getColumnsUpdateFromInsertSql(rowObj, tableSchema));
+
+    // Values are bound in the order their placeholders appear in the template.
+    TreeMap<Integer, List<String>> valuesByPosition = new TreeMap<>();
+    for (Map.Entry<String, List<String>> entry : parameterValues.entrySet()) {
+      int position = dmlSqlTemplate.indexOf("{" + entry.getKey() + "}");
+      if (position >= 0) {
+        valuesByPosition.put(position, entry.getValue());
+      }
+    }
+    for (List<String> values : valuesByPosition.values()) {
+      preparedValues.addAll(values);
+    }
+
+    return StringSubstitutor.replace(dmlSqlTemplate, sqlTemplateValues, "{", "}");
+  }
+
+  /**
+   * Returns the SQL for the value of a column in a parameterised DML, adding the value to bind to
+   * {@code parameterValues} if the SQL contains a placeholder.
+   */
+  public String getParameterSql(
+      JsonNode rowObj,
+      String columnName,
+      Map<String, String> tableSchema,
+      List<String> parameterValues) {
+    JsonNode columnObj = rowObj.get(columnName);
+    if (columnObj == null) {
+      throw new UnsupportedParameterValue("Missing Required Value: " + columnName);
+    }
+    if (columnObj.isNull()) {
+      return getNullValueSql();
+    }
+    String columnValue;
+    if (columnObj.isTextual()) {
+      columnValue = StringUtils.replace(columnObj.textValue(), "\u0000", "");
+    } else if (columnObj.isBoolean()) {
+      columnValue = getBooleanParameterValue(columnObj.booleanValue());
+    } else {
+      columnValue = columnObj.toString();
+    }
+    return cleanDataTypeParameterSql(columnValue, columnName, tableSchema, parameterValues);
+  }
+
+  public String cleanDataTypeParameterSql(
+      String columnValue,
+      String columnName,
+      Map<String, String> tableSchema,
+      List<String> parameterValues) {
+    parameterValues.add(columnValue);
+    return "?";
+  }
+
+  public String getBooleanParameterValue(boolean value) {
+    return Boolean.toString(value);
+  }
+
   public String getValueSql(JsonNode rowObj, String columnName, Map<String, String> tableSchema) {
     String columnValue;
     JsonNode columnObj = rowObj.get(columnName);
@@ -391,6 +513,54 @@ public abstract class DatastreamToDML
     return onUpdateSql;
   }
 
+  public String getColumnsParametersSql(
+      JsonNode rowObj, Map<String, String> tableSchema, List<String> parameterValues) {
+    List<String> parameters = new ArrayList<>();
+    for (Iterator<String> fieldNames = rowObj.fieldNames(); fieldNames.hasNext(); ) {
+      String columnName = fieldNames.next();
+      if (!tableSchema.containsKey(columnName)) {
+        continue;
+      }
+
+      parameters.add(getParameterSql(rowObj, columnName, tableSchema, parameterValues));
+    }
+
+    return String.join(",", parameters);
+  }
+
+  public String getColumnsUpdateFromInsertSql(JsonNode rowObj, Map<String, String> tableSchema) {
+    List<String> updates = new ArrayList<>();
+    for (Iterator<String> fieldNames = rowObj.fieldNames(); fieldNames.hasNext(); ) {
+      String columnName = fieldNames.next();
+      if (!tableSchema.containsKey(columnName)) {
+        continue;
+      }
+
+      String quotedColumnName = quote(columnName);
+      updates.add(quotedColumnName + "=" + getInsertedValueSql(quotedColumnName));
+    }
+
+    return String.join(",", updates);
+  }
+
+  public String getPrimaryKeyToParameterFilterSql(
+      JsonNode rowObj,
+      List<String> primaryKeys,
+      Map<String, String> tableSchema,
+      List<String> parameterValues) {
+    List<String> filters = new ArrayList<>();
+    for (String columnName : primaryKeys) {
+      if (!tableSchema.containsKey(columnName)) {
+        continue;
+      }
+
+      filters.add(
+          columnName + "=" + getParameterSql(rowObj, columnName, tableSchema, parameterValues));
+    }
+
+    return String.join(" AND ", filters);
+  }
+
   public String getPrimaryKeyToValueFilterSql(
       JsonNode rowObj, List<String> primaryKeys, Map<String, String> tableSchema) {
     String pkToValueSql = "";
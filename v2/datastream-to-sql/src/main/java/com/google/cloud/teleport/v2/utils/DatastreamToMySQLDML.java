@@ -17,6 +17,8 @@ package com.google.cloud.teleport.v2.utils;
 
 import com.google.cloud.teleport.v2.datastream.io.CdcJdbcIO.DataSourceConfiguration;
 import com.google.cloud.teleport.v2.datastream.values.DatastreamRow;
+import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +58,30 @@ public class DatastreamToMySQLDML extends DatastreamToDML {
         + "({quoted_column_names}) VALUES ({column_value_sql});";
   }
 
+  @Override
+  public String getInsertedValueSql(String quotedColumnName) {
+    return "VALUES(" + quotedColumnName + ")";
+  }
+
+  @Override
+  public String getBooleanParameterValue(boolean value) {
+    return value ? "1" : "0";
+  }
+
+  @Override
+  public String cleanDataTypeParameterSql(
+      String columnValue,
+      String columnName,
+      Map<String, String> tableSchema,
+      List<String> parameterValues) {
+    String dataType = tableSchema.get(columnName);
+    if (dataType != null && dataType.equalsIgnoreCase("BIT")) {
+      // Strings bound to BIT columns are stored as their character bytes.
+      throw new UnsupportedParameterValue("BIT column " + columnName);
+    }
+    return super.cleanDataTypeParameterSql(columnValue, columnName, tableSchema, parameterValues);
+  }
+
   @Override
   public String getTargetCatalogName(DatastreamRow row) {
     String schemaName = row.getSchemaName();
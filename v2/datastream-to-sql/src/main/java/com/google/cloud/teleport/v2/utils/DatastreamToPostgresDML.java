@@ -17,7 +17,6 @@ package com.google.cloud.teleport.v2.utils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.teleport.v2.datastream.io.CdcJdbcIO.DataSourceConfiguration;
 import com.google.cloud.teleport.v2.datastream.values.DatastreamRow;
 import java.util.ArrayList;
@@ -79,6 +78,11 @@ public class DatastreamToPostgresDML extends DatastreamToDML {
     return cleanTableName(tableName);
   }
 
+  @Override
+  public String getInsertedValueSql(String quotedColumnName) {
+    return "EXCLUDED." + quotedColumnName;
+  }
+
   @Override
   public String cleanDataTypeValueSql(
       String columnValue, String columnName, Map<String, String> tableSchema) {
@@ -120,14 +124,63 @@ public class DatastreamToPostgresDML extends DatastreamToDML {
     return columnValue;
   }
 
+  @Override
+  public String cleanDataTypeParameterSql(
+      String columnValue,
+      String columnName,
+      Map<String, String> tableSchema,
+      List<String> parameterValues) {
+    String dataType = tableSchema.get(columnName);
+    if (dataType == null) {
+      return super.cleanDataTypeParameterSql(columnValue, columnName, tableSchema, parameterValues);
+    }
+    switch (dataType.toUpperCase()) {
+      case "INT2":
+      case "INT4":
+      case "INT8":
+      case "FLOAT4":
+      case "FLOAT8":
+      case "SMALLINT":
+      case "INTEGER":
+      case "BIGINT":
+      case "DECIMAL":
+      case "NUMERIC":
+      case "REAL":
+      case "DOUBLE PRECISION":
+      case "SMALLSERIAL":
+      case "SERIAL":
+      case "BIGSERIAL":
+        if (columnValue.equals("")) {
+          return getNullValueSql();
+        }
+        break;
+      case "INTERVAL":
+        String interval = convertJsonToPostgresInterval(columnValue, columnName);
+        if (interval.equals(getNullValueSql())) {
+          return interval;
+        }
+        parameterValues.add(interval.substring(1, interval.length() - 1));
+        return "?";
+      case "BYTEA":
+        // Byte arrays are converted to base64 string representation.
+        parameterValues.add(columnValue);
+        return "decode(?,'base64')";
+    }
+
+    // Arrays in Postgres are prefixed with underscore e.g. _INT4 for integer array.
+    if (dataType.startsWith("_")) {
+      throw new UnsupportedParameterValue("Array column " + columnName);
+    }
+    return super.cleanDataTypeParameterSql(columnValue, columnName, tableSchema, parameterValues);
+  }
+
   public String convertJsonToPostgresInterval(String jsonValue, String columnName) {
     if (jsonValue == null || jsonValue.equals("''") || jsonValue.equals("")) {
       return getNullValueSql();
     }
 
     try {
-      ObjectMapper mapper = new ObjectMapper();
-      JsonNode rootNode = mapper.readTree(jsonValue);
+      JsonNode rootNode = MAPPER.readTree(jsonValue);
 
       if (!rootNode.isObject()
           || !rootNode.has("months")
@@ -158,8 +211,7 @@ public class DatastreamToPostgresDML extends DatastreamToDML {
     }
 
     try {
-      ObjectMapper mapper = new ObjectMapper();
-      JsonNode rootNode = mapper.readTree(jsonValue);
+      JsonNode rootNode = MAPPER.readTree(jsonValue);
       if (!(rootNode.isObject() && rootNode.has("nestedArray"))) {
         LOG.warn("Null array for column {}, value {}", columnName, jsonValue);
         return getNullValueSql();
@@ -17,13 +17,17 @@ package com.google.cloud.teleport.v2.utils;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.teleport.v2.datastream.values.DatastreamRow;
 import com.google.cloud.teleport.v2.templates.DataStreamToSQL;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -358,6 +362,103 @@ public class DatastreamToDMLTest {
     assertEquals(expected, actual);
   }
 
+  /**
+   * Test whether {@link DatastreamToDML#getPreparedDmlSql} builds a parameterised upsert which
+   * binds every column value and updates conflicting rows from the inserted values.
+   */
+  @Test
+  public void testPreparedPostgresUpsert() {
+    JsonNode rowObj =
+        getRowObj(
+            "{\"id\": 1, \"name\": \"it's\", \"data\": \"AQI=\", \"amount\": \"\", "
+                + "\"active\": true, \"note\": null}");
+    Map<String, String> tableSchema = new HashMap<>();
+    tableSchema.put("id", "INT4");
+    tableSchema.put("name", "TEXT");
+    tableSchema.put("data", "BYTEA");
+    tableSchema.put("amount", "NUMERIC");
+    tableSchema.put("active", "BOOL");
+    tableSchema.put("note", "TEXT");
+    DatastreamToPostgresDML dml = DatastreamToPostgresDML.of(null);
+    List<String> values = new ArrayList<>();
+
+    String sql =
+        dml.getPreparedDmlSql(
+            dml.getUpsertDmlStatement(),
+            rowObj,
+            "",
+            "my_schema",
+            "my_table",
+            Arrays.asList("id"),
+            tableSchema,
+            values);
+
+    assertEquals(
+        "INSERT INTO \"my_schema\".\"my_table\" "
+            + "(\"id\",\"name\",\"data\",\"amount\",\"active\",\"note\") "
+            + "VALUES (?,?,decode(?,'base64'),NULL,?,NULL) "
+            + "ON CONFLICT (id) DO UPDATE SET \"id\"=EXCLUDED.\"id\",\"name\"=EXCLUDED.\"name\","
+            + "\"data\"=EXCLUDED.\"data\",\"amount\"=EXCLUDED.\"amount\","
+            + "\"active\"=EXCLUDED.\"active\",\"note\"=EXCLUDED.\"note\";",
+        sql);
+    assertThat(values).containsExactly("1", "it's", "AQI=", "true").inOrder();
+  }
+
+  /**
+   * Test whether {@link DatastreamToDML#getPreparedDmlSql} builds a parameterised delete binding
+   * the primary key values.
+   */
+  @Test
+  public void testPreparedMySqlDelete() {
+    JsonNode rowObj = getRowObj("{\"id\": 1, \"region\": \"eu\", \"flag\": false}");
+    Map<String, String> tableSchema = new HashMap<>();
+    tableSchema.put("id", "INT");
+    tableSchema.put("region", "VARCHAR");
+    tableSchema.put("flag", "TINYINT");
+    DatastreamToMySQLDML dml = DatastreamToMySQLDML.of(null);
+    List<String> values = new ArrayList<>();
+
+    String sql =
+        dml.getPreparedDmlSql(
+            dml.getDeleteDmlStatement(),
+            rowObj,
+            "my_db",
+            "",
+            "my_table",
+            Arrays.asList("region", "id"),
+            tableSchema,
+            values);
+
+    assertEquals("DELETE FROM `my_db`.`my_table` WHERE region=? AND id=?;", sql);
+    assertThat(values).containsExactly("eu", "1").inOrder();
+    assertEquals(
+        "`flag`=VALUES(`flag`)",
+        dml.getColumnsUpdateFromInsertSql(getRowObj("{\"flag\": false}"), tableSchema));
+  }
+
+  /** Test that arrays, which cannot be bound as parameters, are rejected for prepared DML. */
+  @Test
+  public void testPreparedArrayIsUnsupported() {
+    JsonNode rowObj = getRowObj("{\"id\": 1, \"tags\": {\"nestedArray\": []}}");
+    Map<String, String> tableSchema = new HashMap<>();
+    tableSchema.put("id", "INT4");
+    tableSchema.put("tags", "_TEXT");
+    DatastreamToPostgresDML dml = DatastreamToPostgresDML.of(null);
+
+    assertThrows(
+        DatastreamToDML.UnsupportedParameterValue.class,
+        () ->
+            dml.getPreparedDmlSql(
+                dml.getInsertDmlStatement(),
+                rowObj,
+                "",
+                "my_schema",
+                "my_table",
+                Arrays.asList(),
+                tableSchema,
+                new ArrayList<>()));
+  }
+
   /**
    * Test whether {@link DatastreamToDML#getTargetSchemaName} converts the Oracle schema into the
    * correct Postgres schema.
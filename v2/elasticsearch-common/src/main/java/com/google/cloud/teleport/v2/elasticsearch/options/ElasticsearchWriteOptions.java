@@ -325,4 +325,25 @@ public interface ElasticsearchWriteOptions extends PipelineOptions {
   Integer getSocketTimeout();
 
   void setSocketTimeout(Integer socketTimeout);
+
+  @TemplateParameter.Integer(
+      order = 28,
+      optional = true,
+      description = "Max in-flight bulk requests.",
+      helpText =
+          "The maximum number of bulk requests each worker thread sends to Elasticsearch concurrently. With more than one, writes of the same document can be applied out of order. Defaults to `1`.")
+  @Default.Integer(1)
+  Integer getMaxInFlightBulks();
+
+  void setMaxInFlightBulks(Integer maxInFlightBulks);
+
+  @TemplateParameter.Long(
+      order = 29,
+      optional = true,
+      description = "Adaptive bulk target latency.",
+      helpText =
+          "If set, the bulk size in bytes and the number of in-flight bulk requests adapt to the load of the cluster, keeping bulk round trips below this latency in milliseconds. `batchSizeBytes` and `maxInFlightBulks` become upper bounds. Defaults to `no adaptation`.")
+  Long getBulkTargetLatency();
+
+  void setBulkTargetLatency(Long bulkTargetLatency);
 }
@@ -163,7 +163,8 @@ public abstract class WriteToElasticsearch extends PTransform<PCollection<String
         ElasticsearchIO.write()
             .withConnectionConfiguration(config)
             .withMaxBatchSize(options().getBatchSize())
-            .withMaxBatchSizeBytes(options().getBatchSizeBytes());
+            .withMaxBatchSizeBytes(options().getBatchSizeBytes())
+            .withMaxInFlightBulks(options().getMaxInFlightBulks());
 
     if (options().getPropertyAsId() != null) {
       StringFieldValueExtractFn idFn =
@@ -241,6 +242,11 @@ public abstract class WriteToElasticsearch extends PTransform<PCollection<String
                   options().getMaxRetryAttempts(), getDuration(options().getMaxRetryDuration())));
     }
 
+    if (options().getBulkTargetLatency() != null) {
+      elasticsearchWriter =
+          elasticsearchWriter.withAdaptiveBulkSizing(getDuration(options().getBulkTargetLatency()));
+    }
+
     return jsonStrings.apply("WriteDocuments", elasticsearchWriter);
   }
 
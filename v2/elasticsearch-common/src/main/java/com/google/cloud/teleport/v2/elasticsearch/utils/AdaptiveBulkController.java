@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.elasticsearch.utils;
+
+/**
+ * Additive-increase/multiplicative-decrease controller for the size in bytes and the number of
+ * concurrent bulk requests sent by {@link ElasticsearchIO.Write}.
+ *
+ * <p>Every completed bulk request is reported to the controller:
+ *
+ * <ul>
+ *   <li>items rejected with 429 TOO_MANY_REQUESTS halve both the batch size and the concurrency;
+ *   <li>a {@code took} time above the target latency means the cluster needs too long to index a
+ *       single bulk, so the batch size is reduced;
+ *   <li>a round trip above the target latency while {@code took} is within it means requests are
+ *       queueing, so the concurrency is reduced;
+ *   <li>otherwise the batch size grows by a fixed step and the concurrency by one per window of
+ *       successful bulks.
+ * </ul>
+ *
+ * <p>Not thread safe, bulks are expected to be reported from the bundle thread.
+ */
+class AdaptiveBulkController {
+
+  static final long MIN_BATCH_SIZE_BYTES = 64L * 1024L;
+
+  private static final double THROTTLE_DECREASE_FACTOR = 0.5;
+  private static final double LATENCY_DECREASE_FACTOR = 0.8;
+  // batch size starts at 1/8th of the maximum and grows by 1/16th of it
+  private static final int INITIAL_FRACTION = 8;
+  private static final int INCREMENT_FRACTION = 16;
+  // weight of the latest bulk in the moving average of the throttle rate
+  private static final double THROTTLE_RATE_WEIGHT = 0.2;
+
+  private final long minBatchSizeBytes;
+  private final long maxBatchSizeBytes;
+  private final long batchSizeIncrementBytes;
+  private final int maxConcurrency;
+  private final long targetLatencyMillis;
+
+  private long batchSizeBytes;
+  private double concurrency;
+  private double throttleRate;
+
+  AdaptiveBulkController(long maxBatchSizeBytes, int maxConcurrency, long targetLatencyMillis) {
+    this.minBatchSizeBytes = Math.min(MIN_BATCH_SIZE_BYTES, maxBatchSizeBytes);
+    this.maxBatchSizeBytes = maxBatchSizeBytes;
+    this.batchSizeIncrementBytes =
+        Math.max(minBatchSizeBytes, maxBatchSizeBytes / INCREMENT_FRACTION);
+    this.maxConcurrency = maxConcurrency;
+    this.targetLatencyMillis = targetLatencyMillis;
+    this.batchSizeBytes = Math.max(minBatchSizeBytes, maxBatchSizeBytes / INITIAL_FRACTION);
+    this.concurrency = 1;
+  }
+
+  /** Returns the size in bytes at which the next bulk request should be sent. */
+  long getBatchSizeBytes() {
+    return batchSizeBytes;
+  }
+
+  /** Returns the number of bulk requests which may currently be in flight. */
+  int getConcurrency() {
+    return (int) concurrency;
+  }
+
+  /** Returns the moving average of the fraction of bulk items rejected by the cluster. */
+  double getThrottleRate() {
+    return throttleRate;
+  }
+
+  /**
+   * Reports a bulk request which received a response.
+   *
+   * @param roundTripMillis time between sending the request and receiving the response
+   * @param tookMillis the {@code took} time reported by Elasticsearch in the response
+   * @param items number of items in the bulk request
+   * @param throttledItems number of items rejected with 429 TOO_MANY_REQUESTS
+   */
+  void onBulkCompleted(long roundTripMillis, long tookMillis, int items, int throttledItems) {
+    updateThrottleRate(items == 0 ? 0 : (double) throttledItems / items);
+    if (throttledItems > 0) {
+      decrease(THROTTLE_DECREASE_FACTOR, THROTTLE_DECREASE_FACTOR);
+    } else if (tookMillis > targetLatencyMillis) {
+      decrease(LATENCY_DECREASE_FACTOR, 1);
+    } else if (roundTripMillis > targetLatencyMillis) {
+      decrease(1, LATENCY_DECREASE_FACTOR);
+    } else {
+      batchSizeBytes = Math.min(maxBatchSizeBytes, batchSizeBytes + batchSizeIncrementBytes);
+      // grow by one request once every bulk of the current window succeeded
+      concurrency = Math.min(maxConcurrency, concurrency + 1 / Math.floor(concurrency));
+    }
+  }
+
+  /** Reports a bulk request which was rejected in entirety with 429 TOO_MANY_REQUESTS. */
+  void onBulkThrottled() {
+    updateThrottleRate(1);
+    decrease(THROTTLE_DECREASE_FACTOR, THROTTLE_DECREASE_FACTOR);
+  }
+
+  private void updateThrottleRate(double rate) {
+    throttleRate = THROTTLE_RATE_WEIGHT * rate + (1 - THROTTLE_RATE_WEIGHT) * throttleRate;
+  }
+
+  private void decrease(double batchSizeFactor, double concurrencyFactor) {
+    batchSizeBytes = Math.max(minBatchSizeBytes, (long) (batchSizeBytes * batchSizeFactor));
+    concurrency = Math.max(1, Math.floor(concurrency * concurrencyFactor));
+  }
+}
@@ -26,6 +26,7 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.google.auto.value.AutoValue;
 import com.google.cloud.teleport.v2.elasticsearch.utils.BulkInsertMethod.BulkInsertMethodOptions;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -36,21 +37,31 @@ import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import javax.annotation.Nonnull;
 import javax.net.ssl.SSLContext;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.io.BoundedSource;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Gauge;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
@@ -58,7 +69,6 @@ import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.util.BackOff;
-import org.apache.beam.sdk.util.BackOffUtils;
 import org.apache.beam.sdk.util.FluentBackoff;
 import org.apache.beam.sdk.util.Sleeper;
 import org.apache.beam.sdk.values.PBegin;
@@ -78,6 +88,7 @@ import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.message.BasicHeader;
@@ -88,6 +99,8 @@ import org.apache.http.ssl.SSLContexts;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.joda.time.Duration;
@@ -180,6 +193,8 @@ public class ElasticsearchIO {
         .setMaxBatchSize(1000L)
         // advised default starting batch size in ES docs
         .setMaxBatchSizeBytes(5L * 1024L * 1024L)
+        // one bulk request at a time keeps writes to the same document in order
+        .setMaxInFlightBulks(1)
         .setUsePartialUpdate(false) // default is document upsert
         .setBulkInsertMethod(
             BulkInsertMethodOptions.CREATE) // default to create (error on duplicate _id)
@@ -195,51 +210,6 @@ public class ElasticsearchIO {
     return mapper.readValue(responseEntity.getContent(), JsonNode.class);
   }
 
-  static void checkForErrors(HttpEntity responseEntity, int backendVersion, boolean partialUpdate)
-      throws IOException {
-    JsonNode searchResult = parseResponse(responseEntity);
-    boolean errors = searchResult.path("errors").asBoolean();
-    if (errors) {
-      StringBuilder errorMessages =
-          new StringBuilder("Error writing to Elasticsearch, some elements could not be inserted:");
-      JsonNode items = searchResult.path("items");
-      // some items present in bulk might have errors, concatenate error messages
-      for (JsonNode item : items) {
-
-        String errorRootName = "";
-        // when use partial update, the response items includes all the update.
-        if (partialUpdate) {
-          errorRootName = "update";
-        } else {
-          // look for error object key dynamically
-          for (String name : new String[] {"create", "index"}) {
-            JsonNode root = item.path(name);
-            if (root != null && !root.isMissingNode()) {
-              errorRootName = name;
-              break;
-            }
-          }
-        }
-
-        JsonNode errorRoot = item.path(errorRootName);
-        JsonNode error = errorRoot.get("error");
-        if (error != null) {
-          String type = error.path("type").asText();
-          String reason = error.path("reason").asText();
-          String docId = errorRoot.path("_id").asText();
-          errorMessages.append(String.format("%nDocument id %s: %s (%s)", docId, reason, type));
-          JsonNode causedBy = error.get("caused_by");
-          if (causedBy != null) {
-            String cbReason = causedBy.path("reason").asText();
-            String cbType = causedBy.path("type").asText();
-            errorMessages.append(String.format("%nCaused by: %s (%s)", cbReason, cbType));
-          }
-        }
-      }
-      throw new IOException(errorMessages.toString());
-    }
-  }
-
   /** A POJO describing a connection configuration to Elasticsearch. */
   @AutoValue
   public abstract static class ConnectionConfiguration implements Serializable {
@@ -1160,6 +1130,10 @@ public class ElasticsearchIO {
 
     abstract long getMaxBatchSizeBytes();
 
+    abstract int getMaxInFlightBulks();
+
+    abstract @Nullable Duration getBulkTargetLatency();
+
     abstract @Nullable FieldValueExtractFn getIdFn();
 
     abstract @Nullable FieldValueExtractFn getIndexFn();
@@ -1184,6 +1158,10 @@ public class ElasticsearchIO {
 
       abstract Builder setMaxBatchSizeBytes(long maxBatchSizeBytes);
 
+      abstract Builder setMaxInFlightBulks(int maxInFlightBulks);
+
+      abstract Builder setBulkTargetLatency(Duration bulkTargetLatency);
+
       abstract Builder setIdFn(FieldValueExtractFn idFunction);
 
       abstract Builder setIndexFn(FieldValueExtractFn indexFn);
@@ -1244,6 +1222,42 @@ public class ElasticsearchIO {
       return builder().setMaxBatchSizeBytes(batchSizeBytes).build();
     }
 
+    /**
+     * Provide the maximum number of bulk requests a single {@link DoFn} instance sends to
+     * Elasticsearch concurrently. Default is 1. Documents are encoded into the next bulk while the
+     * previous ones are in flight. With a single bulk in flight, the items rejected from a bulk are
+     * retried before the next bulk is sent, so that the writes of a document are applied in order.
+     * Note that with more than one bulk in flight, two writes of the same document in one bundle
+     * may be applied out of order.
+     *
+     * @param maxInFlightBulks maximum number of concurrent bulk requests
+     * @return the {@link Write} with the maximum number of concurrent bulk requests set
+     */
+    public Write withMaxInFlightBulks(int maxInFlightBulks) {
+      checkArgument(
+          maxInFlightBulks > 0, "maxInFlightBulks must be > 0, but was %s", maxInFlightBulks);
+      return builder().setMaxInFlightBulks(maxInFlightBulks).build();
+    }
+
+    /**
+     * Adapt the size in bytes of the batches and the number of concurrent bulk requests to the load
+     * of the cluster, using the configured {@code withMaxBatchSizeBytes()} and {@code
+     * withMaxInFlightBulks()} as upper bounds. Both grow additively while bulk requests complete
+     * within the target latency and shrink multiplicatively when they do not or when items are
+     * rejected with 429 TOO_MANY_REQUESTS. The current values are reported as the {@code
+     * bulkBatchSizeBytes} and {@code bulkConcurrency} gauges, and the rate of rejected items as the
+     * {@code bulkThrottleRatePerMille} gauge.
+     *
+     * @param targetLatency the round trip time of a bulk request which should not be exceeded
+     * @return the {@link Write} with adaptive bulk sizing enabled
+     */
+    public Write withAdaptiveBulkSizing(Duration targetLatency) {
+      checkArgument(
+          targetLatency != null && targetLatency.isLongerThan(Duration.ZERO),
+          "targetLatency must be greater than 0");
+      return builder().setBulkTargetLatency(targetLatency).build();
+    }
+
     /**
      * Provide a function to extract the id from the document. This id will be used as the document
      * id in Elasticsearch. Should the function throw an Exception then the batch will fail and the
@@ -1311,13 +1325,14 @@ public class ElasticsearchIO {
     /**
      * Provides configuration to retry a failed batch call to Elasticsearch. A batch is considered
      * as failed if the underlying {@link RestClient} surfaces 429 HTTP status code as error for one
-     * or more of the items in the {@link Response}. Users should consider that retrying might
-     * compound the underlying problem which caused the initial failure. Users should also be aware
-     * that once retrying is exhausted the error is surfaced to the runner which <em>may</em> then
-     * opt to retry the current bundle in entirety or abort if the max number of retries of the
-     * runner is completed. Retrying uses an exponential backoff algorithm, with minimum backoff of
-     * 5 seconds and then surfacing the error once the maximum number of retries or maximum
-     * configuration duration is exceeded.
+     * or more of the items in the {@link Response}, in which case only those items are sent again.
+     * Batches failing with a timeout or a 429 HTTP status code for the whole request are sent again
+     * in entirety. Users should consider that retrying might compound the underlying problem which
+     * caused the initial failure. Users should also be aware that once retrying is exhausted the
+     * error is surfaced to the runner which <em>may</em> then opt to retry the current bundle in
+     * entirety or abort if the max number of retries of the runner is completed. Retrying uses an
+     * exponential backoff algorithm, with minimum backoff of 5 seconds and then surfacing the error
+     * once the maximum number of retries or maximum configuration duration is exceeded.
      *
      * <p>Example use:
      *
@@ -1368,9 +1383,20 @@ public class ElasticsearchIO {
     static class WriteFn extends DoFn<String, Void> {
       private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
       private static final int DEFAULT_RETRY_ON_CONFLICT = 5; // race conditions on updates
+      private static final int TOO_MANY_REQUESTS = 429;
 
       private static final Duration RETRY_INITIAL_BACKOFF = Duration.standardSeconds(5);
 
+      private static final byte[] EMPTY_METADATA = bytes("{}");
+      private static final byte[] DELETE_PREFIX = bytes("{ \"delete\" : ");
+      private static final byte[] UPDATE_PREFIX = bytes("{ \"update\" : ");
+      private static final byte[] INDEX_PREFIX = bytes("{ \"index\" : ");
+      private static final byte[] CREATE_PREFIX = bytes("{ \"create\" : ");
+      private static final byte[] ACTION_SUFFIX = bytes(" }\n");
+      private static final byte[] DOC_PREFIX = bytes("{ \"doc\" : ");
+      private static final byte[] DOC_SUFFIX = bytes(", \"doc_as_upsert\" : true }\n");
+      private static final byte[] NEWLINE = bytes("\n");
+
       @VisibleForTesting
       static final String RETRY_ATTEMPT_LOG = "Error writing to Elasticsearch. Retry attempt[%d]";
 
@@ -1378,14 +1404,28 @@ public class ElasticsearchIO {
       static final String RETRY_FAILED_LOG =
           "Error writing to ES after %d attempt(s). No more attempts allowed";
 
+      private final Counter throttledItems = Metrics.counter(WriteFn.class, "throttledBulkItems");
+      private final Gauge batchSizeBytesGauge = Metrics.gauge(WriteFn.class, "bulkBatchSizeBytes");
+      private final Gauge concurrencyGauge = Metrics.gauge(WriteFn.class, "bulkConcurrency");
+      private final Gauge throttleRateGauge =
+          Metrics.gauge(WriteFn.class, "bulkThrottleRatePerMille");
+
       private transient FluentBackoff retryBackoff;
+      private transient @Nullable AdaptiveBulkController bulkController;
 
       private int backendVersion;
       private final Write spec;
       private transient RestClient restClient;
-      private ArrayList<String> batch;
+      private transient String bulkEndpoint;
+      private transient BulkBuffer batch;
       private long currentBatchSizeBytes;
 
+      // Bulk requests sent to Elasticsearch, oldest first
+      private transient Deque<Bulk> inFlightBulks;
+      // Rejected items waiting for their backoff to elapse, earliest first
+      private transient PriorityQueue<Bulk> pendingRetries;
+      private transient Deque<BulkBuffer> freeBuffers;
+
       // Encapsulates the elements which form the metadata for an Elasticsearch bulk operation
       private static class DocumentMetadata implements Serializable {
         final String index;
@@ -1401,6 +1441,69 @@ public class ElasticsearchIO {
         }
       }
 
+      /**
+       * A bulk request body, encoded once and sent as is. The offset of every bulk item is tracked
+       * so that items rejected by Elasticsearch can be copied into a new body and retried on their
+       * own.
+       */
+      @VisibleForTesting
+      static class BulkBuffer extends ByteArrayOutputStream {
+        private int[] itemOffsets = new int[16];
+        private int itemCount;
+
+        BulkBuffer() {
+          super(8 * 1024);
+        }
+
+        /** Marks the start of a new bulk item at the current end of the buffer. */
+        void startItem() {
+          if (itemCount == itemOffsets.length) {
+            itemOffsets = Arrays.copyOf(itemOffsets, itemCount * 2);
+          }
+          itemOffsets[itemCount++] = count;
+        }
+
+        int itemCount() {
+          return itemCount;
+        }
+
+        /** Appends the {@code item}-th bulk item of {@code source} as a new item. */
+        void copyItem(BulkBuffer source, int item) {
+          int start = source.itemOffsets[item];
+          int end = item + 1 < source.itemCount ? source.itemOffsets[item + 1] : source.count;
+          startItem();
+          write(source.buf, start, end - start);
+        }
+
+        HttpEntity toEntity() {
+          return new ByteArrayEntity(buf, 0, count, ContentType.APPLICATION_JSON);
+        }
+
+        @Override
+        public void reset() {
+          super.reset();
+          itemCount = 0;
+        }
+      }
+
+      /** A bulk request together with its retry state. */
+      private static class Bulk {
+        final BulkBuffer body;
+        final BackOff backoff;
+        final int attempt;
+        final long notBeforeMillis;
+        CompletableFuture<Response> response;
+        long sentNanos;
+        volatile long completedNanos;
+
+        Bulk(BulkBuffer body, BackOff backoff, int attempt, long notBeforeMillis) {
+          this.body = body;
+          this.backoff = backoff;
+          this.attempt = attempt;
+          this.notBeforeMillis = notBeforeMillis;
+        }
+      }
+
       @VisibleForTesting
       WriteFn(Write spec) {
         this.spec = spec;
@@ -1422,18 +1525,40 @@ public class ElasticsearchIO {
                   .withMaxRetries(spec.getRetryConfiguration().getMaxAttempts() - 1)
                   .withMaxCumulativeBackoff(spec.getRetryConfiguration().getMaxDuration());
         }
+        // Elasticsearch will default to the index/type provided here if none are set in the
+        // document meta (i.e. using ElasticsearchIO$Write#withIndexFn and
+        // ElasticsearchIO$Write#withTypeFn options)
+        if (backendVersion < 7) {
+          bulkEndpoint =
+              String.format(
+                  "/%s/%s/_bulk",
+                  connectionConfiguration.getIndex(), connectionConfiguration.getType());
+        } else {
+          bulkEndpoint = String.format("/%s/_bulk", connectionConfiguration.getIndex());
+        }
         // configure a custom serializer for metadata to be able to change serialization based
         // on ES version
         SimpleModule module = new SimpleModule();
         module.addSerializer(
             DocumentMetadata.class, new DocumentMetadataSerializer((backendVersion >= 7)));
         OBJECT_MAPPER.registerModule(module);
+        freeBuffers = new ArrayDeque<>();
+        if (spec.getBulkTargetLatency() != null) {
+          bulkController =
+              new AdaptiveBulkController(
+                  spec.getMaxBatchSizeBytes(),
+                  spec.getMaxInFlightBulks(),
+                  spec.getBulkTargetLatency().getMillis());
+        }
       }
 
       @StartBundle
       public void startBundle(StartBundleContext context) {
-        batch = new ArrayList<>();
+        batch = acquireBuffer();
         currentBatchSizeBytes = 0;
+        inFlightBulks = new ArrayDeque<>();
+        pendingRetries =
+            new PriorityQueue<>(Comparator.comparingLong((Bulk bulk) -> bulk.notBeforeMillis));
       }
 
       private class DocumentMetadataSerializer extends StdSerializer<DocumentMetadata> {
@@ -1475,10 +1600,10 @@ public class ElasticsearchIO {
        * performed, automatically lower-casing the value as required by Elasticsearch.
        *
        * @param parsedDocument the json from which the index, type and id may be extracted
-       * @return the document address as JSON or the default
+       * @return the document address as UTF-8 encoded JSON or the default
        * @throws IOException if the document cannot be parsed as JSON
        */
-      private String getDocumentMetadata(JsonNode parsedDocument) throws IOException {
+      private byte[] getDocumentMetadata(JsonNode parsedDocument) throws IOException {
         DocumentMetadata metadata =
             new DocumentMetadata(
                 spec.getIndexFn() != null
@@ -1487,17 +1612,24 @@ public class ElasticsearchIO {
                 spec.getTypeFn() != null ? spec.getTypeFn().apply(parsedDocument) : null,
                 spec.getIdFn() != null ? spec.getIdFn().apply(parsedDocument) : null,
                 spec.getUsePartialUpdate() ? DEFAULT_RETRY_ON_CONFLICT : null);
-        return OBJECT_MAPPER.writeValueAsString(metadata);
+        return OBJECT_MAPPER.writeValueAsBytes(metadata);
       }
 
       private static String lowerCaseOrNull(String input) {
         return input == null ? null : input.toLowerCase();
       }
 
+      private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+      }
+
       @ProcessElement
       public void processElement(ProcessContext context) throws Exception {
+        settleCompletedBulks();
+        submitDueRetries();
+
         String document = context.element(); // use configuration and auto-generated document IDs
-        String documentMetadata = "{}";
+        byte[] documentMetadata = EMPTY_METADATA;
         boolean isDelete = false;
         if (spec.getIndexFn() != null || spec.getTypeFn() != null || spec.getIdFn() != null) {
           // parse once and reused for efficiency
@@ -1507,37 +1639,45 @@ public class ElasticsearchIO {
             isDelete = spec.getIsDeleteFn().apply(parsedDocument);
           }
         }
-        long docSizeBytes = document.getBytes(StandardCharsets.UTF_8).length;
+        byte[] documentBytes = bytes(document);
+        long docSizeBytes = documentBytes.length;
         long newBatchSizeBytes = currentBatchSizeBytes + docSizeBytes;
-        if (newBatchSizeBytes > spec.getMaxBatchSizeBytes()) {
+        if (newBatchSizeBytes > getBatchSizeBytesLimit()) {
           flushBatch();
         }
 
+        batch.startItem();
         if (isDelete) {
           // delete request used for deleting a document.
-          batch.add(String.format("{ \"delete\" : %s }%n", documentMetadata));
+          batch.write(DELETE_PREFIX);
+          batch.write(documentMetadata);
+          batch.write(ACTION_SUFFIX);
+        } else if (spec.getUsePartialUpdate()) {
+          // update is a partial update (or insert if not existing)
+          batch.write(UPDATE_PREFIX);
+          batch.write(documentMetadata);
+          batch.write(ACTION_SUFFIX);
+          batch.write(DOC_PREFIX);
+          batch.write(documentBytes);
+          batch.write(DOC_SUFFIX);
         } else {
-          // index is an insert/upsert and update is a partial update (or insert if not existing)
-          if (spec.getUsePartialUpdate()) {
-            batch.add(
-                String.format(
-                    "{ \"update\" : %s }%n{ \"doc\" : %s, \"doc_as_upsert\" : true }%n",
-                    documentMetadata, document));
+          if (spec.getBulkInsertMethod() == BulkInsertMethodOptions.INDEX) {
+            // index allows upsert of document with same _id as existing document
+            batch.write(INDEX_PREFIX);
           } else {
-            if (spec.getBulkInsertMethod() == BulkInsertMethodOptions.INDEX) {
-              // index allows upsert of document with same _id as existing document
-              batch.add(String.format("{ \"index\" : %s }%n%s%n", documentMetadata, document));
-            } else {
-              // create will error if document with same _id already exists
-              batch.add(String.format("{ \"create\" : %s }%n%s%n", documentMetadata, document));
-            }
+            // create will error if document with same _id already exists
+            batch.write(CREATE_PREFIX);
           }
+          batch.write(documentMetadata);
+          batch.write(ACTION_SUFFIX);
+          batch.write(documentBytes);
+          batch.write(NEWLINE);
         }
 
         currentBatchSizeBytes += docSizeBytes;
 
-        if (batch.size() >= spec.getMaxBatchSize()
-            || currentBatchSizeBytes >= spec.getMaxBatchSizeBytes()) {
+        if (batch.itemCount() >= spec.getMaxBatchSize()
+            || currentBatchSizeBytes >= getBatchSizeBytesLimit()) {
           flushBatch();
         }
       }
@@ -1546,103 +1686,265 @@ public class ElasticsearchIO {
       public void finishBundle(FinishBundleContext context)
           throws IOException, InterruptedException {
         flushBatch();
+        awaitBulks();
+      }
+
+      /** Waits for the bulks in flight and for the retries of their rejected items to complete. */
+      private void awaitBulks() throws IOException, InterruptedException {
+        while (!inFlightBulks.isEmpty() || !pendingRetries.isEmpty()) {
+          submitDueRetries();
+          if (!inFlightBulks.isEmpty()) {
+            settle(inFlightBulks.poll());
+          } else {
+            long waitMillis = pendingRetries.peek().notBeforeMillis - System.currentTimeMillis();
+            if (waitMillis > 0) {
+              Sleeper.DEFAULT.sleep(waitMillis);
+            }
+          }
+        }
       }
 
       private boolean isRetryableClientException(Throwable t) {
         // RestClient#performRequest only throws wrapped IOException so we must inspect the
         // exception cause to determine if the exception is likely transient i.e. retryable or
-        // not.
-        return t.getCause() instanceof ConnectTimeoutException
-            || t.getCause() instanceof SocketTimeoutException
-            || t.getCause() instanceof ConnectionClosedException
-            || t.getCause() instanceof ConnectException;
+        // not. Failures reported to a ResponseListener are not wrapped.
+        return isThrottled(t)
+            || isTransientNetworkException(t)
+            || isTransientNetworkException(t.getCause());
+      }
+
+      private static boolean isThrottled(Throwable t) {
+        return t instanceof ResponseException
+            && ((ResponseException) t).getResponse().getStatusLine().getStatusCode()
+                == TOO_MANY_REQUESTS;
+      }
+
+      private static boolean isTransientNetworkException(Throwable t) {
+        return t instanceof ConnectTimeoutException
+            || t instanceof SocketTimeoutException
+            || t instanceof ConnectionClosedException
+            || t instanceof ConnectException;
+      }
+
+      private long getBatchSizeBytesLimit() {
+        return bulkController != null
+            ? bulkController.getBatchSizeBytes()
+            : spec.getMaxBatchSizeBytes();
+      }
+
+      private int getInFlightBulksLimit() {
+        return bulkController != null
+            ? bulkController.getConcurrency()
+            : spec.getMaxInFlightBulks();
+      }
+
+      private BulkBuffer acquireBuffer() {
+        BulkBuffer buffer = freeBuffers.poll();
+        return buffer != null ? buffer : new BulkBuffer();
+      }
+
+      private void releaseBuffer(BulkBuffer buffer) {
+        buffer.reset();
+        // keep one buffer per in flight bulk and one for the batch being built
+        if (freeBuffers.size() <= spec.getMaxInFlightBulks()) {
+          freeBuffers.add(buffer);
+        }
       }
 
       private void flushBatch() throws IOException, InterruptedException {
-        if (batch.isEmpty()) {
+        if (batch.itemCount() == 0) {
           return;
         }
-        StringBuilder bulkRequest = new StringBuilder();
-        for (String json : batch) {
-          bulkRequest.append(json);
+        if (spec.getMaxInFlightBulks() == 1) {
+          // The rejected items of the previous bulk are written before the next bulk, so that the
+          // writes of a document are applied in order.
+          awaitBulks();
         }
-        batch.clear();
+        Bulk bulk = new Bulk(batch, retryBackoff.backoff(), 0, 0);
+        batch = acquireBuffer();
         currentBatchSizeBytes = 0;
-        Response response = null;
-        HttpEntity responseEntity = null;
-        // Elasticsearch will default to the index/type provided here if none are set in the
-        // document meta (i.e. using ElasticsearchIO$Write#withIndexFn and
-        // ElasticsearchIO$Write#withTypeFn options)
-        String endPoint;
-        if (backendVersion < 7) {
-          endPoint =
-              String.format(
-                  "/%s/%s/_bulk",
-                  spec.getConnectionConfiguration().getIndex(),
-                  spec.getConnectionConfiguration().getType());
-        } else {
-          endPoint = String.format("/%s/_bulk", spec.getConnectionConfiguration().getIndex());
+        submit(bulk);
+      }
+
+      /**
+       * Sends the bulk request asynchronously, first waiting for the oldest bulks in flight to
+       * complete if there are already as many as allowed.
+       */
+      private void submit(Bulk bulk) throws IOException, InterruptedException {
+        while (inFlightBulks.size() >= getInFlightBulksLimit()) {
+          settle(inFlightBulks.poll());
+        }
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        Request request = new Request("POST", bulkEndpoint);
+        request.addParameters(Collections.emptyMap());
+        request.setEntity(bulk.body.toEntity());
+        bulk.sentNanos = System.nanoTime();
+        restClient.performRequestAsync(
+            request,
+            new ResponseListener() {
+              @Override
+              public void onSuccess(Response result) {
+                bulk.completedNanos = System.nanoTime();
+                response.complete(result);
+              }
+
+              @Override
+              public void onFailure(Exception exception) {
+                bulk.completedNanos = System.nanoTime();
+                response.completeExceptionally(exception);
+              }
+            });
+        bulk.response = response;
+        inFlightBulks.add(bulk);
+      }
+
+      private void submitDueRetries() throws IOException, InterruptedException {
+        while (!pendingRetries.isEmpty()
+            && pendingRetries.peek().notBeforeMillis <= System.currentTimeMillis()) {
+          submit(pendingRetries.poll());
+        }
+      }
+
+      private void settleCompletedBulks() throws IOException, InterruptedException {
+        while (!inFlightBulks.isEmpty() && inFlightBulks.peek().response.isDone()) {
+          settle(inFlightBulks.poll());
         }
-        HttpEntity requestBody =
-            new NStringEntity(bulkRequest.toString(), ContentType.APPLICATION_JSON);
+      }
+
+      /**
+       * Waits for the response to the bulk request and checks it for errors. Items rejected with
+       * 429 TOO_MANY_REQUESTS are re-enqueued with backoff when retries are configured, and any
+       * other item error fails the bundle.
+       */
+      private void settle(Bulk bulk) throws IOException, InterruptedException {
+        HttpEntity responseEntity;
         try {
-          Request request = new Request("POST", endPoint);
-          request.addParameters(Collections.emptyMap());
-          request.setEntity(requestBody);
-          response = restClient.performRequest(request);
-          responseEntity = new BufferedHttpEntity(response.getEntity());
-        } catch (IOException ex) {
-          if (spec.getRetryConfiguration() == null || !isRetryableClientException(ex)) {
-            throw ex;
+          responseEntity = new BufferedHttpEntity(bulk.response.get().getEntity());
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (spec.getRetryConfiguration() == null || !isRetryableClientException(cause)) {
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
           }
-          LOG.error("Caught ES timeout, retrying", ex);
-        }
-        if (spec.getRetryConfiguration() != null
-            && (response == null
-                || responseEntity == null
-                || spec.getRetryConfiguration().getRetryPredicate().test(responseEntity))) {
-          if (responseEntity != null
-              && spec.getRetryConfiguration().getRetryPredicate().test(responseEntity)) {
+          if (isThrottled(cause)) {
+            throttledItems.inc(bulk.body.itemCount());
+            if (bulkController != null) {
+              bulkController.onBulkThrottled();
+              reportBulkMetrics();
+            }
             LOG.warn("ES Cluster is responding with HTP 429 - TOO_MANY_REQUESTS.");
+          } else {
+            LOG.error("Caught ES timeout, retrying", cause);
           }
-          responseEntity = handleRetry("POST", endPoint, Collections.emptyMap(), requestBody);
+          scheduleRetry(bulk, bulk.body);
+          return;
+        }
+
+        JsonNode result = parseResponse(responseEntity);
+        boolean hasErrors = result.path("errors").asBoolean();
+        int throttled = hasErrors ? countItems(result, TOO_MANY_REQUESTS) : 0;
+        throttledItems.inc(throttled);
+        if (bulkController != null) {
+          bulkController.onBulkCompleted(
+              TimeUnit.NANOSECONDS.toMillis(bulk.completedNanos - bulk.sentNanos),
+              result.path("took").asLong(),
+              bulk.body.itemCount(),
+              throttled);
+          reportBulkMetrics();
+        }
+        if (!hasErrors) {
+          releaseBuffer(bulk.body);
+          return;
+        }
+        boolean retryRejected =
+            spec.getRetryConfiguration() != null
+                && spec.getRetryConfiguration().getRetryPredicate().test(responseEntity);
+        BulkBuffer rejected = retryRejected ? acquireBuffer() : null;
+        String errors = collectErrors(result, bulk.body, rejected);
+        if (errors != null) {
+          throw new IOException(
+              "Error writing to Elasticsearch, some elements could not be inserted:" + errors);
+        }
+        releaseBuffer(bulk.body);
+        if (rejected != null) {
+          LOG.warn("ES Cluster is responding with HTP 429 - TOO_MANY_REQUESTS.");
+          scheduleRetry(bulk, rejected);
         }
-        checkForErrors(responseEntity, backendVersion, spec.getUsePartialUpdate());
       }
 
-      /** retry request based on retry configuration policy. */
-      private HttpEntity handleRetry(
-          String method, String endpoint, Map<String, String> params, HttpEntity requestBody)
-          throws IOException, InterruptedException {
-        Response response;
-        HttpEntity responseEntity = null;
-        Sleeper sleeper = Sleeper.DEFAULT;
-        BackOff backoff = retryBackoff.backoff();
-        int attempt = 0;
-        // while retry policy exists
-        while (BackOffUtils.next(sleeper, backoff)) {
-          LOG.warn(String.format(RETRY_ATTEMPT_LOG, ++attempt));
-          try {
-            Request request = new Request(method, endpoint);
-            request.addParameters(params);
-            request.setEntity(requestBody);
-            response = restClient.performRequest(request);
-            responseEntity = new BufferedHttpEntity(response.getEntity());
-          } catch (IOException ex) {
-            if (isRetryableClientException(ex)) {
-              LOG.error("Caught ES timeout, retrying", ex);
-              continue;
-            }
+      private void reportBulkMetrics() {
+        batchSizeBytesGauge.set(bulkController.getBatchSizeBytes());
+        concurrencyGauge.set(bulkController.getConcurrency());
+        throttleRateGauge.set(Math.round(bulkController.getThrottleRate() * 1000));
+      }
+
+      /** Returns the number of items of a bulk response with the given status. */
+      private static int countItems(JsonNode result, int status) {
+        int count = 0;
+        for (JsonNode item : result.path("items")) {
+          Iterator<JsonNode> actions = item.elements();
+          if (actions.hasNext() && actions.next().path("status").asInt() == status) {
+            count++;
           }
-          // if response has no 429 errors
-          if (spec.getRetryConfiguration() != null
-              && spec.getRetryConfiguration().getRetryPredicate().test(responseEntity)) {
-            return responseEntity;
-          } else {
-            LOG.warn("ES Cluster is responding with HTP 429 - TOO_MANY_REQUESTS.");
+        }
+        return count;
+      }
+
+      /**
+       * Walks the items of a bulk response. Items rejected with 429 TOO_MANY_REQUESTS are copied
+       * from {@code body} to {@code rejected} if it is not null, and the other errors are returned
+       * as a message, or null if there are none.
+       */
+      @VisibleForTesting
+      static @Nullable String collectErrors(
+          JsonNode result, BulkBuffer body, @Nullable BulkBuffer rejected) {
+        StringBuilder errorMessages = null;
+        JsonNode items = result.path("items");
+        for (int i = 0; i < items.size(); i++) {
+          // every item has a single field named after its action, e.g. index, create or update
+          Iterator<JsonNode> actions = items.get(i).elements();
+          if (!actions.hasNext()) {
+            continue;
+          }
+          JsonNode errorRoot = actions.next();
+          JsonNode error = errorRoot.get("error");
+          if (error == null) {
+            continue;
+          }
+          if (rejected != null && errorRoot.path("status").asInt() == TOO_MANY_REQUESTS) {
+            rejected.copyItem(body, i);
+            continue;
           }
+          if (errorMessages == null) {
+            errorMessages = new StringBuilder();
+          }
+          String type = error.path("type").asText();
+          String reason = error.path("reason").asText();
+          String docId = errorRoot.path("_id").asText();
+          errorMessages.append(String.format("%nDocument id %s: %s (%s)", docId, reason, type));
+          JsonNode causedBy = error.get("caused_by");
+          if (causedBy != null) {
+            String cbReason = causedBy.path("reason").asText();
+            String cbType = causedBy.path("type").asText();
+            errorMessages.append(String.format("%nCaused by: %s (%s)", cbReason, cbType));
+          }
+        }
+        return errorMessages == null ? null : errorMessages.toString();
+      }
+
+      /** Re-enqueues {@code body} to be sent again once the backoff of {@code bulk} elapses. */
+      private void scheduleRetry(Bulk bulk, BulkBuffer body) throws IOException {
+        if (body.itemCount() == 0) {
+          releaseBuffer(body);
+          return;
+        }
+        long backoffMillis = bulk.backoff.nextBackOffMillis();
+        if (backoffMillis == BackOff.STOP) {
+          throw new IOException(String.format(RETRY_FAILED_LOG, bulk.attempt + 1));
         }
-        throw new IOException(String.format(RETRY_FAILED_LOG, attempt));
+        LOG.warn(String.format(RETRY_ATTEMPT_LOG, bulk.attempt + 1));
+        pendingRetries.add(
+            new Bulk(
+                body, bulk.backoff, bulk.attempt + 1, System.currentTimeMillis() + backoffMillis));
       }
 
       @Teardown
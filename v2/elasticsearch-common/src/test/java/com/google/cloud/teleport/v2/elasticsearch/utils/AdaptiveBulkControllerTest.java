@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.elasticsearch.utils;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the {@link AdaptiveBulkController} class. */
+@RunWith(JUnit4.class)
+public class AdaptiveBulkControllerTest {
+
+  private static final long MAX_BATCH_SIZE_BYTES = 16L * 1024L * 1024L;
+  private static final long TARGET_LATENCY_MILLIS = 1000;
+
+  private static AdaptiveBulkController controller() {
+    return new AdaptiveBulkController(MAX_BATCH_SIZE_BYTES, 4, TARGET_LATENCY_MILLIS);
+  }
+
+  @Test
+  public void testGrowsUpToLimitsWhileFast() {
+    AdaptiveBulkController controller = controller();
+    assertThat(controller.getBatchSizeBytes(), equalTo(MAX_BATCH_SIZE_BYTES / 8));
+    assertThat(controller.getConcurrency(), equalTo(1));
+
+    for (int i = 0; i < 100; i++) {
+      controller.onBulkCompleted(100, 50, 1000, 0);
+    }
+
+    assertThat(controller.getBatchSizeBytes(), equalTo(MAX_BATCH_SIZE_BYTES));
+    assertThat(controller.getConcurrency(), equalTo(4));
+    assertThat(controller.getThrottleRate(), equalTo(0.0));
+  }
+
+  @Test
+  public void testHalvesOnThrottledItems() {
+    AdaptiveBulkController controller = controller();
+    for (int i = 0; i < 100; i++) {
+      controller.onBulkCompleted(100, 50, 1000, 0);
+    }
+
+    controller.onBulkCompleted(100, 50, 1000, 500);
+
+    assertThat(controller.getBatchSizeBytes(), equalTo(MAX_BATCH_SIZE_BYTES / 2));
+    assertThat(controller.getConcurrency(), equalTo(2));
+    assertThat(controller.getThrottleRate(), closeTo(0.1, 0.0001));
+  }
+
+  @Test
+  public void testSlowServerShrinksBatchSize() {
+    AdaptiveBulkController controller = controller();
+    for (int i = 0; i < 100; i++) {
+      controller.onBulkCompleted(100, 50, 1000, 0);
+    }
+
+    controller.onBulkCompleted(3000, 2500, 1000, 0);
+
+    assertThat(controller.getBatchSizeBytes(), lessThan(MAX_BATCH_SIZE_BYTES));
+    assertThat(controller.getConcurrency(), equalTo(4));
+  }
+
+  @Test
+  public void testQueueingShrinksConcurrency() {
+    AdaptiveBulkController controller = controller();
+    for (int i = 0; i < 100; i++) {
+      controller.onBulkCompleted(100, 50, 1000, 0);
+    }
+
+    controller.onBulkCompleted(3000, 200, 1000, 0);
+
+    assertThat(controller.getBatchSizeBytes(), equalTo(MAX_BATCH_SIZE_BYTES));
+    assertThat(controller.getConcurrency(), equalTo(3));
+  }
+
+  @Test
+  public void testNeverShrinksBelowMinimum() {
+    AdaptiveBulkController controller = controller();
+
+    for (int i = 0; i < 100; i++) {
+      controller.onBulkThrottled();
+    }
+
+    assertThat(
+        controller.getBatchSizeBytes(), equalTo(AdaptiveBulkController.MIN_BATCH_SIZE_BYTES));
+    assertThat(controller.getConcurrency(), equalTo(1));
+    assertThat(controller.getThrottleRate(), greaterThan(0.99));
+  }
+}
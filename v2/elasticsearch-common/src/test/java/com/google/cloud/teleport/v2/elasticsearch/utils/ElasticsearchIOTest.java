@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.elasticsearch.utils;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.teleport.v2.elasticsearch.utils.ElasticsearchIO.Write.WriteFn;
+import com.google.cloud.teleport.v2.elasticsearch.utils.ElasticsearchIO.Write.WriteFn.BulkBuffer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the bulk writing of {@link ElasticsearchIO.Write}. */
+@RunWith(JUnit4.class)
+public class ElasticsearchIOTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private HttpServer server;
+  private final List<String> bulkRequests = Collections.synchronizedList(new ArrayList<>());
+  private Function<Integer, String> bulkResponses;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/", exchange -> respond(exchange, "{\"version\":{\"number\":\"8.1.0\"}}"));
+    server.createContext(
+        "/test-index/_bulk",
+        exchange -> {
+          String body =
+              new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+          bulkRequests.add(body);
+          respond(exchange, bulkResponses.apply(bulkRequests.size()));
+        });
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  private static void respond(HttpExchange exchange, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private ElasticsearchIO.Write write() {
+    return ElasticsearchIO.write()
+        .withConnectionConfiguration(
+            ElasticsearchIO.ConnectionConfiguration.create(
+                new String[] {"http://localhost:" + server.getAddress().getPort()},
+                "test-index",
+                "_doc",
+                "test"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void writeDocuments(WriteFn writeFn, String... documents) throws Exception {
+    writeFn.setup();
+    try {
+      writeFn.startBundle(null);
+      for (String document : documents) {
+        DoFn<String, Void>.ProcessContext context = mock(DoFn.ProcessContext.class);
+        when(context.element()).thenReturn(document);
+        writeFn.processElement(context);
+      }
+      writeFn.finishBundle(null);
+    } finally {
+      writeFn.closeClient();
+    }
+  }
+
+  private static String item(String action, String id, int status) {
+    if (status < 300) {
+      return String.format("{\"%s\":{\"_id\":\"%s\",\"status\":%d}}", action, id, status);
+    }
+    return String.format(
+        "{\"%s\":{\"_id\":\"%s\",\"status\":%d,"
+            + "\"error\":{\"type\":\"error_%d\",\"reason\":\"failed %s\"}}}",
+        action, id, status, status, id);
+  }
+
+  private static String bulkResponse(String... items) {
+    boolean errors = false;
+    for (String item : items) {
+      errors |= item.contains("\"error\"");
+    }
+    return String.format(
+        "{\"took\":3,\"errors\":%s,\"items\":[%s]}", errors, String.join(",", items));
+  }
+
+  @Test
+  public void testWriteEncodesBulkRequest() throws Exception {
+    bulkResponses = n -> bulkResponse(item("create", "1", 201), item("create", "2", 201));
+
+    writeDocuments(new WriteFn(write().withMaxBatchSize(2)), "{\"id\":1}", "{\"id\":2}");
+
+    assertThat(
+        bulkRequests,
+        contains("{ \"create\" : {} }\n{\"id\":1}\n{ \"create\" : {} }\n{\"id\":2}\n"));
+  }
+
+  @Test
+  public void testWriteRetriesOnlyRejectedItems() throws Exception {
+    bulkResponses =
+        n ->
+            n == 1
+                ? bulkResponse(
+                    item("create", "1", 201), item("create", "2", 429), item("create", "3", 201))
+                : bulkResponse(item("create", "2", 201));
+
+    writeDocuments(
+        new WriteFn(
+            write()
+                .withMaxBatchSize(3)
+                .withRetryConfiguration(
+                    ElasticsearchIO.RetryConfiguration.create(3, Duration.standardMinutes(1)))),
+        "{\"id\":1}",
+        "{\"id\":2}",
+        "{\"id\":3}");
+
+    assertThat(bulkRequests, hasSize(2));
+    assertThat(bulkRequests.get(1), equalTo("{ \"create\" : {} }\n{\"id\":2}\n"));
+  }
+
+  @Test
+  public void testWriteRetriesRejectedItemsBeforeNextBulk() throws Exception {
+    bulkResponses =
+        n -> n == 1 ? bulkResponse(item("index", "1", 429)) : bulkResponse(item("index", "1", 200));
+
+    writeDocuments(
+        new WriteFn(
+            write()
+                .withMaxBatchSize(1)
+                .withIdFn(document -> document.path("id").asText())
+                .withBulkInsertMethod(BulkInsertMethod.BulkInsertMethodOptions.INDEX)
+                .withRetryConfiguration(
+                    ElasticsearchIO.RetryConfiguration.create(3, Duration.standardMinutes(1)))),
+        "{\"id\":1,\"version\":1}",
+        "{\"id\":1,\"version\":2}");
+
+    // The rejected first version is written again before the second version is sent.
+    assertThat(bulkRequests, hasSize(3));
+    assertThat(bulkRequests.get(1), containsString("\"version\":1"));
+    assertThat(bulkRequests.get(2), containsString("\"version\":2"));
+  }
+
+  @Test
+  public void testWriteFailsOnRejectedItemsWithoutRetries() {
+    bulkResponses = n -> bulkResponse(item("create", "1", 429));
+
+    IOException exception =
+        assertThrows(IOException.class, () -> writeDocuments(new WriteFn(write()), "{\"id\":1}"));
+
+    assertThat(exception.getMessage(), containsString("Document id 1: failed 1 (error_429)"));
+  }
+
+  @Test
+  public void testWriteWithSeveralBulksInFlight() throws Exception {
+    bulkResponses = n -> bulkResponse(item("index", String.valueOf(n), 201));
+
+    writeDocuments(
+        new WriteFn(
+            write()
+                .withMaxBatchSize(1)
+                .withMaxInFlightBulks(3)
+                .withBulkInsertMethod(BulkInsertMethod.BulkInsertMethodOptions.INDEX)),
+        "{\"id\":1}",
+        "{\"id\":2}",
+        "{\"id\":3}",
+        "{\"id\":4}",
+        "{\"id\":5}");
+
+    assertThat(
+        bulkRequests,
+        containsInAnyOrder(
+            "{ \"index\" : {} }\n{\"id\":1}\n",
+            "{ \"index\" : {} }\n{\"id\":2}\n",
+            "{ \"index\" : {} }\n{\"id\":3}\n",
+            "{ \"index\" : {} }\n{\"id\":4}\n",
+            "{ \"index\" : {} }\n{\"id\":5}\n"));
+  }
+
+  @Test
+  public void testCollectErrors() throws Exception {
+    BulkBuffer body = new BulkBuffer();
+    for (String line : new String[] {"a\n", "b\n", "c\n"}) {
+      body.startItem();
+      body.write(line.getBytes(StandardCharsets.UTF_8));
+    }
+    JsonNode result =
+        MAPPER.readTree(
+            bulkResponse(
+                item("delete", "a", 429), item("update", "b", 200), item("delete", "c", 400)));
+    BulkBuffer rejected = new BulkBuffer();
+
+    String errors = WriteFn.collectErrors(result, body, rejected);
+
+    assertThat(errors, containsString("Document id c: failed c (error_400)"));
+    assertThat(errors, not(containsString("Document id a")));
+    assertThat(rejected.itemCount(), equalTo(1));
+    assertThat(rejected.toString(StandardCharsets.UTF_8.name()), equalTo("a\n"));
+  }
+}
@@ -169,6 +169,7 @@ public class BigQueryToElasticsearch {
               TransformTextViaJavascript.newBuilder()
                   .setFileSystemPath(options.getJavascriptTextTransformGcsPath())
                   .setFunctionName(options.getJavascriptTextTransformFunctionName())
+                  .setBatchSize(options.getJavascriptTextTransformBatchSize())
                   .build());
     }
 
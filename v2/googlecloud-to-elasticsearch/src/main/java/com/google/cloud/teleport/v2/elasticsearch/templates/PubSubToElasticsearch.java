@@ -229,6 +229,8 @@ public class PubSubToElasticsearch {
                     .setJavascriptTextTransformFunctionName(
                         options.getJavascriptTextTransformFunctionName())
                     .setJavascriptTextTransformGcsPath(options.getJavascriptTextTransformGcsPath())
+                    .setJavascriptTextTransformBatchSize(
+                        options.getJavascriptTextTransformBatchSize())
                     .setPythonExternalTextTransformGcsPath(
                         options.getPythonExternalTextTransformGcsPath())
                     .setPythonExternalTextTransformFunctionName(
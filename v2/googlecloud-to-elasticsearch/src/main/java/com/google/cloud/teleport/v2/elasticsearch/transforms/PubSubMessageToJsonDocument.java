@@ -72,6 +72,9 @@ public abstract class PubSubMessageToJsonDocument
   @Nullable
   public abstract Integer javascriptTextTransformReloadIntervalMinutes();
 
+  @Nullable
+  public abstract Integer javascriptTextTransformBatchSize();
+
   @Override
   public PCollectionTuple expand(PCollection<PubsubMessage> input) {
 
@@ -129,6 +132,7 @@ public abstract class PubSubMessageToJsonDocument
                 .setFileSystemPath(javascriptTextTransformGcsPath())
                 .setFunctionName(javascriptTextTransformFunctionName())
                 .setReloadIntervalMinutes(javascriptTextTransformReloadIntervalMinutes())
+                .setBatchSize(javascriptTextTransformBatchSize())
                 .setSuccessTag(PubSubToElasticsearch.TRANSFORM_OUT)
                 .setFailureTag(PubSubToElasticsearch.TRANSFORM_ERROR_OUTPUT_OUT)
                 .build());
@@ -155,6 +159,9 @@ public abstract class PubSubMessageToJsonDocument
     public abstract Builder setJavascriptTextTransformReloadIntervalMinutes(
         Integer javascriptTextTransformReloadIntervalMinutes);
 
+    public abstract Builder setJavascriptTextTransformBatchSize(
+        Integer javascriptTextTransformBatchSize);
+
     public abstract Builder setPythonExternalTextTransformGcsPath(
         String pythonExternalTextTransformGcsPath);
 
@@ -247,4 +247,33 @@ public interface SpannerChangeStreamsToBigQueryOptions
   Boolean getDisableDlqRetries();
 
   void setDisableDlqRetries(Boolean value);
+
+  @TemplateParameter.Integer(
+      order = 20,
+      optional = true,
+      description = "Maximum number of keys per snapshot read",
+      helpText =
+          "When the value capture type doesn't include the new row, the pipeline reads the full row"
+              + " image of updated rows from Spanner. Updates to the same table at the same commit"
+              + " timestamp are read together with a single multi-key read of up to this many keys."
+              + " The default value is `100`.")
+  @Default.Integer(100)
+  Integer getSnapshotReadBatchSize();
+
+  void setSnapshotReadBatchSize(Integer value);
+
+  @TemplateParameter.Long(
+      order = 21,
+      optional = true,
+      description = "Maximum snapshot read delay in milliseconds",
+      helpText =
+          "The time, in milliseconds, after which an update waiting for other updates to the same"
+              + " table at the same commit timestamp has its full row image read. The wait is"
+              + " checked when the next change record is processed, so an update can wait longer"
+              + " when no further records arrive, up to the end of the bundle. The default value"
+              + " is `500`.")
+  @Default.Long(500)
+  Long getSnapshotReadMaxDelayMillis();
+
+  void setSnapshotReadMaxDelayMillis(Long value);
 }
@@ -239,4 +239,31 @@ public interface SpannerChangeStreamsToPubSubOptions extends DataflowPipelineOpt
   String getOutputMessageMetadata();
 
   void setOutputMessageMetadata(String value);
+
+  @TemplateParameter.Long(
+      order = 19,
+      optional = true,
+      description = "Maximum in-flight Pub/Sub messages",
+      helpText =
+          "The maximum number of messages which are published but not yet acknowledged by Pub/Sub,"
+              + " on each worker thread. Publishing blocks once this many messages are in flight."
+              + " Only used with the `native_client` Pub/Sub API. The default value is `10000`.")
+  @Default.Long(10_000L)
+  Long getPubsubMaxInFlightMessages();
+
+  void setPubsubMaxInFlightMessages(Long value);
+
+  @TemplateParameter.Long(
+      order = 20,
+      optional = true,
+      description = "Maximum in-flight Pub/Sub bytes",
+      helpText =
+          "The maximum number of bytes of the messages which are published but not yet acknowledged"
+              + " by Pub/Sub, on each worker thread. Publishing blocks once this many bytes are in"
+              + " flight. Only used with the `native_client` Pub/Sub API. The default value is"
+              + " `104857600` (100 MiB).")
+  @Default.Long(104_857_600L)
+  Long getPubsubMaxInFlightBytes();
+
+  void setPubsubMaxInFlightBytes(Long value);
 }
@@ -204,6 +204,7 @@ public class FirestoreToBigQuery {
               TransformTextViaJavascript.newBuilder()
                   .setFileSystemPath(options.getJavascriptTextTransformGcsPath())
                   .setFunctionName(options.getJavascriptTextTransformFunctionName())
+                  .setBatchSize(options.getJavascriptTextTransformBatchSize())
                   .build())
           .apply(
               MapElements.via(
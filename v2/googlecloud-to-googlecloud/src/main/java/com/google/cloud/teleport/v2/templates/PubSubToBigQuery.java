@@ -463,6 +463,7 @@ public class PubSubToBigQuery {
                         .setFunctionName(options.getJavascriptTextTransformFunctionName())
                         .setReloadIntervalMinutes(
                             options.getJavascriptTextTransformReloadIntervalMinutes())
+                        .setBatchSize(options.getJavascriptTextTransformBatchSize())
                         .setSuccessTag(UDF_OUT)
                         .setFailureTag(UDF_DEADLETTER_OUT)
                         .build());
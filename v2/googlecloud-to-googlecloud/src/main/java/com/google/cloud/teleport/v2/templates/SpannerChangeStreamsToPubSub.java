@@ -190,6 +190,8 @@ public class SpannerChangeStreamsToPubSub {
                 .setSpannerDatabaseId(databaseId)
                 .setSpannerInstanceId(instanceId)
                 .setOutputMessageMetadata(outputMessageMetadata)
+                .setMaxInFlightMessages(options.getPubsubMaxInFlightMessages())
+                .setMaxInFlightBytes(options.getPubsubMaxInFlightBytes())
                 .build());
     return pipeline.run();
   }
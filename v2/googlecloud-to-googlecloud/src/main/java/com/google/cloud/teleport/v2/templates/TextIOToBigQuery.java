@@ -344,6 +344,7 @@ public class TextIOToBigQuery {
                       .setFunctionName(options.getJavascriptTextTransformFunctionName())
                       .setReloadIntervalMinutes(
                           options.getJavascriptTextTransformReloadIntervalMinutes())
+                      .setBatchSize(options.getJavascriptTextTransformBatchSize())
                       .build())
               .apply(
                   MapElements.via(
@@ -49,23 +49,34 @@ import io.grpc.MethodDescriptor;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import org.apache.beam.sdk.io.gcp.spanner.SpannerAccessor;
 import org.apache.beam.sdk.io.gcp.spanner.SpannerConfig;
 import org.apache.beam.sdk.io.gcp.spanner.changestreams.model.ModType;
 import org.apache.beam.sdk.io.gcp.spanner.changestreams.model.ValueCaptureType;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Throwables;
+import org.joda.time.Instant;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -110,7 +121,9 @@ public final class FailsafeModJsonToTableRowTransformer {
                           failsafeModJsonToTableRowOptions.getIgnoreFields(),
                           transformOut,
                           transformDeadLetterOut,
-                          failsafeModJsonToTableRowOptions.getUseStorageWriteApi()))
+                          failsafeModJsonToTableRowOptions.getUseStorageWriteApi(),
+                          failsafeModJsonToTableRowOptions.getSnapshotReadBatchSize(),
+                          failsafeModJsonToTableRowOptions.getSnapshotReadMaxDelayMillis()))
                   .withOutputTags(transformOut, TupleTagList.of(transformDeadLetterOut)));
       out.get(transformDeadLetterOut).setCoder(failsafeModJsonToTableRowOptions.getCoder());
       return out;
@@ -119,6 +132,13 @@ public final class FailsafeModJsonToTableRowTransformer {
     /**
      * The {@link FailsafeModJsonToTableRowFn} converts a {@link Mod} JSON string wrapped in {@link
      * FailsafeElement} to a {@link TableRow}.
+     *
+     * <p>The full row image of UPDATE mods which don't capture the new row is read from Spanner.
+     * These mods are grouped by table and commit timestamp within a bundle, and each group is read
+     * with a single multi-key snapshot read once it reaches the batch size, once its first mod has
+     * waited for the maximum delay, or at the end of the bundle. The delay is checked as elements
+     * arrive, since the reads are not triggered by timers. The rows of the current window are
+     * output as soon as they are read, and the rows of other windows at the end of the bundle.
      */
     public static class FailsafeModJsonToTableRowFn
         extends DoFn<FailsafeElement<String, String>, TableRow> {
@@ -134,6 +154,21 @@ public final class FailsafeModJsonToTableRowTransformer {
       private transient boolean seenException;
       private Boolean useStorageWriteApi;
       private Dialect dialect;
+      private final int snapshotReadBatchSize;
+      private final long snapshotReadMaxDelayMillis;
+      private transient Map<KV<String, com.google.cloud.Timestamp>, SnapshotReadGroup>
+          pendingSnapshotReads;
+      private transient List<ModTableRow> completedSnapshotReads;
+
+      private final Counter snapshotReadMods =
+          Metrics.counter(FailsafeModJsonToTableRowFn.class, "Mods requiring snapshot read");
+      private final Counter snapshotReads =
+          Metrics.counter(FailsafeModJsonToTableRowFn.class, "Spanner snapshot reads");
+      private final Distribution snapshotReadKeys =
+          Metrics.distribution(FailsafeModJsonToTableRowFn.class, "Keys per Spanner snapshot read");
+      private final Distribution snapshotReadLatency =
+          Metrics.distribution(
+              FailsafeModJsonToTableRowFn.class, "Spanner snapshot read latency ms");
 
       public FailsafeModJsonToTableRowFn(
           SpannerConfig spannerConfig,
@@ -141,13 +176,17 @@ public final class FailsafeModJsonToTableRowTransformer {
           ImmutableSet<String> ignoreFields,
           TupleTag<TableRow> transformOut,
           TupleTag<FailsafeElement<String, String>> transformDeadLetterOut,
-          Boolean useStorageWriteApi) {
+          Boolean useStorageWriteApi,
+          int snapshotReadBatchSize,
+          long snapshotReadMaxDelayMillis) {
         this.spannerConfig = spannerConfig;
         this.spannerChangeStream = spannerChangeStream;
         this.transformOut = transformOut;
         this.transformDeadLetterOut = transformDeadLetterOut;
         this.ignoreFields = ignoreFields;
         this.useStorageWriteApi = useStorageWriteApi;
+        this.snapshotReadBatchSize = snapshotReadBatchSize;
+        this.snapshotReadMaxDelayMillis = snapshotReadMaxDelayMillis;
         this.dialect = getDialect(spannerConfig);
       }
 
@@ -193,36 +232,108 @@ public final class FailsafeModJsonToTableRowTransformer {
         spannerAccessor.close();
       }
 
+      @StartBundle
+      public void startBundle() {
+        pendingSnapshotReads = new LinkedHashMap<>();
+        completedSnapshotReads = new ArrayList<>();
+      }
+
       @ProcessElement
-      public void processElement(ProcessContext context) {
+      public void processElement(ProcessContext context, BoundedWindow window) {
         FailsafeElement<String, String> failsafeModJsonString = context.element();
 
         try {
-          TableRow tableRow = modJsonStringToTableRow(failsafeModJsonString.getPayload());
-          for (String ignoreField : ignoreFields) {
-            if (tableRow.containsKey(ignoreField)) {
-              tableRow.remove(ignoreField);
-            }
+          ModTableRow modTableRow = modJsonStringToTableRow(failsafeModJsonString.getPayload());
+          if (modTableRow.requiresSnapshotRead()) {
+            modTableRow.setElement(failsafeModJsonString, context.timestamp(), window);
+            addPendingSnapshotRead(modTableRow);
+          } else {
+            context.output(removeIgnoreFields(modTableRow.getTableRow()));
           }
-          context.output(tableRow);
         } catch (Exception e) {
-          if (!seenException) {
-            LOG.error(
-                String.format(
-                    "Caught exception when processing element and storing into dead letter queue,"
-                        + " message: %s, cause: %s",
-                    Optional.ofNullable(e.getMessage()), e.getCause()));
-            seenException = true;
+          context.output(transformDeadLetterOut, toDeadLetter(failsafeModJsonString, e));
+        }
+        readDelayedSnapshotReads();
+        outputCompletedSnapshotReads(context, window);
+      }
+
+      /**
+       * Outputs the read mods of the current window. An element can only be output to its own
+       * window and not before its own timestamp from here, so mods of other windows wait for the
+       * end of the bundle and mods are output at the later of their own and the current timestamp.
+       */
+      private void outputCompletedSnapshotReads(ProcessContext context, BoundedWindow window) {
+        List<ModTableRow> otherWindows = new ArrayList<>();
+        for (ModTableRow modTableRow : completedSnapshotReads) {
+          if (!modTableRow.getWindow().equals(window)) {
+            otherWindows.add(modTableRow);
+            continue;
+          }
+          Instant timestamp =
+              modTableRow.getTimestamp().isAfter(context.timestamp())
+                  ? modTableRow.getTimestamp()
+                  : context.timestamp();
+          if (modTableRow.getError() == null) {
+            context.outputWithTimestamp(removeIgnoreFields(modTableRow.getTableRow()), timestamp);
+          } else {
+            context.outputWithTimestamp(
+                transformDeadLetterOut,
+                toDeadLetter(modTableRow.getElement(), modTableRow.getError()),
+                timestamp);
           }
-          context.output(
-              transformDeadLetterOut,
-              FailsafeElement.of(failsafeModJsonString)
-                  .setErrorMessage(e.getMessage())
-                  .setStacktrace(Throwables.getStackTraceAsString(e)));
         }
+        completedSnapshotReads = otherWindows;
       }
 
-      private TableRow modJsonStringToTableRow(String modJsonString) {
+      @FinishBundle
+      public void finishBundle(FinishBundleContext context) {
+        for (SnapshotReadGroup group : pendingSnapshotReads.values()) {
+          readSnapshotRows(group);
+        }
+        pendingSnapshotReads.clear();
+
+        for (ModTableRow modTableRow : completedSnapshotReads) {
+          if (modTableRow.getError() == null) {
+            context.output(
+                removeIgnoreFields(modTableRow.getTableRow()),
+                modTableRow.getTimestamp(),
+                modTableRow.getWindow());
+          } else {
+            context.output(
+                transformDeadLetterOut,
+                toDeadLetter(modTableRow.getElement(), modTableRow.getError()),
+                modTableRow.getTimestamp(),
+                modTableRow.getWindow());
+          }
+        }
+        completedSnapshotReads.clear();
+      }
+
+      private TableRow removeIgnoreFields(TableRow tableRow) {
+        for (String ignoreField : ignoreFields) {
+          if (tableRow.containsKey(ignoreField)) {
+            tableRow.remove(ignoreField);
+          }
+        }
+        return tableRow;
+      }
+
+      private FailsafeElement<String, String> toDeadLetter(
+          FailsafeElement<String, String> failsafeModJsonString, Exception e) {
+        if (!seenException) {
+          LOG.error(
+              String.format(
+                  "Caught exception when processing element and storing into dead letter queue,"
+                      + " message: %s, cause: %s",
+                  Optional.ofNullable(e.getMessage()), e.getCause()));
+          seenException = true;
+        }
+        return FailsafeElement.of(failsafeModJsonString)
+            .setErrorMessage(e.getMessage())
+            .setStacktrace(Throwables.getStackTraceAsString(e));
+      }
+
+      private ModTableRow modJsonStringToTableRow(String modJsonString) {
         String deadLetterMessage =
             "check dead letter queue for unprocessed records that failed to be processed";
         ObjectNode modObjectNode = null;
@@ -300,14 +411,14 @@ public final class FailsafeModJsonToTableRowTransformer {
         // For "DELETE" mod, we only set the key columns. For all non-key columns, we already
         // populated "null".
         if (mod.getModType() == ModType.INSERT || mod.getModType() == ModType.DELETE) {
-          return tableRow;
+          return new ModTableRow(tableRow);
         }
 
         // For "NEW_ROW" and "NEW_ROW_AND_OLD_VALUES" value capture types, we can get all columns
         // from mod.
         if (mod.getValueCaptureType() == ValueCaptureType.NEW_ROW
             || mod.getValueCaptureType() == ValueCaptureType.NEW_ROW_AND_OLD_VALUES) {
-          return tableRow;
+          return new ModTableRow(tableRow);
         }
 
         // For "UPDATE" mod, the Mod only contains the changed columns, unchanged tracked columns
@@ -321,10 +432,13 @@ public final class FailsafeModJsonToTableRowTransformer {
         // processed by the pipeline again, users should process the severe deadletter queue
         // themselves.
         Builder keyBuilder = com.google.cloud.spanner.Key.newBuilder();
+        List<Object> keyValues = new ArrayList<>();
         for (TrackedSpannerColumn spannerColumn : spannerTable.getPkColumns()) {
           String spannerColumnName = spannerColumn.getName();
           if (keysJsonObject.has(spannerColumnName)) {
             SpannerChangeStreamsUtils.appendToSpannerKey(spannerColumn, keysJsonObject, keyBuilder);
+            keyValues.add(
+                SpannerChangeStreamsUtils.getSpannerKeyValue(spannerColumn, keysJsonObject));
           } else {
             String errorMessage =
                 String.format(
@@ -336,28 +450,82 @@ public final class FailsafeModJsonToTableRowTransformer {
           }
         }
 
-        List<TrackedSpannerColumn> spannerNonPkColumns = spannerTable.getNonPkColumns();
-        List<String> spannerNonPkColumnNames =
-            spannerNonPkColumns.stream()
-                .map(spannerNonPkColumn -> spannerNonPkColumn.getName())
-                .collect(Collectors.toList());
+        snapshotReadMods.inc();
+        return new ModTableRow(
+            tableRow, spannerTable, keyBuilder.build(), keyValues, spannerCommitTimestamp);
+      }
+
+      private void addPendingSnapshotRead(ModTableRow modTableRow) {
+        KV<String, com.google.cloud.Timestamp> groupKey =
+            KV.of(modTableRow.getSpannerTable().getTableName(), modTableRow.getCommitTimestamp());
+        SnapshotReadGroup group =
+            pendingSnapshotReads.computeIfAbsent(groupKey, k -> new SnapshotReadGroup());
+        group.add(modTableRow);
+        if (group.size() >= snapshotReadBatchSize) {
+          pendingSnapshotReads.remove(groupKey);
+          readSnapshotRows(group);
+        }
+      }
+
+      // Reads the groups which have waited for the maximum delay. Groups are kept in insertion
+      // order, so the oldest groups come first.
+      private void readDelayedSnapshotReads() {
+        long now = System.currentTimeMillis();
+        Iterator<SnapshotReadGroup> groups = pendingSnapshotReads.values().iterator();
+        while (groups.hasNext()) {
+          SnapshotReadGroup pendingGroup = groups.next();
+          if (now - pendingGroup.getCreatedMillis() < snapshotReadMaxDelayMillis) {
+            break;
+          }
+          groups.remove();
+          readSnapshotRows(pendingGroup);
+        }
+      }
+
+      // For "UPDATE" mods, the Mod only contains the changed columns, unchanged tracked columns
+      // are not included, so we need to do a snapshot read to Spanner to get the full row image
+      // tracked by change stream, we want to re-read the updated columns as well to get a
+      // consistent view of the whole row after the transaction is committed. All the mods of the
+      // group share the table and the commit timestamp, so their rows are read together.
+      // Note that the read can fail if the database version retention period (default to be one
+      // hour) has passed the snapshot read timestamp, similar to other error cases, the pipeline
+      // will put the failed mods into the retry deadletter queue, and retry them for 5 times, and
+      // then eventually add the failed mods into the severe deadletter queue which won't be
+      // processed by the pipeline again, users should process the severe deadletter queue
+      // themselves.
+      private void readSnapshotRows(SnapshotReadGroup group) {
+        ModTableRow first = group.getModTableRows().get(0);
+        TrackedSpannerTable spannerTable = first.getSpannerTable();
+        KeySet.Builder keySetBuilder = KeySet.newBuilder();
+        Map<List<Object>, List<ModTableRow>> modTableRowsByKey = new HashMap<>();
+        for (ModTableRow modTableRow : group.getModTableRows()) {
+          List<ModTableRow> modTableRows = modTableRowsByKey.get(modTableRow.getKeyValues());
+          if (modTableRows == null) {
+            modTableRows = new ArrayList<>();
+            modTableRowsByKey.put(modTableRow.getKeyValues(), modTableRows);
+            keySetBuilder.addKey(modTableRow.getKey());
+          }
+          modTableRows.add(modTableRow);
+        }
+        KeySet keySet = keySetBuilder.build();
 
         int retryCount = 0;
+        Set<List<Object>> readKeys;
         while (true) {
           try {
-            readSpannerRow(
-                spannerTable.getTableName(),
-                keyBuilder.build(),
-                spannerNonPkColumns,
-                spannerNonPkColumnNames,
-                spannerCommitTimestamp,
-                tableRow);
+            readKeys =
+                readSpannerRows(
+                    spannerTable, keySet, modTableRowsByKey, first.getCommitTimestamp());
             break;
           } catch (Exception e) {
             // Retry for maximum 3 times in case of transient error.
             if (retryCount > 3) {
               LOG.error("Caught exception from Spanner snapshot read: {}, throwing", e);
-              throw e;
+              for (ModTableRow modTableRow : group.getModTableRows()) {
+                modTableRow.setError(e);
+              }
+              completedSnapshotReads.addAll(group.getModTableRows());
+              return;
             } else {
               LOG.error(
                   "Caught exception from Spanner snapshot read: {}, stack trace:{} current retry"
@@ -377,23 +545,42 @@ public final class FailsafeModJsonToTableRowTransformer {
           }
         }
 
-        return tableRow;
+        for (Map.Entry<List<Object>, List<ModTableRow>> entry : modTableRowsByKey.entrySet()) {
+          if (!readKeys.contains(entry.getKey())) {
+            for (ModTableRow modTableRow : entry.getValue()) {
+              modTableRow.setError(
+                  new IllegalArgumentException(
+                      "Received zero row from the result set of Spanner snapshot row"));
+            }
+          }
+        }
+        completedSnapshotReads.addAll(group.getModTableRows());
       }
 
-      // Do a Spanner read to retrieve full row. Schema can change while the pipeline is running.
-      private void readSpannerRow(
-          String spannerTableName,
-          com.google.cloud.spanner.Key key,
-          List<TrackedSpannerColumn> spannerNonPkColumns,
-          List<String> spannerNonPkColumnNames,
-          com.google.cloud.Timestamp spannerCommitTimestamp,
-          TableRow tableRow) {
+      // Do a Spanner read to retrieve full rows. Schema can change while the pipeline is running.
+      private Set<List<Object>> readSpannerRows(
+          TrackedSpannerTable spannerTable,
+          KeySet keySet,
+          Map<List<Object>, List<ModTableRow>> modTableRowsByKey,
+          com.google.cloud.Timestamp spannerCommitTimestamp) {
+        List<TrackedSpannerColumn> spannerPkColumns = spannerTable.getPkColumns();
+        List<TrackedSpannerColumn> spannerNonPkColumns = spannerTable.getNonPkColumns();
+        List<String> spannerColumnNames = new ArrayList<>();
+        for (TrackedSpannerColumn spannerColumn : spannerPkColumns) {
+          spannerColumnNames.add(spannerColumn.getName());
+        }
+        for (TrackedSpannerColumn spannerColumn : spannerNonPkColumns) {
+          spannerColumnNames.add(spannerColumn.getName());
+        }
+
         Options.ReadQueryUpdateTransactionOption options =
             Options.priority(spannerConfig.getRpcPriority().get());
         // Create a context that uses the custom call configuration.
         Context context =
             Context.current()
                 .withValue(SpannerOptions.CALL_CONTEXT_CONFIGURATOR_KEY, callContextConfigurator);
+        Set<List<Object>> readKeys = new HashSet<>();
+        long startMillis = System.currentTimeMillis();
         // Do the snapshot read in the custom context.
         context.run(
             () -> {
@@ -402,15 +589,135 @@ public final class FailsafeModJsonToTableRowTransformer {
                       .getDatabaseClient()
                       .singleUseReadOnlyTransaction(
                           TimestampBound.ofReadTimestamp(spannerCommitTimestamp))
-                      .read(
-                          spannerTableName,
-                          KeySet.singleKey(key),
-                          spannerNonPkColumnNames,
-                          options)) {
-                SpannerToBigQueryUtils.spannerSnapshotRowToBigQueryTableRow(
-                    resultSet, spannerNonPkColumns, tableRow);
+                      .read(spannerTable.getTableName(), keySet, spannerColumnNames, options)) {
+                while (resultSet.next()) {
+                  List<Object> keyValues = new ArrayList<>();
+                  for (TrackedSpannerColumn spannerColumn : spannerPkColumns) {
+                    keyValues.add(
+                        SpannerChangeStreamsUtils.getSpannerKeyValue(spannerColumn, resultSet));
+                  }
+                  List<ModTableRow> modTableRows = modTableRowsByKey.get(keyValues);
+                  if (modTableRows == null) {
+                    continue;
+                  }
+                  readKeys.add(keyValues);
+                  for (ModTableRow modTableRow : modTableRows) {
+                    SpannerToBigQueryUtils.addSpannerSnapshotColumnsToTableRow(
+                        resultSet, spannerNonPkColumns, modTableRow.getTableRow());
+                  }
+                }
               }
             });
+        snapshotReads.inc();
+        snapshotReadKeys.update(modTableRowsByKey.size());
+        snapshotReadLatency.update(System.currentTimeMillis() - startMillis);
+        return readKeys;
+      }
+    }
+
+    /** The mods of a table at a commit timestamp waiting for a snapshot read. */
+    private static class SnapshotReadGroup {
+      private final List<ModTableRow> modTableRows = new ArrayList<>();
+      private final long createdMillis = System.currentTimeMillis();
+
+      void add(ModTableRow modTableRow) {
+        modTableRows.add(modTableRow);
+      }
+
+      int size() {
+        return modTableRows.size();
+      }
+
+      List<ModTableRow> getModTableRows() {
+        return modTableRows;
+      }
+
+      long getCreatedMillis() {
+        return createdMillis;
+      }
+    }
+
+    /**
+     * The {@link TableRow} of a mod, along with the key to read the full row image from Spanner
+     * when the mod doesn't contain it.
+     */
+    private static class ModTableRow {
+      private final TableRow tableRow;
+      private final TrackedSpannerTable spannerTable;
+      private final com.google.cloud.spanner.Key key;
+      private final List<Object> keyValues;
+      private final com.google.cloud.Timestamp commitTimestamp;
+      private FailsafeElement<String, String> element;
+      private Instant timestamp;
+      private BoundedWindow window;
+      private Exception error;
+
+      ModTableRow(TableRow tableRow) {
+        this(tableRow, null, null, null, null);
+      }
+
+      ModTableRow(
+          TableRow tableRow,
+          TrackedSpannerTable spannerTable,
+          com.google.cloud.spanner.Key key,
+          List<Object> keyValues,
+          com.google.cloud.Timestamp commitTimestamp) {
+        this.tableRow = tableRow;
+        this.spannerTable = spannerTable;
+        this.key = key;
+        this.keyValues = keyValues;
+        this.commitTimestamp = commitTimestamp;
+      }
+
+      boolean requiresSnapshotRead() {
+        return key != null;
+      }
+
+      void setElement(
+          FailsafeElement<String, String> element, Instant timestamp, BoundedWindow window) {
+        this.element = element;
+        this.timestamp = timestamp;
+        this.window = window;
+      }
+
+      void setError(Exception error) {
+        this.error = error;
+      }
+
+      TableRow getTableRow() {
+        return tableRow;
+      }
+
+      TrackedSpannerTable getSpannerTable() {
+        return spannerTable;
+      }
+
+      com.google.cloud.spanner.Key getKey() {
+        return key;
+      }
+
+      List<Object> getKeyValues() {
+        return keyValues;
+      }
+
+      com.google.cloud.Timestamp getCommitTimestamp() {
+        return commitTimestamp;
+      }
+
+      FailsafeElement<String, String> getElement() {
+        return element;
+      }
+
+      Instant getTimestamp() {
+        return timestamp;
+      }
+
+      BoundedWindow getWindow() {
+        return window;
+      }
+
+      Exception getError() {
+        return error;
       }
     }
   }
@@ -431,9 +738,15 @@ public final class FailsafeModJsonToTableRowTransformer {
 
     public abstract Boolean getUseStorageWriteApi();
 
+    public abstract Integer getSnapshotReadBatchSize();
+
+    public abstract Long getSnapshotReadMaxDelayMillis();
+
     static Builder builder() {
       return new AutoValue_FailsafeModJsonToTableRowTransformer_FailsafeModJsonToTableRowOptions
-          .Builder();
+              .Builder()
+          .setSnapshotReadBatchSize(100)
+          .setSnapshotReadMaxDelayMillis(500L);
     }
 
     @AutoValue.Builder
@@ -448,6 +761,10 @@ public final class FailsafeModJsonToTableRowTransformer {
 
       abstract Builder setUseStorageWriteApi(Boolean useStorageWriteApi);
 
+      abstract Builder setSnapshotReadBatchSize(Integer snapshotReadBatchSize);
+
+      abstract Builder setSnapshotReadMaxDelayMillis(Long snapshotReadMaxDelayMillis);
+
       abstract FailsafeModJsonToTableRowOptions build();
     }
   }
@@ -369,6 +369,8 @@ public final class SpannerChangeStreamsToBigQuery {
                 .setIgnoreFields(ignoreFields)
                 .setCoder(FAILSAFE_ELEMENT_CODER)
                 .setUseStorageWriteApi(options.getUseStorageWriteApi())
+                .setSnapshotReadBatchSize(options.getSnapshotReadBatchSize())
+                .setSnapshotReadMaxDelayMillis(options.getSnapshotReadMaxDelayMillis())
                 .build();
     FailsafeModJsonToTableRowTransformer.FailsafeModJsonToTableRow failsafeModJsonToTableRow =
         new FailsafeModJsonToTableRowTransformer.FailsafeModJsonToTableRow(
@@ -16,6 +16,8 @@
 package com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.schemautils;
 
 import com.google.api.services.bigquery.model.TableRow;
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.Dialect;
@@ -498,6 +500,61 @@ public class SpannerChangeStreamsUtils {
     }
   }
 
+  /**
+   * Returns the value of a key column of a mod, in a form which is equal to the value returned by
+   * {@link #getSpannerKeyValue(TrackedSpannerColumn, ResultSet)} for the same key.
+   */
+  public static Object getSpannerKeyValue(TrackedSpannerColumn column, JSONObject keysJsonObject) {
+    Type.Code code = column.getType().getCode();
+    String name = column.getName();
+    switch (code) {
+      case BOOL:
+        return keysJsonObject.getBoolean(name);
+      case FLOAT64:
+        return keysJsonObject.getDouble(name);
+      case INT64:
+        return keysJsonObject.getLong(name);
+      case NUMERIC:
+        return keysJsonObject.getBigDecimal(name).stripTrailingZeros();
+      case BYTES:
+        return ByteArray.fromBase64(keysJsonObject.getString(name));
+      case DATE:
+        return Date.parseDate(keysJsonObject.getString(name));
+      case STRING:
+        return keysJsonObject.getString(name);
+      case TIMESTAMP:
+        return Timestamp.parseTimestamp(keysJsonObject.getString(name));
+      default:
+        throw new IllegalArgumentException(String.format("Unsupported Spanner type: %s", code));
+    }
+  }
+
+  /** Returns the value of a key column of the current row of a Spanner read. */
+  public static Object getSpannerKeyValue(TrackedSpannerColumn column, ResultSet resultSet) {
+    Type.Code code = column.getType().getCode();
+    String name = column.getName();
+    switch (code) {
+      case BOOL:
+        return resultSet.getBoolean(name);
+      case FLOAT64:
+        return resultSet.getDouble(name);
+      case INT64:
+        return resultSet.getLong(name);
+      case NUMERIC:
+        return resultSet.getBigDecimal(name).stripTrailingZeros();
+      case BYTES:
+        return resultSet.getBytes(name);
+      case DATE:
+        return resultSet.getDate(name);
+      case STRING:
+        return resultSet.getString(name);
+      case TIMESTAMP:
+        return resultSet.getTimestamp(name);
+      default:
+        throw new IllegalArgumentException(String.format("Unsupported Spanner type: %s", code));
+    }
+  }
+
   private boolean isPostgres() {
     return this.dialect == Dialect.POSTGRESQL;
   }
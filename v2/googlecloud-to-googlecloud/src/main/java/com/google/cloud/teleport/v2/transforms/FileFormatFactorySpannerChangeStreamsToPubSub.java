@@ -74,6 +74,14 @@ public abstract class FileFormatFactorySpannerChangeStreamsToPubSub
   @Nullable
   protected abstract String outputMessageMetadata();
 
+  /** The maximum number of messages in flight with the {@code native_client} API. */
+  @Nullable
+  protected abstract Long maxInFlightMessages();
+
+  /** The maximum number of bytes in flight with the {@code native_client} API. */
+  @Nullable
+  protected abstract Long maxInFlightBytes();
+
   @Override
   public PCollection<byte[]> expand(PCollection<DataChangeRecord> records) {
     PCollection<byte[]> encodedRecords = null;
@@ -165,7 +173,15 @@ public abstract class FileFormatFactorySpannerChangeStreamsToPubSub
 
     if (pubsubAPI.equals(NATIVE_CLIENT)) {
       final PublishToPubSubDoFn publishToPubSubDoFn =
-          new PublishToPubSubDoFn(projectId, pubsubTopicName);
+          new PublishToPubSubDoFn(
+              projectId,
+              pubsubTopicName,
+              maxInFlightMessages() != null
+                  ? maxInFlightMessages()
+                  : PublishToPubSubDoFn.DEFAULT_MAX_IN_FLIGHT_MESSAGES,
+              maxInFlightBytes() != null
+                  ? maxInFlightBytes()
+                  : PublishToPubSubDoFn.DEFAULT_MAX_IN_FLIGHT_BYTES);
       encodedRecords.apply(ParDo.of(publishToPubSubDoFn));
     } else if (pubsubAPI.equals(PUBSUBIO)) {
       PCollection<PubsubMessage> outputPubsubMessageCollection =
@@ -216,6 +232,10 @@ public abstract class FileFormatFactorySpannerChangeStreamsToPubSub
 
     public abstract WriteToPubSubBuilder setOutputMessageMetadata(String value);
 
+    public abstract WriteToPubSubBuilder setMaxInFlightMessages(Long value);
+
+    public abstract WriteToPubSubBuilder setMaxInFlightBytes(Long value);
+
     abstract FileFormatFactorySpannerChangeStreamsToPubSub autoBuild();
 
     public FileFormatFactorySpannerChangeStreamsToPubSub build() {
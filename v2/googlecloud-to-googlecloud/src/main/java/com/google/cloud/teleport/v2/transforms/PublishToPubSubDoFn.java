@@ -16,15 +16,26 @@
 package com.google.cloud.teleport.v2.transforms;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
 import com.google.cloud.pubsub.v1.Publisher;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.TopicName;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.beam.sdk.io.gcp.pubsub.PubsubMessage;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Gauge;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,30 +43,83 @@ import org.slf4j.LoggerFactory;
 /**
  * The {@link PublishToPubSubDoFn} class is a {@link DoFn} that takes in {@link PubsubMessage} and
  * publish PubsubMessages to the Pub/Sub topic using the native Pub/Sub client library.
+ *
+ * <p>Messages are published asynchronously, so that the publisher can batch them. The number and
+ * size of the messages in flight are bounded by the flow control settings of the publisher, which
+ * block new publishes once the window is full. All the publishes of a bundle are settled in {@link
+ * FinishBundle}, and the bundle fails if any of them failed.
  */
 public class PublishToPubSubDoFn extends DoFn<byte[], String> {
   /** Logger for class. */
   private static final Logger LOG = LoggerFactory.getLogger(PublishToPubSubDoFn.class);
 
+  static final long DEFAULT_MAX_IN_FLIGHT_MESSAGES = 10_000L;
+  static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 100L << 20;
+
+  // Publish requests are sent once they hold this many messages or bytes, or after the default
+  // delay threshold of the publisher.
+  private static final long BATCH_ELEMENT_COUNT = 1_000L;
+  private static final long BATCH_REQUEST_BYTES = 1L << 20;
+
   private final String projectId;
   private final String topicName;
+  private final long maxInFlightMessages;
+  private final long maxInFlightBytes;
   private transient Publisher publisher;
+  private transient List<ApiFuture<String>> pendingFutures;
+  private transient AtomicLong inFlightMessages;
+  private transient long bundleStartMillis;
+
+  private final Counter publishedMessages =
+      Metrics.counter(PublishToPubSubDoFn.class, "Published messages");
+  private final Counter failedMessages =
+      Metrics.counter(PublishToPubSubDoFn.class, "Failed messages");
+  private final Gauge publishedMessagesPerSecond =
+      Metrics.gauge(PublishToPubSubDoFn.class, "Published messages per second");
+  private final Gauge inFlightDepth =
+      Metrics.gauge(PublishToPubSubDoFn.class, "In-flight messages");
 
   public PublishToPubSubDoFn(String projectId, String topicName) {
+    this(projectId, topicName, DEFAULT_MAX_IN_FLIGHT_MESSAGES, DEFAULT_MAX_IN_FLIGHT_BYTES);
+  }
+
+  public PublishToPubSubDoFn(
+      String projectId, String topicName, long maxInFlightMessages, long maxInFlightBytes) {
     this.projectId = projectId;
     this.topicName = topicName;
+    this.maxInFlightMessages = maxInFlightMessages;
+    this.maxInFlightBytes = maxInFlightBytes;
   }
 
   @Setup
   public void setup() {
     try {
       final TopicName projectTopicName = TopicName.of(projectId, topicName);
-      publisher = Publisher.newBuilder(projectTopicName).build();
+      BatchingSettings batchingSettings =
+          Publisher.Builder.getDefaultBatchingSettings().toBuilder()
+              .setElementCountThreshold(BATCH_ELEMENT_COUNT)
+              .setRequestByteThreshold(BATCH_REQUEST_BYTES)
+              .setFlowControlSettings(
+                  FlowControlSettings.newBuilder()
+                      .setMaxOutstandingElementCount(maxInFlightMessages)
+                      .setMaxOutstandingRequestBytes(maxInFlightBytes)
+                      .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                      .build())
+              .build();
+      publisher = createPublisher(projectTopicName, batchingSettings);
+      inFlightMessages = new AtomicLong();
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
   }
 
+  /** Creates the publisher for the topic, overridden in tests. */
+  @VisibleForTesting
+  Publisher createPublisher(TopicName topicName, BatchingSettings batchingSettings)
+      throws IOException {
+    return Publisher.newBuilder(topicName).setBatchingSettings(batchingSettings).build();
+  }
+
   @Teardown
   public void tearDown() {
     try {
@@ -68,6 +132,12 @@ public class PublishToPubSubDoFn extends DoFn<byte[], String> {
     }
   }
 
+  @StartBundle
+  public void startBundle() {
+    pendingFutures = new ArrayList<>();
+    bundleStartMillis = System.currentTimeMillis();
+  }
+
   @ProcessElement
   public void processElement(ProcessContext context) {
     byte[] payload = context.element();
@@ -75,15 +145,61 @@ public class PublishToPubSubDoFn extends DoFn<byte[], String> {
         com.google.pubsub.v1.PubsubMessage.newBuilder()
             .setData(ByteString.copyFrom(payload))
             .build();
+    // Blocks when the flow control window of the publisher is full.
     ApiFuture<String> messageIdFuture = publisher.publish(v1PubsubMessage);
-    List<ApiFuture<String>> futures = new ArrayList();
-    futures.add(messageIdFuture);
-    try {
-      ApiFutures.allAsList(futures).get();
-    } catch (ExecutionException e) {
-      throw new RuntimeException("Error publishing a test message", e);
-    } catch (InterruptedException e) {
-      throw new RuntimeException("Interrupted while waiting for messages to publish", e);
+    inFlightMessages.incrementAndGet();
+    ApiFutures.addCallback(
+        messageIdFuture,
+        new ApiFutureCallback<String>() {
+          @Override
+          public void onFailure(Throwable t) {
+            inFlightMessages.decrementAndGet();
+          }
+
+          @Override
+          public void onSuccess(String messageId) {
+            inFlightMessages.decrementAndGet();
+          }
+        },
+        MoreExecutors.directExecutor());
+    pendingFutures.add(messageIdFuture);
+    inFlightDepth.set(inFlightMessages.get());
+  }
+
+  @FinishBundle
+  public void finishBundle() {
+    publisher.publishAllOutstanding();
+
+    long published = 0;
+    long failed = 0;
+    Exception firstFailure = null;
+    for (ApiFuture<String> future : pendingFutures) {
+      try {
+        future.get();
+        published++;
+      } catch (ExecutionException e) {
+        failed++;
+        if (firstFailure == null) {
+          firstFailure = e;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for messages to publish", e);
+      }
+    }
+    pendingFutures = null;
+
+    publishedMessages.inc(published);
+    failedMessages.inc(failed);
+    inFlightDepth.set(inFlightMessages.get());
+    long elapsedMillis = System.currentTimeMillis() - bundleStartMillis;
+    if (elapsedMillis > 0) {
+      publishedMessagesPerSecond.set(published * 1000 / elapsedMillis);
+    }
+
+    if (firstFailure != null) {
+      LOG.error("Failed to publish {} of {} messages", failed, failed + published);
+      throw new RuntimeException("Error publishing messages", firstFailure);
     }
   }
 }
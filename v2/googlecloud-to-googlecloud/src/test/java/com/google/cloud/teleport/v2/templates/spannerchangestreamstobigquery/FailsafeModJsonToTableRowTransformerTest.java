@@ -87,7 +87,10 @@ import static com.google.cloud.teleport.v2.templates.spannerchangestreamstobigqu
 import static com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.TestUtils.TIMESTAMP_VAL;
 import static com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.TestUtils.createSpannerDatabase;
 import static com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.TestUtils.dropSpannerDatabase;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -95,15 +98,22 @@ import com.google.api.services.bigquery.model.TableRow;
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
 import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
 import com.google.cloud.spanner.Value;
 import com.google.cloud.teleport.v2.spanner.IntegrationTest;
 import com.google.cloud.teleport.v2.spanner.SpannerServerResource;
 import com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.FailsafeModJsonToTableRowTransformer.FailsafeModJsonToTableRow;
+import com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.FailsafeModJsonToTableRowTransformer.FailsafeModJsonToTableRow.FailsafeModJsonToTableRowFn;
 import com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.FailsafeModJsonToTableRowTransformer.FailsafeModJsonToTableRowOptions;
 import com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.model.Mod;
 import com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.model.ModColumnType;
+import com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.model.TrackedSpannerColumn;
 import com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.schemautils.BigQueryUtils;
+import com.google.cloud.teleport.v2.templates.spannerchangestreamstobigquery.schemautils.SpannerChangeStreamsUtils;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -111,17 +121,28 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.PipelineResult;
 import org.apache.beam.sdk.coders.SerializableCoder;
 import org.apache.beam.sdk.io.gcp.spanner.changestreams.model.ModType;
 import org.apache.beam.sdk.io.gcp.spanner.changestreams.model.TypeCode;
 import org.apache.beam.sdk.io.gcp.spanner.changestreams.model.ValueCaptureType;
+import org.apache.beam.sdk.metrics.MetricNameFilter;
+import org.apache.beam.sdk.metrics.MetricQueryResults;
+import org.apache.beam.sdk.metrics.MetricResult;
+import org.apache.beam.sdk.metrics.MetricsFilter;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestStream;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.Window;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Duration;
 import org.joda.time.Instant;
+import org.json.JSONObject;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
@@ -424,6 +445,278 @@ public final class FailsafeModJsonToTableRowTransformerTest implements Serializa
     p.run().waitUntilFinish();
   }
 
+  // Test the case where the UPDATE mods of a commit timestamp fill a snapshot read batch, so the
+  // batch is read as soon as it is full and the remaining mods are read at the end of the bundle.
+  @Test
+  public void testFailsafeModJsonToTableRowSnapshotReadBatchSize() throws Exception {
+    Mod mod = getSnapshotReadMod(getKeysJson());
+    TableRow expectedTableRow =
+        getExpectedTableRow(
+            mod, updateCommitTimestamp, ModType.UPDATE, ValueCaptureType.OLD_AND_NEW_VALUES, false);
+
+    Pipeline p = Pipeline.create();
+    failsafeModJsonToTableRow = getFailsafeModJsonToTableRow(spannerDatabaseName, false, 2);
+    PCollectionTuple out =
+        toFailsafeElements(
+                p.apply(
+                    TestStream.create(SerializableCoder.of(String.class))
+                        .addElements(mod.toJson(), mod.toJson(), mod.toJson())
+                        .advanceWatermarkToInfinity()))
+            .apply("Mod JSON To TableRow", failsafeModJsonToTableRow);
+    PAssert.that(toStrings(out.get(failsafeModJsonToTableRow.transformOut)))
+        .containsInAnyOrder(
+            ImmutableList.of(
+                expectedTableRow.toString(),
+                expectedTableRow.toString(),
+                expectedTableRow.toString()));
+    PAssert.that(out.get(failsafeModJsonToTableRow.transformDeadLetterOut)).empty();
+    PipelineResult result = p.run();
+    result.waitUntilFinish();
+
+    // One read for the full batch of two mods, and one for the last mod at the end of the bundle.
+    assertEquals(2, getSnapshotReads(result));
+  }
+
+  // Test the case where the UPDATE mods have waited for the maximum snapshot read delay when they
+  // are processed, so each mod is read right away instead of at the end of the bundle.
+  @Test
+  public void testFailsafeModJsonToTableRowSnapshotReadMaxDelay() throws Exception {
+    Mod mod = getSnapshotReadMod(getKeysJson());
+    TableRow expectedTableRow =
+        getExpectedTableRow(
+            mod, updateCommitTimestamp, ModType.UPDATE, ValueCaptureType.OLD_AND_NEW_VALUES, false);
+
+    Pipeline p = Pipeline.create();
+    failsafeModJsonToTableRow = getFailsafeModJsonToTableRow(spannerDatabaseName, false, 100, 0L);
+    PCollectionTuple out =
+        toFailsafeElements(
+                p.apply(
+                    TestStream.create(SerializableCoder.of(String.class))
+                        .addElements(mod.toJson(), mod.toJson(), mod.toJson())
+                        .advanceWatermarkToInfinity()))
+            .apply("Mod JSON To TableRow", failsafeModJsonToTableRow);
+    PAssert.that(toStrings(out.get(failsafeModJsonToTableRow.transformOut)))
+        .containsInAnyOrder(
+            ImmutableList.of(
+                expectedTableRow.toString(),
+                expectedTableRow.toString(),
+                expectedTableRow.toString()));
+    PAssert.that(out.get(failsafeModJsonToTableRow.transformDeadLetterOut)).empty();
+    PipelineResult result = p.run();
+    result.waitUntilFinish();
+
+    assertEquals(3, getSnapshotReads(result));
+  }
+
+  private static long getSnapshotReads(PipelineResult result) {
+    MetricQueryResults metrics =
+        result
+            .metrics()
+            .queryMetrics(
+                MetricsFilter.builder()
+                    .addNameFilter(
+                        MetricNameFilter.named(
+                            FailsafeModJsonToTableRowFn.class, "Spanner snapshot reads"))
+                    .build());
+    long snapshotReads = 0;
+    for (MetricResult<Long> counter : metrics.getCounters()) {
+      snapshotReads += counter.getAttempted();
+    }
+    return snapshotReads;
+  }
+
+  // Test that the INT64, STRING, TIMESTAMP, NUMERIC and BYTES key values parsed from the keys JSON
+  // of a mod are equal to those read from Spanner, so that the rows of a snapshot read are matched
+  // back to their mods.
+  @Test
+  public void testSnapshotReadKeyValuesRoundTrip() {
+    List<TrackedSpannerColumn> pkColumns =
+        ImmutableList.of(
+            TrackedSpannerColumn.create(INT64_PK_COL, Type.int64(), 1, 1),
+            TrackedSpannerColumn.create(STRING_PK_COL, Type.string(), 2, 2),
+            TrackedSpannerColumn.create(TIMESTAMP_PK_COL, Type.timestamp(), 3, 3),
+            TrackedSpannerColumn.create(NUMERIC_PK_COL, Type.numeric(), 4, 4),
+            TrackedSpannerColumn.create(BYTES_PK_COL, Type.bytes(), 5, 5));
+    // Change stream records encode INT64 and NUMERIC values as JSON strings, and NUMERIC values
+    // may carry trailing zeros which Spanner doesn't return.
+    JSONObject keysJsonObject =
+        new JSONObject()
+            .put(INT64_PK_COL, String.valueOf(INT64_RAW_VAL))
+            .put(STRING_PK_COL, STRING_RAW_VAL)
+            .put(TIMESTAMP_PK_COL, TIMESTAMP_RAW_VAL.toString())
+            .put(NUMERIC_PK_COL, "10.000")
+            .put(BYTES_PK_COL, BYTES_RAW_VAL.toBase64());
+    ResultSet resultSet =
+        ResultSets.forRows(
+            Type.struct(
+                StructField.of(INT64_PK_COL, Type.int64()),
+                StructField.of(STRING_PK_COL, Type.string()),
+                StructField.of(TIMESTAMP_PK_COL, Type.timestamp()),
+                StructField.of(NUMERIC_PK_COL, Type.numeric()),
+                StructField.of(BYTES_PK_COL, Type.bytes())),
+            ImmutableList.of(
+                Struct.newBuilder()
+                    .set(INT64_PK_COL)
+                    .to(INT64_VAL)
+                    .set(STRING_PK_COL)
+                    .to(STRING_VAL)
+                    .set(TIMESTAMP_PK_COL)
+                    .to(TIMESTAMP_VAL)
+                    .set(NUMERIC_PK_COL)
+                    .to(NUMERIC_VAL)
+                    .set(BYTES_PK_COL)
+                    .to(BYTES_VAL)
+                    .build()));
+    assertTrue(resultSet.next());
+
+    List<Object> modKeyValues = new ArrayList<>();
+    List<Object> readKeyValues = new ArrayList<>();
+    for (TrackedSpannerColumn pkColumn : pkColumns) {
+      Object modKeyValue = SpannerChangeStreamsUtils.getSpannerKeyValue(pkColumn, keysJsonObject);
+      Object readKeyValue = SpannerChangeStreamsUtils.getSpannerKeyValue(pkColumn, resultSet);
+      assertEquals(pkColumn.getName(), readKeyValue, modKeyValue);
+      assertEquals(pkColumn.getName(), readKeyValue.hashCode(), modKeyValue.hashCode());
+      modKeyValues.add(modKeyValue);
+      readKeyValues.add(readKeyValue);
+    }
+    assertEquals(readKeyValues, modKeyValues);
+  }
+
+  // Test the case where the snapshot read of a batch doesn't return the row of one of its mods,
+  // only that mod goes to transformDeadLetterOut.
+  @Test
+  public void testFailsafeModJsonToTableRowSnapshotReadMissingKey() throws Exception {
+    Mod mod = getSnapshotReadMod(getKeysJson());
+    ObjectNode missingKeysJsonNode = (ObjectNode) new ObjectMapper().readTree(getKeysJson());
+    missingKeysJsonNode.put(STRING_PK_COL, "missing");
+    Mod missingMod = getSnapshotReadMod(missingKeysJsonNode.toString());
+    TableRow expectedTableRow =
+        getExpectedTableRow(
+            mod, updateCommitTimestamp, ModType.UPDATE, ValueCaptureType.OLD_AND_NEW_VALUES, false);
+
+    Pipeline p = Pipeline.create();
+    failsafeModJsonToTableRow = getFailsafeModJsonToTableRow(spannerDatabaseName, false);
+    PCollectionTuple out =
+        toFailsafeElements(
+                p.apply(
+                    TestStream.create(SerializableCoder.of(String.class))
+                        .addElements(mod.toJson(), missingMod.toJson())
+                        .advanceWatermarkToInfinity()))
+            .apply("Mod JSON To TableRow", failsafeModJsonToTableRow);
+    PAssert.that(toStrings(out.get(failsafeModJsonToTableRow.transformOut)))
+        .containsInAnyOrder(ImmutableList.of(expectedTableRow.toString()));
+    PAssert.that(
+            out.get(failsafeModJsonToTableRow.transformDeadLetterOut)
+                .apply(
+                    ParDo.of(
+                        new DoFn<FailsafeElement<String, String>, String>() {
+                          @ProcessElement
+                          public void process(
+                              @Element FailsafeElement<String, String> input,
+                              OutputReceiver<String> receiver) {
+                            receiver.output(
+                                String.format(
+                                    "payload=%s, errorMessage=%s",
+                                    input.getPayload(), input.getErrorMessage()));
+                          }
+                        })))
+        .containsInAnyOrder(
+            ImmutableList.of(
+                String.format(
+                    "payload=%s, errorMessage=Received zero row from the result set of Spanner"
+                        + " snapshot row",
+                    missingMod.toJson())));
+    p.run().waitUntilFinish();
+  }
+
+  // Test that the rows of the snapshot reads, which are output at the end of the bundle, keep the
+  // timestamp and the window of their mods.
+  @Test
+  public void testFailsafeModJsonToTableRowSnapshotReadKeepsTimestampAndWindow() throws Exception {
+    Mod mod = getSnapshotReadMod(getKeysJson());
+    Instant firstTimestamp = new Instant(1000L);
+    Instant secondTimestamp = new Instant(70000L);
+
+    Pipeline p = Pipeline.create();
+    failsafeModJsonToTableRow = getFailsafeModJsonToTableRow(spannerDatabaseName, false);
+    PCollectionTuple out =
+        toFailsafeElements(
+                p.apply(
+                        TestStream.create(SerializableCoder.of(String.class))
+                            .addElements(
+                                TimestampedValue.of(mod.toJson(), firstTimestamp),
+                                TimestampedValue.of(mod.toJson(), secondTimestamp))
+                            .advanceWatermarkToInfinity())
+                    .apply(Window.into(FixedWindows.of(Duration.standardMinutes(1)))))
+            .apply("Mod JSON To TableRow", failsafeModJsonToTableRow);
+    PCollection<String> timestamps =
+        out.get(failsafeModJsonToTableRow.transformOut)
+            .apply(
+                ParDo.of(
+                    new DoFn<TableRow, String>() {
+                      @ProcessElement
+                      public void process(
+                          @Timestamp Instant timestamp, OutputReceiver<String> receiver) {
+                        receiver.output(String.valueOf(timestamp.getMillis()));
+                      }
+                    }));
+    PAssert.that(timestamps)
+        .inWindow(new IntervalWindow(new Instant(0L), Duration.standardMinutes(1)))
+        .containsInAnyOrder(String.valueOf(firstTimestamp.getMillis()));
+    PAssert.that(timestamps)
+        .inWindow(new IntervalWindow(new Instant(60000L), Duration.standardMinutes(1)))
+        .containsInAnyOrder(String.valueOf(secondTimestamp.getMillis()));
+    PAssert.that(out.get(failsafeModJsonToTableRow.transformDeadLetterOut)).empty();
+    p.run().waitUntilFinish();
+  }
+
+  private Mod getSnapshotReadMod(String keysJson) {
+    // UPDATE mods with OLD_AND_NEW_VALUES only capture the changed columns, so the full row is read
+    // from Spanner.
+    return new Mod(
+        keysJson,
+        getNewValuesJson(updateCommitTimestamp),
+        updateCommitTimestamp,
+        "1",
+        true,
+        "00000001",
+        TEST_SPANNER_TABLE,
+        getRowType(false),
+        ModType.UPDATE,
+        ValueCaptureType.OLD_AND_NEW_VALUES,
+        1L,
+        1L);
+  }
+
+  private static PCollection<FailsafeElement<String, String>> toFailsafeElements(
+      PCollection<String> modJsonStrings) {
+    return modJsonStrings
+        .apply(
+            "To FailsafeElement",
+            ParDo.of(
+                new DoFn<String, FailsafeElement<String, String>>() {
+                  @ProcessElement
+                  public void process(
+                      @Element String input,
+                      OutputReceiver<FailsafeElement<String, String>> receiver) {
+                    receiver.output(FailsafeElement.of(input, input));
+                  }
+                }))
+        .setCoder(SpannerChangeStreamsToBigQuery.FAILSAFE_ELEMENT_CODER);
+  }
+
+  private static PCollection<String> toStrings(PCollection<TableRow> tableRows) {
+    return tableRows.apply(
+        "TableRow To String",
+        ParDo.of(
+            new DoFn<TableRow, String>() {
+              @ProcessElement
+              public void process(@Element TableRow input, OutputReceiver<String> receiver) {
+                receiver.output(input.toString());
+              }
+            }));
+  }
+
   private void fillNullNonPkColsForDelete(TableRow expectedTableRow) {
     expectedTableRow.set(BOOLEAN_ARRAY_COL, null);
     expectedTableRow.set("_type_" + BOOLEAN_ARRAY_COL, "ARRAY<BOOL>");
@@ -492,6 +785,54 @@ public final class FailsafeModJsonToTableRowTransformerTest implements Serializa
             1L,
             1L);
 
+    TableRow expectedTableRow =
+        getExpectedTableRow(mod, commitTimestamp, modType, valueCaptureType, useStorageWriteApi);
+
+    TestStream<String> testSream =
+        TestStream.create(SerializableCoder.of(String.class))
+            .addElements(mod.toJson())
+            .advanceWatermarkTo(Instant.now())
+            .advanceWatermarkToInfinity();
+    Pipeline p = Pipeline.create();
+    PCollection<FailsafeElement<String, String>> input =
+        p.apply(testSream)
+            .apply(
+                ParDo.of(
+                    new DoFn<String, FailsafeElement<String, String>>() {
+                      @ProcessElement
+                      public void process(
+                          @Element String input,
+                          OutputReceiver<FailsafeElement<String, String>> receiver) {
+                        receiver.output(FailsafeElement.of(input, input));
+                      }
+                    }))
+            .setCoder(SpannerChangeStreamsToBigQuery.FAILSAFE_ELEMENT_CODER);
+    failsafeModJsonToTableRow =
+        getFailsafeModJsonToTableRow(spannerDatabaseName, useStorageWriteApi);
+    PCollectionTuple out = input.apply("Mod JSON To TableRow", failsafeModJsonToTableRow);
+    PAssert.that(
+            out.get(failsafeModJsonToTableRow.transformOut)
+                .apply(
+                    ParDo.of(
+                        new DoFn<TableRow, String>() {
+                          @ProcessElement
+                          public void process(
+                              @Element TableRow input, OutputReceiver<String> receiver) {
+                            receiver.output(input.toString());
+                          }
+                        })))
+        .containsInAnyOrder(ImmutableList.of(expectedTableRow.toString()));
+    PAssert.that(out.get(failsafeModJsonToTableRow.transformDeadLetterOut)).empty();
+    p.run().waitUntilFinish();
+  }
+
+  private TableRow getExpectedTableRow(
+      Mod mod,
+      Timestamp commitTimestamp,
+      ModType modType,
+      ValueCaptureType valueCaptureType,
+      Boolean useStorageWriteApi)
+      throws Exception {
     TableRow expectedTableRow = new TableRow();
     BigQueryUtils.setMetadataFiledsOfTableRow(
         TEST_SPANNER_TABLE,
@@ -575,47 +916,26 @@ public final class FailsafeModJsonToTableRowTransformerTest implements Serializa
     } else {
       fillNullNonPkColsForDelete(expectedTableRow);
     }
-
-    TestStream<String> testSream =
-        TestStream.create(SerializableCoder.of(String.class))
-            .addElements(mod.toJson())
-            .advanceWatermarkTo(Instant.now())
-            .advanceWatermarkToInfinity();
-    Pipeline p = Pipeline.create();
-    PCollection<FailsafeElement<String, String>> input =
-        p.apply(testSream)
-            .apply(
-                ParDo.of(
-                    new DoFn<String, FailsafeElement<String, String>>() {
-                      @ProcessElement
-                      public void process(
-                          @Element String input,
-                          OutputReceiver<FailsafeElement<String, String>> receiver) {
-                        receiver.output(FailsafeElement.of(input, input));
-                      }
-                    }))
-            .setCoder(SpannerChangeStreamsToBigQuery.FAILSAFE_ELEMENT_CODER);
-    failsafeModJsonToTableRow =
-        getFailsafeModJsonToTableRow(spannerDatabaseName, useStorageWriteApi);
-    PCollectionTuple out = input.apply("Mod JSON To TableRow", failsafeModJsonToTableRow);
-    PAssert.that(
-            out.get(failsafeModJsonToTableRow.transformOut)
-                .apply(
-                    ParDo.of(
-                        new DoFn<TableRow, String>() {
-                          @ProcessElement
-                          public void process(
-                              @Element TableRow input, OutputReceiver<String> receiver) {
-                            receiver.output(input.toString());
-                          }
-                        })))
-        .containsInAnyOrder(ImmutableList.of(expectedTableRow.toString()));
-    PAssert.that(out.get(failsafeModJsonToTableRow.transformDeadLetterOut)).empty();
-    p.run().waitUntilFinish();
+    return expectedTableRow;
   }
 
   private static FailsafeModJsonToTableRow getFailsafeModJsonToTableRow(
       String spannerDatabaseName, Boolean useStorageWriteApi) {
+    return getFailsafeModJsonToTableRow(spannerDatabaseName, useStorageWriteApi, 100);
+  }
+
+  private static FailsafeModJsonToTableRow getFailsafeModJsonToTableRow(
+      String spannerDatabaseName, Boolean useStorageWriteApi, int snapshotReadBatchSize) {
+    // Only the batch size and the end of the bundle trigger the snapshot reads of a test.
+    return getFailsafeModJsonToTableRow(
+        spannerDatabaseName, useStorageWriteApi, snapshotReadBatchSize, Long.MAX_VALUE);
+  }
+
+  private static FailsafeModJsonToTableRow getFailsafeModJsonToTableRow(
+      String spannerDatabaseName,
+      Boolean useStorageWriteApi,
+      int snapshotReadBatchSize,
+      long snapshotReadMaxDelayMillis) {
     FailsafeModJsonToTableRowOptions failsafeModJsonToTableRowOptions =
         FailsafeModJsonToTableRowTransformer.FailsafeModJsonToTableRowOptions.builder()
             .setSpannerConfig(SPANNER_SERVER.getSpannerConfig(spannerDatabaseName))
@@ -623,6 +943,8 @@ public final class FailsafeModJsonToTableRowTransformerTest implements Serializa
             .setCoder(SpannerChangeStreamsToBigQuery.FAILSAFE_ELEMENT_CODER)
             .setIgnoreFields(ImmutableSet.of())
             .setUseStorageWriteApi(useStorageWriteApi)
+            .setSnapshotReadBatchSize(snapshotReadBatchSize)
+            .setSnapshotReadMaxDelayMillis(snapshotReadMaxDelayMillis)
             .build();
     return new FailsafeModJsonToTableRowTransformer.FailsafeModJsonToTableRow(
         failsafeModJsonToTableRowOptions);
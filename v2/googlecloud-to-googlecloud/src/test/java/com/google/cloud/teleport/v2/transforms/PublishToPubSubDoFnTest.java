@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.transforms;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.TopicName;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Test cases for the {@link PublishToPubSubDoFn} class. */
+@RunWith(JUnit4.class)
+public class PublishToPubSubDoFnTest {
+
+  private Publisher publisher;
+  private List<SettableApiFuture<String>> futures;
+  private BatchingSettings batchingSettings;
+  private PublishToPubSubDoFn publishToPubSubDoFn;
+
+  @Before
+  public void setUp() {
+    publisher = mock(Publisher.class);
+    futures = new ArrayList<>();
+    when(publisher.publish(any(PubsubMessage.class)))
+        .thenAnswer(
+            invocation -> {
+              SettableApiFuture<String> future = SettableApiFuture.create();
+              futures.add(future);
+              return future;
+            });
+    publishToPubSubDoFn =
+        new PublishToPubSubDoFn("project", "topic", 5L, 1024L) {
+          @Override
+          Publisher createPublisher(TopicName topicName, BatchingSettings settings) {
+            batchingSettings = settings;
+            return publisher;
+          }
+        };
+    publishToPubSubDoFn.setup();
+  }
+
+  @Test
+  public void testSetupBoundsInFlightMessagesAndBytes() {
+    assertThat(batchingSettings.getFlowControlSettings().getMaxOutstandingElementCount())
+        .isEqualTo(5L);
+    assertThat(batchingSettings.getFlowControlSettings().getMaxOutstandingRequestBytes())
+        .isEqualTo(1024L);
+  }
+
+  @Test
+  public void testFinishBundleSettlesPublishesAsynchronously() {
+    doAnswer(
+            invocation -> {
+              for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).set("message-" + i);
+              }
+              return null;
+            })
+        .when(publisher)
+        .publishAllOutstanding();
+
+    publishToPubSubDoFn.startBundle();
+    publishToPubSubDoFn.processElement(processContext("a"));
+    publishToPubSubDoFn.processElement(processContext("b"));
+    publishToPubSubDoFn.processElement(processContext("c"));
+
+    // Publishing does not wait for the messages to be acknowledged.
+    assertThat(futures).hasSize(3);
+    for (SettableApiFuture<String> future : futures) {
+      assertThat(future.isDone()).isFalse();
+    }
+
+    publishToPubSubDoFn.finishBundle();
+
+    verify(publisher, times(3)).publish(any(PubsubMessage.class));
+    verify(publisher).publishAllOutstanding();
+  }
+
+  @Test
+  public void testFinishBundleFailsWhenOnePublishFails() {
+    RuntimeException failure = new RuntimeException("publish failed");
+    doAnswer(
+            invocation -> {
+              futures.get(0).set("message-0");
+              futures.get(1).setException(failure);
+              futures.get(2).set("message-2");
+              return null;
+            })
+        .when(publisher)
+        .publishAllOutstanding();
+
+    publishToPubSubDoFn.startBundle();
+    publishToPubSubDoFn.processElement(processContext("a"));
+    publishToPubSubDoFn.processElement(processContext("b"));
+    publishToPubSubDoFn.processElement(processContext("c"));
+
+    RuntimeException thrown =
+        assertThrows(RuntimeException.class, () -> publishToPubSubDoFn.finishBundle());
+    assertThat(thrown).hasMessageThat().isEqualTo("Error publishing messages");
+    assertThat(thrown).hasCauseThat().hasCauseThat().isSameInstanceAs(failure);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static DoFn<byte[], String>.ProcessContext processContext(String payload) {
+    DoFn<byte[], String>.ProcessContext context = mock(DoFn.ProcessContext.class);
+    when(context.element()).thenReturn(payload.getBytes(StandardCharsets.UTF_8));
+    return context;
+  }
+}
@@ -16,7 +16,7 @@
 package com.google.cloud.teleport.v2.kafka.transforms;
 
 import com.google.cloud.teleport.v2.coders.FailsafeElementCoder;
-import com.google.cloud.teleport.v2.coders.GenericRecordCoder;
+import com.google.cloud.teleport.v2.coders.FingerprintGenericRecordCoder;
 import com.google.cloud.teleport.v2.utils.SchemaUtils;
 import com.google.cloud.teleport.v2.values.FailsafeElement;
 import org.apache.avro.Schema;
@@ -101,7 +101,7 @@ public class AvroTransform
             .setCoder(
                 FailsafeElementCoder.of(
                     KafkaRecordCoder.of(NullableCoder.of(ByteArrayCoder.of()), ByteArrayCoder.of()),
-                    GenericRecordCoder.of()));
+                    FingerprintGenericRecordCoder.of(schema)));
 
     // Get the failed elements and add them to the errorHandler collection.
     PCollection<BadRecord> failedGenericRecords =
@@ -647,6 +647,7 @@ public class KafkaToBigQuery {
                       .setFunctionName(options.getJavascriptTextTransformFunctionName())
                       .setReloadIntervalMinutes(
                           options.getJavascriptTextTransformReloadIntervalMinutes())
+                      .setBatchSize(options.getJavascriptTextTransformBatchSize())
                       .setSuccessTag(UDF_OUT)
                       .setFailureTag(UDF_DEADLETTER_OUT)
                       .build());
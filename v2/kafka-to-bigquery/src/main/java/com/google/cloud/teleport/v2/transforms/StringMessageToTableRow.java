@@ -64,6 +64,8 @@ public abstract class StringMessageToTableRow
 
   public abstract @Nullable Integer reloadIntervalMinutes();
 
+  public abstract @Nullable Integer batchSize();
+
   public abstract TupleTag<TableRow> successTag();
 
   public abstract TupleTag<FailsafeElement<KafkaRecord<String, String>, String>> failureTag();
@@ -80,6 +82,8 @@ public abstract class StringMessageToTableRow
 
     public abstract Builder setReloadIntervalMinutes(@Nullable Integer value);
 
+    public abstract Builder setBatchSize(@Nullable Integer value);
+
     public abstract Builder setSuccessTag(TupleTag<TableRow> successTag);
 
     public abstract Builder setFailureTag(
@@ -129,6 +133,7 @@ public abstract class StringMessageToTableRow
                   .setFileSystemPath(fileSystemPath())
                   .setFunctionName(functionName())
                   .setReloadIntervalMinutes(reloadIntervalMinutes())
+                  .setBatchSize(batchSize())
                   .setSuccessTag(UDF_OUT)
                   .setFailureTag(UDF_DEADLETTER_OUT)
                   .build());
@@ -103,6 +103,7 @@ public class FormatTransform {
                   .setFunctionName(options.getJavascriptTextTransformFunctionName())
                   .setReloadIntervalMinutes(
                       options.getJavascriptTextTransformReloadIntervalMinutes())
+                  .setBatchSize(options.getJavascriptTextTransformBatchSize())
                   .setSuccessTag(KafkaPubsubConstants.UDF_OUT)
                   .setFailureTag(KafkaPubsubConstants.UDF_DEADLETTER_OUT)
                   .build());
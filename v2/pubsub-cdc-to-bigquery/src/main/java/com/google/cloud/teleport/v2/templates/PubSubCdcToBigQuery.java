@@ -303,6 +303,7 @@ public class PubSubCdcToBigQuery {
             options.getJavascriptTextTransformGcsPath(),
             options.getJavascriptTextTransformFunctionName(),
             options.getJavascriptTextTransformReloadIntervalMinutes(),
+            options.getJavascriptTextTransformBatchSize(),
             options.getPythonTextTransformGcsPath(),
             options.getPythonTextTransformFunctionName(),
             options.getRuntimeRetries(),
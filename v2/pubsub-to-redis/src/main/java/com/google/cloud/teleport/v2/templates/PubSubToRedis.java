@@ -25,7 +25,7 @@ import com.google.cloud.teleport.metadata.TemplateCategory;
 import com.google.cloud.teleport.metadata.TemplateParameter;
 import com.google.cloud.teleport.metadata.TemplateParameter.TemplateEnumOption;
 import com.google.cloud.teleport.v2.common.UncaughtExceptionLogger;
-import com.google.cloud.teleport.v2.templates.io.RedisHashIO;
+import com.google.cloud.teleport.v2.templates.io.RedisSinkIO;
 import com.google.cloud.teleport.v2.templates.transforms.MessageTransformation;
 import com.google.cloud.teleport.v2.transforms.JavascriptTextTransformer;
 import java.util.Map;
@@ -33,7 +33,6 @@ import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.PipelineResult;
 import org.apache.beam.sdk.io.gcp.pubsub.PubsubMessage;
 import org.apache.beam.sdk.io.redis.RedisConnectionConfiguration;
-import org.apache.beam.sdk.io.redis.RedisIO;
 import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
@@ -46,6 +45,7 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TypeDescriptors;
 import org.checkerframework.checker.initialization.qual.Initialized;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.nullness.qual.UnknownKeyFor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -231,6 +231,17 @@ public class PubSubToRedis {
     Long getTtl();
 
     void setTtl(Long ttl);
+
+    @TemplateParameter.Boolean(
+        order = 9,
+        optional = true,
+        description = "Redis Cluster enabled",
+        helpText =
+            "Whether the Redis database is a Redis Cluster. If enabled, the Redis host and port are used to discover the cluster nodes, and writes are sent to the node serving their key. Defaults to `false`.")
+    @Default.Boolean(false)
+    Boolean getRedisClusterEnabled();
+
+    void setRedisClusterEnabled(Boolean redisClusterEnabled);
   }
 
   /** Allowed list of sink types. */
@@ -276,11 +287,21 @@ public class PubSubToRedis {
             .withTimeout(options.getConnectionTimeout())
             .withSSL(options.getSslEnabled());
 
+    RedisSinkIO.ClusterConfiguration redisClusterConfiguration =
+        Boolean.TRUE.equals(options.getRedisClusterEnabled())
+            ? RedisSinkIO.ClusterConfiguration.create(
+                options.getRedisHost(),
+                options.getRedisPort(),
+                options.getRedisPassword(),
+                options.getConnectionTimeout(),
+                Boolean.TRUE.equals(options.getSslEnabled().get()))
+            : null;
+
     /*
      * Steps: 1) Read PubSubMessage with attributes and messageId from input PubSub subscription.
      *        2) Extract PubSubMessage message to PCollection<String>.
      *        3) Transform PCollection<String> to PCollection<KV<String, String>> so it can be consumed by RedisIO
-     *        4) Write to Redis using SET
+     *        4) Write to Redis using SET, HSET or XADD depending on the sink type
      *
      */
 
@@ -307,9 +328,8 @@ public class PubSubToRedis {
 
       kvStringCollection.apply(
           "Write to " + STRING_SINK.name(),
-          RedisIO.write()
-              .withMethod(RedisIO.Write.Method.SET)
-              .withConnectionConfiguration(redisConnectionConfiguration));
+          withConnection(
+              RedisSinkIO.writeStrings(), redisConnectionConfiguration, redisClusterConfiguration));
     }
     if (options.getRedisSinkType().equals(HASH_SINK)) {
       PCollection<KV<String, KV<String, String>>> pCollectionHash =
@@ -318,8 +338,10 @@ public class PubSubToRedis {
 
       pCollectionHash.apply(
           "Write to " + HASH_SINK.name(),
-          RedisHashIO.write()
-              .withConnectionConfiguration(redisConnectionConfiguration)
+          withConnection(
+                  RedisSinkIO.writeHashes(),
+                  redisConnectionConfiguration,
+                  redisClusterConfiguration)
               .withTtl(options.getTtl()));
     }
     if (options.getRedisSinkType().equals(LOGGING_SINK)) {
@@ -329,8 +351,10 @@ public class PubSubToRedis {
 
       pCollectionHash.apply(
           "Write to " + LOGGING_SINK.name(),
-          RedisHashIO.write()
-              .withConnectionConfiguration(redisConnectionConfiguration)
+          withConnection(
+                  RedisSinkIO.writeHashes(),
+                  redisConnectionConfiguration,
+                  redisClusterConfiguration)
               .withTtl(options.getTtl()));
     }
     if (options.getRedisSinkType().equals(STREAMS_SINK)) {
@@ -340,9 +364,19 @@ public class PubSubToRedis {
 
       pCollectionStreams.apply(
           "Write to " + STREAMS_SINK.name(),
-          RedisIO.writeStreams().withConnectionConfiguration(redisConnectionConfiguration));
+          withConnection(
+              RedisSinkIO.writeStreams(), redisConnectionConfiguration, redisClusterConfiguration));
     }
     // Execute the pipeline and return the result.
     return pipeline.run();
   }
+
+  private static <T> RedisSinkIO.Write<T> withConnection(
+      RedisSinkIO.Write<T> write,
+      RedisConnectionConfiguration connectionConfiguration,
+      RedisSinkIO.@Nullable ClusterConfiguration clusterConfiguration) {
+    return clusterConfiguration != null
+        ? write.withClusterConfiguration(clusterConfiguration)
+        : write.withConnectionConfiguration(connectionConfiguration);
+  }
 }
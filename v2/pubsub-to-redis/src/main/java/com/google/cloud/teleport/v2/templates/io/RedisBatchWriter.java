@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.templates.io;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.apache.beam.sdk.io.redis.RedisConnectionConfiguration;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.CommandArguments;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisClusterOperationException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.providers.ClusterConnectionProvider;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+/**
+ * Buffers the Redis writes of a bundle and sends them as plain pipelines, without MULTI/EXEC
+ * transactions.
+ *
+ * <p>Writes to the same key are coalesced while buffered: the fields of all {@code HSET}s of a hash
+ * are merged into a single {@code HSET}, only the last {@code SET} of a string is sent, and only
+ * the last expiration of a key is applied. Stream entries are appended in order.
+ *
+ * <p>Against a Redis Cluster, the commands are grouped by the node serving their hash slot and
+ * every node receives a single pipeline. Commands redirected with {@code MOVED} because the slots
+ * were resharded are sent again once the slot map has been refreshed. Commands redirected with
+ * {@code ASK} because their slot is being migrated are sent, preceded by {@code ASKING}, to the
+ * node named in the redirection, without refreshing the slot map.
+ *
+ * <p>Commands rejected by Redis, e.g. with {@code WRONGTYPE}, are logged, counted in the {@code
+ * rejectedWrites} metric and skipped.
+ */
+abstract class RedisBatchWriter implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RedisBatchWriter.class);
+
+  private static final Counter REJECTED_WRITES =
+      Metrics.counter(RedisBatchWriter.class, "rejectedWrites");
+
+  private final Map<String, String> strings = new LinkedHashMap<>();
+  private final Map<String, Map<String, String>> hashes = new LinkedHashMap<>();
+  private final Map<String, List<Map<String, String>>> streamEntries = new LinkedHashMap<>();
+  private final Map<String, Long> expirations = new LinkedHashMap<>();
+  private int bufferedWrites;
+
+  /** Returns a writer for a standalone Redis server, or the primary of a replicated one. */
+  static RedisBatchWriter standalone(RedisConnectionConfiguration connectionConfiguration) {
+    return new StandaloneWriter(connectionConfiguration.connect());
+  }
+
+  /** Returns a writer for a Redis Cluster. */
+  static RedisBatchWriter cluster(RedisSinkIO.ClusterConfiguration clusterConfiguration) {
+    Set<HostAndPort> seedNodes = new HashSet<>();
+    for (String node : clusterConfiguration.seedNodes()) {
+      seedNodes.add(HostAndPort.from(node));
+    }
+    DefaultJedisClientConfig.Builder clientConfig =
+        DefaultJedisClientConfig.builder()
+            .timeoutMillis(clusterConfiguration.timeout())
+            .ssl(clusterConfiguration.sslEnabled());
+    if (clusterConfiguration.password() != null && !clusterConfiguration.password().isEmpty()) {
+      clientConfig.password(clusterConfiguration.password());
+    }
+    return new ClusterWriter(new ClusterConnectionProvider(seedNodes, clientConfig.build()));
+  }
+
+  /** Sets the string value of {@code key}. */
+  void set(String key, String value) {
+    strings.put(key, value);
+    bufferedWrites++;
+  }
+
+  /** Sets the given fields of the hash stored at {@code key}. */
+  void hset(String key, Map<String, String> fields) {
+    hashes.computeIfAbsent(key, k -> new LinkedHashMap<>()).putAll(fields);
+    bufferedWrites++;
+  }
+
+  /** Appends an entry with an auto-generated id to the stream stored at {@code key}. */
+  void xadd(String key, Map<String, String> fields) {
+    streamEntries.computeIfAbsent(key, k -> new ArrayList<>()).add(fields);
+    bufferedWrites++;
+  }
+
+  /** Sets a timeout of {@code seconds} on {@code key}, after the key has been written. */
+  void expire(String key, long seconds) {
+    expirations.put(key, seconds);
+  }
+
+  /** Returns the number of writes buffered since the last flush, before coalescing. */
+  int bufferedWrites() {
+    return bufferedWrites;
+  }
+
+  /** Drops all buffered writes. */
+  void discard() {
+    strings.clear();
+    hashes.clear();
+    streamEntries.clear();
+    expirations.clear();
+    bufferedWrites = 0;
+  }
+
+  /** Sends all buffered writes to Redis and waits for their replies. */
+  void flush() {
+    if (bufferedWrites == 0 && expirations.isEmpty()) {
+      return;
+    }
+    List<Command> commands = new ArrayList<>();
+    strings.forEach((key, value) -> commands.add(new Command(key, p -> p.set(key, value))));
+    hashes.forEach((key, fields) -> commands.add(new Command(key, p -> p.hset(key, fields))));
+    streamEntries.forEach(
+        (key, entries) -> {
+          for (Map<String, String> fields : entries) {
+            commands.add(new Command(key, p -> p.xadd(key, StreamEntryID.NEW_ENTRY, fields)));
+          }
+        });
+    // expirations go last so the keys they apply to exist
+    expirations.forEach(
+        (key, seconds) -> commands.add(new Command(key, p -> p.expire(key, seconds))));
+    discard();
+
+    send(commands);
+  }
+
+  /** Sends the commands, preserving their order for every key. */
+  protected abstract void send(List<Command> commands);
+
+  @Override
+  public abstract void close();
+
+  /**
+   * Sends {@code commands} in a single pipeline and adds the ones redirected to another cluster
+   * node to {@code redirections}. With {@code asking}, every command is preceded by {@code ASKING}.
+   */
+  protected static void sendPipelined(
+      Pipeline pipeline, List<Command> commands, boolean asking, Redirections redirections) {
+    List<Response<?>> responses = new ArrayList<>(commands.size());
+    for (Command command : commands) {
+      if (asking) {
+        pipeline.sendCommand(new CommandArguments(Protocol.Command.ASKING));
+      }
+      responses.add(command.operation.apply(pipeline));
+    }
+    pipeline.sync();
+
+    for (int i = 0; i < responses.size(); i++) {
+      try {
+        responses.get(i).get();
+      } catch (JedisMovedDataException e) {
+        redirections.moved.add(commands.get(i));
+      } catch (JedisAskDataException e) {
+        redirections
+            .asked
+            .computeIfAbsent(e.getTargetNode(), n -> new ArrayList<>())
+            .add(commands.get(i));
+      } catch (JedisDataException e) {
+        REJECTED_WRITES.inc();
+        LOG.warn("Redis rejected a write to key {}: {}", commands.get(i).key, e.getMessage());
+      }
+    }
+  }
+
+  /** The commands redirected to another cluster node. */
+  protected static class Redirections {
+    /** Commands whose slot has moved, to send again once the slot map has been refreshed. */
+    final List<Command> moved = new ArrayList<>();
+
+    /** Commands whose slot is being migrated, by the node importing the slot. */
+    final Map<HostAndPort, List<Command>> asked = new LinkedHashMap<>();
+
+    boolean isEmpty() {
+      return moved.isEmpty() && asked.isEmpty();
+    }
+
+    int size() {
+      int size = moved.size();
+      for (List<Command> commands : asked.values()) {
+        size += commands.size();
+      }
+      return size;
+    }
+  }
+
+  /** A single Redis command, together with the key it writes. */
+  protected static class Command {
+    final String key;
+    final int slot;
+    final Function<Pipeline, Response<?>> operation;
+
+    Command(String key, Function<Pipeline, Response<?>> operation) {
+      this.key = key;
+      this.slot = JedisClusterCRC16.getSlot(key);
+      this.operation = operation;
+    }
+  }
+
+  private static class StandaloneWriter extends RedisBatchWriter {
+    private final Jedis jedis;
+
+    private StandaloneWriter(Jedis jedis) {
+      this.jedis = jedis;
+    }
+
+    @Override
+    protected void send(List<Command> commands) {
+      Redirections redirections = new Redirections();
+      sendPipelined(jedis.pipelined(), commands, false, redirections);
+      if (!redirections.isEmpty()) {
+        throw new JedisClusterOperationException(
+            "Redis redirected writes to another node, enable cluster mode to write to a cluster");
+      }
+    }
+
+    @Override
+    public void close() {
+      jedis.close();
+    }
+  }
+
+  private static class ClusterWriter extends RedisBatchWriter {
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long REDIRECTION_BACKOFF_MILLIS = 100;
+
+    private final ClusterConnectionProvider provider;
+
+    private ClusterWriter(ClusterConnectionProvider provider) {
+      this.provider = provider;
+    }
+
+    @Override
+    protected void send(List<Command> commands) {
+      List<Command> remaining = commands;
+      Map<HostAndPort, List<Command>> asked = new LinkedHashMap<>();
+      for (int attempt = 1; !remaining.isEmpty() || !asked.isEmpty(); attempt++) {
+        Map<HostAndPort, List<Command>> commandsByNode = new LinkedHashMap<>();
+        for (Command command : remaining) {
+          commandsByNode
+              .computeIfAbsent(nodeFor(command.slot), n -> new ArrayList<>())
+              .add(command);
+        }
+
+        Redirections redirections = new Redirections();
+        for (Map.Entry<HostAndPort, List<Command>> node : commandsByNode.entrySet()) {
+          try (Connection connection = provider.getConnection(node.getKey())) {
+            sendPipelined(new Pipeline(connection), node.getValue(), false, redirections);
+          }
+        }
+        for (Map.Entry<HostAndPort, List<Command>> node : asked.entrySet()) {
+          try (Connection connection = provider.getConnection(node.getKey())) {
+            sendPipelined(new Pipeline(connection), node.getValue(), true, redirections);
+          }
+        }
+        if (redirections.isEmpty()) {
+          return;
+        }
+        if (attempt >= MAX_ATTEMPTS) {
+          throw new JedisClusterOperationException(
+              String.format(
+                  "%d writes were still redirected after %d attempts",
+                  redirections.size(), attempt));
+        }
+        if (!redirections.moved.isEmpty()) {
+          LOG.info("{} writes were moved, refreshing the cluster slots", redirections.moved.size());
+          sleep(REDIRECTION_BACKOFF_MILLIS * attempt);
+          provider.renewSlotCache();
+        }
+        remaining = redirections.moved;
+        asked = redirections.asked;
+      }
+    }
+
+    private HostAndPort nodeFor(int slot) {
+      HostAndPort node = provider.getNode(slot);
+      if (node == null) {
+        provider.renewSlotCache();
+        node = provider.getNode(slot);
+        if (node == null) {
+          throw new JedisClusterOperationException("No Redis node is serving slot " + slot);
+        }
+      }
+      return node;
+    }
+
+    private static void sleep(long millis) {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new JedisClusterOperationException("Interrupted while waiting to retry writes", e);
+      }
+    }
+
+    @Override
+    public void close() {
+      provider.close();
+    }
+  }
+}
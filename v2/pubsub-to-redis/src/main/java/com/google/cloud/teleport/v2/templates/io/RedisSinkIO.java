@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.templates.io;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.beam.sdk.io.redis.RedisConnectionConfiguration;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PDone;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Transforms writing strings, hashes and stream entries to a standalone Redis server or a Redis
+ * Cluster.
+ *
+ * <p>Writes are buffered per bundle by a {@link RedisBatchWriter}, which coalesces writes to the
+ * same key and sends them pipelined to every node without MULTI/EXEC transactions. Writes are
+ * at-least-once: a failed bundle is written again in its entirety.
+ */
+public class RedisSinkIO {
+
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+  private static final long NO_EXPIRATION = -1L;
+  private static final String INSERT_TIME_FIELD = "redisInsertTimeAsLong";
+
+  private RedisSinkIO() {}
+
+  /** Writes the values of {@code KV<key, value>} records with {@code SET}. */
+  public static Write<KV<String, String>> writeStrings() {
+    return write(new StringMutation());
+  }
+
+  /**
+   * Writes the fields of {@code KV<key, KV<field, value>>} records with {@code HSET}, together with
+   * a {@code redisInsertTimeAsLong} field holding the time of the write.
+   */
+  public static Write<KV<String, KV<String, String>>> writeHashes() {
+    return write(new HashMutation());
+  }
+
+  /** Appends {@code KV<key, fields>} records to streams with {@code XADD}. */
+  public static Write<KV<String, Map<String, String>>> writeStreams() {
+    return write(new StreamMutation());
+  }
+
+  private static <T> Write<T> write(Mutation<T> mutation) {
+    return new AutoValue_RedisSinkIO_Write.Builder<T>()
+        .setConnectionConfiguration(RedisConnectionConfiguration.create())
+        .setBatchSize(DEFAULT_BATCH_SIZE)
+        .setMutation(mutation)
+        .build();
+  }
+
+  /** Connection settings of a Redis Cluster. */
+  @AutoValue
+  public abstract static class ClusterConfiguration implements Serializable {
+
+    /** The {@code host:port} addresses used to discover the cluster topology. */
+    abstract List<String> seedNodes();
+
+    abstract @Nullable String password();
+
+    abstract int timeout();
+
+    abstract boolean sslEnabled();
+
+    public static ClusterConfiguration create(
+        String host, int port, @Nullable String password, int timeout, boolean sslEnabled) {
+      Preconditions.checkArgument(host != null, "host cannot be null");
+      return new AutoValue_RedisSinkIO_ClusterConfiguration(
+          ImmutableList.of(host + ":" + port), password, timeout, sslEnabled);
+    }
+  }
+
+  /** Writes a single record to a {@link RedisBatchWriter}. */
+  interface Mutation<T> extends Serializable {
+    void write(T record, RedisBatchWriter writer, @Nullable Long expireTime);
+  }
+
+  private static class StringMutation implements Mutation<KV<String, String>> {
+    @Override
+    public void write(KV<String, String> record, RedisBatchWriter writer, Long expireTime) {
+      writer.set(record.getKey(), record.getValue());
+    }
+  }
+
+  private static class HashMutation implements Mutation<KV<String, KV<String, String>>> {
+    @Override
+    public void write(
+        KV<String, KV<String, String>> record, RedisBatchWriter writer, Long expireTime) {
+      Map<String, String> hashFieldValues = new HashMap<>();
+      String hashKey = record.getKey();
+      KV<String, String> hashValue = record.getValue();
+
+      hashFieldValues.put(INSERT_TIME_FIELD, String.valueOf(System.currentTimeMillis()));
+      hashFieldValues.put(hashValue.getKey(), hashValue.getValue());
+
+      writer.hset(hashKey, hashFieldValues);
+      if (expireTime != null && !Objects.equals(expireTime, NO_EXPIRATION)) {
+        writer.expire(hashKey, expireTime);
+      }
+    }
+  }
+
+  private static class StreamMutation implements Mutation<KV<String, Map<String, String>>> {
+    @Override
+    public void write(
+        KV<String, Map<String, String>> record, RedisBatchWriter writer, Long expireTime) {
+      writer.xadd(record.getKey(), record.getValue());
+    }
+  }
+
+  /** A {@link PTransform} writing records to Redis. */
+  @AutoValue
+  public abstract static class Write<T>
+      extends PTransform<@NonNull PCollection<T>, @NonNull PDone> {
+
+    abstract RedisConnectionConfiguration connectionConfiguration();
+
+    abstract @Nullable ClusterConfiguration clusterConfiguration();
+
+    abstract @Nullable Long expireTime();
+
+    abstract int batchSize();
+
+    abstract Mutation<T> mutation();
+
+    abstract Builder<T> builder();
+
+    /** Writes to the standalone Redis server described by {@code connectionConfiguration}. */
+    public Write<T> withConnectionConfiguration(
+        RedisConnectionConfiguration connectionConfiguration) {
+      Preconditions.checkArgument(connectionConfiguration != null, "connection cannot be null");
+      return builder().setConnectionConfiguration(connectionConfiguration).build();
+    }
+
+    /** Writes to the Redis Cluster described by {@code clusterConfiguration}. */
+    public Write<T> withClusterConfiguration(ClusterConfiguration clusterConfiguration) {
+      Preconditions.checkArgument(clusterConfiguration != null, "cluster cannot be null");
+      return builder().setClusterConfiguration(clusterConfiguration).build();
+    }
+
+    /**
+     * Sets the expiration time in seconds of the written keys, -1 for no expiration. Only applies
+     * to hashes.
+     */
+    public Write<T> withTtl(Long expireTime) {
+      return builder().setExpireTime(expireTime).build();
+    }
+
+    /** Sets the number of records after which buffered writes are sent to Redis. */
+    public Write<T> withBatchSize(int batchSize) {
+      Preconditions.checkArgument(batchSize > 0, "batchSize must be > 0, but was %s", batchSize);
+      return builder().setBatchSize(batchSize).build();
+    }
+
+    @Override
+    public @NonNull PDone expand(PCollection<T> input) {
+      input.apply(ParDo.of(new WriteFn<>(this)));
+      return PDone.in(input.getPipeline());
+    }
+
+    @AutoValue.Builder
+    abstract static class Builder<T> {
+      abstract Builder<T> setConnectionConfiguration(
+          RedisConnectionConfiguration connectionConfiguration);
+
+      abstract Builder<T> setClusterConfiguration(ClusterConfiguration clusterConfiguration);
+
+      abstract Builder<T> setExpireTime(Long expireTime);
+
+      abstract Builder<T> setBatchSize(int batchSize);
+
+      abstract Builder<T> setMutation(Mutation<T> mutation);
+
+      abstract Write<T> build();
+    }
+  }
+
+  private static class WriteFn<T> extends DoFn<T, Void> {
+    private final Write<T> spec;
+    private transient RedisBatchWriter writer;
+
+    WriteFn(Write<T> spec) {
+      this.spec = spec;
+    }
+
+    @Setup
+    public void setup() {
+      writer =
+          spec.clusterConfiguration() != null
+              ? RedisBatchWriter.cluster(spec.clusterConfiguration())
+              : RedisBatchWriter.standalone(spec.connectionConfiguration());
+    }
+
+    @StartBundle
+    public void startBundle() {
+      // drop the writes left over by a failed bundle, they are retried with it
+      writer.discard();
+    }
+
+    @ProcessElement
+    public void processElement(@Element T record) {
+      spec.mutation().write(record, writer, spec.expireTime());
+      if (writer.bufferedWrites() >= spec.batchSize()) {
+        writer.flush();
+      }
+    }
+
+    @FinishBundle
+    public void finishBundle() {
+      writer.flush();
+    }
+
+    @Teardown
+    public void teardown() {
+      if (writer != null) {
+        writer.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.teleport.v2.templates.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.github.fppt.jedismock.datastructures.Slice;
+import com.github.fppt.jedismock.operations.server.MockExecutor;
+import com.github.fppt.jedismock.server.Response;
+import com.github.fppt.jedismock.server.ServiceOptions;
+import com.github.fppt.jedismock.storage.OperationExecutorState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.PipelineResult;
+import org.apache.beam.sdk.io.redis.RedisConnectionConfiguration;
+import org.apache.beam.sdk.metrics.MetricNameFilter;
+import org.apache.beam.sdk.metrics.MetricQueryResults;
+import org.apache.beam.sdk.metrics.MetricResult;
+import org.apache.beam.sdk.metrics.MetricsFilter;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.values.KV;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+/** Test cases for the {@link RedisSinkIO} and {@link RedisBatchWriter} classes. */
+@RunWith(JUnit4.class)
+public class RedisSinkIOTest {
+
+  private static final String REDIS_HOST = "localhost";
+  private static final List<String> WRITE_COMMANDS =
+      ImmutableList.of("set", "hset", "xadd", "expire");
+  private static RedisServer server;
+  private static Jedis client;
+  private static int port;
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    server = RedisServer.newRedisServer();
+    server.start();
+    port = server.getBindPort();
+    client = RedisConnectionConfiguration.create(REDIS_HOST, port).connect();
+  }
+
+  @AfterClass
+  public static void afterClass() throws IOException {
+    client.close();
+    server.stop();
+  }
+
+  /** Records the commands which would be sent instead of sending them. */
+  private static class RecordingWriter extends RedisBatchWriter {
+    private final List<String> keys = new ArrayList<>();
+
+    @Override
+    protected void send(List<Command> commands) {
+      for (Command command : commands) {
+        keys.add(command.key);
+      }
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  @Test
+  public void testWritesToTheSameKeyAreCoalesced() {
+    RecordingWriter writer = new RecordingWriter();
+
+    writer.hset("hash", ImmutableMap.of("a", "1"));
+    writer.hset("hash", ImmutableMap.of("b", "2"));
+    writer.expire("hash", 10);
+    writer.expire("hash", 20);
+    writer.set("string", "old");
+    writer.set("string", "new");
+    writer.xadd("stream", ImmutableMap.of("c", "3"));
+    writer.xadd("stream", ImmutableMap.of("c", "4"));
+    assertEquals(6, writer.bufferedWrites());
+    writer.flush();
+
+    // one SET, one HSET, both XADDs and one EXPIRE
+    assertEquals(List.of("string", "hash", "stream", "stream", "hash"), writer.keys);
+    assertEquals(0, writer.bufferedWrites());
+  }
+
+  @Test
+  public void testWriteHashes() {
+    pipeline
+        .apply(
+            Create.of(
+                KV.of("hash:coalesced", KV.of("field1", "value1")),
+                KV.of("hash:coalesced", KV.of("field2", "value2"))))
+        .apply(
+            RedisSinkIO.writeHashes()
+                .withConnectionConfiguration(RedisConnectionConfiguration.create(REDIS_HOST, port))
+                .withTtl(100L));
+    pipeline.run();
+
+    Map<String, String> hash = client.hgetAll("hash:coalesced");
+    assertEquals("value1", hash.get("field1"));
+    assertEquals("value2", hash.get("field2"));
+    assertTrue(hash.containsKey("redisInsertTimeAsLong"));
+    assertTrue(client.ttl("hash:coalesced") > 0);
+  }
+
+  @Test
+  public void testWriteStrings() {
+    pipeline
+        .apply(Create.of(KV.of("string:1", "value1"), KV.of("string:2", "value2")))
+        .apply(
+            RedisSinkIO.writeStrings()
+                .withConnectionConfiguration(
+                    RedisConnectionConfiguration.create(REDIS_HOST, port)));
+    pipeline.run();
+
+    assertEquals("value1", client.get("string:1"));
+    assertEquals("value2", client.get("string:2"));
+  }
+
+  @Test
+  public void testRejectedWritesAreCounted() {
+    client.set("string:wrongtype", "value");
+
+    pipeline
+        .apply(
+            Create.of(
+                KV.of("string:wrongtype", KV.of("field", "value")),
+                KV.of("hash:valid", KV.of("field", "value"))))
+        .apply(
+            RedisSinkIO.writeHashes()
+                .withConnectionConfiguration(
+                    RedisConnectionConfiguration.create(REDIS_HOST, port)));
+    PipelineResult result = pipeline.run();
+
+    assertEquals("value", client.get("string:wrongtype"));
+    assertEquals("value", client.hget("hash:valid", "field"));
+    MetricQueryResults metrics =
+        result
+            .metrics()
+            .queryMetrics(
+                MetricsFilter.builder()
+                    .addNameFilter(MetricNameFilter.named(RedisBatchWriter.class, "rejectedWrites"))
+                    .build());
+    long rejectedWrites = 0;
+    for (MetricResult<Long> counter : metrics.getCounters()) {
+      rejectedWrites += counter.getAttempted();
+    }
+    assertEquals(1, rejectedWrites);
+  }
+
+  @Test
+  public void testClusterWritesAskedKeysToTheImportingNode() throws Exception {
+    try (FakeCluster cluster = new FakeCluster()) {
+      cluster.source.askFor("string:migrating", cluster.target);
+
+      try (RedisBatchWriter writer = cluster.writer()) {
+        writer.set("string:migrating", "migrated");
+        writer.set("string:stable", "stable");
+        writer.flush();
+      }
+
+      assertEquals("migrated", cluster.target.client.get("string:migrating"));
+      assertEquals(null, cluster.source.client.get("string:migrating"));
+      assertEquals("stable", cluster.source.client.get("string:stable"));
+      // ASK does not refresh the slot map
+      assertEquals(1, cluster.clusterSlotsCalls());
+    }
+  }
+
+  @Test
+  public void testClusterWritesMovedKeysAfterRefreshingTheSlots() throws Exception {
+    try (FakeCluster cluster = new FakeCluster()) {
+      try (RedisBatchWriter writer = cluster.writer()) {
+        cluster.reshardTo(cluster.target);
+        writer.hset("hash:moved", ImmutableMap.of("field", "value"));
+        writer.flush();
+      }
+
+      assertEquals("value", cluster.target.client.hget("hash:moved", "field"));
+      assertEquals(2, cluster.clusterSlotsCalls());
+    }
+  }
+
+  /**
+   * Two mock Redis servers which pretend to be a cluster. All slots are served by the source node
+   * until {@link #reshardTo} is called.
+   */
+  private static class FakeCluster implements AutoCloseable {
+    private final FakeClusterNode source;
+    private final FakeClusterNode target;
+    private volatile FakeClusterNode slotOwner;
+    private int clusterSlotsCalls;
+
+    FakeCluster() throws IOException {
+      source = new FakeClusterNode(this);
+      target = new FakeClusterNode(this);
+      slotOwner = source;
+    }
+
+    RedisBatchWriter writer() {
+      return RedisBatchWriter.cluster(
+          RedisSinkIO.ClusterConfiguration.create(REDIS_HOST, source.port, null, 2000, false));
+    }
+
+    void reshardTo(FakeClusterNode node) {
+      slotOwner = node;
+    }
+
+    synchronized int clusterSlotsCalls() {
+      return clusterSlotsCalls;
+    }
+
+    synchronized Slice clusterSlots() {
+      clusterSlotsCalls++;
+      return Response.array(
+          ImmutableList.of(
+              Response.array(
+                  ImmutableList.of(
+                      Response.integer(0),
+                      Response.integer(16383),
+                      Response.array(
+                          ImmutableList.of(
+                              Response.bulkString(Slice.create(REDIS_HOST)),
+                              Response.integer(slotOwner.port)))))));
+    }
+
+    @Override
+    public void close() throws IOException {
+      source.close();
+      target.close();
+    }
+  }
+
+  /**
+   * A mock Redis server answering {@code CLUSTER SLOTS}, which redirects the writes to the keys it
+   * does not serve.
+   */
+  private static class FakeClusterNode implements AutoCloseable {
+    private final FakeCluster cluster;
+    private final RedisServer server;
+    private final int port;
+    private final Jedis client;
+    private volatile String askedKey;
+    private volatile FakeClusterNode askedNode;
+    private boolean asking;
+
+    FakeClusterNode(FakeCluster cluster) throws IOException {
+      this.cluster = cluster;
+      server =
+          RedisServer.newRedisServer()
+              .setOptions(ServiceOptions.withInterceptor(this::execCommand))
+              .start();
+      port = server.getBindPort();
+      client = RedisConnectionConfiguration.create(REDIS_HOST, port).connect();
+    }
+
+    /** Redirects the writes to {@code key} with {@code ASK} to {@code node}. */
+    void askFor(String key, FakeClusterNode node) {
+      askedKey = key;
+      askedNode = node;
+    }
+
+    private synchronized Slice execCommand(
+        OperationExecutorState state, String name, List<Slice> params) {
+      if (name.equalsIgnoreCase("cluster")) {
+        return cluster.clusterSlots();
+      }
+      if (name.equalsIgnoreCase("asking")) {
+        asking = true;
+        return Response.OK;
+      }
+      boolean wasAsking = asking;
+      asking = false;
+      if (params.isEmpty() || !WRITE_COMMANDS.contains(name.toLowerCase())) {
+        return MockExecutor.proceed(state, name, params);
+      }
+      String key = params.get(0).toString();
+      int slot = JedisClusterCRC16.getSlot(key);
+      if (key.equals(askedKey)) {
+        return Response.error(String.format("ASK %d %s:%d", slot, REDIS_HOST, askedNode.port));
+      }
+      if (cluster.slotOwner != this && !wasAsking) {
+        return Response.error(
+            String.format("MOVED %d %s:%d", slot, REDIS_HOST, cluster.slotOwner.port));
+      }
+      return MockExecutor.proceed(state, name, params);
+    }
+
+    @Override
+    public void close() throws IOException {
+      client.close();
+      server.stop();
+    }
+  }
+}
@@ -17,7 +17,6 @@ package com.google.cloud.teleport.v2.transformer;
 
 import com.google.auto.value.AutoValue;
 import com.google.cloud.spanner.Mutation;
-import com.google.cloud.spanner.Value;
 import com.google.cloud.teleport.v2.constants.MetricCounters;
 import com.google.cloud.teleport.v2.constants.SourceDbToSpannerConstants;
 import com.google.cloud.teleport.v2.source.reader.io.row.SourceRow;
@@ -28,6 +27,7 @@ import com.google.cloud.teleport.v2.spanner.migrations.utils.CustomTransformatio
 import com.google.cloud.teleport.v2.spanner.utils.ISpannerMigrationTransformer;
 import com.google.cloud.teleport.v2.templates.RowContext;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.avro.generic.GenericRecord;
@@ -52,8 +52,12 @@ public abstract class SourceRowToMutationDoFn extends DoFn<SourceRow, RowContext
   public void setSourceDbToSpannerTransformer(
       ISpannerMigrationTransformer sourceDbToSpannerTransformer) {
     this.sourceDbToSpannerTransformer = sourceDbToSpannerTransformer;
+    this.convertors = null;
   }
 
+  // Convertors by shard id, reused across rows to keep their per-table conversion plans.
+  private transient Map<String, GenericRecordTypeConvertor> convertors;
+
   private final Counter transformerErrors =
       Metrics.counter(SourceRowToMutationDoFn.class, MetricCounters.TRANSFORMER_ERRORS);
 
@@ -97,12 +101,10 @@ public abstract class SourceRowToMutationDoFn extends DoFn<SourceRow, RowContext
       // TODO: update namespace in constructor when Spanner namespace support is added.
       GenericRecord record = sourceRow.getPayload();
       String srcTableName = sourceRow.tableName();
-      GenericRecordTypeConvertor genericRecordTypeConvertor =
-          new GenericRecordTypeConvertor(
-              iSchemaMapper(), "", sourceRow.shardId(), sourceDbToSpannerTransformer);
-      Map<String, Value> values =
-          genericRecordTypeConvertor.transformChangeEvent(record, srcTableName);
-      if (values == null) {
+      Mutation mutation =
+          getConvertor(sourceRow.shardId())
+              .transformChangeEventToMutation(record, srcTableName, insertOnly());
+      if (mutation == null) {
         filteredEvents.inc();
         output
             .get(SourceDbToSpannerConstants.FILTERED_EVENT_TAG)
@@ -110,9 +112,6 @@ public abstract class SourceRowToMutationDoFn extends DoFn<SourceRow, RowContext
         return;
       }
 
-      String spannerTableName = iSchemaMapper().getSpannerTableName("", srcTableName);
-      // TODO: Move the mutation generation to writer. Create generic record here instead
-      Mutation mutation = mutationFromMap(spannerTableName, values, insertOnly());
       output
           .get(SourceDbToSpannerConstants.ROW_TRANSFORMATION_SUCCESS)
           .output(RowContext.builder().setRow(sourceRow).setMutation(mutation).build());
@@ -125,18 +124,13 @@ public abstract class SourceRowToMutationDoFn extends DoFn<SourceRow, RowContext
     }
   }
 
-  private Mutation mutationFromMap(
-      String spannerTableName, Map<String, Value> values, boolean insertOnly) {
-    Mutation.WriteBuilder builder =
-        (insertOnly)
-            ? Mutation.newInsertBuilder(spannerTableName)
-            : Mutation.newInsertOrUpdateBuilder(spannerTableName);
-    for (String spannerColName : values.keySet()) {
-      Value value = values.get(spannerColName);
-      if (value != null) {
-        builder.set(spannerColName).to(value);
-      }
+  private GenericRecordTypeConvertor getConvertor(String shardId) {
+    if (convertors == null) {
+      convertors = new HashMap<>();
     }
-    return builder.build();
+    return convertors.computeIfAbsent(
+        shardId,
+        id ->
+            new GenericRecordTypeConvertor(iSchemaMapper(), "", id, sourceDbToSpannerTransformer));
   }
 }
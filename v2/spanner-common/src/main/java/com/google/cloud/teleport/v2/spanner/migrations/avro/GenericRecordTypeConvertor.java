@@ -16,10 +16,12 @@
 package com.google.cloud.teleport.v2.spanner.migrations.avro;
 
 import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.Value;
 import com.google.cloud.teleport.v2.spanner.ddl.annotations.cassandra.CassandraAnnotations;
 import com.google.cloud.teleport.v2.spanner.ddl.annotations.cassandra.CassandraType.Kind;
 import com.google.cloud.teleport.v2.spanner.exceptions.InvalidTransformationException;
+import com.google.cloud.teleport.v2.spanner.migrations.avro.AvroToValueMapper.AvroToValueFunction;
 import com.google.cloud.teleport.v2.spanner.migrations.schema.ISchemaMapper;
 import com.google.cloud.teleport.v2.spanner.type.Type;
 import com.google.cloud.teleport.v2.spanner.utils.ISpannerMigrationTransformer;
@@ -41,7 +43,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import org.apache.arrow.util.VisibleForTesting;
 import org.apache.avro.Conversions;
 import org.apache.avro.LogicalType;
@@ -61,6 +65,10 @@ import org.slf4j.LoggerFactory;
 /**
  * Convertor Class containing methods for type conversion of various AvroTypes to Spanner {@link
  * Value} types.
+ *
+ * <p>The schema mapping of a source table is resolved once, on its first row, into a conversion
+ * plan per Avro schema of its rows. A plan holds the field position and the pre-bound convertor of
+ * every Spanner column, so converting a row does not consult the {@link ISchemaMapper}.
  */
 public class GenericRecordTypeConvertor {
   private static final Logger LOG = LoggerFactory.getLogger(GenericRecordTypeConvertor.class);
@@ -78,6 +86,9 @@ public class GenericRecordTypeConvertor {
   static final Schema CUSTOM_TRANSFORMATION_AVRO_SCHEMA =
       new LogicalType("custom_transform").addToSchema(SchemaBuilder.builder().stringType());
 
+  // Conversion plans of the source tables, built on the first row of every table.
+  private final Map<String, TablePlan> tablePlans = new ConcurrentHashMap<>();
+
   private final Distribution applyCustomTransformationResponseTimeMetric =
       Metrics.distribution(
           GenericRecordTypeConvertor.class, "apply_custom_transformation_impl_latency_ms");
@@ -102,89 +113,255 @@ public class GenericRecordTypeConvertor {
    */
   public Map<String, Value> transformChangeEvent(GenericRecord record, String srcTableName)
       throws InvalidTransformationException {
+    Map<String, Value> customValues = applyCustomTransformations(record, srcTableName);
+    if (customValues == null) {
+      return null;
+    }
     Map<String, Value> result = new HashMap<>();
-    result = populateCustomTransformations(result, record, srcTableName);
+    writeColumns(record, srcTableName, customValues, result::put);
+    return result;
+  }
+
+  /**
+   * Converts a generic record to a Spanner {@link Mutation} of the table mapped to {@code
+   * srcTableName}, without the intermediate map of {@link #transformChangeEvent}. Columns with a
+   * null {@link Value} are left out of the mutation.
+   *
+   * <p>This method can return 'null' which indicates the change event needs to be skipped.
+   *
+   * @param insertOnly whether the mutation is an insert rather than an insert or update.
+   */
+  public Mutation transformChangeEventToMutation(
+      GenericRecord record, String srcTableName, boolean insertOnly)
+      throws InvalidTransformationException {
+    Map<String, Value> customValues = applyCustomTransformations(record, srcTableName);
+    if (customValues == null) {
+      return null;
+    }
+    TablePlan tablePlan = getTablePlan(srcTableName);
+    Mutation.WriteBuilder builder =
+        insertOnly
+            ? Mutation.newInsertBuilder(tablePlan.spannerTableName)
+            : Mutation.newInsertOrUpdateBuilder(tablePlan.spannerTableName);
+    writeColumns(
+        record,
+        srcTableName,
+        customValues,
+        (spannerColName, value) -> {
+          if (value != null) {
+            builder.set(spannerColName).to(value);
+          }
+        });
+    return builder.build();
+  }
+
+  private Map<String, Value> applyCustomTransformations(GenericRecord record, String srcTableName)
+      throws InvalidTransformationException {
+    Map<String, Value> result =
+        populateCustomTransformations(new HashMap<>(), record, srcTableName);
     // If the row needs to be filtered.
     if (result == null) {
       LOG.debug(
           "Filtered out row based on Customer Transformation response for table {}, record {}",
           srcTableName,
           record);
-      return null;
     }
-    String spannerTableName = schemaMapper.getSpannerTableName(namespace, srcTableName);
-    List<String> spannerColNames = schemaMapper.getSpannerColumns(namespace, spannerTableName);
-    // This is null/blank for identity/non-sharded cases.
-    String shardIdCol = schemaMapper.getShardIdColumnName(namespace, spannerTableName);
-    for (String spannerColName : spannerColNames) {
+    return result;
+  }
+
+  /**
+   * Converts the columns of {@code record} with the conversion plan of its table and schema and
+   * passes them to {@code sink}, followed by the columns populated by custom transformation.
+   */
+  private void writeColumns(
+      GenericRecord record,
+      String srcTableName,
+      Map<String, Value> customValues,
+      BiConsumer<String, Value> sink) {
+    ConversionPlan plan = getConversionPlan(getTablePlan(srcTableName), record.getSchema());
+    String[] spannerColNames = plan.spannerColNames;
+    ColumnConvertor[] convertors = plan.convertors;
+    boolean hasCustomValues = !customValues.isEmpty();
+    for (int i = 0; i < spannerColNames.length; i++) {
+      // Skip if the column was already populated by custom transformation.
+      if (hasCustomValues && customValues.containsKey(spannerColNames[i])) {
+        continue;
+      }
+      Value value;
       try {
-        // Skip if the column was already populated by custom transformation.
-        if (result.containsKey(spannerColName)) {
-          continue;
-        }
-        // If current column is migration shard id, populate value.
-        if (spannerColName.equals(shardIdCol)) {
-          result = populateShardId(result, shardIdCol);
-          continue;
-        }
+        value = convertors[i].convert(record);
+      } catch (Exception e) {
+        throw columnConversionException(spannerColNames[i], e);
+      }
+      sink.accept(spannerColNames[i], value);
+    }
+    customValues.forEach(sink);
+  }
+
+  private static RuntimeException columnConversionException(String spannerColName, Exception e) {
+    if (e instanceof NullPointerException || e instanceof IllegalArgumentException) {
+      return (RuntimeException) e;
+    }
+    return new RuntimeException(
+        String.format("Unable to convert spanner value for spanner col: %s", spannerColName), e);
+  }
+
+  /**
+   * Returns the schema mapping of the Spanner table {@code srcTableName} is migrated to, resolving
+   * it on the first row of the table.
+   */
+  private TablePlan getTablePlan(String srcTableName) {
+    TablePlan tablePlan = tablePlans.get(srcTableName);
+    if (tablePlan == null) {
+      tablePlan = new TablePlan(srcTableName);
+      tablePlans.put(srcTableName, tablePlan);
+    }
+    return tablePlan;
+  }
+
+  /**
+   * Returns the conversion plan of the rows of a table with the given Avro schema, building it on
+   * the first row with the schema. Schemas are compared structurally and cache their hash, so rows
+   * read with equal schemas share a plan.
+   */
+  private ConversionPlan getConversionPlan(TablePlan tablePlan, Schema schema) {
+    ConversionPlan plan = tablePlan.conversionPlans.get(schema);
+    if (plan == null) {
+      plan = tablePlan.bind(schema);
+      tablePlan.conversionPlans.put(schema, plan);
+    }
+    return plan;
+  }
+
+  /** Converts the value of a single Spanner column from a row. */
+  private interface ColumnConvertor {
+    Value convert(GenericRecord record);
+  }
 
-        // For session based mapper, populate synthetic primary key with UUID. For identity mapper,
-        // the schemaMapper returns null.
-        if (spannerColName.equals(
-            schemaMapper.getSyntheticPrimaryKeyColName(namespace, spannerTableName))) {
-          result.put(spannerColName, Value.string(getUUID()));
-          continue;
+  /**
+   * Binds a Spanner column to the fields of an Avro schema, returning null if the column is left
+   * out of rows with the schema.
+   */
+  private interface ColumnBinder {
+    ColumnConvertor bind(Schema schema);
+  }
+
+  /** The Spanner columns of a table and how each of them is populated. */
+  private class TablePlan {
+    private final String spannerTableName;
+    private final List<String> spannerColNames = new ArrayList<>();
+    private final List<ColumnBinder> binders = new ArrayList<>();
+    private final Map<Schema, ConversionPlan> conversionPlans = new ConcurrentHashMap<>();
+
+    private TablePlan(String srcTableName) {
+      this.spannerTableName = schemaMapper.getSpannerTableName(namespace, srcTableName);
+      List<String> spannerColNames = schemaMapper.getSpannerColumns(namespace, spannerTableName);
+      // This is null/blank for identity/non-sharded cases.
+      String shardIdCol = schemaMapper.getShardIdColumnName(namespace, spannerTableName);
+      for (String spannerColName : spannerColNames) {
+        try {
+          ColumnBinder binder = columnBinder(spannerColName, shardIdCol);
+          if (binder != null) {
+            this.spannerColNames.add(spannerColName);
+            this.binders.add(binder);
+          }
+        } catch (Exception e) {
+          throw columnConversionException(spannerColName, e);
         }
+      }
+    }
 
-        // If a Spanner column does not exist in the source data, there are several possible
-        // explanations:
-        // 1. The column might be an auto-value column in Spanner, such as generated column,
-        // default, auto-gen keys.
-        // 2. Column was supposed to be populated by custom transform, but user error missed this
-        // column during custom transform.
-        // 3. The column might have been accidentally left over in the Spanner column without the
-        // right handling.
-        // In all of these cases, we omit this column from the Spanner mutation and user errors will
-        // fail on Spanner. The writer's Dead Letter Queue (DLQ) is responsible for catching any
-        // misconfigurations  where a required column is missing.
-        if (!(schemaMapper.colExistsAtSource(namespace, spannerTableName, spannerColName)
-            && record.hasField(
-                schemaMapper.getSourceColumnName(namespace, spannerTableName, spannerColName)))) {
-          continue;
+    private ColumnBinder columnBinder(String spannerColName, String shardIdCol) {
+      // If current column is migration shard id, populate value.
+      if (spannerColName.equals(shardIdCol)) {
+        if (shardId == null || shardId.isBlank()) {
+          return null;
         }
+        Value shardIdValue = Value.string(shardId);
+        return schema -> record -> shardIdValue;
+      }
+
+      // For session based mapper, populate synthetic primary key with UUID. For identity mapper,
+      // the schemaMapper returns null.
+      if (spannerColName.equals(
+          schemaMapper.getSyntheticPrimaryKeyColName(namespace, spannerTableName))) {
+        return schema -> record -> Value.string(getUUID());
+      }
 
-        String srcColName =
-            schemaMapper.getSourceColumnName(namespace, spannerTableName, spannerColName);
+      // If a Spanner column does not exist in the source data, there are several possible
+      // explanations:
+      // 1. The column might be an auto-value column in Spanner, such as generated column,
+      // default, auto-gen keys.
+      // 2. Column was supposed to be populated by custom transform, but user error missed this
+      // column during custom transform.
+      // 3. The column might have been accidentally left over in the Spanner column without the
+      // right handling.
+      // In all of these cases, we omit this column from the Spanner mutation and user errors will
+      // fail on Spanner. The writer's Dead Letter Queue (DLQ) is responsible for catching any
+      // misconfigurations  where a required column is missing.
+      if (!schemaMapper.colExistsAtSource(namespace, spannerTableName, spannerColName)) {
+        return null;
+      }
+      String srcColName =
+          schemaMapper.getSourceColumnName(namespace, spannerTableName, spannerColName);
+      return schema -> {
+        Schema.Field field = schema.getField(srcColName);
+        if (field == null) {
+          return null;
+        }
+        int pos = field.pos();
+        Schema fieldSchema = field.schema();
         Type spannerColumnType =
             schemaMapper.getSpannerColumnType(namespace, spannerTableName, spannerColName);
-
-        final CassandraAnnotations cassandraAnnotations =
+        CassandraAnnotations cassandraAnnotations =
             schemaMapper.getSpannerColumnCassandraAnnotations(
                 namespace, spannerTableName, spannerColName);
+        AvroToValueFunction toValue = getAvroToValueFunction(spannerColumnType, srcColName);
         LOG.debug(
             "Transformer processing srcCol: {} spannerColumnType:{}",
             srcColName,
             spannerColumnType);
+        return record -> {
+          Object recordValue = record.get(pos);
+          Schema valueSchema = filterNullSchema(fieldSchema, srcColName, recordValue);
+          return toValue.apply(
+              handleNonPrimitiveAvroTypes(
+                  recordValue, valueSchema, srcColName, cassandraAnnotations),
+              valueSchema);
+        };
+      };
+    }
 
-        Value value =
-            getSpannerValue(
-                record.get(srcColName),
-                record.getSchema().getField(srcColName).schema(),
-                srcColName,
-                spannerColumnType,
-                cassandraAnnotations);
-        result.put(spannerColName, value);
-      } catch (NullPointerException e) {
-        throw e;
-      } catch (IllegalArgumentException e) {
-        throw e;
-      } catch (Exception e) {
-        throw new RuntimeException(
-            String.format("Unable to convert spanner value for spanner col: %s", spannerColName),
-            e);
+    /** Binds the columns to the fields of {@code schema}. */
+    private ConversionPlan bind(Schema schema) {
+      List<String> boundColNames = new ArrayList<>(binders.size());
+      List<ColumnConvertor> convertors = new ArrayList<>(binders.size());
+      for (int i = 0; i < binders.size(); i++) {
+        String spannerColName = spannerColNames.get(i);
+        try {
+          ColumnConvertor convertor = binders.get(i).bind(schema);
+          if (convertor != null) {
+            boundColNames.add(spannerColName);
+            convertors.add(convertor);
+          }
+        } catch (Exception e) {
+          throw columnConversionException(spannerColName, e);
+        }
       }
+      return new ConversionPlan(
+          boundColNames.toArray(new String[0]), convertors.toArray(new ColumnConvertor[0]));
+    }
+  }
+
+  /** Field positions and pre-bound convertors of the Spanner columns of a table and schema. */
+  private static class ConversionPlan {
+    private final String[] spannerColNames;
+    private final ColumnConvertor[] convertors;
+
+    private ConversionPlan(String[] spannerColNames, ColumnConvertor[] convertors) {
+      this.spannerColNames = spannerColNames;
+      this.convertors = convertors;
     }
-    return result;
   }
 
   private String getUUID() {
@@ -376,14 +553,6 @@ public class GenericRecordTypeConvertor {
     return migrationTransformationResponse;
   }
 
-  private Map<String, Value> populateShardId(Map<String, Value> result, String shardIdCol) {
-    if (shardId == null || shardId.isBlank()) {
-      return result;
-    }
-    result.put(shardIdCol, Value.string(shardId));
-    return result;
-  }
-
   /** Extract the field value from Generic Record and try to convert it to @spannerType. */
   public Value getSpannerValue(
       Object recordValue,
@@ -508,22 +677,24 @@ public class GenericRecordTypeConvertor {
   /** Converts an avro object to Spanner Value of the specified type. */
   private Value getSpannerValueFromObject(
       Object value, Schema fieldSchema, String recordColName, Type spannerType) {
+    return getAvroToValueFunction(spannerType, recordColName).apply(value, fieldSchema);
+  }
+
+  /** Returns the function converting avro objects to Spanner Values of the specified type. */
+  private AvroToValueFunction getAvroToValueFunction(Type spannerType, String recordColName) {
     Dialect dialect = schemaMapper.getDialect();
     if (dialect == null) {
       throw new NullPointerException("schemaMapper returned null spanner dialect.");
     }
-    if (AvroToValueMapper.convertorMap().get(dialect).containsKey(spannerType)) {
-      return AvroToValueMapper.convertorMap()
-          .get(dialect)
-          .get(spannerType)
-          .apply(value, fieldSchema);
-    } else {
+    AvroToValueFunction toValue = AvroToValueMapper.convertorMap().get(dialect).get(spannerType);
+    if (toValue == null) {
       throw new IllegalArgumentException(
           "Found unsupported Spanner column type("
               + spannerType.getCode()
               + ") for column "
               + recordColName);
     }
+    return toValue;
   }
 
   static class CustomAvroTypes {
@@ -27,6 +27,7 @@ import static org.mockito.Mockito.when;
 import com.google.cloud.ByteArray;
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.Value;
 import com.google.cloud.teleport.v2.spanner.ddl.Ddl;
 import com.google.cloud.teleport.v2.spanner.ddl.annotations.cassandra.CassandraAnnotations;
@@ -1261,6 +1262,132 @@ public class GenericRecordTypeConvertorTest {
     assertEquals(Value.string("name1"), actual.get("new_name"));
   }
 
+  private static ISchemaMapper mockPeopleSchemaMapper() {
+    ISchemaMapper mockSchemaMapper = mock(ISchemaMapper.class);
+    when(mockSchemaMapper.getDialect()).thenReturn(Dialect.GOOGLE_STANDARD_SQL);
+    when(mockSchemaMapper.getSpannerTableName(anyString(), anyString())).thenReturn("new_people");
+    when(mockSchemaMapper.getSpannerColumns(anyString(), anyString()))
+        .thenReturn(List.of("new_id", "new_name"));
+    when(mockSchemaMapper.getSourceColumnName(anyString(), anyString(), Mockito.eq("new_id")))
+        .thenReturn("id");
+    when(mockSchemaMapper.getSourceColumnName(anyString(), anyString(), Mockito.eq("new_name")))
+        .thenReturn("name");
+    when(mockSchemaMapper.getSpannerColumnType(anyString(), anyString(), Mockito.eq("new_id")))
+        .thenReturn(Type.int64());
+    when(mockSchemaMapper.getSpannerColumnType(anyString(), anyString(), Mockito.eq("new_name")))
+        .thenReturn(Type.string());
+    when(mockSchemaMapper.colExistsAtSource(anyString(), anyString(), anyString()))
+        .thenReturn(true);
+    return mockSchemaMapper;
+  }
+
+  private static GenericRecord peopleRecord(Schema schema, long id, String name) {
+    GenericRecord genericRecord = new GenericData.Record(schema);
+    genericRecord.put("id", id);
+    if (schema.getField("name") != null) {
+      genericRecord.put("name", name);
+    }
+    return genericRecord;
+  }
+
+  @Test
+  public void transformChangeEventTest_reusesConversionPlan()
+      throws InvalidTransformationException {
+    ISchemaMapper mockSchemaMapper = mockPeopleSchemaMapper();
+    Schema schema =
+        SchemaBuilder.record("people")
+            .fields()
+            .name("name")
+            .type(unionNullType(Schema.create(Schema.Type.STRING)))
+            .noDefault()
+            .name("id")
+            .type(Schema.create(Schema.Type.LONG))
+            .noDefault()
+            .endRecord();
+    GenericRecordTypeConvertor genericRecordTypeConvertor =
+        new GenericRecordTypeConvertor(mockSchemaMapper, "", null, null);
+
+    for (int i = 0; i < 3; i++) {
+      Map<String, Value> actual =
+          genericRecordTypeConvertor.transformChangeEvent(
+              peopleRecord(schema, i, "name" + i), "people");
+      assertEquals(Map.of("new_id", Value.int64(i), "new_name", Value.string("name" + i)), actual);
+    }
+
+    // The schema mapping is resolved on the first row only.
+    Mockito.verify(mockSchemaMapper).getSpannerColumns(anyString(), anyString());
+    Mockito.verify(mockSchemaMapper)
+        .getSpannerColumnType(anyString(), anyString(), Mockito.eq("new_id"));
+  }
+
+  @Test
+  public void transformChangeEventTest_newSchemaBuildsNewPlan()
+      throws InvalidTransformationException {
+    ISchemaMapper mockSchemaMapper = mockPeopleSchemaMapper();
+    Schema withName =
+        SchemaBuilder.record("people")
+            .fields()
+            .name("id")
+            .type(Schema.create(Schema.Type.LONG))
+            .noDefault()
+            .name("name")
+            .type(unionNullType(Schema.create(Schema.Type.STRING)))
+            .noDefault()
+            .endRecord();
+    Schema withoutName =
+        SchemaBuilder.record("people")
+            .fields()
+            .name("id")
+            .type(Schema.create(Schema.Type.LONG))
+            .noDefault()
+            .endRecord();
+    GenericRecordTypeConvertor genericRecordTypeConvertor =
+        new GenericRecordTypeConvertor(mockSchemaMapper, "", null, null);
+
+    assertEquals(
+        Map.of("new_id", Value.int64(1), "new_name", Value.string("a")),
+        genericRecordTypeConvertor.transformChangeEvent(peopleRecord(withName, 1, "a"), "people"));
+    assertEquals(
+        Map.of("new_id", Value.int64(2)),
+        genericRecordTypeConvertor.transformChangeEvent(
+            peopleRecord(withoutName, 2, null), "people"));
+  }
+
+  @Test
+  public void transformChangeEventToMutationTest() throws InvalidTransformationException {
+    Schema schema =
+        SchemaBuilder.record("people")
+            .fields()
+            .name("id")
+            .type(Schema.create(Schema.Type.LONG))
+            .noDefault()
+            .name("name")
+            .type(unionNullType(Schema.create(Schema.Type.STRING)))
+            .noDefault()
+            .endRecord();
+    GenericRecordTypeConvertor genericRecordTypeConvertor =
+        new GenericRecordTypeConvertor(mockPeopleSchemaMapper(), "", null, null);
+
+    assertEquals(
+        Mutation.newInsertOrUpdateBuilder("new_people")
+            .set("new_id")
+            .to(1L)
+            .set("new_name")
+            .to("a")
+            .build(),
+        genericRecordTypeConvertor.transformChangeEventToMutation(
+            peopleRecord(schema, 1, "a"), "people", false));
+    assertEquals(
+        Mutation.newInsertBuilder("new_people")
+            .set("new_id")
+            .to(2L)
+            .set("new_name")
+            .to((String) null)
+            .build(),
+        genericRecordTypeConvertor.transformChangeEventToMutation(
+            peopleRecord(schema, 2, null), "people", true));
+  }
+
   private class TestCustomTransform implements ISpannerMigrationTransformer {
 
     private Map<String, Value> expected;